@@ -0,0 +1,30 @@
+-- État des enchères dénormalisé sur ARTICLES_A_VENDRE (prix courant, nombre
+-- d'enchères, meneur, date de la dernière enchère), tenu à jour par
+-- l'application dans la transaction de chaque lot d'enchères. À exécuter une
+-- fois sur une base existante, application arrêtée ; ensuite le recalcul se
+-- fait par POST /admin/articles/encheres/recalcul.
+
+SET XACT_ABORT ON;
+BEGIN TRANSACTION;
+
+IF COL_LENGTH('ARTICLES_A_VENDRE', 'prix_courant') IS NULL
+    ALTER TABLE ARTICLES_A_VENDRE ADD
+        prix_courant          INT          NULL,
+        nombre_encheres       INT          NOT NULL CONSTRAINT DF_ARTICLES_NOMBRE_ENCHERES DEFAULT 0,
+        pseudo_meneur         VARCHAR(30)  NULL,
+        date_derniere_enchere DATETIME2(6) NULL;
+GO
+
+-- Reprise de l'existant depuis ENCHERES
+UPDATE a SET
+    a.prix_courant = e.prix_courant,
+    a.nombre_encheres = e.nombre_encheres,
+    a.date_derniere_enchere = e.date_derniere_enchere,
+    a.pseudo_meneur = (SELECT MAX(m.id_utilisateur) FROM ENCHERES m
+                       WHERE m.no_article = a.no_article AND m.montant_enchere = e.prix_courant)
+FROM ARTICLES_A_VENDRE a
+JOIN (SELECT no_article, MAX(montant_enchere) AS prix_courant, COUNT(*) AS nombre_encheres,
+             MAX(date_enchere) AS date_derniere_enchere
+      FROM ENCHERES GROUP BY no_article) e ON e.no_article = a.no_article;
+
+COMMIT TRANSACTION;
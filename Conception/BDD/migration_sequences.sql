@@ -0,0 +1,53 @@
+-- Passage des identifiants de ENCHERES et MOUVEMENTS_CREDIT d'IDENTITY à des
+-- séquences (allocation par blocs de 50, comme dans les entités) pour permettre
+-- les INSERT par lots JDBC. À exécuter une fois sur une base existante,
+-- application arrêtée. Aucune table ne référence ces identifiants.
+
+SET XACT_ABORT ON;
+BEGIN TRANSACTION;
+
+DECLARE @table SYSNAME, @colonne SYSNAME, @sequence SYSNAME, @pk SYSNAME, @debut BIGINT, @sql NVARCHAR(MAX);
+
+DECLARE migrations CURSOR LOCAL FAST_FORWARD FOR
+    SELECT t, c, s FROM (VALUES
+        ('ENCHERES', 'id_enchere', 'SEQ_ENCHERES'),
+        ('MOUVEMENTS_CREDIT', 'id_mouvement', 'SEQ_MOUVEMENTS_CREDIT')) AS m(t, c, s);
+
+OPEN migrations;
+FETCH NEXT FROM migrations INTO @table, @colonne, @sequence;
+WHILE @@FETCH_STATUS = 0
+BEGIN
+    IF COLUMNPROPERTY(OBJECT_ID(@table), @colonne, 'IsIdentity') = 1
+    BEGIN
+        SELECT @pk = name FROM sys.key_constraints WHERE parent_object_id = OBJECT_ID(@table) AND type = 'PK';
+
+        -- Copie de la colonne sans IDENTITY, puis remplacement
+        SET @sql = N'ALTER TABLE ' + QUOTENAME(@table) + N' ADD ' + QUOTENAME(@colonne + '_seq') + N' BIGINT NULL;';
+        EXEC sp_executesql @sql;
+        SET @sql = N'UPDATE ' + QUOTENAME(@table) + N' SET ' + QUOTENAME(@colonne + '_seq') + N' = ' + QUOTENAME(@colonne) + N';'
+            + N' ALTER TABLE ' + QUOTENAME(@table) + N' DROP CONSTRAINT ' + QUOTENAME(@pk) + N';'
+            + N' ALTER TABLE ' + QUOTENAME(@table) + N' DROP COLUMN ' + QUOTENAME(@colonne) + N';';
+        EXEC sp_executesql @sql;
+        SET @sql = N'EXEC sp_rename ''' + @table + N'.' + @colonne + N'_seq'', ''' + @colonne + N''', ''COLUMN'';';
+        EXEC sp_executesql @sql;
+        -- id_enchere reste un INT côté entité
+        SET @sql = N'ALTER TABLE ' + QUOTENAME(@table) + N' ALTER COLUMN ' + QUOTENAME(@colonne)
+            + CASE WHEN @table = 'ENCHERES' THEN N' INT' ELSE N' BIGINT' END + N' NOT NULL;'
+            + N' ALTER TABLE ' + QUOTENAME(@table) + N' ADD CONSTRAINT ' + QUOTENAME('PK_' + @table) + N' PRIMARY KEY (' + QUOTENAME(@colonne) + N');';
+        EXEC sp_executesql @sql;
+    END
+
+    IF OBJECT_ID(@sequence, 'SO') IS NULL
+    BEGIN
+        SET @sql = N'SELECT @debut = ISNULL(MAX(' + QUOTENAME(@colonne) + N'), 0) + 1 FROM ' + QUOTENAME(@table) + N';';
+        EXEC sp_executesql @sql, N'@debut BIGINT OUTPUT', @debut = @debut OUTPUT;
+        SET @sql = N'CREATE SEQUENCE ' + QUOTENAME(@sequence) + N' START WITH ' + CAST(@debut AS NVARCHAR(20)) + N' INCREMENT BY 50;';
+        EXEC sp_executesql @sql;
+    END
+
+    FETCH NEXT FROM migrations INTO @table, @colonne, @sequence;
+END
+CLOSE migrations;
+DEALLOCATE migrations;
+
+COMMIT TRANSACTION;
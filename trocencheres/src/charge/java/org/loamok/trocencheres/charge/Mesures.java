@@ -0,0 +1,36 @@
+package org.loamok.trocencheres.charge;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * Latences (ns) relevées par un client, lues après la fin de son thread.
+ *
+ * @author Huby Franck
+ */
+final class Mesures {
+
+    private long[] valeurs = new long[4096];
+    private int nombre;
+
+    void ajouter(long latence) {
+        if (nombre == valeurs.length)
+            valeurs = Arrays.copyOf(valeurs, nombre * 2);
+        valeurs[nombre++] = latence;
+    }
+
+    LongStream valeurs() {
+        return Arrays.stream(valeurs, 0, nombre);
+    }
+
+    // Toutes les latences des clients, triées
+    static long[] triees(List<Mesures> mesures) {
+        return mesures.stream().flatMapToLong(Mesures::valeurs).sorted().toArray();
+    }
+
+    // Quantile en millisecondes d'un tableau trié
+    static double ms(long[] triees, double quantile) {
+        return triees[Math.min(triees.length - 1, (int) Math.ceil(quantile * triees.length) - 1)] / 1e6;
+    }
+}
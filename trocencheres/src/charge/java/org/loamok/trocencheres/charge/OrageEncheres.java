@@ -0,0 +1,309 @@
+package org.loamok.trocencheres.charge;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.loamok.trocencheres.TrocencheresApplication;
+import org.loamok.trocencheres.manager.ReferentielService;
+import org.loamok.trocencheres.security.password.PasswordHashService;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Orage d'enchères de dernière minute, de bout en bout et sans service
+ * externe : l'application est démarrée dans le même processus (profil
+ * « charge », H2 en mémoire en mode SQL Server), la base est peuplée
+ * (utilisateurs, catégories, milliers d'articles), puis N clients rejouent
+ * la dernière minute d'enchères sur des articles qui ferment tous au même
+ * moment.
+ * <ul>
+ * <li>chauffe : chaque client s'authentifie et enchérit sur des articles
+ * « tièdes » (non mesuré) ;</li>
+ * <li>orage : tous les clients redemandent un jeton au même instant
+ * (/authorize/token), puis enchérissent sur les articles « chauds » jusqu'à
+ * leur clôture (/encheres/placer), en renouvelant parfois leur jeton.</li>
+ * </ul>
+ * Le rapport donne, par point d'entrée, débit, latences p50/p99/max et codes
+ * HTTP, puis les requêtes SQL préparées par requête HTTP (statistiques
+ * Hibernate sur la fenêtre mesurée) et le contrôle des enchères écrites.
+ * <pre>
+ * gradle orage -Porage='clients=200 articles=5000 chaudes=100 duree=PT60S'
+ * gradle orage -Porage='profils=charge,virtuel app.encheres.batch.durabilite=COMMIT'
+ * </pre>
+ * Les paramètres spring.*, app.*, server.* et logging.* sont transmis à
+ * l'application.
+ *
+ * @author Huby Franck
+ */
+public class OrageEncheres {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String MOT_DE_PASSE = "Orage#2025";
+    private static final String JETON = "POST /authorize/token";
+    private static final String ENCHERE = "POST /encheres/placer";
+
+    private final int clients;
+    private final int articles;
+    private final int chaudes;
+    private final Duration duree;
+    private final Duration chauffe;
+    private final double renouvellement;
+    private final List<String> arguments = new ArrayList<>();
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private String url;
+    // Articles chauds (fermant à la fin de l'orage) et tièdes (chauffe)
+    private int[] articlesChauds;
+    private int[] articlesTiedes;
+    // Meilleur montant connu par article, mis à jour par les réponses
+    private final ConcurrentMap<Integer, Integer> meilleurs = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, LongAdder> codes = new ConcurrentHashMap<>();
+    private final LongAdder exceptions = new LongAdder();
+    private final LongAdder acceptees = new LongAdder();
+    private volatile boolean mesure;
+
+    OrageEncheres(Map<String, String> p) {
+        clients = Integer.parseInt(p.getOrDefault("clients", "200"));
+        articles = Integer.parseInt(p.getOrDefault("articles", "5000"));
+        chaudes = Integer.parseInt(p.getOrDefault("chaudes", "100"));
+        duree = Duration.parse(p.getOrDefault("duree", "PT60S"));
+        chauffe = Duration.parse(p.getOrDefault("chauffe", "PT15S"));
+        renouvellement = Double.parseDouble(p.getOrDefault("renouvellement", "0.02"));
+        arguments.add("--spring.profiles.active=" + p.getOrDefault("profils", "charge"));
+        arguments.add("--server.port=0");
+        p.forEach((cle, valeur) -> {
+            if (Stream.of("spring.", "app.", "server.", "logging.").anyMatch(cle::startsWith))
+                arguments.add("--" + cle + "=" + valeur);
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> parametres = new TreeMap<>();
+        for (String a : args) {
+            final int egal = a.indexOf('=');
+            if (egal > 0)
+                parametres.put(a.substring(0, egal), a.substring(egal + 1));
+        }
+        new OrageEncheres(parametres).executer();
+        System.exit(0);
+    }
+
+    void executer() throws Exception {
+        // Journal des offres dans un répertoire jetable : rien à rejouer au démarrage
+        final Path journal = Files.createTempDirectory("orage-journal");
+        arguments.add("--app.encheres.journal.repertoire=" + journal);
+
+        try (ConfigurableApplicationContext contexte = SpringApplication.run(TrocencheresApplication.class, arguments.toArray(String[]::new))) {
+            url = "http://localhost:" + contexte.getEnvironment().getProperty("local.server.port");
+            final JdbcTemplate jdbc = contexte.getBean(JdbcTemplate.class);
+            final Statistics statistiques = contexte.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+            final long debutPeuplement = System.nanoTime();
+            final LocalDateTime cloture = LocalDateTime.now().plus(chauffe).plus(duree);
+            peupler(jdbc, contexte.getBean(PasswordHashService.class).hacher(MOT_DE_PASSE), cloture);
+            contexte.getBean(ReferentielService.class).recharger();
+            System.out.printf("Base peuplée : %d utilisateurs, %d articles (%d chauds) en %.1f s%n",
+                    clients, articles, chaudes, (System.nanoTime() - debutPeuplement) / 1e9);
+
+            orage(cloture, statistiques);
+
+            // Lots d'enchères encore en cours d'écriture (mode asynchrone)
+            Thread.sleep(1000);
+            final Integer enBase = jdbc.queryForObject("SELECT COUNT(*) FROM encheres", Integer.class);
+            System.out.printf("Enchères acceptées : %d, en base : %d%n", acceptees.sum(), enBase);
+        } finally {
+            try (Stream<Path> fichiers = Files.walk(journal)) {
+                fichiers.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+            }
+        }
+    }
+
+    private void peupler(JdbcTemplate jdbc, String hache, LocalDateTime cloture) {
+        jdbc.update("INSERT INTO roles (role, is_admin) VALUES ('ROLE_USER', 0)");
+        final Integer role = jdbc.queryForObject("SELECT id_role FROM roles WHERE role = 'ROLE_USER'", Integer.class);
+        jdbc.update("INSERT INTO addresses (rue, code_postal, city, adresse_eni) VALUES ('1 rue de la Paix', '75002', 'Paris', 0)");
+        final Integer adresse = jdbc.queryForObject("SELECT MAX(no_adresse) FROM addresses", Integer.class);
+        for (String libelle : List.of("Informatique", "Meubles", "Sport", "Vêtements", "Livres"))
+            jdbc.update("INSERT INTO categories (libelle) VALUES (?)", libelle);
+        final List<Integer> categories = jdbc.queryForList("SELECT no_categorie FROM categories", Integer.class);
+
+        final List<Object[]> utilisateurs = new ArrayList<>();
+        utilisateurs.add(new Object[] { "vendeur", "vendeur@orage.fr", 0 });
+        for (int i = 0; i < clients; i++)
+            utilisateurs.add(new Object[] { pseudo(i), pseudo(i) + "@orage.fr", 1_000_000 });
+        jdbc.batchUpdate("INSERT INTO utilisateurs (pseudo, nom, prenom, email, credit, no_adresse, id_role, mot_de_passe)"
+                + " VALUES (?, 'Orage', 'Client', ?, ?, " + adresse + ", " + role + ", '" + hache + "')", utilisateurs);
+
+        // Chauds : ferment tous à la fin de l'orage ; les autres dans les 48 h
+        final LocalDateTime ouverture = LocalDateTime.now().minusHours(1);
+        final List<Object[]> lignes = new ArrayList<>(articles);
+        for (int i = 0; i < articles; i++) {
+            final boolean chaud = i < chaudes;
+            final LocalDateTime fin = chaud ? cloture : cloture.plusMinutes(10 + ThreadLocalRandom.current().nextInt(48 * 60));
+            lignes.add(new Object[] { (chaud ? "Orage " : "Lot ") + i, "Article de charge numéro " + i,
+                Timestamp.valueOf(ouverture), Timestamp.valueOf(fin), 1 + ThreadLocalRandom.current().nextInt(100),
+                categories.get(i % categories.size()), adresse });
+        }
+        jdbc.batchUpdate("INSERT INTO articles_a_vendre (nom_article, description, photo, date_debut_encheres, date_fin_encheres,"
+                + " statut_enchere, prix_initial, id_utilisateur, no_categorie, no_adresse_retrait, nombre_encheres)"
+                + " VALUES (?, ?, 0, ?, ?, 0, ?, 'vendeur', ?, ?, 0)", lignes);
+
+        jdbc.query("SELECT no_article, prix_initial FROM articles_a_vendre",
+                rs -> { meilleurs.put(rs.getInt(1), rs.getInt(2) - 1); });
+        articlesChauds = jdbc.queryForList("SELECT no_article FROM articles_a_vendre WHERE nom_article LIKE 'Orage %' ORDER BY no_article", Integer.class)
+                .stream().mapToInt(Integer::intValue).toArray();
+        articlesTiedes = jdbc.queryForList("SELECT no_article FROM articles_a_vendre WHERE nom_article LIKE 'Lot %' ORDER BY no_article", Integer.class)
+                .stream().mapToInt(Integer::intValue).limit(Math.max(1, chaudes)).toArray();
+    }
+
+    private void orage(LocalDateTime cloture, Statistics statistiques) throws Exception {
+        final long fin = System.nanoTime() + Duration.between(LocalDateTime.now(), cloture).toNanos();
+        final long debutOrage = fin - duree.toNanos();
+        final Map<String, List<Mesures>> mesures = Map.of(JETON, new ArrayList<>(), ENCHERE, new ArrayList<>());
+        final List<Thread> threads = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            final String pseudo = pseudo(i);
+            final Mesures jetons = new Mesures();
+            final Mesures encheres = new Mesures();
+            mesures.get(JETON).add(jetons);
+            mesures.get(ENCHERE).add(encheres);
+            threads.add(Thread.ofVirtual().start(() -> client(pseudo, debutOrage, fin, jetons, encheres)));
+        }
+
+        // Début de l'orage : compteurs remis à zéro
+        Thread.sleep(Math.max(0, (debutOrage - System.nanoTime()) / 1_000_000));
+        codes.clear();
+        exceptions.reset();
+        statistiques.clear();
+        mesure = true;
+        for (Thread t : threads)
+            t.join();
+        mesure = false;
+        final double secondes = duree.toNanos() / 1e9;
+        final long instructions = statistiques.getPrepareStatementCount();
+        final long transactions = statistiques.getTransactionCount();
+
+        System.out.printf("%nOrage : %d clients, %d articles chauds, %.0f s%n", clients, articlesChauds.length, secondes);
+        long requetes = 0;
+        for (String point : List.of(JETON, ENCHERE)) {
+            final long[] latences = Mesures.triees(mesures.get(point));
+            requetes += latences.length;
+            System.out.printf("%-22s %7d requêtes (%6.0f req/s)", point, latences.length, latences.length / secondes);
+            if (latences.length > 0)
+                System.out.printf(", p50 %7.1f ms, p99 %7.1f ms, max %7.1f ms",
+                        Mesures.ms(latences, 0.50), Mesures.ms(latences, 0.99), latences[latences.length - 1] / 1e6);
+            System.out.println();
+        }
+        System.out.printf("Codes : %s, exceptions : %d%n", new TreeMap<>(codes), exceptions.sum());
+        if (requetes > 0)
+            System.out.printf("SQL : %d requêtes préparées (%.2f par requête HTTP), %d transactions%n",
+                    instructions, (double) instructions / requetes, transactions);
+    }
+
+    private void client(String pseudo, long debutOrage, long fin, Mesures jetons, Mesures encheres) {
+        try {
+            String jeton = jeton(pseudo, jetons);
+            while (System.nanoTime() < debutOrage)
+                encherir(jeton, articlesTiedes[ThreadLocalRandom.current().nextInt(articlesTiedes.length)], encheres);
+
+            // Arrivée de tous les enchérisseurs pour la dernière minute
+            jeton = jeton(pseudo, jetons);
+            while (System.nanoTime() < fin) {
+                if (ThreadLocalRandom.current().nextDouble() < renouvellement)
+                    jeton = jeton(pseudo, jetons);
+                // Quelques articles concentrent l'essentiel des offres
+                final double r = ThreadLocalRandom.current().nextDouble();
+                encherir(jeton, articlesChauds[(int) (r * r * articlesChauds.length)], encheres);
+            }
+        } catch (Exception e) {
+            exceptions.increment();
+        }
+    }
+
+    private String jeton(String pseudo, Mesures jetons) throws Exception {
+        final String corps = "grant_type=client_credentials&client_id=" + URLEncoder.encode(pseudo, StandardCharsets.UTF_8)
+                + "&client_secret=" + URLEncoder.encode(MOT_DE_PASSE, StandardCharsets.UTF_8);
+        final HttpRequest requete = HttpRequest.newBuilder(URI.create(url + "/authorize/token"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(corps))
+                .build();
+        while (true) {
+            final long debut = System.nanoTime();
+            final HttpResponse<String> reponse = http.send(requete, HttpResponse.BodyHandlers.ofString());
+            compter(JETON, reponse.statusCode(), System.nanoTime() - debut, jetons);
+            if (reponse.statusCode() == 200)
+                return JSON.readTree(reponse.body()).get("access_token").asText();
+            // Hachage saturé (503) : nouvelle tentative après Retry-After, avec gigue
+            final long attente = reponse.headers().firstValueAsLong("Retry-After").orElse(1) * 1000;
+            Thread.sleep(attente + ThreadLocalRandom.current().nextLong(attente / 2 + 1));
+        }
+    }
+
+    private void encherir(String jeton, int noArticle, Mesures encheres) {
+        final int montant = meilleurs.getOrDefault(noArticle, 0) + 1 + ThreadLocalRandom.current().nextInt(5);
+        final HttpRequest requete = HttpRequest.newBuilder(URI.create(url + "/encheres/placer"))
+                .header("Authorization", "Bearer " + jeton)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"noArticle\":" + noArticle + ",\"montant\":" + montant + "}"))
+                .build();
+        try {
+            final long debut = System.nanoTime();
+            final HttpResponse<String> reponse = http.send(requete, HttpResponse.BodyHandlers.ofString());
+            compter(ENCHERE, reponse.statusCode(), System.nanoTime() - debut, encheres);
+            if (reponse.statusCode() == 200)
+                acceptees.increment();
+            // Acceptée ou refusée (409) : la réponse donne le meilleur montant
+            if (reponse.statusCode() == 200 || reponse.statusCode() == 409) {
+                final JsonNode meilleur = JSON.readTree(reponse.body()).path("meilleurMontant");
+                if (meilleur.isInt())
+                    meilleurs.merge(noArticle, meilleur.asInt(), Math::max);
+            }
+        } catch (Exception e) {
+            if (mesure)
+                exceptions.increment();
+        }
+    }
+
+    private void compter(String point, int code, long latence, Mesures m) {
+        if (!mesure)
+            return;
+        m.ajouter(latence);
+        codes.computeIfAbsent(point + " " + code, c -> new LongAdder()).increment();
+    }
+
+    private static String pseudo(int i) {
+        return "client" + i;
+    }
+}
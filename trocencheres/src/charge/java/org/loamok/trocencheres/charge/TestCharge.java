@@ -0,0 +1,199 @@
+package org.loamok.trocencheres.charge;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Test de charge HTTP contre une instance démarrée : N clients concurrents
+ * (threads virtuels côté client) rejouent un scénario pendant une durée
+ * donnée, puis le rapport donne débit, latences p50/p99/max, codes d'erreur
+ * et, relevés toutes les 100 ms sur /admin/execution, le maximum de
+ * connexions actives et en attente du pool et de threads plateforme.
+ * <p>
+ * Comparaison des modes d'exécution : lancer l'application sans puis avec le
+ * profil « virtuel » et rejouer le même scénario.
+ * <pre>
+ * gradle charge -Pcharge='scenario=mixte clients=400 duree=PT30S'
+ * </pre>
+ * Scénarios : lecture (détail d'article, une requête SQL), jeton (émission
+ * de jeton, BCrypt), mixte (90 % lecture, 10 % jeton).
+ *
+ * @author Huby Franck
+ */
+public class TestCharge {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final String url;
+    private final String scenario;
+    private final int clients;
+    private final Duration duree;
+    private final Duration chauffe;
+    private final int articles;
+    private final String utilisateur;
+    private final String admin;
+    private final String motDePasse;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final ConcurrentMap<Integer, LongAdder> codes = new ConcurrentHashMap<>();
+    private final LongAdder exceptions = new LongAdder();
+    private volatile boolean mesure;
+    private volatile boolean fin;
+
+    private volatile int poolActivesMax;
+    private volatile int poolEnAttenteMax;
+    private volatile int threadsPlateformeMax;
+    private volatile String mode = "?";
+
+    TestCharge(Map<String, String> p) {
+        url = p.getOrDefault("url", "http://localhost:8080");
+        scenario = p.getOrDefault("scenario", "mixte");
+        clients = Integer.parseInt(p.getOrDefault("clients", "400"));
+        duree = Duration.parse(p.getOrDefault("duree", "PT30S"));
+        chauffe = Duration.parse(p.getOrDefault("chauffe", "PT5S"));
+        articles = Integer.parseInt(p.getOrDefault("articles", "50"));
+        utilisateur = p.getOrDefault("utilisateur", "alice");
+        admin = p.getOrDefault("admin", "admin");
+        motDePasse = p.getOrDefault("motdepasse", "password");
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> parametres = new TreeMap<>();
+        for (String a : args) {
+            final int egal = a.indexOf('=');
+            if (egal > 0)
+                parametres.put(a.substring(0, egal), a.substring(egal + 1));
+        }
+        new TestCharge(parametres).executer();
+    }
+
+    void executer() throws Exception {
+        final String jeton = jeton(utilisateur);
+        final String jetonAdmin = jeton(admin);
+
+        final Thread releve = Thread.ofPlatform().daemon().name("releve").start(() -> relever(jetonAdmin));
+        final List<Mesures> mesures = new ArrayList<>(clients);
+        final List<Thread> threads = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            final Mesures m = new Mesures();
+            mesures.add(m);
+            threads.add(Thread.ofVirtual().start(() -> {
+                while (!fin) {
+                    final long debut = System.nanoTime();
+                    appeler(jeton);
+                    if (mesure)
+                        m.ajouter(System.nanoTime() - debut);
+                }
+            }));
+        }
+
+        Thread.sleep(chauffe.toMillis());
+        codes.clear();
+        exceptions.reset();
+        poolActivesMax = 0;
+        poolEnAttenteMax = 0;
+        mesure = true;
+        final long debut = System.nanoTime();
+        Thread.sleep(duree.toMillis());
+        mesure = false;
+        final double secondes = (System.nanoTime() - debut) / 1e9;
+        fin = true;
+        for (Thread t : threads)
+            t.join();
+        releve.interrupt();
+
+        final long[] toutes = Mesures.triees(mesures);
+        rapport(toutes, secondes);
+    }
+
+    private void appeler(String jeton) {
+        try {
+            final HttpRequest requete;
+            if ("jeton".equals(scenario) || ("mixte".equals(scenario) && ThreadLocalRandom.current().nextInt(10) == 0))
+                requete = demandeJeton(utilisateur);
+            else
+                requete = HttpRequest.newBuilder(URI.create(url + "/articlesAVendres/"
+                        + (1 + ThreadLocalRandom.current().nextInt(articles)) + "/detail"))
+                        .header("Authorization", "Bearer " + jeton)
+                        .timeout(Duration.ofSeconds(30))
+                        .GET().build();
+            final int code = http.send(requete, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (mesure)
+                codes.computeIfAbsent(code, c -> new LongAdder()).increment();
+        } catch (Exception e) {
+            if (mesure)
+                exceptions.increment();
+        }
+    }
+
+    private HttpRequest demandeJeton(String pseudo) {
+        final String corps = "grant_type=client_credentials&client_id=" + URLEncoder.encode(pseudo, StandardCharsets.UTF_8)
+                + "&client_secret=" + URLEncoder.encode(motDePasse, StandardCharsets.UTF_8);
+        return HttpRequest.newBuilder(URI.create(url + "/authorize/token"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(corps))
+                .build();
+    }
+
+    private String jeton(String pseudo) throws Exception {
+        final HttpResponse<String> reponse = http.send(demandeJeton(pseudo), HttpResponse.BodyHandlers.ofString());
+        if (reponse.statusCode() != 200)
+            throw new IllegalStateException("Jeton refusé pour " + pseudo + " : " + reponse.statusCode() + " " + reponse.body());
+        return JSON.readTree(reponse.body()).get("access_token").asText();
+    }
+
+    // Relevé périodique de l'état du serveur (pool, threads)
+    private void relever(String jetonAdmin) {
+        final HttpRequest requete = HttpRequest.newBuilder(URI.create(url + "/admin/execution"))
+                .header("Authorization", "Bearer " + jetonAdmin)
+                .GET().build();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                final JsonNode e = JSON.readTree(http.send(requete, HttpResponse.BodyHandlers.ofString()).body());
+                mode = e.path("threadsVirtuels").asBoolean() ? "threads virtuels" : "threads plateforme";
+                threadsPlateformeMax = Math.max(threadsPlateformeMax, e.path("threadsPlateforme").asInt());
+                if (mesure) {
+                    poolActivesMax = Math.max(poolActivesMax, e.path("pool").path("actives").asInt());
+                    poolEnAttenteMax = Math.max(poolEnAttenteMax, e.path("pool").path("enAttente").asInt());
+                }
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                // Serveur saturé : relevé suivant
+            }
+        }
+    }
+
+    private void rapport(long[] latences, double secondes) {
+        System.out.printf("%nMode : %s — scénario %s, %d clients, %.0f s%n", mode, scenario, clients, secondes);
+        System.out.printf("Requêtes : %d (%.0f req/s), exceptions : %d, codes : %s%n",
+                latences.length, latences.length / secondes, exceptions.sum(), new TreeMap<>(codes));
+        if (latences.length > 0)
+            System.out.printf("Latence : p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                    Mesures.ms(latences, 0.50), Mesures.ms(latences, 0.99), latences[latences.length - 1] / 1e6);
+        System.out.printf("Pool : %d connexions actives max, %d requêtes en attente max ; threads plateforme max : %d%n",
+                poolActivesMax, poolEnAttenteMax, threadsPlateformeMax);
+    }
+}
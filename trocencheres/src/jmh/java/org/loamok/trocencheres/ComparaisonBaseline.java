@@ -0,0 +1,68 @@
+package org.loamok.trocencheres;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compare les résultats JMH d'une exécution (JSON) à la baseline versionnée
+ * et échoue si un benchmark régresse au-delà du seuil (en %). Le sens de la
+ * régression dépend du mode : débit en baisse (thrpt) ou temps moyen en
+ * hausse (avgt, sample, ss).
+ * <pre>
+ * gradle jmh -Pjmh='Jwt' &amp;&amp; gradle jmhComparer -Pseuil=20
+ * </pre>
+ * Pour renouveler la baseline après une amélioration voulue, recopier
+ * build/jmh/resultats.json dans src/jmh/baseline.json.
+ *
+ * @author Huby Franck
+ */
+public class ComparaisonBaseline {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, JsonNode> reference = lire(new File(args[0]));
+        final Map<String, JsonNode> resultats = lire(new File(args[1]));
+        final double seuil = Double.parseDouble(args[2]);
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> r : resultats.entrySet()) {
+            final JsonNode ref = reference.get(r.getKey());
+            final double score = r.getValue().path("primaryMetric").path("score").asDouble();
+            final String unite = r.getValue().path("primaryMetric").path("scoreUnit").asText();
+            if (ref == null) {
+                System.out.printf("  nouveau     %-70s %12.1f %s%n", r.getKey(), score, unite);
+                continue;
+            }
+            final double base = ref.path("primaryMetric").path("score").asDouble();
+            // Écart signé : positif = plus lent
+            final double ecart = "thrpt".equals(r.getValue().path("mode").asText())
+                    ? (base - score) / base * 100
+                    : (score - base) / base * 100;
+            final boolean regression = ecart > seuil;
+            if (regression)
+                regressions++;
+            System.out.printf("%s %-70s %12.1f -> %12.1f %s (%+.1f %%)%n",
+                    regression ? "! REGRESSION" : "  ok        ", r.getKey(), base, score, unite, ecart);
+        }
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) au-delà de %.0f %% de la baseline%n", regressions, seuil);
+            System.exit(1);
+        }
+    }
+
+    // Résultats indexés par benchmark (+ paramètres éventuels) et mode
+    private static Map<String, JsonNode> lire(File fichier) throws Exception {
+        final Map<String, JsonNode> resultats = new LinkedHashMap<>();
+        for (JsonNode r : JSON.readTree(fichier)) {
+            String cle = r.path("benchmark").asText().replace("org.loamok.trocencheres.", "");
+            if (r.has("params"))
+                cle += r.get("params").toString();
+            resultats.put(cle + " [" + r.path("mode").asText() + "]", r);
+        }
+        return resultats;
+    }
+}
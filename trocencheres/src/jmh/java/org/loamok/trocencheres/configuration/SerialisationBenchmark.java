@@ -0,0 +1,191 @@
+package org.loamok.trocencheres.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.loamok.trocencheres.entity.Adresse;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.entity.Categorie;
+import org.loamok.trocencheres.entity.Role;
+import org.loamok.trocencheres.entity.Utilisateur;
+import org.loamok.trocencheres.projection.ArticleResume;
+import org.loamok.trocencheres.projection.EnchereHistorique;
+import org.loamok.trocencheres.projection.PageArticles;
+import org.loamok.trocencheres.projection.ProfilUtilisateur;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * Sérialisation JSON des entités exposées par le mapper de
+ * {@link JacksonConfig} (module Hibernate, dates java.time), et réponses des
+ * lectures fréquentes (liste d'articles, historique, profil) écrites par le
+ * convertisseur Jackson par défaut ou par {@link JsonLegerConverter}, vers un
+ * flux qui ne garde rien. Les tailles des réponses sont affichées au
+ * démarrage ; l'allocation par réponse se lit avec -PjmhArgs='-prof gc'
+ * (gc.alloc.rate.norm).
+ *
+ * @author Huby Franck
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerialisationBenchmark {
+
+    private static final Type TYPE_HISTORIQUE = new ParameterizedTypeReference<List<EnchereHistorique>>() {}.getType();
+
+    private ObjectMapper mapper;
+    private Utilisateur utilisateur;
+    private ArticlesAVendre article;
+
+    private GenericHttpMessageConverter<Object> defaut;
+    private GenericHttpMessageConverter<Object> leger;
+    private HttpOutputMessage sortie;
+    private List<ArticlesAVendre> entites;
+    private PageArticles page;
+    private List<EnchereHistorique> historique;
+    private ProfilUtilisateur profil;
+
+    @Setup
+    public void setup() throws IOException {
+        mapper = new JacksonConfig().objectMapper();
+        final Adresse adresse = Adresse.builder().id(1).rue("2 quai Kléber").codePostal("67000").ville("Strasbourg").adresseEni(false).build();
+        utilisateur = Utilisateur.builder()
+                .pseudo("alice").nom("Martin").prenom("Alice").email("alice@exemple.fr").telephone("0600000000")
+                .credit(500).adresse(adresse).role(Role.builder().id(1).role("ROLE_USER").isAdmin(false).build())
+                .password("{bcrypt}$2a$10$dXJ3SW6G7P50lGmMkkmwe.20cQQubK3.HZWzG3YB1tlRy.fqvM/BG")
+                .build();
+        final LocalDateTime debut = LocalDateTime.of(2025, 6, 1, 10, 0);
+        article = article(42, utilisateur, adresse, debut);
+
+        defaut = new MappingJackson2HttpMessageConverter(mapper);
+        leger = new JsonLegerConverter(new JacksonConfig().objectMapperLeger());
+        final HttpHeaders entetes = new HttpHeaders();
+        sortie = new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return OutputStream.nullOutputStream();
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return entetes;
+            }
+        };
+
+        // Page de 20 articles (taille par défaut de la recherche) et son historique
+        entites = new ArrayList<>();
+        final List<ArticleResume> resumes = new ArrayList<>();
+        historique = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            entites.add(article(i, utilisateur, adresse, debut));
+            resumes.add(new ArticleResume(i, article.getNom(), article.getDescription(), 0,
+                    debut, debut.plusDays(7), ArticlesAVendre.STATUT_EN_COURS, 120, null, 3, "Sport", "alice",
+                    150, 4, "bob"));
+            historique.add(new EnchereHistorique(i, 120 + i * 5, debut.plusHours(i), i % 2 == 0 ? "bob" : "carole"));
+        }
+        page = new PageArticles(resumes, "MjAyNS0wNi0wOFQxMDowMHwxOQ");
+        profil = new ProfilUtilisateur("alice", "Martin", "Alice", "alice@exemple.fr", "0600000000", 500,
+                "2 quai Kléber", "67000", "Strasbourg");
+
+        System.out.println("Octets par réponse : articles (entités) " + taille(defaut, entites, null)
+                + ", page d'articles " + taille(defaut, page, null) + " / légère " + taille(leger, page, null)
+                + ", historique " + taille(defaut, historique, TYPE_HISTORIQUE) + " / léger " + taille(leger, historique, TYPE_HISTORIQUE)
+                + ", profil (entité) " + taille(defaut, utilisateur, null) + " / léger " + taille(leger, profil, null));
+    }
+
+    private static ArticlesAVendre article(int id, Utilisateur vendeur, Adresse adresse, LocalDateTime debut) {
+        return ArticlesAVendre.builder()
+                .id(id).nom("Vélo de course").description("Cadre aluminium, 21 vitesses, très bon état")
+                .photo(0).dateDebutEncheres(debut).dateFinEncheres(debut.plusDays(7))
+                .statutEnchere(ArticlesAVendre.STATUT_EN_COURS).prixInitial(120)
+                .prixCourant(150).nombreEncheres(4).meneur("bob").dateDerniereEnchere(debut.plusDays(2))
+                .utilisateur(vendeur).categorie(Categorie.builder().id(3).libelle("Sport").build())
+                .adresseRetrait(adresse)
+                .build();
+    }
+
+    private static int taille(GenericHttpMessageConverter<Object> convertisseur, Object valeur, Type type) throws IOException {
+        final ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        final HttpHeaders entetes = new HttpHeaders();
+        convertisseur.write(valeur, type, MediaType.APPLICATION_JSON, new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return octets;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return entetes;
+            }
+        });
+        return octets.size();
+    }
+
+    @Benchmark
+    public byte[] utilisateur() throws Exception {
+        return mapper.writeValueAsBytes(utilisateur);
+    }
+
+    @Benchmark
+    public byte[] article() throws Exception {
+        return mapper.writeValueAsBytes(article);
+    }
+
+    @Benchmark
+    public void articlesEntites() throws IOException {
+        defaut.write(entites, null, MediaType.APPLICATION_JSON, sortie);
+    }
+
+    @Benchmark
+    public void pageArticlesDefaut() throws IOException {
+        defaut.write(page, null, MediaType.APPLICATION_JSON, sortie);
+    }
+
+    @Benchmark
+    public void pageArticlesLegere() throws IOException {
+        leger.write(page, null, MediaType.APPLICATION_JSON, sortie);
+    }
+
+    @Benchmark
+    public void historiqueDefaut() throws IOException {
+        defaut.write(historique, TYPE_HISTORIQUE, MediaType.APPLICATION_JSON, sortie);
+    }
+
+    @Benchmark
+    public void historiqueLeger() throws IOException {
+        leger.write(historique, TYPE_HISTORIQUE, MediaType.APPLICATION_JSON, sortie);
+    }
+
+    @Benchmark
+    public void profilEntite() throws IOException {
+        defaut.write(utilisateur, null, MediaType.APPLICATION_JSON, sortie);
+    }
+
+    @Benchmark
+    public void profilLeger() throws IOException {
+        leger.write(profil, null, MediaType.APPLICATION_JSON, sortie);
+    }
+}
@@ -0,0 +1,40 @@
+package org.loamok.trocencheres.manager;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validation du format des mots de passe à l'inscription
+ * ({@code UserManager.checkPasswordCorrect}) : mot de passe conforme, et
+ * mot de passe long sans caractère spécial (pire cas des lookaheads).
+ *
+ * @author Huby Franck
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MotDePasseBenchmark {
+
+    private final UserManager userManager = new UserManager();
+
+    @Benchmark
+    public Boolean motDePasseValide() {
+        return userManager.checkPasswordCorrect("Secret#2025");
+    }
+
+    @Benchmark
+    public Boolean motDePasseRefuse() {
+        return userManager.checkPasswordCorrect("Abcdefghijklmnopqrs1");
+    }
+}
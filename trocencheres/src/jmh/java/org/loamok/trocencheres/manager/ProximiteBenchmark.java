@@ -0,0 +1,88 @@
+package org.loamok.trocencheres.manager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.projection.Coordonnees;
+import org.loamok.trocencheres.projection.PositionArticle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Recherche « à moins de N km, fin la plus proche d'abord » sur l'index de
+ * proximité ({@code IndexProximite}), 200 000 articles : moitié autour de
+ * quelques grandes villes, moitié répartie sur la métropole. Page de 20 en
+ * ville (10 km) et en rase campagne (100 km), et page profonde par curseur.
+ *
+ * @author Huby Franck
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProximiteBenchmark {
+
+    private static final double[][] VILLES = { { 48.857, 2.352 }, { 45.764, 4.836 }, { 43.297, 5.370 },
+        { 47.218, -1.554 }, { 50.629, 3.057 }, { 43.605, 1.444 }, { 44.838, -0.579 } };
+
+    private static final Coordonnees PARIS = new Coordonnees(48.857, 2.352);
+    private static final Coordonnees CREUSE = new Coordonnees(46.171, 1.871);
+
+    private static final int ARTICLES = 200_000;
+
+    private final IndexProximite index = new IndexProximite();
+    private LocalDateTime apresFin;
+    private Integer apresId;
+
+    @Setup
+    public void setup() {
+        final Random alea = new Random(42);
+        final LocalDateTime maintenant = LocalDateTime.now();
+        final LocalDateTime[] fins = new LocalDateTime[ARTICLES + 1];
+        for (int i = 1; i <= ARTICLES; i++) {
+            final double latitude;
+            final double longitude;
+            if (i % 2 == 0) {
+                final double[] ville = VILLES[alea.nextInt(VILLES.length)];
+                latitude = ville[0] + alea.nextGaussian() * 0.1;
+                longitude = ville[1] + alea.nextGaussian() * 0.15;
+            } else {
+                latitude = 42.5 + alea.nextDouble() * 8.5;
+                longitude = -4.5 + alea.nextDouble() * 12.5;
+            }
+            fins[i] = maintenant.plusMinutes(alea.nextInt(60 * 24 * 14));
+            index.placer(new PositionArticle(i, fins[i], ArticlesAVendre.STATUT_EN_COURS, latitude, longitude));
+        }
+        // Curseur de la 50e page parisienne
+        final List<Integer> ids = index.rechercher(PARIS, 10, null, null, 50 * 20);
+        apresId = ids.get(ids.size() - 1);
+        apresFin = fins[apresId];
+    }
+
+    @Benchmark
+    public List<Integer> villeDixKm() {
+        return index.rechercher(PARIS, 10, null, null, 21);
+    }
+
+    @Benchmark
+    public List<Integer> campagneCentKm() {
+        return index.rechercher(CREUSE, 100, null, null, 21);
+    }
+
+    @Benchmark
+    public List<Integer> villePageProfonde() {
+        return index.rechercher(PARIS, 10, apresFin, apresId, 21);
+    }
+}
@@ -0,0 +1,78 @@
+package org.loamok.trocencheres.manager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.loamok.trocencheres.projection.PageUtilisateurs;
+import org.loamok.trocencheres.projection.UtilisateurTrouve;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Recherche d'utilisateurs sur l'index en mémoire
+ * ({@code RechercheUtilisateurManager}), 50 000 comptes générés : préfixe
+ * d'un caractère (liste la plus longue), sous-chaîne d'email, nom à une
+ * faute près et recherche sur tous les champs.
+ *
+ * @author Huby Franck
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RechercheUtilisateursBenchmark {
+
+    private static final String[] NOMS = { "Martin", "Bernard", "Dubois", "Thomas", "Robert", "Richard", "Petit",
+        "Durand", "Leroy", "Moreau", "Simon", "Laurent", "Lefèvre", "Michel", "García", "David", "Bertrand", "Roux",
+        "Vincent", "Fournier", "Morel", "Girard", "André", "Lefebvre", "Mercier", "Dupont", "Lambert", "Bonnet" };
+    private static final String[] PRENOMS = { "Jean", "Marie", "Pierre", "Camille", "Léa", "Hugo", "Chloé", "Louis",
+        "Emma", "Gabriel", "Inès", "Arthur", "Jade", "Raphaël", "Louise", "Jules", "Zoé", "Adam", "Alice", "Paul" };
+    private static final String[] DOMAINES = { "gmail.com", "orange.fr", "free.fr", "laposte.net", "outlook.fr" };
+
+    private final RechercheUtilisateurManager recherche = new RechercheUtilisateurManager();
+
+    @Setup
+    public void setup() {
+        final Random alea = new Random(42);
+        final List<UtilisateurTrouve> utilisateurs = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            final String nom = NOMS[alea.nextInt(NOMS.length)];
+            final String prenom = PRENOMS[alea.nextInt(PRENOMS.length)];
+            final String pseudo = prenom.toLowerCase().charAt(0) + nom.toLowerCase() + i;
+            utilisateurs.add(new UtilisateurTrouve(pseudo, nom, prenom,
+                    pseudo + "@" + DOMAINES[alea.nextInt(DOMAINES.length)]));
+        }
+        recherche.charger(utilisateurs);
+    }
+
+    @Benchmark
+    public PageUtilisateurs prefixePseudo() {
+        return recherche.rechercher("j", ChampRecherche.PSEUDO, ModeRecherche.PREFIXE, 0, 20);
+    }
+
+    @Benchmark
+    public PageUtilisateurs contientEmail() {
+        return recherche.rechercher("dupont12", ChampRecherche.EMAIL, ModeRecherche.CONTIENT, 0, 20);
+    }
+
+    @Benchmark
+    public PageUtilisateurs approcheNom() {
+        return recherche.rechercher("fournie", ChampRecherche.NOM, ModeRecherche.APPROCHE, 0, 20);
+    }
+
+    @Benchmark
+    public PageUtilisateurs contientTout() {
+        return recherche.rechercher("lefevre4", ChampRecherche.TOUT, ModeRecherche.CONTIENT, 0, 20);
+    }
+}
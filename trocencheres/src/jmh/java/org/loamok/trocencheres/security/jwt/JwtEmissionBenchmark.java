@@ -0,0 +1,75 @@
+package org.loamok.trocencheres.security.jwt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.loamok.trocencheres.configuration.JacksonConfig;
+import org.loamok.trocencheres.security.oauth2.OAuth2TokenResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Jetons émis par seconde sur le chemin de /authorize/token, vérification du
+ * mot de passe exclue : création du jeton puis sérialisation de la réponse.
+ * « jjwt » reproduit l'ancien chemin (Map de claims, builder jjwt, copie de la
+ * réponse dans une HashMap), « rapide » le chemin actuel.
+ *
+ * @author Huby Franck
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtEmissionBenchmark {
+
+    private JwtService jwtService;
+    private ObjectMapper mapper;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        jwtService = JwtServices.creer(10_000L);
+        mapper = new JacksonConfig().objectMapper();
+    }
+
+    @Benchmark
+    public String jetonJjwt() {
+        final Map<String, Object> claims = new HashMap<>();
+        claims.put("client_id", "alice");
+        claims.put("scope", "access");
+        claims.put("token_type", "client_credentials");
+        claims.put("authority", "ROLE_USER");
+        claims.put("isAdmin", false);
+        return jwtService.generateClientCredentialsToken(claims, "alice");
+    }
+
+    @Benchmark
+    public String jetonRapide() {
+        return jwtService.generateClientCredentialsToken("alice", "access", "ROLE_USER", false);
+    }
+
+    @Benchmark
+    public byte[] reponseJjwt() throws Exception {
+        final Map<String, Object> response = new HashMap<>();
+        response.put("access_token", jetonJjwt());
+        response.put("token_type", "Bearer");
+        response.put("expires_in", jwtService.getDureeAccesS());
+        response.put("scope", "access");
+        return mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] reponseRapide() throws Exception {
+        return mapper.writeValueAsBytes(new OAuth2TokenResponse(jetonRapide(), "Bearer", jwtService.getDureeAccesS(), "access", null));
+    }
+}
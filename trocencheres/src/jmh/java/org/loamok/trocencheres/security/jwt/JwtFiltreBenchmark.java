@@ -0,0 +1,89 @@
+package org.loamok.trocencheres.security.jwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.loamok.trocencheres.repository.JetonRevoqueRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Coût du filtre JWT par requête ({@code doFilterInternal}, chaîne vide) :
+ * jeton valide déjà vérifié (authentification posée dans le contexte) et
+ * requête anonyme sans en-tête. Liste de révocation vide.
+ *
+ * @author Huby Franck
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtFiltreBenchmark {
+
+    private static final FilterChain CHAINE = (requete, reponse) -> { };
+
+    private JwtAuthenticationFilter filtre;
+    private RevocationService revocationService;
+    private MockHttpServletRequest requeteJeton;
+    private MockHttpServletRequest requeteAnonyme;
+    private MockHttpServletResponse reponse;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        final JwtService jwtService = JwtServices.creer(10_000L);
+
+        revocationService = new RevocationService();
+        JwtServices.champ(revocationService, "capacite", 100_000);
+        JwtServices.champ(revocationService, "periodePurge", Duration.ofMinutes(10));
+        JwtServices.champ(revocationService, "dureeRefresh", Duration.ofDays(7));
+        JwtServices.champ(revocationService, "jrR", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { JetonRevoqueRepository.class },
+                (proxy, methode, args) -> methode.getName().equals("findByExpirationAfter") ? List.of() : null));
+        revocationService.init();
+
+        filtre = new JwtAuthenticationFilter(jwtService, revocationService, new SimpleMeterRegistry());
+
+        requeteJeton = new MockHttpServletRequest("GET", "/articlesAVendres/1/detail");
+        requeteJeton.addHeader("Authorization", "Bearer " + jwtService.generateClientCredentialsToken("alice", "access", "ROLE_USER", false));
+        requeteAnonyme = new MockHttpServletRequest("GET", "/articlesAVendres/1/detail");
+        reponse = new MockHttpServletResponse();
+    }
+
+    @TearDown
+    public void tearDown() {
+        revocationService.arreter();
+    }
+
+    @Benchmark
+    public Object filtreJeton() throws Exception {
+        try {
+            filtre.doFilterInternal(requeteJeton, reponse, CHAINE);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Benchmark
+    public Object filtreAnonyme() throws Exception {
+        filtre.doFilterInternal(requeteAnonyme, reponse, CHAINE);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,39 @@
+package org.loamok.trocencheres.security.jwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Services JWT hors contexte Spring pour les benchmarks : clé fixe, champs
+ * {@code @Value} et registre de métriques renseignés par réflexion.
+ *
+ * @author Huby Franck
+ */
+final class JwtServices {
+
+    private JwtServices() {
+    }
+
+    static JwtService creer(long tailleCache) throws ReflectiveOperationException {
+        final JwtService jwtService = new JwtService();
+        champ(jwtService, "meterRegistry", new SimpleMeterRegistry());
+        final byte[] secret = new byte[48];
+        new Random(42).nextBytes(secret);
+        champ(jwtService, "SECRET_KEY", Base64.getEncoder().encodeToString(secret));
+        champ(jwtService, "tailleCache", tailleCache);
+        champ(jwtService, "ttlMaxCache", Duration.ofMinutes(5));
+        champ(jwtService, "dureeAcces", Duration.ofMinutes(15));
+        champ(jwtService, "dureeRefresh", Duration.ofDays(7));
+        jwtService.init();
+        return jwtService;
+    }
+
+    static void champ(Object cible, String nom, Object valeur) throws ReflectiveOperationException {
+        final Field f = cible.getClass().getDeclaredField(nom);
+        f.setAccessible(true);
+        f.set(cible, valeur);
+    }
+}
@@ -0,0 +1,52 @@
+package org.loamok.trocencheres.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lecture des claims d'un jeton à chaque requête authentifiée :
+ * « cache » pour un jeton déjà vérifié (cas courant), « signature » pour un
+ * jeton jamais vu (cache désactivé, vérification HMAC et parsing complets).
+ *
+ * @author Huby Franck
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private JwtService avecCache;
+    private JwtService sansCache;
+    private String jeton;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        avecCache = JwtServices.creer(10_000L);
+        sansCache = JwtServices.creer(0L);
+        jeton = avecCache.generateClientCredentialsToken("alice", "access", "ROLE_USER", false);
+        avecCache.extractAllClaims(jeton);
+    }
+
+    @Benchmark
+    public Claims claimsCache() {
+        return avecCache.extractAllClaims(jeton);
+    }
+
+    @Benchmark
+    public Claims claimsSignature() {
+        return sansCache.extractAllClaims(jeton);
+    }
+}
@@ -0,0 +1,128 @@
+package org.loamok.trocencheres.configuration;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Requêtes SQL émises par Hibernate pendant chaque requête HTTP :
+ * l'inspecteur de requêtes d'Hibernate les note dans la trace du thread de
+ * la requête, relevée à la fin du filtre.
+ * <ul>
+ * <li>toujours : nombre de requêtes (distribution trocencheres.sql.requetes) ;</li>
+ * <li>au-delà de app.logs.sql.seuil-requetes : N+1 probable, tracé en WARN
+ * avec la requête la plus répétée ;</li>
+ * <li>une requête HTTP sur 1/app.logs.sql.echantillon : toutes ses requêtes
+ * SQL tracées en INFO.</li>
+ * </ul>
+ * Les textes ne sont que référencés pendant la requête, ils ne sont analysés
+ * que pour les deux derniers cas. Les requêtes lentes sont tracées par
+ * Hibernate (hibernate.log_slow_query). Les écritures par lots des enchères,
+ * faites par un thread de fond, ne sont pas comptées.
+ *
+ * @author Huby Franck
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class CompteurRequetesSql extends OncePerRequestFilter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    // Textes conservés par requête HTTP, au-delà seul le nombre compte
+    private static final int TEXTES_MAX = 500;
+    private static final int LONGUEUR_MAX = 300;
+
+    private static final ThreadLocal<Trace> TRACE = new ThreadLocal<>();
+
+    private final DistributionSummary requetes;
+
+    @Value("${app.logs.sql.echantillon:0.01}")
+    private double echantillon;
+    @Value("${app.logs.sql.seuil-requetes:20}")
+    private int seuilRequetes;
+
+    public CompteurRequetesSql(MeterRegistry meterRegistry) {
+        requetes = DistributionSummary.builder("trocencheres.sql.requetes")
+                .description("Requêtes SQL par requête HTTP")
+                .baseUnit("requetes")
+                .serviceLevelObjectives(1, 2, 5, 10, 20, 50)
+                .register(meterRegistry);
+    }
+
+    private static final class Trace {
+        private int nombre;
+        private final List<String> textes = new ArrayList<>();
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        final Trace trace = TRACE.get();
+        if (trace != null && trace.nombre++ < TEXTES_MAX)
+            trace.textes.add(sql);
+        return sql;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain)
+    throws ServletException, IOException {
+        final long debut = System.nanoTime();
+        final Trace trace = new Trace();
+        TRACE.set(trace);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            TRACE.remove();
+            requetes.record(trace.nombre);
+            if (trace.nombre > seuilRequetes)
+                signalerNPlusUn(request, trace);
+            else if (trace.nombre > 0 && ThreadLocalRandom.current().nextDouble() < echantillon && logger.isInfoEnabled())
+                logger.info("SQL " + pointEntree(request) + " : " + trace.nombre + " requêtes en "
+                        + (System.nanoTime() - debut) / 1_000_000 + " ms\n\t" + String.join("\n\t", trace.textes));
+        }
+    }
+
+    private void signalerNPlusUn(HttpServletRequest request, Trace trace) {
+        final Map<String, Integer> parTexte = new HashMap<>();
+        for (String sql : trace.textes)
+            parTexte.merge(sql, 1, Integer::sum);
+        final Map.Entry<String, Integer> plusRepetee = parTexte.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .orElseThrow();
+        logger.warn("N+1 probable sur " + pointEntree(request) + " : " + trace.nombre + " requêtes SQL, dont "
+                + plusRepetee.getValue() + " × " + abreger(plusRepetee.getKey()));
+    }
+
+    // Motif de la route quand il est connu (pas d'identifiants dans les journaux agrégés)
+    private static String pointEntree(HttpServletRequest request) {
+        final Object motif = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (motif != null ? motif : request.getRequestURI());
+    }
+
+    private static String abreger(String sql) {
+        return sql.length() <= LONGUEUR_MAX ? sql : sql.substring(0, LONGUEUR_MAX) + "…";
+    }
+}
@@ -0,0 +1,52 @@
+package org.loamok.trocencheres.configuration;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Identifiant de corrélation de chaque requête HTTP : repris de l'en-tête
+ * X-Correlation-Id s'il est fourni (et raisonnable), généré sinon, placé dans
+ * le MDC (correlationId, présent dans tous les journaux de la requête) et
+ * renvoyé dans la réponse.
+ *
+ * @author Huby Franck
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CorrelationFilter extends OncePerRequestFilter {
+
+    public static final String ENTETE = "X-Correlation-Id";
+    public static final String MDC_CLE = "correlationId";
+
+    private static final Pattern FORMAT = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain)
+    throws ServletException, IOException {
+        String identifiant = request.getHeader(ENTETE);
+        if (identifiant == null || !FORMAT.matcher(identifiant).matches())
+            identifiant = HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextLong());
+
+        MDC.put(MDC_CLE, identifiant);
+        response.setHeader(ENTETE, identifiant);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(MDC_CLE);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.loamok.trocencheres.configuration;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * LocalDateTime au format ISO (même texte que DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+ * écrit chiffre par chiffre dans un tampon de caractères : ni chaîne
+ * intermédiaire ni état du formateur par date. Années hors 0-9999 déléguées
+ * au formateur.
+ *
+ * @author Huby Franck
+ */
+public class DateHeureSerializer extends StdSerializer<LocalDateTime> {
+
+    public DateHeureSerializer() {
+        super(LocalDateTime.class);
+    }
+
+    @Override
+    public void serialize(LocalDateTime value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        final int annee = value.getYear();
+        if (annee < 0 || annee > 9999) {
+            gen.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+            return;
+        }
+
+        final char[] c = new char[29];
+        deuxChiffres(c, 0, annee / 100);
+        deuxChiffres(c, 2, annee % 100);
+        c[4] = '-';
+        deuxChiffres(c, 5, value.getMonthValue());
+        c[7] = '-';
+        deuxChiffres(c, 8, value.getDayOfMonth());
+        c[10] = 'T';
+        deuxChiffres(c, 11, value.getHour());
+        c[13] = ':';
+        deuxChiffres(c, 14, value.getMinute());
+        c[16] = ':';
+        deuxChiffres(c, 17, value.getSecond());
+        int longueur = 19;
+
+        // Fraction omise quand nulle, sans zéros finaux sinon
+        final int nano = value.getNano();
+        if (nano > 0) {
+            c[19] = '.';
+            int reste = nano;
+            for (int i = 28; i >= 20; i--) {
+                c[i] = (char) ('0' + reste % 10);
+                reste /= 10;
+            }
+            longueur = 29;
+            while (c[longueur - 1] == '0')
+                longueur--;
+        }
+        gen.writeString(c, 0, longueur);
+    }
+
+    private static void deuxChiffres(char[] c, int position, int valeur) {
+        c[position] = (char) ('0' + valeur / 10);
+        c[position + 1] = (char) ('0' + valeur % 10);
+    }
+}
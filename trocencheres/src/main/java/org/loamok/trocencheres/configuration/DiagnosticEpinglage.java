@@ -0,0 +1,82 @@
+package org.loamok.trocencheres.configuration;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Diagnostic d'épinglage des threads virtuels : un thread virtuel qui
+ * bloque dans une section synchronized (ou du code natif) garde son thread
+ * porteur. Les événements JFR jdk.VirtualThreadPinned au-delà du seuil sont
+ * tracés avec le haut de la pile, pour repérer la section en cause.
+ *
+ * @author Huby Franck
+ */
+@Component
+public class DiagnosticEpinglage {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private static final int PROFONDEUR_PILE = 8;
+
+    @Autowired
+    private FabriqueThreads fabriqueThreads;
+
+    @Value("${app.threads.epinglage.actif:true}")
+    private boolean actif;
+    @Value("${app.threads.epinglage.seuil:PT0.02S}")
+    private Duration seuil;
+
+    private final AtomicLong epinglages = new AtomicLong();
+    private RecordingStream flux;
+
+    @PostConstruct
+    void demarrer() {
+        if (!actif || !fabriqueThreads.isVirtuels())
+            return;
+
+        flux = new RecordingStream();
+        flux.enable("jdk.VirtualThreadPinned").withThreshold(seuil).withStackTrace();
+        flux.onEvent("jdk.VirtualThreadPinned", this::tracer);
+        flux.startAsync();
+        logger.info("Diagnostic d'épinglage des threads virtuels actif (seuil " + seuil.toMillis() + " ms)");
+    }
+
+    @PreDestroy
+    void arreter() {
+        if (flux != null)
+            flux.close();
+    }
+
+    public boolean isActif() {
+        return flux != null;
+    }
+
+    public long getEpinglages() {
+        return epinglages.get();
+    }
+
+    private void tracer(RecordedEvent evenement) {
+        epinglages.incrementAndGet();
+        final String pile = evenement.getStackTrace() == null ? "(pile indisponible)"
+                : evenement.getStackTrace().getFrames().stream()
+                        .limit(PROFONDEUR_PILE)
+                        .map(DiagnosticEpinglage::cadre)
+                        .collect(Collectors.joining("\n\tà "));
+        logger.warn("Thread virtuel épinglé " + evenement.getDuration().toMillis() + " ms :\n\tà " + pile);
+    }
+
+    private static String cadre(RecordedFrame f) {
+        return f.getMethod().getType().getName() + "." + f.getMethod().getName() + ":" + f.getLineNumber();
+    }
+}
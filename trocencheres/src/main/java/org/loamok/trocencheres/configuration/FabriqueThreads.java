@@ -0,0 +1,29 @@
+package org.loamok.trocencheres.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Threads de fond de l'application (écriture des enchères par lots,
+ * échéancier des clôtures) : virtuels quand le mode threads virtuels de
+ * Spring Boot est actif, comme les threads de requêtes Tomcat, sinon threads
+ * plateforme démons.
+ *
+ * @author Huby Franck
+ */
+@Component
+public class FabriqueThreads {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtuels;
+
+    public boolean isVirtuels() {
+        return virtuels;
+    }
+
+    public Thread demarrer(String nom, Runnable tache) {
+        return virtuels
+                ? Thread.ofVirtual().name(nom).start(tache)
+                : Thread.ofPlatform().name(nom).daemon().start(tache);
+    }
+}
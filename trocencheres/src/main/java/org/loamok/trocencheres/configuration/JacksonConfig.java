@@ -1,19 +1,29 @@
 package org.loamok.trocencheres.configuration;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.hibernate6.Hibernate6Module;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
  *
  * @author Huby Franck
  */
 @Configuration
-public class JacksonConfig {
+public class JacksonConfig implements WebMvcConfigurer {
     
     @Bean
     @Primary
@@ -26,6 +36,8 @@ public class JacksonConfig {
         hibernateModule.configure(Hibernate6Module.Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS, true);
         
         mapper.registerModule(hibernateModule);
+        // Dates java.time (flux des enchères, DTO)
+        mapper.registerModule(new JavaTimeModule());
         mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
         
         // Ajoutez ces configurations pour éviter les erreurs
@@ -34,4 +46,28 @@ public class JacksonConfig {
         
         return mapper;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Mapper des vues légères (records de projection) : sans module Hibernate,
+     * accesseurs générés par Blackbird plutôt que la réflexion, dates écrites
+     * sans chaîne intermédiaire, flux de la réponse laissé ouvert (fermé par
+     * le conteneur).
+     */
+    @Bean
+    @Qualifier("jsonLeger")
+    public ObjectMapper objectMapperLeger() {
+        return JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .addModule(new BlackbirdModule())
+                .addModule(new SimpleModule().addSerializer(LocalDateTime.class, new DateHeureSerializer()))
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .build();
+    }
+    
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Avant le convertisseur Jackson par défaut
+        converters.add(0, new JsonLegerConverter(objectMapperLeger()));
+    }
+}
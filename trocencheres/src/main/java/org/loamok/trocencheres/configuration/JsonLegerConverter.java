@@ -0,0 +1,91 @@
+package org.loamok.trocencheres.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.loamok.trocencheres.projection.ReponseLegere;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+/**
+ * Écriture des vues {@link ReponseLegere} (seules ou en collection) avec le
+ * mapper léger de {@link JacksonConfig} : un ObjectWriter par type déclaré,
+ * sérialiseur racine résolu à la première réponse puis réutilisé, écrit
+ * directement dans le flux de la réponse (ni tampon intermédiaire ni
+ * Content-Length calculé). Placé avant le convertisseur Jackson par défaut ;
+ * les autres types et la lecture des corps de requête ne passent pas ici.
+ *
+ * @author Huby Franck
+ */
+public class JsonLegerConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    private final ObjectMapper mapper;
+    private final Map<Type, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    public JsonLegerConverter(ObjectMapper mapper) {
+        super(MediaType.APPLICATION_JSON);
+        this.mapper = mapper;
+    }
+
+    /**
+     * Vue légère, ou collection paramétrée par une vue légère.
+     */
+    static boolean estLeger(@Nullable Type type) {
+        if (type instanceof Class<?> c)
+            return c.isAnnotationPresent(ReponseLegere.class);
+        if (type instanceof ParameterizedType p
+                && p.getRawType() instanceof Class<?> brut && Collection.class.isAssignableFrom(brut)
+                && p.getActualTypeArguments().length == 1)
+            return estLeger(p.getActualTypeArguments()[0]);
+        return false;
+    }
+
+    ObjectWriter writer(Type type) {
+        return writers.computeIfAbsent(type, t -> mapper.writerFor(mapper.constructType(t)));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz.isAnnotationPresent(ReponseLegere.class);
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        return (estLeger(type) || supports(clazz)) && canWrite(mediaType);
+    }
+
+    @Override
+    protected void writeInternal(Object o, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        // ResponseEntity<?> : type déclaré inconnu, celui de la valeur fait foi
+        writer(estLeger(type) ? type : o.getClass()).writeValue(outputMessage.getBody(), o);
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Lecture non prise en charge", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Lecture non prise en charge", inputMessage);
+    }
+}
@@ -1,7 +1,11 @@
 package org.loamok.trocencheres.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -11,6 +15,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.loamok.trocencheres.event.AdresseGeocodageListener;
 
 /**
  *
@@ -21,9 +26,21 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Builder
 @EqualsAndHashCode
+@EntityListeners(AdresseGeocodageListener.class)
 @Entity
 @Table(name = "ADDRESSES")
 public class Adresse {
+
+    // Origine des coordonnées dans la table des codes postaux
+    public enum Precision {
+        // Centroïde du code postal lui-même
+        CODE_POSTAL,
+        // Préfixe de trois caractères
+        SECTEUR,
+        // Préfixe de deux caractères : chef-lieu du département
+        DEPARTEMENT
+    }
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "no_adresse")
@@ -36,5 +53,18 @@ public class Adresse {
     private String ville;
     @Column(name = "adresse_eni", nullable = false)
     private @Builder.Default Boolean adresseEni = false;
+    // Centroïde du code postal (AdresseGeocodageListener), null si code inconnu
+    @Column(name = "latitude")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Double latitude;
+    @Column(name = "longitude")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Double longitude;
+    // Null si pas de coordonnées ; les adresses placées par préfixe sont
+    // géocodées à nouveau au démarrage
+    @Enumerated(EnumType.STRING)
+    @Column(name = "precision_geo", length = 12)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Precision precisionGeo;
     
 }
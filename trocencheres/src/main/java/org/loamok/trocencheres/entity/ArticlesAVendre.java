@@ -1,12 +1,15 @@
 package org.loamok.trocencheres.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -16,6 +19,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.loamok.trocencheres.event.ReferentielEntityListener;
 
 /**
  *
@@ -27,8 +32,22 @@ import lombok.NoArgsConstructor;
 @Builder
 @EqualsAndHashCode
 @Entity
-@Table(name = "ARTICLES_A_VENDRE")
+@EntityListeners(ReferentielEntityListener.class)
+@Table(name = "ARTICLES_A_VENDRE", indexes = {
+    // Pagination par clé (fin d'enchère, id) : tri « se termine bientôt »
+    @Index(name = "IX_ARTICLES_FIN", columnList = "date_fin_encheres, no_article"),
+    @Index(name = "IX_ARTICLES_CATEGORIE_FIN", columnList = "no_categorie, date_fin_encheres, no_article"),
+    @Index(name = "IX_ARTICLES_STATUT_FIN", columnList = "statut_enchere, date_fin_encheres, no_article"),
+    // Recherche par début de nom (LIKE 'x%')
+    @Index(name = "IX_ARTICLES_NOM", columnList = "nom_article")})
 public class ArticlesAVendre {
+    // Statuts possibles d'une enchère (cf. dictionnaire des données)
+    public static final int STATUT_NON_COMMENCEE = 0;
+    public static final int STATUT_EN_COURS = 1;
+    public static final int STATUT_CLOTUREE = 2;
+    public static final int STATUT_LIVREE = 3;
+    public static final int STATUT_ANNULEE = 100;
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "no_article")
@@ -49,11 +68,29 @@ public class ArticlesAVendre {
     private Integer prixInitial;
     @Column(name = "prix_vente", nullable = true)
     private Integer prixVente;
+    // -- état des enchères, dénormalisé : tenu à jour par UPDATE dans la
+    // transaction de chaque lot d'enchères (EnchereBatchWriter), jamais par
+    // l'enregistrement de l'entité ni par l'API
+    @Column(name = "prix_courant", insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer prixCourant;
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(name = "nombre_encheres", nullable = false, insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer nombreEncheres = 0;
+    @Column(name = "pseudo_meneur", length = 30, insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String meneur;
+    @Column(name = "date_derniere_enchere", insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime dateDerniereEnchere;
     // -- relations
     @ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "id_utilisateur")
     private Utilisateur utilisateur;
-    @ManyToOne(fetch = FetchType.EAGER)
+    // Résolue depuis le référentiel en mémoire au chargement (ReferentielEntityListener)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "no_categorie")
     private Categorie categorie;
     @ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
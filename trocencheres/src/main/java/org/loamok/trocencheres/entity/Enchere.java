@@ -9,6 +9,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 import java.time.LocalDateTime;
@@ -30,8 +31,11 @@ import lombok.NoArgsConstructor;
 @Entity
 @Table(name = "ENCHERES", uniqueConstraints = { @UniqueConstraint(columnNames = { "id_utilisateur", "no_article", "montant_enchere" }) })
 public class Enchere {
+    // Séquence à allocation par blocs : les INSERT peuvent partir en lots JDBC
+    // (impossible avec IDENTITY)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_encheres")
+    @SequenceGenerator(name = "seq_encheres", sequenceName = "SEQ_ENCHERES", allocationSize = 50)
     @Column(name = "id_enchere")
     private Integer id;
     @Column(name = "montant_enchere", nullable = false)
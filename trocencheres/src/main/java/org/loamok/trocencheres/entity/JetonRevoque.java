@@ -0,0 +1,52 @@
+package org.loamok.trocencheres.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Révocation de jetons JWT : un jeton précis (par son jti) ou tous les jetons
+ * d'un utilisateur émis avant la date de révocation. La ligne est inutile
+ * après son expiration et purgée.
+ *
+ * @author Huby Franck
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+@Entity
+@Table(name = "JETONS_REVOQUES", indexes = {
+    @Index(name = "IX_JETONS_REVOQUES_EXPIRATION", columnList = "expiration")
+})
+public class JetonRevoque {
+    
+    public enum TypeRevocation {
+        // Un jeton, clé = jti
+        JETON,
+        // Tous les jetons d'un utilisateur, clé = pseudo
+        UTILISATEUR
+    }
+    
+    @Id
+    @Column(name = "cle", length = 64)
+    private String cle;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type_revocation", nullable = false, length = 20)
+    private TypeRevocation type;
+    @Column(name = "date_revocation", nullable = false)
+    private LocalDateTime dateRevocation;
+    @Column(name = "expiration", nullable = false)
+    private LocalDateTime expiration;
+}
@@ -0,0 +1,65 @@
+package org.loamok.trocencheres.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Journal (en ajout seul) des mouvements de crédit des utilisateurs.
+ *
+ * @author Huby Franck
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode
+@Entity
+@Table(name = "MOUVEMENTS_CREDIT")
+public class MouvementCredit {
+    
+    public enum TypeMouvement {
+        // Débit à la pose d'une enchère
+        RESERVATION,
+        // Remboursement quand l'enchérisseur est dépassé
+        LIBERATION,
+        // Crédit du vendeur à la clôture
+        VENTE
+    }
+    
+    // Écrits en lots avec les enchères : séquence plutôt qu'IDENTITY
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_mouvements_credit")
+    @SequenceGenerator(name = "seq_mouvements_credit", sequenceName = "SEQ_MOUVEMENTS_CREDIT", allocationSize = 50)
+    @Column(name = "id_mouvement")
+    private Long id;
+    @Column(name = "montant", nullable = false)
+    private Integer montant;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type_mouvement", nullable = false, length = 20)
+    private TypeMouvement type;
+    @Column(name = "date_mouvement", nullable = false)
+    private LocalDateTime dateMouvement;
+    // -- relations
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id_utilisateur", nullable = false)
+    private Utilisateur utilisateur;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "no_article")
+    private ArticlesAVendre article;
+}
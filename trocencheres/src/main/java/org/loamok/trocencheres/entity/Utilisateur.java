@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Inheritance;
@@ -23,6 +24,8 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import lombok.experimental.SuperBuilder;
+import org.loamok.trocencheres.event.ReferentielEntityListener;
+import org.loamok.trocencheres.event.UtilisateurIndexListener;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -37,6 +40,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 @EqualsAndHashCode(of = {"pseudo"})
 @ToString(of = {"pseudo", "nom", "prenom", "email"})
 @Inheritance(strategy = InheritanceType.JOINED)
+@EntityListeners({ReferentielEntityListener.class, UtilisateurIndexListener.class})
 @SuperBuilder
 @Entity
 @Table(name = "UTILISATEURS", uniqueConstraints = {
@@ -53,7 +57,8 @@ public class Utilisateur implements UserDetails {
     private String email;
     @Column(name = "telephone", nullable = true, length = 15)
     private String telephone;
-    @Column(name = "credit", nullable = false)
+    // Jamais réécrit par un UPDATE d'entité : seul le CreditManager le modifie
+    @Column(name = "credit", nullable = false, updatable = false)
     private @Builder.Default
     Integer credit = 10;
     // -- relations
@@ -61,7 +66,8 @@ public class Utilisateur implements UserDetails {
     @JoinColumn(name = "no_adresse")
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private Adresse adresse;
-    @ManyToOne(fetch = FetchType.EAGER)
+    // Résolu depuis le référentiel en mémoire au chargement (ReferentielEntityListener)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_role", nullable = false)
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private Role role;
@@ -0,0 +1,28 @@
+package org.loamok.trocencheres.event;
+
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.loamok.trocencheres.entity.Adresse;
+import org.loamok.trocencheres.manager.GeocodageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * Positionne une adresse sur le centroïde de son code postal avant chaque
+ * INSERT ou UPDATE par JPA (inscription, /addresses, adresse de retrait).
+ *
+ * @author Huby Franck
+ */
+public class AdresseGeocodageListener {
+
+    // Paresseux : le listener est créé avec l'EntityManagerFactory, avant les dépôts
+    @Autowired
+    @Lazy
+    private GeocodageService geocodageManager;
+
+    @PrePersist
+    @PreUpdate
+    public void geocoder(Adresse adresse) {
+        geocodageManager.geocoder(adresse);
+    }
+}
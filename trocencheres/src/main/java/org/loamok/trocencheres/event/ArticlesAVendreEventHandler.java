@@ -0,0 +1,47 @@
+package org.loamok.trocencheres.event;
+
+import java.util.List;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.manager.EnchereScheduler;
+import org.loamok.trocencheres.manager.EnchereService;
+import org.loamok.trocencheres.manager.IndexProximite;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ *
+ * @author Huby Franck
+ */
+@Component
+@RepositoryEventHandler
+public class ArticlesAVendreEventHandler {
+
+    @Autowired
+    private EnchereScheduler enchereScheduler;
+    @Autowired
+    private EnchereService enchereManager;
+    @Autowired
+    private IndexProximite indexProximite;
+
+    @HandleAfterCreate
+    public void handleArticleCreate(ArticlesAVendre article) {
+        enchereScheduler.planifier(article);
+        indexProximite.actualiser(List.of(article.getId()));
+    }
+
+    @HandleAfterSave
+    public void handleArticleSave(ArticlesAVendre article) {
+        enchereManager.rafraichir(article);
+        enchereScheduler.planifier(article);
+        indexProximite.actualiser(List.of(article.getId()));
+    }
+
+    @HandleAfterDelete
+    public void handleArticleDelete(ArticlesAVendre article) {
+        indexProximite.retirer(List.of(article.getId()));
+    }
+}
@@ -0,0 +1,38 @@
+package org.loamok.trocencheres.event;
+
+import jakarta.persistence.PostLoad;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.entity.Categorie;
+import org.loamok.trocencheres.entity.Role;
+import org.loamok.trocencheres.entity.Utilisateur;
+import org.loamok.trocencheres.manager.ReferentielService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * Remplace, au chargement d'une entité, le proxy de sa catégorie ou de son
+ * rôle par l'instance du référentiel en mémoire : ni jointure ni SELECT
+ * supplémentaire. Une référence absente du référentiel garde son proxy.
+ *
+ * @author Huby Franck
+ */
+public class ReferentielEntityListener {
+
+    // Paresseux : le listener est créé avec l'EntityManagerFactory, avant les dépôts
+    @Autowired
+    @Lazy
+    private ReferentielService referentielManager;
+
+    @PostLoad
+    public void resoudre(Object entity) {
+        if (entity instanceof Utilisateur u && u.getRole() != null) {
+            final Role role = referentielManager.getRole(u.getRole().getId());
+            if (role != null)
+                u.setRole(role);
+        } else if (entity instanceof ArticlesAVendre a && a.getCategorie() != null) {
+            final Categorie categorie = referentielManager.getCategorie(a.getCategorie().getId());
+            if (categorie != null)
+                a.setCategorie(categorie);
+        }
+    }
+}
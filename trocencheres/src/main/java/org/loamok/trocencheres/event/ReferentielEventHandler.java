@@ -0,0 +1,61 @@
+package org.loamok.trocencheres.event;
+
+import org.loamok.trocencheres.entity.Categorie;
+import org.loamok.trocencheres.entity.Role;
+import org.loamok.trocencheres.manager.ReferentielService;
+import org.loamok.trocencheres.security.jwt.CompteCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reconstruit le référentiel en mémoire après toute écriture sur /categories
+ * ou /roles.
+ *
+ * @author Huby Franck
+ */
+@Component
+@RepositoryEventHandler
+public class ReferentielEventHandler {
+
+    @Autowired
+    private ReferentielService referentielManager;
+    @Autowired
+    private CompteCache compteCache;
+
+    @HandleAfterCreate
+    public void handleCategorieCreate(Categorie categorie) {
+        referentielManager.recharger();
+    }
+
+    @HandleAfterSave
+    public void handleCategorieSave(Categorie categorie) {
+        referentielManager.recharger();
+    }
+
+    @HandleAfterDelete
+    public void handleCategorieDelete(Categorie categorie) {
+        referentielManager.recharger();
+    }
+
+    @HandleAfterCreate
+    public void handleRoleCreate(Role role) {
+        referentielManager.recharger();
+    }
+
+    // Les comptes en cache portent le libellé du rôle
+    @HandleAfterSave
+    public void handleRoleSave(Role role) {
+        referentielManager.recharger();
+        compteCache.evincerTout();
+    }
+
+    @HandleAfterDelete
+    public void handleRoleDelete(Role role) {
+        referentielManager.recharger();
+        compteCache.evincerTout();
+    }
+}
@@ -3,10 +3,15 @@ package org.loamok.trocencheres.event;
 import org.loamok.trocencheres.entity.Utilisateur;
 import org.loamok.trocencheres.manager.AddressManager;
 import org.loamok.trocencheres.manager.UserManager;
+import org.loamok.trocencheres.security.jwt.CompteCache;
+import org.loamok.trocencheres.security.password.PasswordHashService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterLinkDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterLinkSave;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
 import org.springframework.data.rest.core.annotation.HandleBeforeCreate;
 import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Component;
 
 /**
@@ -21,6 +26,10 @@ public class UtilisateurEventHandler {
     private UserManager userManager;
     @Autowired
     private AddressManager addressManager;
+    @Autowired
+    private PasswordHashService passwordHashService;
+    @Autowired
+    private CompteCache compteCache;
 
     @HandleBeforeCreate
     public void handleUtilisateurCreate(Utilisateur utilisateur) {
@@ -30,9 +39,28 @@ public class UtilisateurEventHandler {
         if (!addressManager.doCheckAdresseRegistering(utilisateur.getAdresse()))
             throw new RuntimeException("Adresse invalide");
         
-        if (utilisateur.getPassword() != null && !utilisateur.getPassword().startsWith("{bcrypt}")) {
-            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
-            utilisateur.setPassword("{bcrypt}" + encoder.encode(utilisateur.getPassword()));
-        }
+        if (utilisateur.getPassword() != null && !utilisateur.getPassword().startsWith("{bcrypt}"))
+            utilisateur.setPassword(passwordHashService.hacher(utilisateur.getPassword()));
+    }
+
+    // Mot de passe, rôle ou compte modifiés : le compte en cache est périmé
+    @HandleAfterSave
+    public void handleUtilisateurSave(Utilisateur utilisateur) {
+        compteCache.evincer(utilisateur.getPseudo());
+    }
+
+    @HandleAfterLinkSave
+    public void handleUtilisateurLinkSave(Utilisateur utilisateur, Object lien) {
+        compteCache.evincer(utilisateur.getPseudo());
+    }
+
+    @HandleAfterLinkDelete
+    public void handleUtilisateurLinkDelete(Utilisateur utilisateur, Object lien) {
+        compteCache.evincer(utilisateur.getPseudo());
+    }
+
+    @HandleAfterDelete
+    public void handleUtilisateurDelete(Utilisateur utilisateur) {
+        compteCache.evincer(utilisateur.getPseudo());
     }
 }
@@ -0,0 +1,55 @@
+package org.loamok.trocencheres.event;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import java.util.List;
+import org.loamok.trocencheres.entity.Utilisateur;
+import org.loamok.trocencheres.manager.RechercheUtilisateurService;
+import org.loamok.trocencheres.projection.UtilisateurTrouve;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Répercute dans l'index de recherche en mémoire les comptes créés, modifiés
+ * ou supprimés par JPA, une fois la transaction validée : un rollback ne
+ * laisse pas de compte fantôme dans l'index.
+ *
+ * @author Huby Franck
+ */
+public class UtilisateurIndexListener {
+
+    // Paresseux : le listener est créé avec l'EntityManagerFactory, avant les dépôts
+    @Autowired
+    @Lazy
+    private RechercheUtilisateurService rechercheUtilisateurManager;
+
+    @PostPersist
+    @PostUpdate
+    public void indexer(Utilisateur u) {
+        // Valeurs figées maintenant : l'entité peut encore changer avant le commit
+        final UtilisateurTrouve trouve = new UtilisateurTrouve(u.getPseudo(), u.getNom(), u.getPrenom(), u.getEmail());
+        apresCommit(() -> rechercheUtilisateurManager.indexer(List.of(trouve)));
+    }
+
+    @PostRemove
+    public void retirer(Utilisateur u) {
+        final String pseudo = u.getPseudo();
+        apresCommit(() -> rechercheUtilisateurManager.retirer(pseudo));
+    }
+
+    private static void apresCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,522 @@
+package org.loamok.trocencheres.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Journal local en ajout seul des offres acceptées et des clôtures, pour
+ * reprendre l'état en mémoire du moteur d'enchères après un arrêt brutal sans
+ * reparcourir la table ENCHERES.
+ * <p>
+ * Le journal est découpé en segments de taille fixe projetés en mémoire
+ * ({@code journal-N.seg}). Chaque enregistrement est
+ * {@code [longueur int][crc32c int][type byte][données]} ; la longueur est
+ * écrite en dernier, un enregistrement interrompu (longueur nulle) ou dont le
+ * CRC ne correspond pas marque la fin du segment à la relecture. Un
+ * instantané ({@code instantane.bin}, même format) contient la meilleure offre
+ * de chaque article ouvert et les offres non encore confirmées en base ; au
+ * démarrage il est relu puis les segments postérieurs sont rejoués. Le
+ * compacteur écrit périodiquement un nouvel instantané et supprime les
+ * segments qu'il couvre.
+ * <p>
+ * Le journal n'est jamais bloquant pour les enchères : une erreur d'écriture
+ * est tracée et l'offre suit son chemin normal vers la base.
+ *
+ * @author Huby Franck
+ */
+@Component
+public class JournalEncheres {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    static final byte OFFRE = 1;
+    static final byte ECRITE = 2;
+    static final byte CLOTURE = 3;
+    // Instantané uniquement
+    static final byte MEILLEURE = 4;
+    static final byte ATTENTE = 5;
+
+    private static final int MAGIC_INSTANTANE = 0x4A45_4E31;
+    private static final String INSTANTANE = "instantane.bin";
+    private static final String PREFIXE_SEGMENT = "journal-";
+    private static final String SUFFIXE_SEGMENT = ".seg";
+    // Sans objet pour un journal désactivé ou en erreur
+    public static final long AUCUNE_SEQUENCE = -1;
+
+    // Offre acceptée, avec de quoi la réécrire en base si elle n'y est pas
+    public record Offre(long sequence, Integer noArticle, String pseudo, Integer montant, LocalDateTime date,
+            String precedentEncherisseur, Integer precedentMontant) {}
+
+    // Meilleure offre connue d'un article
+    public record Meilleure(Integer montant, String pseudo) {}
+
+    @Value("${app.encheres.journal.actif:true}")
+    private boolean actif;
+    // Chemin absolu d'un répertoire existant : un chemin relatif dépendrait du
+    // répertoire de lancement et la reprise relirait un autre journal
+    @Value("${app.encheres.journal.repertoire:}")
+    private String nomRepertoire;
+    @Value("${app.encheres.journal.taille-segment:16MB}")
+    private DataSize tailleSegment;
+    // force() à chaque enregistrement : survit à une panne du système et pas
+    // seulement à celle du processus, au prix d'un msync par offre
+    @Value("${app.encheres.journal.forcer:false}")
+    private boolean forcer;
+    @Value("${app.encheres.journal.compaction:PT5M}")
+    private Duration periodeCompaction;
+
+    // Protège le segment courant et l'état ci-dessous
+    private final ReentrantLock verrou = new ReentrantLock();
+    private final ByteBuffer tampon = ByteBuffer.allocate(1024);
+    private final Map<Integer, Meilleure> meilleures = new HashMap<>();
+    private final Map<Long, Offre> enAttente = new LinkedHashMap<>();
+    private long sequence;
+
+    private Path repertoire;
+    private long noSegment;
+    private MappedByteBuffer segment;
+    private ScheduledExecutorService compacteur;
+
+    @PostConstruct
+    void ouvrir() throws IOException {
+        if (!actif)
+            return;
+
+        repertoire = verifierRepertoire(nomRepertoire);
+
+        final long debut = lireInstantane();
+        long dernier = debut - 1;
+        int rejoues = 0;
+        for (long no : segments()) {
+            dernier = Math.max(dernier, no);
+            if (no < debut)
+                continue;
+            try (FileChannel canal = FileChannel.open(cheminSegment(no), StandardOpenOption.READ)) {
+                if (!lire(canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()), this::rejouer))
+                    logger.warn("Segment " + no + " du journal tronqué : relu jusqu'au dernier enregistrement valide");
+            }
+            rejoues++;
+        }
+
+        // Les écritures reprennent toujours dans un segment neuf
+        noSegment = dernier;
+        nouveauSegment();
+
+        compacteur = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "journal-compacteur");
+            t.setDaemon(true);
+            return t;
+        });
+        compacteur.scheduleWithFixedDelay(this::compacter, periodeCompaction.toSeconds(), periodeCompaction.toSeconds(), TimeUnit.SECONDS);
+        logger.info("Journal des enchères : " + rejoues + " segments rejoués, " + meilleures.size()
+                + " articles et " + enAttente.size() + " offres à confirmer");
+    }
+
+    // Refus au démarrage plutôt qu'un journal perdu ou introuvable à la reprise
+    static Path verifierRepertoire(String nom) {
+        if (nom == null || nom.isBlank())
+            throw new IllegalStateException("Journal des enchères : app.encheres.journal.repertoire non renseigné");
+
+        final Path chemin = Path.of(nom);
+        if (!chemin.isAbsolute())
+            throw new IllegalStateException("Journal des enchères : le répertoire doit être un chemin absolu (" + nom + ")");
+        if (!Files.isDirectory(chemin))
+            throw new IllegalStateException("Journal des enchères : répertoire inexistant (" + chemin + ")");
+        if (!Files.isWritable(chemin))
+            throw new IllegalStateException("Journal des enchères : répertoire non accessible en écriture (" + chemin + ")");
+        return chemin.normalize();
+    }
+
+    @PreDestroy
+    void fermer() {
+        if (!actif)
+            return;
+
+        compacteur.shutdownNow();
+        verrou.lock();
+        try {
+            segment.force();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    public boolean isActif() {
+        return actif;
+    }
+
+    /**
+     * Journalise une offre acceptée. À appeler sous le verrou de l'article :
+     * l'ordre du journal est celui des offres de chaque article.
+     *
+     * @return numéro de séquence à confirmer, ou {@link #AUCUNE_SEQUENCE}
+     */
+    public long offre(Integer noArticle, String pseudo, Integer montant, LocalDateTime date,
+            String precedentEncherisseur, Integer precedentMontant) {
+        if (!actif)
+            return AUCUNE_SEQUENCE;
+
+        verrou.lock();
+        try {
+            final Offre offre = new Offre(++sequence, noArticle, pseudo, montant, date, precedentEncherisseur, precedentMontant);
+            ajouter(OFFRE, b -> ecrireOffre(b, offre));
+            appliquerOffre(offre);
+            return offre.sequence();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Offre de " + pseudo + " sur l'article " + noArticle + " non journalisée", e);
+            return AUCUNE_SEQUENCE;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Journalise le sort en base d'une offre : écrite, ou perdue (l'article
+     * sera alors rechargé depuis la base à la reprise).
+     */
+    public void confirmer(long noSequence, boolean ecrite) {
+        if (!actif || noSequence == AUCUNE_SEQUENCE)
+            return;
+
+        verrou.lock();
+        try {
+            ajouter(ECRITE, b -> b.putLong(noSequence).put((byte) (ecrite ? 1 : 0)));
+            appliquerEcrite(noSequence, ecrite);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Confirmation de l'offre " + noSequence + " non journalisée", e);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Journalise la clôture (ou l'abandon) d'un article : sa meilleure offre
+     * n'est plus à restaurer.
+     */
+    public void clore(Integer noArticle) {
+        if (!actif)
+            return;
+
+        verrou.lock();
+        try {
+            ajouter(CLOTURE, b -> b.putInt(noArticle));
+            meilleures.remove(noArticle);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Clôture de l'article " + noArticle + " non journalisée", e);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    // Meilleures offres à restaurer, par article
+    public Map<Integer, Meilleure> getMeilleures() {
+        verrou.lock();
+        try {
+            return new HashMap<>(meilleures);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    // Offres journalisées dont l'écriture en base n'a pas été confirmée
+    public List<Offre> getEnAttente() {
+        verrou.lock();
+        try {
+            return new ArrayList<>(enAttente.values());
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Écrit un instantané de l'état et supprime les segments qu'il couvre.
+     * Les offres pas encore écrites en base sont reportées dans l'instantané :
+     * aucun segment supprimé n'est nécessaire à la reprise.
+     */
+    public void compacter() {
+        if (!actif)
+            return;
+
+        final long debut;
+        final long seq;
+        final Map<Integer, Meilleure> copieMeilleures;
+        final List<Offre> copieAttente;
+        verrou.lock();
+        try {
+            // Rien d'écrit depuis le dernier compactage
+            if (segment.getInt(0) == 0 && Files.exists(repertoire.resolve(INSTANTANE)))
+                return;
+            nouveauSegment();
+            debut = noSegment;
+            seq = sequence;
+            copieMeilleures = new HashMap<>(meilleures);
+            copieAttente = new ArrayList<>(enAttente.values());
+        } catch (IOException e) {
+            logger.error("Compactage du journal impossible", e);
+            return;
+        } finally {
+            verrou.unlock();
+        }
+
+        try {
+            ecrireInstantane(debut, seq, copieMeilleures, copieAttente);
+            for (long no : segments())
+                if (no < debut)
+                    supprimer(cheminSegment(no));
+        } catch (IOException | RuntimeException e) {
+            logger.error("Compactage du journal impossible", e);
+        }
+    }
+
+    // -- segments
+
+    private void nouveauSegment() throws IOException {
+        if (segment != null)
+            segment.force();
+
+        final Path chemin = cheminSegment(noSegment + 1);
+        try (FileChannel canal = FileChannel.open(chemin, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Fichier rempli de zéros : la fin des données est une longueur nulle
+            segment = canal.map(FileChannel.MapMode.READ_WRITE, 0, tailleSegment.toBytes());
+        }
+        noSegment++;
+    }
+
+    // Appelé sous le verrou
+    private void ajouter(byte type, Consumer<ByteBuffer> contenu) throws IOException {
+        final ByteBuffer enregistrement = enregistrement(tampon, type, contenu);
+        // Une longueur nulle doit toujours suivre le dernier enregistrement
+        if (enregistrement.remaining() + Integer.BYTES > segment.remaining())
+            nouveauSegment();
+
+        final int position = segment.position();
+        final int longueur = enregistrement.getInt(0);
+        segment.put(position + Integer.BYTES, enregistrement, Integer.BYTES, enregistrement.remaining() - Integer.BYTES);
+        // Longueur en dernier : un enregistrement interrompu reste invisible
+        segment.putInt(position, longueur);
+        segment.position(position + enregistrement.remaining());
+        if (forcer)
+            segment.force(position, enregistrement.remaining());
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> fichiers = Files.list(repertoire)) {
+            return fichiers.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(PREFIXE_SEGMENT) && n.endsWith(SUFFIXE_SEGMENT))
+                    .map(n -> Long.valueOf(n.substring(PREFIXE_SEGMENT.length(), n.length() - SUFFIXE_SEGMENT.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path cheminSegment(long no) {
+        return repertoire.resolve(String.format("%s%016d%s", PREFIXE_SEGMENT, no, SUFFIXE_SEGMENT));
+    }
+
+    // Un segment encore projeté peut refuser la suppression (Windows) : il le
+    // sera au prochain compactage
+    private void supprimer(Path chemin) {
+        try {
+            Files.deleteIfExists(chemin);
+        } catch (IOException e) {
+            logger.debug("Segment " + chemin + " non supprimé", e);
+        }
+    }
+
+    // -- instantané
+
+    // Retourne le premier segment à rejouer après l'instantané
+    private long lireInstantane() throws IOException {
+        final Path chemin = repertoire.resolve(INSTANTANE);
+        if (!Files.exists(chemin))
+            return 0;
+
+        final ByteBuffer contenu = ByteBuffer.wrap(Files.readAllBytes(chemin));
+        if (contenu.remaining() < 20 || contenu.getInt() != MAGIC_INSTANTANE) {
+            logger.error("Instantané du journal illisible, reprise depuis les segments disponibles");
+            return 0;
+        }
+        final long debut = contenu.getLong();
+        final long seq = contenu.getLong();
+        if (!lire(contenu, this::rejouer)) {
+            logger.error("Instantané du journal corrompu, reprise depuis les segments disponibles");
+            meilleures.clear();
+            enAttente.clear();
+            return 0;
+        }
+        sequence = Math.max(sequence, seq);
+        return debut;
+    }
+
+    // Écrit dans un fichier temporaire puis remplace l'instantané d'un seul coup
+    private void ecrireInstantane(long debut, long seq, Map<Integer, Meilleure> copieMeilleures, Collection<Offre> copieAttente) throws IOException {
+        final Path temporaire = repertoire.resolve(INSTANTANE + ".tmp");
+        final ByteBuffer tamponInstantane = ByteBuffer.allocate(tampon.capacity());
+        try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer entete = ByteBuffer.allocate(20).putInt(MAGIC_INSTANTANE).putLong(debut).putLong(seq).flip();
+            ecrireTout(canal, entete);
+            for (Offre o : copieAttente)
+                ecrireTout(canal, enregistrement(tamponInstantane, ATTENTE, b -> ecrireOffre(b, o)));
+            for (Map.Entry<Integer, Meilleure> m : copieMeilleures.entrySet())
+                ecrireTout(canal, enregistrement(tamponInstantane, MEILLEURE, b -> {
+                    b.putInt(m.getKey()).putInt(m.getValue().montant());
+                    ecrireChaine(b, m.getValue().pseudo());
+                }));
+            ecrireTout(canal, ByteBuffer.allocate(Integer.BYTES));
+            canal.force(true);
+        }
+        Files.move(temporaire, repertoire.resolve(INSTANTANE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void ecrireTout(FileChannel canal, ByteBuffer b) throws IOException {
+        while (b.hasRemaining())
+            canal.write(b);
+    }
+
+    // -- format des enregistrements
+
+    // [longueur][crc32c][type][données], prêt à écrire
+    private static ByteBuffer enregistrement(ByteBuffer b, byte type, Consumer<ByteBuffer> contenu) {
+        b.clear();
+        b.position(2 * Integer.BYTES);
+        b.put(type);
+        contenu.accept(b);
+        final int longueur = b.position() - 2 * Integer.BYTES;
+
+        final CRC32C crc = new CRC32C();
+        crc.update(b.array(), 2 * Integer.BYTES, longueur);
+        b.putInt(0, longueur).putInt(Integer.BYTES, (int) crc.getValue());
+        return b.flip();
+    }
+
+    /**
+     * Relit les enregistrements jusqu'à la première longueur nulle.
+     *
+     * @return false si la lecture s'est arrêtée sur un enregistrement invalide
+     */
+    private static boolean lire(ByteBuffer source, Consumer<ByteBuffer> traitement) {
+        final CRC32C crc = new CRC32C();
+        while (source.remaining() >= Integer.BYTES) {
+            final int longueur = source.getInt();
+            if (longueur == 0)
+                return true;
+            if (longueur < 0 || longueur > source.remaining() - Integer.BYTES)
+                return false;
+
+            final int attendu = source.getInt();
+            final ByteBuffer donnees = source.slice(source.position(), longueur);
+            crc.reset();
+            crc.update(donnees.duplicate());
+            if ((int) crc.getValue() != attendu)
+                return false;
+
+            traitement.accept(donnees);
+            source.position(source.position() + longueur);
+        }
+        return true;
+    }
+
+    // Relecture (instantané puis segments), avant toute écriture
+    private void rejouer(ByteBuffer donnees) {
+        switch (donnees.get()) {
+            case OFFRE -> {
+                final Offre offre = lireOffre(donnees);
+                sequence = Math.max(sequence, offre.sequence());
+                appliquerOffre(offre);
+            }
+            case ECRITE -> appliquerEcrite(donnees.getLong(), donnees.get() != 0);
+            case CLOTURE -> meilleures.remove(donnees.getInt());
+            case MEILLEURE -> meilleures.put(donnees.getInt(), new Meilleure(donnees.getInt(), lireChaine(donnees)));
+            case ATTENTE -> {
+                final Offre offre = lireOffre(donnees);
+                sequence = Math.max(sequence, offre.sequence());
+                enAttente.put(offre.sequence(), offre);
+            }
+            default -> logger.warn("Type d'enregistrement inconnu dans le journal, ignoré");
+        }
+    }
+
+    private void appliquerOffre(Offre offre) {
+        meilleures.put(offre.noArticle(), new Meilleure(offre.montant(), offre.pseudo()));
+        enAttente.put(offre.sequence(), offre);
+    }
+
+    private void appliquerEcrite(long noSequence, boolean ecrite) {
+        final Offre offre = enAttente.remove(noSequence);
+        // Offre perdue : l'article sera rechargé depuis la base
+        if (!ecrite && offre != null)
+            meilleures.remove(offre.noArticle());
+    }
+
+    private static void ecrireOffre(ByteBuffer b, Offre o) {
+        b.putLong(o.sequence())
+                .putInt(o.noArticle())
+                .putInt(o.montant())
+                .putLong(o.date().toEpochSecond(ZoneOffset.UTC))
+                .putInt(o.date().getNano())
+                .putInt(o.precedentMontant() == null ? 0 : o.precedentMontant());
+        ecrireChaine(b, o.pseudo());
+        ecrireChaine(b, o.precedentEncherisseur());
+    }
+
+    private static Offre lireOffre(ByteBuffer b) {
+        final long seq = b.getLong();
+        final int noArticle = b.getInt();
+        final int montant = b.getInt();
+        final LocalDateTime date = LocalDateTime.ofEpochSecond(b.getLong(), b.getInt(), ZoneOffset.UTC);
+        final int precedentMontant = b.getInt();
+        final String pseudo = lireChaine(b);
+        final String precedent = lireChaine(b);
+        return new Offre(seq, noArticle, pseudo, montant, date, precedent, precedent == null ? null : precedentMontant);
+    }
+
+    private static void ecrireChaine(ByteBuffer b, String valeur) {
+        if (valeur == null) {
+            b.putShort((short) -1);
+            return;
+        }
+        final byte[] octets = valeur.getBytes(StandardCharsets.UTF_8);
+        b.putShort((short) octets.length).put(octets);
+    }
+
+    private static String lireChaine(ByteBuffer b) {
+        final short longueur = b.getShort();
+        if (longueur < 0)
+            return null;
+        final byte[] octets = new byte[longueur];
+        b.get(octets);
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+}
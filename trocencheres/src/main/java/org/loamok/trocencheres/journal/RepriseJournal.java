@@ -0,0 +1,107 @@
+package org.loamok.trocencheres.journal;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.journal.JournalEncheres.Meilleure;
+import org.loamok.trocencheres.journal.JournalEncheres.Offre;
+import org.loamok.trocencheres.manager.EnchereBatchWriter;
+import org.loamok.trocencheres.manager.EnchereBatchWriter.EnchereAcceptee;
+import org.loamok.trocencheres.manager.EnchereService;
+import org.loamok.trocencheres.manager.EtatEnchere;
+import org.loamok.trocencheres.repository.ArticlesAVendreRepository;
+import org.loamok.trocencheres.repository.EnchereRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reprise au démarrage à partir du journal, avant l'ouverture du serveur
+ * web : les offres acceptées mais absentes de la base sont réécrites (avec
+ * leurs mouvements de crédit, les soldes chargés ensuite sont donc justes),
+ * puis l'état des articles ouverts est restauré en mémoire avec une seule
+ * requête sur les articles, sans relire les enchères.
+ *
+ * @author Huby Franck
+ */
+@Component
+public class RepriseJournal {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    @Autowired
+    private JournalEncheres journal;
+    @Autowired
+    private EnchereBatchWriter writer;
+    @Autowired
+    private EnchereService enchereManager;
+    @Autowired
+    private ArticlesAVendreRepository aR;
+    @Autowired
+    private EnchereRepository eR;
+
+    @PostConstruct
+    void reprendre() {
+        if (!journal.isActif())
+            return;
+
+        final int reecrites = reecrire(journal.getEnAttente());
+        final int restaurees = restaurer(journal.getMeilleures());
+
+        // Repart d'un instantané propre
+        journal.compacter();
+        logger.info("Reprise du journal : " + reecrites + " offres réécrites, " + restaurees + " articles restaurés");
+    }
+
+    private int reecrire(List<Offre> enAttente) {
+        final List<Offre> offres = new ArrayList<>();
+        final List<EnchereAcceptee> encheres = new ArrayList<>();
+        for (Offre o : enAttente) {
+            // Écrite mais non confirmée (arrêt entre le commit et le journal)
+            if (eR.existsByArticle_IdAndUtilisateur_PseudoAndMontantEnchere(o.noArticle(), o.pseudo(), o.montant())) {
+                journal.confirmer(o.sequence(), true);
+                continue;
+            }
+            offres.add(o);
+            encheres.add(new EnchereAcceptee(o.noArticle(), o.pseudo(), o.montant(), o.date(),
+                    o.precedentEncherisseur(), o.precedentMontant(), new CompletableFuture<>()));
+        }
+        if (encheres.isEmpty())
+            return 0;
+
+        writer.ecrire(encheres);
+        int reecrites = 0;
+        for (int i = 0; i < offres.size(); i++) {
+            final boolean ecrite = !encheres.get(i).confirmation().isCompletedExceptionally();
+            journal.confirmer(offres.get(i).sequence(), ecrite);
+            if (ecrite)
+                reecrites++;
+        }
+        return reecrites;
+    }
+
+    private int restaurer(Map<Integer, Meilleure> meilleures) {
+        if (meilleures.isEmpty())
+            return 0;
+
+        final Set<Integer> fermes = new HashSet<>(meilleures.keySet());
+        int restaurees = 0;
+        for (ArticlesAVendre a : aR.findAllById(meilleures.keySet())) {
+            if (a.getStatutEnchere() != ArticlesAVendre.STATUT_NON_COMMENCEE && a.getStatutEnchere() != ArticlesAVendre.STATUT_EN_COURS)
+                continue;
+            final Meilleure m = meilleures.get(a.getId());
+            enchereManager.restaurer(new EtatEnchere(a, m.montant(), m.pseudo()));
+            fermes.remove(a.getId());
+            restaurees++;
+        }
+        // Articles clôturés, annulés ou supprimés entre-temps
+        fermes.forEach(journal::clore);
+        return restaurees;
+    }
+}
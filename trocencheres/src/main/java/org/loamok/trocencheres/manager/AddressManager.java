@@ -1,8 +1,14 @@
 package org.loamok.trocencheres.manager;
 
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import org.loamok.trocencheres.entity.Adresse;
 import org.loamok.trocencheres.repository.AdresseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
@@ -14,8 +20,18 @@ import org.springframework.transaction.annotation.Propagation;
 @Service
 public class AddressManager implements AdresseService {
 
+    private static final String DERNIERE_ADRESSE = "SELECT COALESCE(MAX(no_adresse), 0) FROM ADDRESSES";
+    private static final String INSERT_ADRESSE = "INSERT INTO ADDRESSES (rue, code_postal, city, adresse_eni, latitude, longitude, precision_geo) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String ADRESSES_INSEREES = "SELECT no_adresse, rue, code_postal, city FROM ADDRESSES "
+            + "WHERE no_adresse > ? ORDER BY no_adresse";
+
     @Autowired
     private AdresseRepository aR;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private GeocodageService geocodageManager;
     
     @Override
     @Transactional(propagation = Propagation.REQUIRED)
@@ -38,6 +54,65 @@ public class AddressManager implements AdresseService {
         }
     }
 
+    /**
+     * Enregistre des adresses en un seul lot JDBC, dans l'ordre reçu, et
+     * retourne les adresses créées avec leur identifiant. Identifiants
+     * IDENTITY : relus au-delà du plus grand avant insertion, l'attribution
+     * n'est faite que si seules les lignes du lot y figurent ; sinon
+     * (insertion parallèle) ConcurrencyFailureException, la transaction est
+     * à reprendre avec registerAdresse.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED)
+    public List<Adresse> registerAdresses(List<Adresse> adresses) {
+        final List<Adresse> nouvelles = new ArrayList<>(adresses.size());
+        for (Adresse a : adresses) {
+            final Adresse adresse = Adresse.builder()
+                .rue(a.getRue())
+                .codePostal(a.getCodePostal())
+                .ville(a.getVille())
+                .build();
+            if(!doCheckAdresseRegistering(adresse)) 
+                throw new RuntimeException("address is not filled, all parameters are mandatory. : " + adresse.toString());
+            // Insertion JDBC : pas de listener JPA pour le géocodage
+            geocodageManager.geocoder(adresse);
+            nouvelles.add(adresse);
+        }
+        if (nouvelles.isEmpty())
+            return nouvelles;
+        
+        final Integer derniere = jdbcTemplate.queryForObject(DERNIERE_ADRESSE, Integer.class);
+        jdbcTemplate.batchUpdate(INSERT_ADRESSE, nouvelles, nouvelles.size(), (ps, a) -> {
+            ps.setString(1, a.getRue());
+            ps.setString(2, a.getCodePostal());
+            ps.setString(3, a.getVille());
+            ps.setBoolean(4, a.getAdresseEni());
+            ps.setObject(5, a.getLatitude(), Types.DOUBLE);
+            ps.setObject(6, a.getLongitude(), Types.DOUBLE);
+            ps.setString(7, a.getPrecisionGeo() == null ? null : a.getPrecisionGeo().name());
+        });
+        
+        final List<Adresse> inserees = jdbcTemplate.query(ADRESSES_INSEREES, (rs, i) -> Adresse.builder()
+                .id(rs.getInt(1))
+                .rue(rs.getString(2))
+                .codePostal(rs.getString(3))
+                .ville(rs.getString(4))
+                .build(), derniere);
+        if (inserees.size() != nouvelles.size())
+            throw new ConcurrencyFailureException("Adresses insérées en parallèle, identifiants non attribuables");
+        
+        for (int i = 0; i < nouvelles.size(); i++) {
+            final Adresse a = nouvelles.get(i);
+            final Adresse relue = inserees.get(i);
+            if (!Objects.equals(a.getRue(), relue.getRue()) || !Objects.equals(a.getCodePostal(), relue.getCodePostal())
+                    || !Objects.equals(a.getVille(), relue.getVille()))
+                throw new ConcurrencyFailureException("Adresses insérées en parallèle, identifiants non attribuables");
+            a.setId(relue.getId());
+        }
+        
+        return nouvelles;
+    }
+
     @Override
     public Boolean doCheckAdresseRegistering(Adresse a) {
         Boolean isRueValid = checkRueFilled(a.getRue());
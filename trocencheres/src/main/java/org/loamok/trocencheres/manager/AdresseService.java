@@ -1,5 +1,6 @@
 package org.loamok.trocencheres.manager;
 
+import java.util.List;
 import org.loamok.trocencheres.entity.Adresse;
 
 /**
@@ -8,6 +9,7 @@ import org.loamok.trocencheres.entity.Adresse;
  */
 public interface AdresseService {
     Adresse registerAdresse(Adresse a);
+    List<Adresse> registerAdresses(List<Adresse> adresses);
     Boolean doCheckAdresseRegistering(Adresse a);
     Boolean checkRueFilled(String rue);
     Boolean checkCodePostalFilled(String codePostal);
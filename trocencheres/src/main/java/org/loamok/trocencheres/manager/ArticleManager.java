@@ -0,0 +1,173 @@
+package org.loamok.trocencheres.manager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.Optional;
+import org.loamok.trocencheres.projection.ArticleDetail;
+import org.loamok.trocencheres.projection.ArticleResume;
+import org.loamok.trocencheres.projection.Coordonnees;
+import org.loamok.trocencheres.projection.CritereRechercheArticle;
+import org.loamok.trocencheres.projection.EnchereHistorique;
+import org.loamok.trocencheres.projection.PageArticles;
+import org.loamok.trocencheres.repository.ArticlesAVendreRepository;
+import org.loamok.trocencheres.repository.EnchereRepository;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ *
+ * @author Huby Franck
+ */
+@Service
+public class ArticleManager implements ArticleService {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private static final int TAILLE_DEFAUT = 20;
+    private static final int TAILLE_MAX = 100;
+
+    @Autowired
+    private ArticlesAVendreRepository aR;
+    @Autowired
+    private EnchereRepository eR;
+    @Autowired
+    private IndexProximite indexProximite;
+    @Autowired
+    private GeocodageService geocodageManager;
+
+    @Value("${app.articles.recalcul.tranche:1000}")
+    private int tranche;
+
+    @Override
+    @Transactional(readOnly = true)
+    public PageArticles rechercher(CritereRechercheArticle critere, String curseur, Integer taille) {
+        final int limite = taille == null || taille < 1 ? TAILLE_DEFAUT : Math.min(taille, TAILLE_MAX);
+
+        LocalDateTime apresFin = null;
+        Integer apresId = null;
+        if (curseur != null && !curseur.isBlank()) {
+            final String[] cle = decoder(curseur);
+            apresFin = LocalDateTime.parse(cle[0]);
+            apresId = Integer.valueOf(cle[1]);
+        }
+
+        // Une ligne de plus pour savoir s'il existe une page suivante
+        final List<ArticleResume> articles = aR.rechercher(critere, apresFin, apresId, limite + 1);
+        if (articles.size() <= limite)
+            return new PageArticles(articles, null);
+
+        final List<ArticleResume> page = articles.subList(0, limite);
+        final ArticleResume dernier = page.get(limite - 1);
+
+        return new PageArticles(List.copyOf(page), encoder(dernier.dateFinEncheres(), dernier.id()));
+    }
+
+    /**
+     * Articles non clôturés à moins de rayonKm d'une position (coordonnées,
+     * sinon centroïde du code postal), fin d'enchère la plus proche d'abord.
+     * Sélection et pagination dans l'index de proximité, puis une requête
+     * par clé primaire pour les résumés de la page.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PageArticles rechercherProches(String codePostal, Double latitude, Double longitude, double rayonKm, String curseur, Integer taille) {
+        final int limite = taille == null || taille < 1 ? TAILLE_DEFAUT : Math.min(taille, TAILLE_MAX);
+        if (!(rayonKm > 0))
+            throw new ParametreRechercheException("rayon invalide : " + rayonKm);
+
+        final Coordonnees centre;
+        if (latitude != null && longitude != null) {
+            if (!(Math.abs(latitude) <= 90 && Math.abs(longitude) <= 180))
+                throw new ParametreRechercheException("position invalide : " + latitude + ", " + longitude);
+            centre = new Coordonnees(latitude, longitude);
+        } else if (codePostal != null && !codePostal.isBlank())
+            centre = geocodageManager.localiser(codePostal)
+                    .orElseThrow(() -> new ParametreRechercheException("code postal inconnu : " + codePostal));
+        else
+            throw new ParametreRechercheException("position requise : codePostal, ou latitude et longitude");
+
+        LocalDateTime apresFin = null;
+        Integer apresId = null;
+        if (curseur != null && !curseur.isBlank()) {
+            final String[] cle = decoder(curseur);
+            apresFin = LocalDateTime.parse(cle[0]);
+            apresId = Integer.valueOf(cle[1]);
+        }
+
+        final List<Integer> ids = indexProximite.rechercher(centre, rayonKm, apresFin, apresId, limite + 1);
+        final Map<Integer, ArticleResume> resumes = aR.resumes(ids).stream()
+                .collect(Collectors.toMap(ArticleResume::id, Function.identity()));
+        // Ordre de l'index ; un article supprimé entre-temps est sauté
+        final List<ArticleResume> articles = ids.stream().map(resumes::get).filter(a -> a != null).toList();
+        if (ids.size() <= limite)
+            return new PageArticles(articles, null);
+
+        final List<ArticleResume> page = articles.subList(0, Math.min(limite, articles.size()));
+        final ArticleResume dernier = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return new PageArticles(page, dernier == null ? null : encoder(dernier.dateFinEncheres(), dernier.id()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ArticleDetail> detail(Integer noArticle) {
+        return aR.findDetailById(noArticle);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<EnchereHistorique> historique(Integer noArticle) {
+        return eR.findHistorique(noArticle);
+    }
+
+    /**
+     * Vérifie l'état dénormalisé des enchères de tous les articles et corrige
+     * ceux qui ne correspondent plus à la table ENCHERES. Une transaction par
+     * tranche d'identifiants : les verrous restent courts.
+     *
+     * @return nombre d'articles corrigés
+     */
+    @Override
+    public int recalculerEncheres() {
+        final Integer max = aR.findMaxId();
+        if (max == null)
+            return 0;
+
+        int corriges = 0;
+        for (int debut = 1; debut <= max; debut += tranche)
+            corriges += aR.recalculerEncheres(debut, Math.min(debut + tranche - 1, max));
+
+        logger.info("Recalcul des enchères : " + corriges + " articles corrigés");
+        return corriges;
+    }
+
+    // Curseur opaque : « dateFin|id » en base64 url
+    private static String encoder(LocalDateTime dateFin, Integer id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((dateFin + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decoder(String curseur) {
+        try {
+            final String[] cle = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8).split("\\|");
+            if (cle.length != 2)
+                throw new IllegalArgumentException();
+            LocalDateTime.parse(cle[0]);
+            Integer.valueOf(cle[1]);
+
+            return cle;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ParametreRechercheException("curseur invalide : " + curseur);
+        }
+    }
+}
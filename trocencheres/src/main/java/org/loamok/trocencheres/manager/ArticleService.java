@@ -0,0 +1,20 @@
+package org.loamok.trocencheres.manager;
+
+import java.util.List;
+import java.util.Optional;
+import org.loamok.trocencheres.projection.ArticleDetail;
+import org.loamok.trocencheres.projection.CritereRechercheArticle;
+import org.loamok.trocencheres.projection.EnchereHistorique;
+import org.loamok.trocencheres.projection.PageArticles;
+
+/**
+ *
+ * @author Huby Franck
+ */
+public interface ArticleService {
+    PageArticles rechercher(CritereRechercheArticle critere, String curseur, Integer taille);
+    PageArticles rechercherProches(String codePostal, Double latitude, Double longitude, double rayonKm, String curseur, Integer taille);
+    Optional<ArticleDetail> detail(Integer noArticle);
+    List<EnchereHistorique> historique(Integer noArticle);
+    int recalculerEncheres();
+}
@@ -0,0 +1,16 @@
+package org.loamok.trocencheres.manager;
+
+import java.util.List;
+import org.loamok.trocencheres.projection.ReponseLegere;
+
+/**
+ * Bilan d'un import en masse : lignes lues, importées et rejetées, avec le
+ * détail des premiers rejets (numéro de ligne dans le corps, motif).
+ *
+ * @author Huby Franck
+ */
+@ReponseLegere
+public record BilanImport(int lues, int importees, int rejetees, List<Rejet> rejets) {
+
+    public record Rejet(long ligne, String motif) {}
+}
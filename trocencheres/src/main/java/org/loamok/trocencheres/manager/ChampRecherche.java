@@ -0,0 +1,15 @@
+package org.loamok.trocencheres.manager;
+
+/**
+ * Champ interrogé par la recherche d'utilisateurs ; TOUT interroge chacun
+ * des autres et garde la meilleure correspondance par compte.
+ *
+ * @author Huby Franck
+ */
+public enum ChampRecherche {
+    PSEUDO,
+    NOM,
+    PRENOM,
+    EMAIL,
+    TOUT
+}
@@ -0,0 +1,148 @@
+package org.loamok.trocencheres.manager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.loamok.trocencheres.entity.MouvementCredit;
+import org.loamok.trocencheres.repository.MouvementCreditRepository;
+import org.loamok.trocencheres.repository.UtilisateurRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Grand livre des crédits. Le solde disponible de chaque utilisateur est tenu
+ * en mémoire (chargé au premier accès par une projection, sans charger
+ * l'entité) et modifié par compare-and-set ; la base est mise à jour par des
+ * UPDATE relatifs et conditionnels accompagnés d'un mouvement en ajout seul.
+ *
+ * @author Huby Franck
+ */
+@Service
+public class CreditManager implements CreditService {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private final ConcurrentMap<String, AtomicInteger> soldes = new ConcurrentHashMap<>();
+
+    @Autowired
+    private UtilisateurRepository uR;
+    @Autowired
+    private MouvementCreditRepository mR;
+
+    @Override
+    public Integer getSolde(String pseudo) {
+        final AtomicInteger solde = solde(pseudo);
+
+        return solde == null ? null : solde.get();
+    }
+
+    @Override
+    public Boolean reserver(String pseudo, Integer montant) {
+        final AtomicInteger solde = solde(pseudo);
+        if (solde == null)
+            return false;
+
+        int courant;
+        do {
+            courant = solde.get();
+            if (courant < montant)
+                return false;
+        } while (!solde.compareAndSet(courant, courant - montant));
+
+        return true;
+    }
+
+    @Override
+    public void liberer(String pseudo, Integer montant) {
+        final AtomicInteger solde = solde(pseudo);
+        if (solde != null)
+            solde.addAndGet(montant);
+    }
+
+    /**
+     * Reprend un montant libéré en mémoire pour une enchère qui n'a pas pu
+     * être écrite. Sans condition : le solde peut devenir négatif si le
+     * montant a été engagé entre-temps, l'écriture de cette autre enchère
+     * sera alors refusée par la base.
+     */
+    @Override
+    public void reprendre(String pseudo, Integer montant) {
+        final AtomicInteger solde = solde(pseudo);
+        if (solde != null)
+            solde.addAndGet(-montant);
+    }
+
+    /**
+     * Crédite le solde en mémoire au commit de la transaction de l'appelant,
+     * qui écrit le mouvement correspondant. Le solde est chargé maintenant,
+     * avant l'UPDATE en base : le crédit n'est jamais compté deux fois, et
+     * rien n'est crédité si la transaction est annulée.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void crediter(String pseudo, Integer montant) {
+        final AtomicInteger solde = solde(pseudo);
+        if (solde == null)
+            return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                solde.addAndGet(montant);
+            }
+        });
+    }
+
+    /**
+     * Écrit les mouvements et applique en base un seul UPDATE relatif par
+     * utilisateur. Doit être appelé dans la transaction de l'appelant ; lève
+     * IllegalStateException si un UPDATE est refusé.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void persister(List<MouvementCredit> mouvements) {
+        if (mouvements.isEmpty())
+            return;
+
+        mR.saveAll(mouvements);
+
+        final Map<String, Integer> deltas = new HashMap<>();
+        for (MouvementCredit m : mouvements)
+            deltas.merge(m.getUtilisateur().getPseudo(), m.getMontant(), Integer::sum);
+
+        // Mouvement refusé (solde insuffisant en base ou utilisateur inconnu) :
+        // toute la transaction est annulée, l'appelant isole la ligne fautive
+        deltas.forEach((pseudo, delta) -> {
+            if (delta != 0 && uR.ajouterCredit(pseudo, delta) == 0)
+                throw new IllegalStateException("Crédit incohérent pour " + pseudo + " : mouvement de " + delta + " refusé par la base");
+        });
+    }
+
+    // Solde en mémoire, chargé depuis la base au premier accès
+    private AtomicInteger solde(String pseudo) {
+        if (pseudo == null)
+            return null;
+
+        AtomicInteger solde = soldes.get(pseudo);
+        if (solde != null)
+            return solde;
+
+        final Integer credit = uR.findCreditByPseudo(pseudo);
+        if (credit == null)
+            return null;
+
+        solde = new AtomicInteger(credit);
+        final AtomicInteger existant = soldes.putIfAbsent(pseudo, solde);
+
+        return existant != null ? existant : solde;
+    }
+}
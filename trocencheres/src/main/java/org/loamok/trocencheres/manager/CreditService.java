@@ -0,0 +1,17 @@
+package org.loamok.trocencheres.manager;
+
+import java.util.List;
+import org.loamok.trocencheres.entity.MouvementCredit;
+
+/**
+ *
+ * @author Huby Franck
+ */
+public interface CreditService {
+    Integer getSolde(String pseudo);
+    Boolean reserver(String pseudo, Integer montant);
+    void liberer(String pseudo, Integer montant);
+    void reprendre(String pseudo, Integer montant);
+    void crediter(String pseudo, Integer montant);
+    void persister(List<MouvementCredit> mouvements);
+}
@@ -0,0 +1,498 @@
+package org.loamok.trocencheres.manager;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.loamok.trocencheres.configuration.DateHeureSerializer;
+import org.loamok.trocencheres.entity.Adresse;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.entity.Categorie;
+import org.loamok.trocencheres.manager.BilanImport.Rejet;
+import org.loamok.trocencheres.projection.LigneArticle;
+import org.loamok.trocencheres.projection.LigneEnchere;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Import/export en masse, ligne à ligne, en NDJSON ou CSV (avec en-tête).
+ * <ul>
+ * <li>import des articles : corps lu au fil de l'eau, lignes contrôlées puis
+ * insérées par lots JDBC, une transaction par lot ; une ligne invalide est
+ * rejetée seule, un lot refusé par la base l'est en entier ;</li>
+ * <li>export des articles et des enchères : curseur en lecture seule et en
+ * avant seulement, lu par paquets de fetch-size lignes et écrit directement
+ * dans la réponse, mémoire constante quelle que soit la taille de la table.</li>
+ * </ul>
+ * L'import des enchères n'est pas proposé : une offre passe par le moteur
+ * d'enchères (réservation du crédit, meilleure offre en mémoire, journal).
+ *
+ * @author Huby Franck
+ */
+@Service
+public class EchangeManager implements EchangeService {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private static final String VENDEURS = "SELECT pseudo, no_adresse FROM UTILISATEURS WHERE pseudo IN (:pseudos)";
+    private static final String DERNIER_ARTICLE = "SELECT COALESCE(MAX(no_article), 0) FROM ARTICLES_A_VENDRE";
+    private static final String INSERT_ARTICLE = "INSERT INTO ARTICLES_A_VENDRE (nom_article, description, photo, "
+            + "date_debut_encheres, date_fin_encheres, statut_enchere, prix_initial, id_utilisateur, no_categorie, "
+            + "no_adresse_retrait) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String ECHEANCES = "SELECT no_article, statut_enchere, date_debut_encheres, date_fin_encheres, "
+            + "nom_article, id_utilisateur, prix_initial FROM ARTICLES_A_VENDRE WHERE no_article > ? ORDER BY no_article";
+    private static final String EXPORT_ARTICLES = "SELECT a.no_article, a.nom_article, a.description, a.photo, "
+            + "a.date_debut_encheres, a.date_fin_encheres, a.statut_enchere, a.prix_initial, a.prix_vente, "
+            + "a.prix_courant, a.nombre_encheres, a.pseudo_meneur, a.id_utilisateur, a.no_categorie, "
+            + "ad.rue, ad.code_postal, ad.city "
+            + "FROM ARTICLES_A_VENDRE a LEFT JOIN ADDRESSES ad ON ad.no_adresse = a.no_adresse_retrait "
+            + "ORDER BY a.no_article";
+    private static final String EXPORT_ENCHERES = "SELECT e.id_enchere, e.no_article, a.nom_article, e.id_utilisateur, "
+            + "e.montant_enchere, e.date_enchere "
+            + "FROM ENCHERES e JOIN ARTICLES_A_VENDRE a ON a.no_article = e.no_article";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    @Autowired
+    private AdresseService aS;
+    @Autowired
+    private ReferentielService referentielManager;
+    @Autowired
+    private EnchereScheduler enchereScheduler;
+    @Autowired
+    private IndexProximite indexProximite;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier("jsonLeger")
+    private ObjectMapper jsonMapper;
+
+    @Value("${app.echanges.import.taille-lot:500}")
+    private int tailleLot;
+    // Rejets détaillés dans le bilan, au-delà seul leur nombre compte
+    @Value("${app.echanges.import.rejets-max:1000}")
+    private int rejetsMax;
+    @Value("${app.echanges.export.fetch-size:1000}")
+    private int fetchSize;
+
+    private TransactionTemplate transactionTemplate;
+    private CsvMapper csvMapper;
+
+    // Ligne du corps : article lu, ou motif si elle n'a pu l'être
+    private record LigneLue(long numero, LigneArticle article, String erreur) {}
+
+    private record ResultatLot(List<ArticlesAVendre> importes, List<Rejet> rejets) {}
+
+    private interface Lecteur {
+        // null en fin de corps
+        LigneLue suivante() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface EcritureLigne {
+        void ecrire(ResultSet rs) throws SQLException, IOException;
+    }
+
+    private final class Bilan {
+        private int lues;
+        private int importees;
+        private int rejetees;
+        private final List<Rejet> rejets = new ArrayList<>();
+
+        private void rejeter(long ligne, String motif) {
+            if (rejetees++ < rejetsMax)
+                rejets.add(new Rejet(ligne, motif));
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        csvMapper = CsvMapper.builder()
+                .addModule(new JavaTimeModule())
+                .addModule(new SimpleModule().addSerializer(LocalDateTime.class, new DateHeureSerializer()))
+                // Colonnes dans l'ordre des records, pas alphabétique
+                .disable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .build();
+    }
+
+    @Override
+    public BilanImport importerArticles(InputStream entree, FormatEchange format) throws IOException {
+        final Bilan bilan = new Bilan();
+        final Lecteur lecteur = format == FormatEchange.CSV ? lecteurCsv(entree) : lecteurNdjson(entree);
+        final List<LigneLue> lot = new ArrayList<>(tailleLot);
+
+        LigneLue ligne;
+        while ((ligne = lecteur.suivante()) != null) {
+            bilan.lues++;
+            if (ligne.erreur() != null)
+                bilan.rejeter(ligne.numero(), ligne.erreur());
+            else
+                lot.add(ligne);
+
+            if (lot.size() == tailleLot) {
+                importerLot(lot, bilan);
+                lot.clear();
+            }
+        }
+        if (!lot.isEmpty())
+            importerLot(lot, bilan);
+
+        logger.info("Import " + format + " : " + bilan.lues + " lignes lues, " + bilan.importees + " articles importés, "
+                + bilan.rejetees + " rejetées");
+        // Rejets relevés à la lecture, au contrôle puis à l'insertion : remis dans l'ordre du corps
+        bilan.rejets.sort(Comparator.comparingLong(Rejet::ligne));
+        return new BilanImport(bilan.lues, bilan.importees, bilan.rejetees, bilan.rejets);
+    }
+
+    private Lecteur lecteurNdjson(InputStream entree) {
+        final BufferedReader lignes = new BufferedReader(new InputStreamReader(entree, StandardCharsets.UTF_8));
+        final ObjectReader reader = jsonMapper.readerFor(LigneArticle.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        return new Lecteur() {
+            private long numero;
+
+            @Override
+            public LigneLue suivante() throws IOException {
+                String ligne;
+                do {
+                    ligne = lignes.readLine();
+                    numero++;
+                    if (ligne == null)
+                        return null;
+                } while (ligne.isBlank());
+
+                try {
+                    return new LigneLue(numero, reader.readValue(ligne), null);
+                } catch (JsonProcessingException e) {
+                    return new LigneLue(numero, null, "ligne illisible : " + e.getOriginalMessage());
+                }
+            }
+        };
+    }
+
+    private Lecteur lecteurCsv(InputStream entree) throws IOException {
+        final MappingIterator<LigneArticle> lignes = csvMapper.readerFor(LigneArticle.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(entree);
+        return new Lecteur() {
+            // En-tête en ligne 1
+            private long numero = 1;
+            private boolean fini;
+
+            @Override
+            public LigneLue suivante() throws IOException {
+                if (fini)
+                    return null;
+                numero++;
+                try {
+                    return lignes.hasNextValue() ? new LigneLue(numero, lignes.nextValue(), null) : null;
+                } catch (JsonParseException e) {
+                    // Corps mal formé (guillemet non fermé...) : lecture arrêtée
+                    fini = true;
+                    return new LigneLue(numero, null, "CSV mal formé, lecture arrêtée : " + e.getOriginalMessage());
+                } catch (JsonProcessingException e) {
+                    // Valeur non convertible : ligne suivante
+                    return new LigneLue(numero, null, "ligne illisible : " + e.getOriginalMessage());
+                }
+            }
+        };
+    }
+
+    private void importerLot(List<LigneLue> lot, Bilan bilan) {
+        final LocalDateTime maintenant = LocalDateTime.now();
+        final List<LigneLue> valides = new ArrayList<>(lot.size());
+        for (LigneLue l : lot) {
+            final String motif = controler(l.article(), maintenant);
+            if (motif == null)
+                valides.add(l);
+            else
+                bilan.rejeter(l.numero(), motif);
+        }
+        if (valides.isEmpty())
+            return;
+
+        ResultatLot resultat;
+        try {
+            try {
+                resultat = transactionTemplate.execute(status -> inserer(valides, maintenant, false));
+            } catch (ConcurrencyFailureException e) {
+                // Articles créés en parallèle pendant le lot : repris ligne à ligne
+                logger.info("Lot de " + valides.size() + " articles repris ligne à ligne : " + e.getMessage());
+                resultat = transactionTemplate.execute(status -> inserer(valides, maintenant, true));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Lot de " + valides.size() + " articles refusé par la base", e);
+            final String motif = "lot refusé par la base : " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            for (LigneLue l : valides)
+                bilan.rejeter(l.numero(), motif);
+            return;
+        }
+
+        resultat.rejets().forEach(r -> bilan.rejeter(r.ligne(), r.motif()));
+        // Ouvertures et clôtures planifiées après le commit, comme une création par l'API
+        bilan.importees += resultat.importes().size();
+        resultat.importes().forEach(enchereScheduler::planifier);
+        indexProximite.actualiser(resultat.importes().stream().map(ArticlesAVendre::getId).toList());
+    }
+
+    // Contrôles sans accès à la base, null si la ligne est valide
+    private String controler(LigneArticle a, LocalDateTime maintenant) {
+        if (a == null)
+            return "ligne vide";
+        if (estVide(a.nom()) || a.nom().length() > 30)
+            return "nom manquant ou trop long (30 caractères)";
+        if (estVide(a.description()) || a.description().length() > 300)
+            return "description manquante ou trop longue (300 caractères)";
+        if (a.dateDebutEncheres() == null || a.dateFinEncheres() == null)
+            return "dates d'enchères manquantes";
+        if (!a.dateFinEncheres().isAfter(a.dateDebutEncheres()))
+            return "fin des enchères avant leur début";
+        if (!a.dateFinEncheres().isAfter(maintenant))
+            return "enchères déjà terminées";
+        if (a.prixInitial() == null || a.prixInitial() < 0)
+            return "prix initial manquant ou négatif";
+        if (estVide(a.vendeur()))
+            return "vendeur manquant";
+        if (categorie(a) == null)
+            return "catégorie inconnue";
+        if (aUneAdresse(a)) {
+            if (!aS.doCheckAdresseRegistering(adresse(a)))
+                return "adresse de retrait incomplète";
+            if (a.rue().length() > 100 || a.codePostal().length() > 10 || a.ville().length() > 50)
+                return "adresse de retrait trop longue";
+        }
+        return null;
+    }
+
+    private ResultatLot inserer(List<LigneLue> valides, LocalDateTime maintenant, boolean ligneALigne) {
+        // Vendeurs du lot et leur adresse (retrait par défaut), en une requête
+        final Set<String> pseudos = new HashSet<>();
+        valides.forEach(l -> pseudos.add(l.article().vendeur()));
+        final Map<String, Integer> vendeurs = new HashMap<>();
+        namedParameterJdbcTemplate.query(VENDEURS, Map.of("pseudos", pseudos),
+                (RowCallbackHandler) rs -> vendeurs.put(rs.getString(1), rs.getObject(2, Integer.class)));
+
+        // Adresses de retrait identiques dans le lot : enregistrées une fois
+        final Map<List<String>, Integer> adresses = new HashMap<>();
+        final List<Rejet> rejets = new ArrayList<>();
+        final List<Object[]> lignes = new ArrayList<>(valides.size());
+        for (LigneLue l : valides) {
+            final LigneArticle a = l.article();
+            if (!vendeurs.containsKey(a.vendeur())) {
+                rejets.add(new Rejet(l.numero(), "vendeur inconnu : " + a.vendeur()));
+                continue;
+            }
+            final Integer retrait = aUneAdresse(a)
+                    ? adresses.computeIfAbsent(List.of(a.rue(), a.codePostal(), a.ville()), k -> aS.registerAdresse(adresse(a)).getId())
+                    : vendeurs.get(a.vendeur());
+            final int statut = a.dateDebutEncheres().isAfter(maintenant)
+                    ? ArticlesAVendre.STATUT_NON_COMMENCEE : ArticlesAVendre.STATUT_EN_COURS;
+            lignes.add(new Object[] { a.nom(), a.description(), a.photo() == null ? 0 : a.photo(),
+                a.dateDebutEncheres(), a.dateFinEncheres(), statut, a.prixInitial(), a.vendeur(),
+                categorie(a).getId(), retrait });
+        }
+        if (lignes.isEmpty())
+            return new ResultatLot(List.of(), rejets);
+
+        if (ligneALigne)
+            return new ResultatLot(insererUnParUn(lignes), rejets);
+
+        // Identifiants IDENTITY : pas de clés générées en lot sur tous les
+        // pilotes, les articles du lot sont relus au-delà du plus grand
+        // identifiant avant insertion. Attribués seulement si la relecture
+        // correspond au lot ligne à ligne ; sinon (article créé en parallèle)
+        // ConcurrencyFailureException, le lot est annulé et repris un par un
+        final Integer dernier = jdbcTemplate.queryForObject(DERNIER_ARTICLE, Integer.class);
+        jdbcTemplate.batchUpdate(INSERT_ARTICLE, lignes);
+        final List<Object[]> relues = jdbcTemplate.query(ECHEANCES, (rs, i) -> new Object[] { rs.getInt(1), rs.getInt(2),
+                rs.getObject(3, LocalDateTime.class), rs.getObject(4, LocalDateTime.class),
+                rs.getString(5), rs.getString(6), rs.getObject(7, Integer.class) }, dernier);
+        if (relues.size() != lignes.size())
+            throw new ConcurrencyFailureException("Articles insérés en parallèle, identifiants non attribuables");
+
+        final List<ArticlesAVendre> importes = new ArrayList<>(lignes.size());
+        for (int i = 0; i < lignes.size(); i++) {
+            final Object[] ligne = lignes.get(i);
+            final Object[] relue = relues.get(i);
+            if (!Objects.equals(ligne[0], relue[4]) || !Objects.equals(ligne[7], relue[5]) || !Objects.equals(ligne[6], relue[6]))
+                throw new ConcurrencyFailureException("Articles insérés en parallèle, identifiants non attribuables");
+            importes.add(ArticlesAVendre.builder()
+                    .id((Integer) relue[0])
+                    .statutEnchere((Integer) relue[1])
+                    .dateDebutEncheres((LocalDateTime) relue[2])
+                    .dateFinEncheres((LocalDateTime) relue[3])
+                    .build());
+        }
+        return new ResultatLot(importes, rejets);
+    }
+
+    // Une insertion par ligne : clé générée retournée par tous les pilotes
+    private List<ArticlesAVendre> insererUnParUn(List<Object[]> lignes) {
+        final List<ArticlesAVendre> importes = new ArrayList<>(lignes.size());
+        for (Object[] ligne : lignes) {
+            final KeyHolder cle = new GeneratedKeyHolder();
+            jdbcTemplate.update(connexion -> {
+                final PreparedStatement ps = connexion.prepareStatement(INSERT_ARTICLE, new String[] { "no_article" });
+                for (int i = 0; i < ligne.length; i++)
+                    ps.setObject(i + 1, ligne[i]);
+                return ps;
+            }, cle);
+            importes.add(ArticlesAVendre.builder()
+                    .id(cle.getKey().intValue())
+                    .statutEnchere((Integer) ligne[5])
+                    .dateDebutEncheres((LocalDateTime) ligne[3])
+                    .dateFinEncheres((LocalDateTime) ligne[4])
+                    .build());
+        }
+        return importes;
+    }
+
+    private Categorie categorie(LigneArticle a) {
+        if (a.noCategorie() != null)
+            return referentielManager.getCategorie(a.noCategorie());
+        if (estVide(a.categorie()))
+            return null;
+        return referentielManager.getCategories().stream()
+                .filter(c -> c.getLibelle().equalsIgnoreCase(a.categorie().trim()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static boolean aUneAdresse(LigneArticle a) {
+        return a.rue() != null || a.codePostal() != null || a.ville() != null;
+    }
+
+    private static Adresse adresse(LigneArticle a) {
+        return Adresse.builder().rue(a.rue()).codePostal(a.codePostal()).ville(a.ville()).build();
+    }
+
+    private static boolean estVide(String valeur) {
+        return valeur == null || valeur.isBlank();
+    }
+
+    @Override
+    public void exporterArticles(OutputStream sortie, FormatEchange format) throws IOException {
+        final long nombre;
+        try (SequenceWriter lignes = ecrivain(LigneArticle.class, format, sortie)) {
+            nombre = parcourir(EXPORT_ARTICLES, List.of(), rs -> {
+                final Integer noCategorie = rs.getObject(14, Integer.class);
+                final Categorie categorie = noCategorie == null ? null : referentielManager.getCategorie(noCategorie);
+                lignes.write(new LigneArticle(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getObject(4, Integer.class),
+                        rs.getObject(5, LocalDateTime.class), rs.getObject(6, LocalDateTime.class), rs.getObject(7, Integer.class),
+                        rs.getObject(8, Integer.class), rs.getObject(9, Integer.class), rs.getObject(10, Integer.class),
+                        rs.getObject(11, Integer.class), rs.getString(12), rs.getString(13), noCategorie,
+                        categorie == null ? null : categorie.getLibelle(), rs.getString(15), rs.getString(16), rs.getString(17)));
+            });
+        }
+        terminer(sortie, format, nombre);
+    }
+
+    @Override
+    public void exporterEncheres(OutputStream sortie, FormatEchange format, LocalDateTime depuis, LocalDateTime jusqua) throws IOException {
+        final StringBuilder sql = new StringBuilder(EXPORT_ENCHERES);
+        final List<Object> parametres = new ArrayList<>(2);
+        if (depuis != null) {
+            sql.append(" WHERE e.date_enchere >= ?");
+            parametres.add(depuis);
+        }
+        if (jusqua != null) {
+            sql.append(parametres.isEmpty() ? " WHERE" : " AND").append(" e.date_enchere < ?");
+            parametres.add(jusqua);
+        }
+        sql.append(" ORDER BY e.id_enchere");
+
+        final long nombre;
+        try (SequenceWriter lignes = ecrivain(LigneEnchere.class, format, sortie)) {
+            nombre = parcourir(sql.toString(), parametres, rs -> lignes.write(new LigneEnchere(rs.getInt(1), rs.getInt(2),
+                    rs.getString(3), rs.getString(4), rs.getInt(5), rs.getObject(6, LocalDateTime.class))));
+        }
+        terminer(sortie, format, nombre);
+    }
+
+    private SequenceWriter ecrivain(Class<?> type, FormatEchange format, OutputStream sortie) throws IOException {
+        if (format == FormatEchange.CSV)
+            return csvMapper.writerFor(type).with(csvMapper.schemaFor(type).withHeader()).writeValues(sortie);
+        return jsonMapper.writerFor(type).withRootValueSeparator("\n").writeValues(sortie);
+    }
+
+    // Dernière ligne NDJSON terminée comme les autres
+    private static void terminer(OutputStream sortie, FormatEchange format, long nombre) throws IOException {
+        if (format == FormatEchange.NDJSON && nombre > 0)
+            sortie.write('\n');
+        sortie.flush();
+    }
+
+    // Curseur en avant seulement : les lignes sont écrites au fil de la lecture
+    private long parcourir(String sql, List<Object> parametres, EcritureLigne ligne) throws IOException {
+        final long[] nombre = new long[1];
+        try {
+            jdbcTemplate.query(connexion -> {
+                final PreparedStatement ps = connexion.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                for (int i = 0; i < parametres.size(); i++)
+                    ps.setObject(i + 1, parametres.get(i));
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    ligne.ecrire(rs);
+                    nombre[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Client parti en cours d'export
+            throw e.getCause();
+        }
+        return nombre[0];
+    }
+}
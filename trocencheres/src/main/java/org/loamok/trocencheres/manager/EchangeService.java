@@ -0,0 +1,16 @@
+package org.loamok.trocencheres.manager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+/**
+ *
+ * @author Huby Franck
+ */
+public interface EchangeService {
+    BilanImport importerArticles(InputStream entree, FormatEchange format) throws IOException;
+    void exporterArticles(OutputStream sortie, FormatEchange format) throws IOException;
+    void exporterEncheres(OutputStream sortie, FormatEchange format, LocalDateTime depuis, LocalDateTime jusqua) throws IOException;
+}
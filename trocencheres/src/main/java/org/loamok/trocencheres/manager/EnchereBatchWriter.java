@@ -0,0 +1,285 @@
+package org.loamok.trocencheres.manager;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.loamok.trocencheres.configuration.FabriqueThreads;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.entity.Enchere;
+import org.loamok.trocencheres.entity.MouvementCredit;
+import org.loamok.trocencheres.entity.MouvementCredit.TypeMouvement;
+import org.loamok.trocencheres.entity.Utilisateur;
+import org.loamok.trocencheres.repository.ArticlesAVendreRepository;
+import org.loamok.trocencheres.repository.EnchereRepository;
+import org.loamok.trocencheres.repository.UtilisateurRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Persistance asynchrone des enchères acceptées : les offres validées en
+ * mémoire sont empilées dans un tampon circulaire borné puis écrites par lots,
+ * avec leurs mouvements de crédit et l'état des enchères de chaque article
+ * (prix courant, nombre d'offres, meneur), dans une seule transaction par
+ * lot, par un thread dédié. Un lot part dès qu'il est plein ou que le délai
+ * d'attente est écoulé ; les identifiants viennent de séquences allouées par
+ * blocs, les INSERT sont donc envoyés en lots JDBC.
+ *
+ * @author Huby Franck
+ */
+@Component
+public class EnchereBatchWriter {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    public enum Durabilite {
+        // Réponse dès l'acceptation en mémoire
+        ASYNCHRONE,
+        // Réponse après le commit du lot contenant l'enchère
+        COMMIT
+    }
+
+    // precedentEncherisseur/precedentMontant : offre dépassée dont le crédit est libéré
+    // confirmation : terminée au commit du lot, en erreur si l'enchère n'a pu être écrite
+    public record EnchereAcceptee(Integer noArticle, String pseudo, Integer montant, LocalDateTime date,
+            String precedentEncherisseur, Integer precedentMontant, CompletableFuture<Void> confirmation) {}
+
+    @Autowired
+    private EnchereRepository eR;
+    @Autowired
+    private ArticlesAVendreRepository aR;
+    @Autowired
+    private UtilisateurRepository uR;
+    @Autowired
+    private CreditService creditManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private FabriqueThreads fabriqueThreads;
+
+    @Value("${app.encheres.batch.taille:100}")
+    private int tailleLot;
+    // Attente maximale pour compléter un lot après sa première enchère
+    @Value("${app.encheres.batch.delai-ms:10}")
+    private long delaiMs;
+    @Value("${app.encheres.batch.capacite:10000}")
+    private int capacite;
+    @Value("${app.encheres.batch.durabilite:ASYNCHRONE}")
+    private Durabilite durabilite;
+
+    private BlockingQueue<EnchereAcceptee> file;
+    // Confirmation de la dernière enchère non encore écrite de chaque article :
+    // les lots sont écrits dans l'ordre, elle se termine après les précédentes
+    private final ConcurrentMap<Integer, CompletableFuture<Void>> enAttente = new ConcurrentHashMap<>();
+    // Dernière enchère perdue à l'écriture de chaque article : l'offre qui l'a
+    // dépassée est écrite sans libération, sa réservation n'étant pas en base.
+    // Tenue par le seul thread d'écriture (ou par la reprise, avant lui)
+    private final ConcurrentMap<Integer, EnchereAcceptee> nonEcrites = new ConcurrentHashMap<>();
+    private TransactionTemplate transactionTemplate;
+    private Thread ecrivain;
+    private volatile boolean actif;
+
+    @PostConstruct
+    void demarrer() {
+        file = new ArrayBlockingQueue<>(capacite);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        actif = true;
+        ecrivain = fabriqueThreads.demarrer("enchere-batch-writer", this::boucle);
+    }
+
+    @PreDestroy
+    void arreter() throws InterruptedException {
+        actif = false;
+        ecrivain.interrupt();
+        ecrivain.join(TimeUnit.SECONDS.toMillis(10));
+        // Vider ce qui reste avant l'arrêt
+        List<EnchereAcceptee> reste = new ArrayList<>();
+        file.drainTo(reste);
+        if (!reste.isEmpty())
+            traiter(reste);
+    }
+
+    /**
+     * Empile une enchère acceptée. Ne bloque jamais : retourne false si la
+     * file est pleine, l'appelant doit alors refuser l'offre.
+     */
+    public boolean soumettre(EnchereAcceptee enchere) {
+        if (!file.offer(enchere))
+            return false;
+
+        // Appelé sous le verrou de l'article : une seule soumission à la fois par article
+        final CompletableFuture<Void> confirmation = enchere.confirmation();
+        enAttente.put(enchere.noArticle(), confirmation);
+        confirmation.whenComplete((v, ex) -> enAttente.remove(enchere.noArticle(), confirmation));
+        return true;
+    }
+
+    /**
+     * Attend que toutes les enchères soumises pour ces articles soient
+     * écrites ou définitivement en échec. Retourne false si le délai est
+     * écoulé avant.
+     */
+    public boolean attendre(Collection<Integer> noArticles, long delaiMs) throws InterruptedException {
+        final List<CompletableFuture<Void>> confirmations = new ArrayList<>();
+        for (Integer noArticle : noArticles) {
+            final CompletableFuture<Void> c = enAttente.get(noArticle);
+            if (c != null)
+                confirmations.add(c);
+        }
+        if (confirmations.isEmpty())
+            return true;
+
+        try {
+            CompletableFuture.allOf(confirmations.toArray(CompletableFuture[]::new)).get(delaiMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // Enchère perdue à l'écriture : terminée quand même, la base fait foi
+        } catch (TimeoutException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Écrit des enchères immédiatement dans le thread appelant, sans passer
+     * par la file (reprise au démarrage). Chaque confirmation est terminée
+     * au retour.
+     */
+    public void ecrire(List<EnchereAcceptee> encheres) {
+        for (int i = 0; i < encheres.size(); i += tailleLot)
+            traiter(new ArrayList<>(encheres.subList(i, Math.min(i + tailleLot, encheres.size()))));
+    }
+
+    // L'appelant attend la confirmation avant de répondre
+    public boolean isDurable() {
+        return durabilite == Durabilite.COMMIT;
+    }
+
+    private void boucle() {
+        final List<EnchereAcceptee> lot = new ArrayList<>(tailleLot);
+        final long delaiNs = TimeUnit.MILLISECONDS.toNanos(delaiMs);
+        while (actif) {
+            try {
+                final EnchereAcceptee premiere = file.poll(100, TimeUnit.MILLISECONDS);
+                if (premiere == null)
+                    continue;
+
+                // Lot complété jusqu'à sa taille ou jusqu'au délai
+                lot.add(premiere);
+                final long limite = System.nanoTime() + delaiNs;
+                while (lot.size() < tailleLot) {
+                    file.drainTo(lot, tailleLot - lot.size());
+                    final long restant = limite - System.nanoTime();
+                    if (lot.size() >= tailleLot || restant <= 0)
+                        break;
+                    final EnchereAcceptee suivante = file.poll(restant, TimeUnit.NANOSECONDS);
+                    if (suivante == null)
+                        break;
+                    lot.add(suivante);
+                }
+                traiter(lot);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // Arrêt : le lot en cours est écrit, arreter() écrit le reste de la file
+                if (!lot.isEmpty())
+                    traiter(lot);
+                return;
+            } finally {
+                lot.clear();
+            }
+        }
+    }
+
+    // Un lot en échec est rejoué enchère par enchère : une ligne fautive ne fait
+    // pas perdre les autres
+    private void traiter(List<EnchereAcceptee> lot) {
+        try {
+            ecrireLot(lot);
+            lot.forEach(e -> nonEcrites.remove(e.noArticle()));
+            lot.forEach(e -> e.confirmation().complete(null));
+        } catch (RuntimeException ex) {
+            if (lot.size() == 1) {
+                final EnchereAcceptee e = lot.get(0);
+                logger.error("Enchère de " + e.pseudo() + " sur l'article " + e.noArticle() + " (" + e.montant() + ") non enregistrée", ex);
+                nonEcrites.put(e.noArticle(), e);
+                e.confirmation().completeExceptionally(ex);
+                return;
+            }
+            logger.warn("Échec d'un lot de " + lot.size() + " enchères, écriture une par une", ex);
+            for (EnchereAcceptee e : lot)
+                traiter(List.of(e));
+        }
+    }
+
+    // Les lots sont écrits dans l'ordre : la précédente d'une enchère est soit
+    // dans un lot déjà traité, soit plus tôt dans le même lot (écrit d'un bloc
+    // ou rejoué dans l'ordre)
+    private boolean precedenteEcrite(EnchereAcceptee e) {
+        final EnchereAcceptee perdue = nonEcrites.get(e.noArticle());
+        return perdue == null || !perdue.pseudo().equals(e.precedentEncherisseur())
+                || !perdue.montant().equals(e.precedentMontant());
+    }
+
+    private void ecrireLot(List<EnchereAcceptee> lot) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Enchere> encheres = new ArrayList<>(lot.size());
+            List<MouvementCredit> mouvements = new ArrayList<>(lot.size() * 2);
+            for (EnchereAcceptee e : lot) {
+                // Références sans SELECT : les clés ont été validées en mémoire
+                Utilisateur encherisseur = uR.getReferenceById(e.pseudo());
+                ArticlesAVendre article = aR.getReferenceById(e.noArticle());
+                encheres.add(Enchere.builder()
+                        .montantEnchere(e.montant())
+                        .dateEnchere(e.date())
+                        .utilisateur(encherisseur)
+                        .article(article)
+                        .build());
+                mouvements.add(MouvementCredit.builder()
+                        .montant(-e.montant())
+                        .type(TypeMouvement.RESERVATION)
+                        .dateMouvement(e.date())
+                        .utilisateur(encherisseur)
+                        .article(article)
+                        .build());
+                if (e.precedentEncherisseur() != null && precedenteEcrite(e))
+                    mouvements.add(MouvementCredit.builder()
+                            .montant(e.precedentMontant())
+                            .type(TypeMouvement.LIBERATION)
+                            .dateMouvement(e.date())
+                            .utilisateur(uR.getReferenceById(e.precedentEncherisseur()))
+                            .article(article)
+                            .build());
+            }
+            eR.saveAll(encheres);
+            creditManager.persister(mouvements);
+
+            // État des enchères de chaque article : les offres d'un article
+            // arrivent dans l'ordre, la dernière du lot est la meilleure
+            final Map<Integer, EnchereAcceptee> dernieres = new LinkedHashMap<>();
+            final Map<Integer, Integer> nombres = new HashMap<>();
+            for (EnchereAcceptee e : lot) {
+                dernieres.put(e.noArticle(), e);
+                nombres.merge(e.noArticle(), 1, Integer::sum);
+            }
+            dernieres.forEach((noArticle, e) ->
+                    aR.enregistrerEncheres(noArticle, e.montant(), e.pseudo(), e.date(), nombres.get(noArticle)));
+        });
+    }
+}
@@ -0,0 +1,304 @@
+package org.loamok.trocencheres.manager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.entity.Enchere;
+import org.loamok.trocencheres.journal.JournalEncheres;
+import org.loamok.trocencheres.manager.EnchereBatchWriter.EnchereAcceptee;
+import org.loamok.trocencheres.repository.ArticlesAVendreRepository;
+import org.loamok.trocencheres.repository.EnchereRepository;
+import org.loamok.trocencheres.stream.EnchereHub;
+import org.loamok.trocencheres.stream.EnchereNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Moteur de placement des enchères. La meilleure offre de chaque article est
+ * tenue en mémoire et les offres d'un même article sont sérialisées par le
+ * verrou de son {@link EtatEnchere} : une offre refusée ne touche jamais la
+ * base, une offre acceptée est persistée par lots par {@link EnchereBatchWriter}.
+ *
+ * @author Huby Franck
+ */
+@Service
+public class EnchereManager implements EnchereService {
+
+    private final ConcurrentMap<Integer, EtatEnchere> etats = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ArticlesAVendreRepository aR;
+    @Autowired
+    private EnchereRepository eR;
+    @Autowired
+    private EnchereBatchWriter writer;
+    @Autowired
+    private CreditService creditManager;
+    @Autowired
+    private EnchereHub enchereHub;
+    @Autowired
+    private JournalEncheres journal;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.encheres.batch.attente-confirmation-ms:5000}")
+    private long attenteConfirmationMs;
+
+    // Durée de placement (validation, réservation, attente du commit en mode durable)
+    private Timer acceptees;
+    private Timer refusees;
+
+    @PostConstruct
+    void init() {
+        acceptees = minuteur("acceptee");
+        refusees = minuteur("refusee");
+    }
+
+    private Timer minuteur(String resultat) {
+        return Timer.builder("trocencheres.encheres.placement")
+                .description("Placement d'une enchère")
+                .tag("resultat", resultat)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ResultatEnchere placerEnchere(String pseudo, Integer noArticle, Integer montant) {
+        final long debut = System.nanoTime();
+        final ResultatEnchere resultat = placerEtConfirmer(pseudo, noArticle, montant);
+        if (resultat.getAcceptee()) {
+            acceptees.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        } else {
+            refusees.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+            // Motifs en nombre fini (libellés fixes)
+            meterRegistry.counter("trocencheres.encheres.refus", "motif", resultat.getMotif()).increment();
+        }
+        return resultat;
+    }
+
+    private ResultatEnchere placerEtConfirmer(String pseudo, Integer noArticle, Integer montant) {
+        if (pseudo == null || noArticle == null || montant == null)
+            return ResultatEnchere.refusee("paramètres manquants", noArticle, null);
+
+        final EtatEnchere etat = getEtat(noArticle);
+        if (etat == null)
+            return ResultatEnchere.refusee("article inconnu", noArticle, null);
+
+        final LocalDateTime maintenant;
+        final ResultatEnchere resultat;
+        final CompletableFuture<Void> confirmation = new CompletableFuture<>();
+        etat.getVerrou().lock();
+        try {
+            // Pris sous le verrou : une offre ne peut pas être datée avant une
+            // clôture qui l'a précédée
+            maintenant = LocalDateTime.now();
+            resultat = placer(etat, pseudo, montant, maintenant, confirmation);
+        } finally {
+            etat.getVerrou().unlock();
+        }
+
+        // Mode durable : réponse seulement après le commit du lot, hors verrou
+        if (resultat.getAcceptee() && writer.isDurable()) {
+            try {
+                confirmation.get(attenteConfirmationMs, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                return ResultatEnchere.refusee("enregistrement impossible", noArticle, null);
+            } catch (TimeoutException e) {
+                // Toujours dans la file : sera écrite, mais pas encore confirmée
+                resultat.setMotif("confirmation en attente");
+                return resultat;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                resultat.setMotif("confirmation en attente");
+                return resultat;
+            }
+        }
+
+        // Diffusion hors verrou
+        if (resultat.getAcceptee())
+            enchereHub.publier(new EnchereNotification(EnchereNotification.OFFRE,
+                    noArticle, etat.getNoCategorie(), montant, pseudo, maintenant));
+
+        return resultat;
+    }
+
+    // Validation et réservation, appelé sous le verrou de l'article
+    private ResultatEnchere placer(EtatEnchere etat, String pseudo, Integer montant, LocalDateTime maintenant,
+            CompletableFuture<Void> confirmation) {
+        final Integer noArticle = etat.getNoArticle();
+
+        if (!etat.isOuverte(maintenant))
+            return ResultatEnchere.refusee("enchère fermée", noArticle, etat);
+
+        if (pseudo.equals(etat.getVendeur()))
+            return ResultatEnchere.refusee("le vendeur ne peut pas enchérir", noArticle, etat);
+
+        if (pseudo.equals(etat.getMeilleurEncherisseur()))
+            return ResultatEnchere.refusee("déjà meilleur enchérisseur", noArticle, etat);
+
+        if (montant < etat.montantMinimal())
+            return ResultatEnchere.refusee("montant insuffisant", noArticle, etat);
+
+        if (!creditManager.reserver(pseudo, montant))
+            return ResultatEnchere.refusee("crédit insuffisant", noArticle, etat);
+
+        final String precedent = etat.getMeilleurEncherisseur();
+        final Integer precedentMontant = etat.getMeilleurMontant();
+
+        if (!writer.soumettre(new EnchereAcceptee(noArticle, pseudo, montant, maintenant, precedent, precedentMontant, confirmation))) {
+            creditManager.liberer(pseudo, montant);
+            return ResultatEnchere.refusee("service saturé, réessayez", noArticle, etat);
+        }
+        // Journalisée sous le verrou de l'article, confirmée (ou non) au commit du lot
+        final long sequence = journal.offre(noArticle, pseudo, montant, maintenant, precedent, precedentMontant);
+        confirmation.whenComplete((v, ex) -> {
+            if (ex != null)
+                annuler(etat, pseudo, montant);
+            journal.confirmer(sequence, ex == null);
+        });
+
+        // L'enchérisseur dépassé récupère son crédit
+        if (precedent != null)
+            creditManager.liberer(precedent, precedentMontant);
+
+        etat.setMeilleureOffre(montant, pseudo);
+
+        return ResultatEnchere.acceptee(etat);
+    }
+
+    /**
+     * Enchère perdue à l'écriture. Déjà dépassée, son crédit a été libéré en
+     * mémoire et l'écrivain n'écrit pas la libération correspondante : rien à
+     * faire. Encore meilleure offre, aucune offre ne la suit et toutes celles
+     * qui la précèdent sont écrites ou perdues : la meilleure offre écrite en
+     * base redevient la meilleure, et son crédit, libéré en mémoire quand elle
+     * a été dépassée, est repris. Une précédente elle-même perdue n'est donc
+     * jamais reprise, et l'état n'est pas rechargé (ce qui oublierait les
+     * offres encore en file).
+     */
+    private void annuler(EtatEnchere etat, String pseudo, Integer montant) {
+        etat.getVerrou().lock();
+        try {
+            if (!pseudo.equals(etat.getMeilleurEncherisseur()) || !montant.equals(etat.getMeilleurMontant()))
+                return;
+
+            creditManager.liberer(pseudo, montant);
+            final Optional<Enchere> ecrite = eR.findFirstByArticle_IdOrderByMontantEnchereDesc(etat.getNoArticle());
+            final String precedent = ecrite.map(e -> e.getUtilisateur().getPseudo()).orElse(null);
+            final Integer precedentMontant = ecrite.map(Enchere::getMontantEnchere).orElse(null);
+            if (precedent != null)
+                creditManager.reprendre(precedent, precedentMontant);
+            etat.setMeilleureOffre(precedentMontant, precedent);
+        } finally {
+            etat.getVerrou().unlock();
+        }
+    }
+
+    /**
+     * Retourne l'état en mémoire de l'article, chargé depuis la base au
+     * premier accès. Le chargement se fait hors de la map pour ne pas bloquer
+     * les autres articles ; en cas de course, le premier état publié gagne.
+     */
+    @Override
+    public EtatEnchere getEtat(Integer noArticle) {
+        EtatEnchere etat = etats.get(noArticle);
+        if (etat != null)
+            return etat;
+
+        etat = charger(noArticle);
+        if (etat == null)
+            return null;
+
+        // Un article clôturé ou annulé n'est pas gardé en mémoire
+        if (etat.getStatutEnchere() != ArticlesAVendre.STATUT_NON_COMMENCEE && etat.getStatutEnchere() != ArticlesAVendre.STATUT_EN_COURS)
+            return etat;
+
+        final EtatEnchere existant = etats.putIfAbsent(noArticle, etat);
+
+        return existant != null ? existant : etat;
+    }
+
+    /**
+     * Reprend un état restauré depuis le journal, sans relire la meilleure
+     * offre en base. Un état déjà chargé est conservé.
+     */
+    @Override
+    public void restaurer(EtatEnchere etat) {
+        etats.putIfAbsent(etat.getNoArticle(), etat);
+    }
+
+    @Override
+    public void retirer(Integer noArticle) {
+        etats.remove(noArticle);
+    }
+
+    @Override
+    public void ouvrir(Integer noArticle) {
+        final EtatEnchere etat = etats.get(noArticle);
+        if (etat == null)
+            return;
+
+        etat.getVerrou().lock();
+        try {
+            if (etat.getStatutEnchere() == ArticlesAVendre.STATUT_NON_COMMENCEE)
+                etat.setStatutEnchere(ArticlesAVendre.STATUT_EN_COURS);
+        } finally {
+            etat.getVerrou().unlock();
+        }
+    }
+
+    /**
+     * Ferme l'article en mémoire : plus aucune offre n'est acceptée ensuite.
+     * L'état reste dans la map jusqu'au commit de la clôture en base, où
+     * l'échéancier le retire.
+     */
+    @Override
+    public void cloturer(Integer noArticle) {
+        final EtatEnchere etat = etats.get(noArticle);
+        if (etat == null)
+            return;
+
+        etat.getVerrou().lock();
+        try {
+            etat.setStatutEnchere(ArticlesAVendre.STATUT_CLOTUREE);
+        } finally {
+            etat.getVerrou().unlock();
+        }
+    }
+
+    @Override
+    public void rafraichir(ArticlesAVendre article) {
+        final EtatEnchere etat = etats.get(article.getId());
+        if (etat == null)
+            return;
+
+        etat.getVerrou().lock();
+        try {
+            etat.rafraichir(article);
+        } finally {
+            etat.getVerrou().unlock();
+        }
+    }
+
+    private EtatEnchere charger(Integer noArticle) {
+        final Optional<ArticlesAVendre> article = aR.findById(noArticle);
+        if (article.isEmpty())
+            return null;
+
+        final Optional<Enchere> meilleure = eR.findFirstByArticle_IdOrderByMontantEnchereDesc(noArticle);
+
+        return new EtatEnchere(article.get(),
+                meilleure.map(Enchere::getMontantEnchere).orElse(null),
+                meilleure.map(e -> e.getUtilisateur().getPseudo()).orElse(null));
+    }
+}
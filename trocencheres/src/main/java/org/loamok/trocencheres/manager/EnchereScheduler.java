@@ -0,0 +1,303 @@
+package org.loamok.trocencheres.manager;
+
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.loamok.trocencheres.configuration.FabriqueThreads;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.entity.MouvementCredit;
+import org.loamok.trocencheres.entity.MouvementCredit.TypeMouvement;
+import org.loamok.trocencheres.journal.JournalEncheres;
+import org.loamok.trocencheres.projection.CategorieArticle;
+import org.loamok.trocencheres.projection.EcheanceArticle;
+import org.loamok.trocencheres.projection.MeilleureOffre;
+import org.loamok.trocencheres.repository.ArticlesAVendreRepository;
+import org.loamok.trocencheres.repository.EnchereRepository;
+import org.loamok.trocencheres.repository.UtilisateurRepository;
+import org.loamok.trocencheres.stream.EnchereHub;
+import org.loamok.trocencheres.stream.EnchereNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Échéancier des enchères : ouvre et clôture les articles à l'instant exact
+ * de leurs dates de début et de fin. Les échéances sont tenues dans une
+ * {@link DelayQueue} chargée une seule fois au démarrage (articles non
+ * commencés ou en cours) puis alimentée à chaque création/modification
+ * d'article ; la table n'est jamais reparcourue. Toutes les échéances arrivées
+ * au même moment sont traitées par lots, une transaction par lot.
+ *
+ * @author Huby Franck
+ */
+@Component
+public class EnchereScheduler {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    enum TypeEcheance { OUVERTURE, CLOTURE }
+
+    // Gagnant et catégorie de chaque article d'un lot clôturé
+    private record Cloture(Map<Integer, MeilleureOffre> gagnants, Map<Integer, Integer> categories) {}
+
+
+    record Echeance(Integer noArticle, TypeEcheance type, long instant) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(instant - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(instant, ((Echeance) o).instant);
+        }
+    }
+
+    @Autowired
+    private ArticlesAVendreRepository aR;
+    @Autowired
+    private EnchereRepository eR;
+    @Autowired
+    private UtilisateurRepository uR;
+    @Autowired
+    private EnchereService enchereManager;
+    @Autowired
+    private CreditService creditManager;
+    @Autowired
+    private EnchereBatchWriter writer;
+    @Autowired
+    private EnchereHub enchereHub;
+    @Autowired
+    private JournalEncheres journal;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private FabriqueThreads fabriqueThreads;
+    @Autowired
+    private IndexProximite indexProximite;
+
+    @Value("${app.encheres.cloture.taille-lot:500}")
+    private int tailleLot;
+    // Attente des offres acceptées pas encore écrites avant de lire le gagnant
+    @Value("${app.encheres.cloture.attente-ecriture-ms:5000}")
+    private long attenteEcritureMs;
+    // Délai avant de retenter un lot d'ouvertures ou de clôtures en échec
+    @Value("${app.encheres.cloture.reessai-ms:5000}")
+    private long reessaiMs;
+
+    private final DelayQueue<Echeance> file = new DelayQueue<>();
+    // Échéance courante de chaque article : une échéance de la file qui ne
+    // correspond plus (dates modifiées) est ignorée à son expiration
+    private final ConcurrentMap<Integer, Echeance> ouvertures = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Echeance> clotures = new ConcurrentHashMap<>();
+
+    private TransactionTemplate transactionTemplate;
+    private Thread traitement;
+    private volatile boolean actif;
+
+    @EventListener(ApplicationReadyEvent.class)
+    void demarrer() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        final List<EcheanceArticle> articles = aR.findByStatutEnchereIn(
+                List.of(ArticlesAVendre.STATUT_NON_COMMENCEE, ArticlesAVendre.STATUT_EN_COURS));
+        for (EcheanceArticle a : articles)
+            planifier(a.getId(), a.getStatutEnchere(), a.getDateDebutEncheres(), a.getDateFinEncheres());
+
+        logger.info(articles.size() + " enchères planifiées");
+
+        actif = true;
+        traitement = fabriqueThreads.demarrer("enchere-scheduler", this::boucle);
+    }
+
+    @PreDestroy
+    void arreter() {
+        actif = false;
+        if (traitement != null)
+            traitement.interrupt();
+    }
+
+    /**
+     * (Re)planifie l'ouverture et la clôture d'un article.
+     */
+    public void planifier(ArticlesAVendre article) {
+        planifier(article.getId(), article.getStatutEnchere(), article.getDateDebutEncheres(), article.getDateFinEncheres());
+    }
+
+    private void planifier(Integer noArticle, Integer statut, LocalDateTime debut, LocalDateTime fin) {
+        if (statut == null || debut == null || fin == null)
+            return;
+
+        if (statut == ArticlesAVendre.STATUT_NON_COMMENCEE) {
+            ajouter(ouvertures, new Echeance(noArticle, TypeEcheance.OUVERTURE, epochMillis(debut)));
+        } else {
+            ouvertures.remove(noArticle);
+        }
+
+        if (statut == ArticlesAVendre.STATUT_NON_COMMENCEE || statut == ArticlesAVendre.STATUT_EN_COURS) {
+            ajouter(clotures, new Echeance(noArticle, TypeEcheance.CLOTURE, epochMillis(fin)));
+        } else {
+            clotures.remove(noArticle);
+        }
+    }
+
+    private void ajouter(ConcurrentMap<Integer, Echeance> courantes, Echeance echeance) {
+        final Echeance precedente = courantes.put(echeance.noArticle(), echeance);
+        if (!echeance.equals(precedente))
+            file.add(echeance);
+    }
+
+    private void boucle() {
+        final List<Echeance> lot = new ArrayList<>(tailleLot);
+        while (actif) {
+            try {
+                lot.add(file.take());
+                // Toutes les échéances déjà arrivées partent dans le même lot
+                file.drainTo(lot, tailleLot - 1);
+                traiterLot(lot);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Erreur lors du traitement d'un lot de " + lot.size() + " échéances", e);
+            } finally {
+                lot.clear();
+            }
+        }
+    }
+
+    private void traiterLot(List<Echeance> lot) throws InterruptedException {
+        final List<Integer> aOuvrir = new ArrayList<>();
+        final List<Integer> aCloturer = new ArrayList<>();
+        for (Echeance e : lot) {
+            if (e.type() == TypeEcheance.OUVERTURE && ouvertures.remove(e.noArticle(), e))
+                aOuvrir.add(e.noArticle());
+            else if (e.type() == TypeEcheance.CLOTURE && clotures.remove(e.noArticle(), e))
+                aCloturer.add(e.noArticle());
+        }
+
+        if (!aOuvrir.isEmpty()) {
+            try {
+                ouvrir(aOuvrir);
+            } catch (RuntimeException e) {
+                logger.error("Échec de l'ouverture de " + aOuvrir.size() + " enchères, nouvel essai dans " + reessaiMs + " ms", e);
+                reporter(aOuvrir, ouvertures, TypeEcheance.OUVERTURE);
+            }
+        }
+        if (!aCloturer.isEmpty()) {
+            try {
+                cloturer(aCloturer);
+            } catch (RuntimeException e) {
+                logger.error("Échec de la clôture de " + aCloturer.size() + " enchères, nouvel essai dans " + reessaiMs + " ms", e);
+                reporter(aCloturer, clotures, TypeEcheance.CLOTURE);
+            }
+        }
+    }
+
+    // Remet en file les échéances d'un lot en échec, sauf pour les articles
+    // replanifiés entre-temps
+    private void reporter(List<Integer> ids, ConcurrentMap<Integer, Echeance> courantes, TypeEcheance type) {
+        final long instant = System.currentTimeMillis() + reessaiMs;
+        for (Integer id : ids) {
+            final Echeance echeance = new Echeance(id, type, instant);
+            if (courantes.putIfAbsent(id, echeance) == null)
+                file.add(echeance);
+        }
+    }
+
+    private void ouvrir(List<Integer> ids) {
+        transactionTemplate.executeWithoutResult(status -> aR.changerStatut(ids,
+                ArticlesAVendre.STATUT_NON_COMMENCEE, ArticlesAVendre.STATUT_EN_COURS));
+        ids.forEach(enchereManager::ouvrir);
+    }
+
+    private void cloturer(List<Integer> ids) throws InterruptedException {
+        // Fermeture en mémoire d'abord : plus aucune offre acceptée ensuite.
+        // L'état reste chargé jusqu'au commit, un nouvel essai le retrouve fermé
+        ids.forEach(enchereManager::cloturer);
+
+        // Les offres déjà acceptées doivent être en base avant d'en lire le
+        // gagnant ; une offre perdue à l'écriture n'est alors plus la meilleure
+        if (!writer.attendre(ids, attenteEcritureMs))
+            throw new IllegalStateException("Enchères encore en attente d'écriture après " + attenteEcritureMs + " ms");
+
+        final Cloture cloture = transactionTemplate.execute(status -> {
+            final Map<Integer, MeilleureOffre> meilleures = new HashMap<>();
+            for (MeilleureOffre o : eR.findMeilleuresOffres(ids))
+                meilleures.put(o.getNoArticle(), o);
+
+            final List<Integer> sansOffre = new ArrayList<>();
+            final List<MouvementCredit> ventes = new ArrayList<>(meilleures.size());
+            final LocalDateTime maintenant = LocalDateTime.now();
+            for (Integer id : ids) {
+                final MeilleureOffre gagnant = meilleures.get(id);
+                if (gagnant == null) {
+                    sansOffre.add(id);
+                    continue;
+                }
+
+                // Déjà clôturé (nouvel essai après un commit non confirmé), annulé
+                // ou livré entre-temps : pas de crédit
+                if (aR.cloturer(id, ArticlesAVendre.STATUT_CLOTUREE, gagnant.getMontant()) != 1 || gagnant.getVendeur() == null)
+                    continue;
+
+                // Le crédit de l'acheteur a été débité à l'enchère : seul le
+                // vendeur est crédité, en mémoire au commit
+                creditManager.crediter(gagnant.getVendeur(), gagnant.getMontant());
+                ventes.add(MouvementCredit.builder()
+                        .montant(gagnant.getMontant())
+                        .type(TypeMouvement.VENTE)
+                        .dateMouvement(maintenant)
+                        .utilisateur(uR.getReferenceById(gagnant.getVendeur()))
+                        .article(aR.getReferenceById(id))
+                        .build());
+            }
+
+            if (!sansOffre.isEmpty()) {
+                aR.changerStatut(sansOffre, ArticlesAVendre.STATUT_NON_COMMENCEE, ArticlesAVendre.STATUT_CLOTUREE);
+                aR.changerStatut(sansOffre, ArticlesAVendre.STATUT_EN_COURS, ArticlesAVendre.STATUT_CLOTUREE);
+            }
+            creditManager.persister(ventes);
+
+            final Map<Integer, Integer> categories = new HashMap<>();
+            for (CategorieArticle c : aR.findCategories(ids))
+                categories.put(c.getId(), c.getNoCategorie());
+            return new Cloture(meilleures, categories);
+        });
+
+        // Clôture validée en base : mémoire, journal et index suivent. Un état
+        // rechargé par une offre tardive (refusée) ne doit pas rester en mémoire
+        ids.forEach(enchereManager::retirer);
+        ids.forEach(journal::clore);
+        indexProximite.retirer(ids);
+
+        final LocalDateTime maintenant = LocalDateTime.now();
+        for (Integer id : ids) {
+            final MeilleureOffre g = cloture.gagnants().get(id);
+            final Integer noCategorie = cloture.categories().get(id);
+            enchereHub.publier(g == null
+                    ? new EnchereNotification(EnchereNotification.CLOTURE, id, noCategorie, null, null, maintenant)
+                    : new EnchereNotification(EnchereNotification.CLOTURE, id, noCategorie, g.getMontant(), g.getPseudo(), maintenant));
+        }
+        logger.info(ids.size() + " enchères clôturées");
+    }
+
+    private static long epochMillis(LocalDateTime date) {
+        return date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
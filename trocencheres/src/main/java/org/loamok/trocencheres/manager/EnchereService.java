@@ -0,0 +1,17 @@
+package org.loamok.trocencheres.manager;
+
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+
+/**
+ *
+ * @author Huby Franck
+ */
+public interface EnchereService {
+    ResultatEnchere placerEnchere(String pseudo, Integer noArticle, Integer montant);
+    EtatEnchere getEtat(Integer noArticle);
+    void restaurer(EtatEnchere etat);
+    void retirer(Integer noArticle);
+    void ouvrir(Integer noArticle);
+    void cloturer(Integer noArticle);
+    void rafraichir(ArticlesAVendre article);
+}
@@ -0,0 +1,92 @@
+package org.loamok.trocencheres.manager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.loamok.trocencheres.configuration.FabriqueThreads;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.projection.EncheresParCategorie;
+import org.loamok.trocencheres.repository.ArticlesAVendreRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Jauges des enchères en cours par catégorie
+ * (trocencheres.encheres.ouvertes{categorie=...}), relevées périodiquement
+ * par une seule requête groupée : le relevé Prometheus ne touche pas la base.
+ *
+ * @author Huby Franck
+ */
+@Component
+public class EncheresOuvertesMetriques {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    @Autowired
+    private ArticlesAVendreRepository aR;
+    @Autowired
+    private ReferentielService referentielManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private FabriqueThreads fabriqueThreads;
+
+    @Value("${app.metriques.encheres-ouvertes.rafraichissement:PT30S}")
+    private Duration rafraichissement;
+
+    private MultiGauge jauges;
+    private Thread releve;
+    private volatile boolean actif;
+
+    // Après le chargement du référentiel des catégories
+    @EventListener(ApplicationReadyEvent.class)
+    void demarrer() {
+        jauges = MultiGauge.builder("trocencheres.encheres.ouvertes")
+                .description("Enchères en cours par catégorie")
+                .register(meterRegistry);
+        actif = true;
+        releve = fabriqueThreads.demarrer("metriques-encheres", this::boucle);
+    }
+
+    @PreDestroy
+    void arreter() {
+        actif = false;
+        if (releve != null)
+            releve.interrupt();
+    }
+
+    private void boucle() {
+        while (actif) {
+            try {
+                relever();
+            } catch (RuntimeException e) {
+                logger.warn("Relevé des enchères en cours impossible", e);
+            }
+            try {
+                Thread.sleep(rafraichissement.toMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // Toutes les catégories, à zéro quand aucune enchère n'y est en cours
+    private void relever() {
+        final Map<Integer, Long> nombres = new HashMap<>();
+        for (EncheresParCategorie e : aR.compterParCategorie(ArticlesAVendre.STATUT_EN_COURS))
+            nombres.put(e.getNoCategorie(), e.getNombre());
+
+        jauges.register(referentielManager.getCategories().stream()
+                .map(c -> MultiGauge.Row.of(Tags.of("categorie", c.getLibelle()), nombres.getOrDefault(c.getId(), 0L)))
+                .toList(), true);
+    }
+}
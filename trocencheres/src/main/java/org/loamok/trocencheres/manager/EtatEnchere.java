@@ -0,0 +1,74 @@
+package org.loamok.trocencheres.manager;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.Getter;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+
+/**
+ * État en mémoire d'un article aux enchères : meilleure offre courante et
+ * verrou propre à l'article. Toute lecture/écriture de la meilleure offre se
+ * fait sous le verrou, les enchères d'un même article sont donc sérialisées
+ * sans bloquer celles des autres articles.
+ *
+ * @author Huby Franck
+ */
+@Getter
+public class EtatEnchere {
+
+    private final Integer noArticle;
+    private final String vendeur;
+    private final Integer noCategorie;
+    private final ReentrantLock verrou = new ReentrantLock();
+
+    private Integer prixInitial;
+    private LocalDateTime dateDebutEncheres;
+    private LocalDateTime dateFinEncheres;
+
+    private int statutEnchere;
+    private Integer meilleurMontant;
+    private String meilleurEncherisseur;
+
+    public EtatEnchere(ArticlesAVendre article, Integer meilleurMontant, String meilleurEncherisseur) {
+        this.noArticle = article.getId();
+        this.vendeur = article.getUtilisateur() != null ? article.getUtilisateur().getPseudo() : null;
+        this.noCategorie = article.getCategorie() != null ? article.getCategorie().getId() : null;
+        this.prixInitial = article.getPrixInitial();
+        this.dateDebutEncheres = article.getDateDebutEncheres();
+        this.dateFinEncheres = article.getDateFinEncheres();
+        this.statutEnchere = article.getStatutEnchere();
+        this.meilleurMontant = meilleurMontant;
+        this.meilleurEncherisseur = meilleurEncherisseur;
+    }
+
+    // Une enchère est ouverte si elle n'est ni clôturée ni annulée et que
+    // l'instant courant est dans la fenêtre [debut, fin[
+    boolean isOuverte(LocalDateTime maintenant) {
+        if (statutEnchere != ArticlesAVendre.STATUT_NON_COMMENCEE && statutEnchere != ArticlesAVendre.STATUT_EN_COURS)
+            return false;
+
+        return !maintenant.isBefore(dateDebutEncheres) && maintenant.isBefore(dateFinEncheres);
+    }
+
+    // Montant minimal accepté pour la prochaine offre
+    int montantMinimal() {
+        return meilleurMontant == null ? prixInitial : meilleurMontant + 1;
+    }
+
+    void setMeilleureOffre(Integer montant, String pseudo) {
+        this.meilleurMontant = montant;
+        this.meilleurEncherisseur = pseudo;
+    }
+
+    void setStatutEnchere(int statutEnchere) {
+        this.statutEnchere = statutEnchere;
+    }
+
+    // Reprise des données modifiables de l'article (prix, dates, statut)
+    void rafraichir(ArticlesAVendre article) {
+        this.prixInitial = article.getPrixInitial();
+        this.dateDebutEncheres = article.getDateDebutEncheres();
+        this.dateFinEncheres = article.getDateFinEncheres();
+        this.statutEnchere = article.getStatutEnchere();
+    }
+}
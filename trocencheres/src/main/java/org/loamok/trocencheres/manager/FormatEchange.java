@@ -0,0 +1,30 @@
+package org.loamok.trocencheres.manager;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Formats de l'import/export en masse : une ligne par enregistrement.
+ *
+ * @author Huby Franck
+ */
+public enum FormatEchange {
+    NDJSON(MediaType.APPLICATION_NDJSON),
+    CSV(new MediaType("text", "csv"));
+
+    private final MediaType type;
+
+    FormatEchange(MediaType type) {
+        this.type = type;
+    }
+
+    public MediaType getType() {
+        return type;
+    }
+
+    /**
+     * Format d'un corps de requête d'après son Content-Type (NDJSON par défaut).
+     */
+    public static FormatEchange depuis(String contentType) {
+        return contentType != null && CSV.type.isCompatibleWith(MediaType.parseMediaType(contentType)) ? CSV : NDJSON;
+    }
+}
@@ -0,0 +1,128 @@
+package org.loamok.trocencheres.manager;
+
+import jakarta.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.loamok.trocencheres.entity.Adresse;
+import org.loamok.trocencheres.projection.Coordonnees;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Géocodage hors ligne des adresses : centroïde du code postal lu dans une
+ * table embarquée (app.geo.codes-postaux), sans appel à un service externe.
+ * Un code absent de la table est cherché par son préfixe de trois puis deux
+ * caractères (département), et l'adresse garde cette précision ; une adresse
+ * introuvable reste sans coordonnées.
+ *
+ * @author Huby Franck
+ */
+@Service
+public class GeocodageManager implements GeocodageService {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    // Sans coordonnées, ou placées par un préfixe (ou avant l'enregistrement de la précision)
+    private static final String A_PRECISER = "(latitude IS NULL OR precision_geo IS NULL OR precision_geo <> 'CODE_POSTAL')";
+    private static final String CODES_A_PRECISER = "SELECT DISTINCT code_postal, precision_geo FROM ADDRESSES WHERE " + A_PRECISER;
+    private static final String POSITIONNER = "UPDATE ADDRESSES SET latitude = ?, longitude = ?, precision_geo = ? "
+            + "WHERE code_postal = ? AND " + A_PRECISER;
+
+    private record Localisation(Coordonnees coordonnees, Adresse.Precision precision) {}
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.geo.codes-postaux:classpath:geo/codes-postaux.csv}")
+    private Resource table;
+
+    private Map<String, Coordonnees> centroides = Map.of();
+
+    @PostConstruct
+    void charger() {
+        final Map<String, Coordonnees> lus = new HashMap<>();
+        try (BufferedReader lecteur = new BufferedReader(new InputStreamReader(table.getInputStream(), StandardCharsets.UTF_8))) {
+            String ligne;
+            while ((ligne = lecteur.readLine()) != null) {
+                final String[] champs = ligne.split(";");
+                if (ligne.startsWith("#") || champs.length != 3 || champs[0].equals("code"))
+                    continue;
+                lus.put(champs[0].strip(), new Coordonnees(Double.parseDouble(champs[1]), Double.parseDouble(champs[2])));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Table des codes postaux illisible : " + table, e);
+        }
+        centroides = Map.copyOf(lus);
+        logger.info(centroides.size() + " codes postaux géocodés en mémoire");
+    }
+
+    @Override
+    public Optional<Coordonnees> localiser(String codePostal) {
+        return trouver(codePostal).map(Localisation::coordonnees);
+    }
+
+    private Optional<Localisation> trouver(String codePostal) {
+        if (codePostal == null)
+            return Optional.empty();
+        final String code = codePostal.replace(" ", "");
+        final Coordonnees c = centroides.get(code);
+        if (c != null)
+            return Optional.of(new Localisation(c, Adresse.Precision.CODE_POSTAL));
+        if (code.length() > 3 && centroides.containsKey(code.substring(0, 3)))
+            return Optional.of(new Localisation(centroides.get(code.substring(0, 3)), Adresse.Precision.SECTEUR));
+        if (code.length() > 2 && centroides.containsKey(code.substring(0, 2)))
+            return Optional.of(new Localisation(centroides.get(code.substring(0, 2)), Adresse.Precision.DEPARTEMENT));
+        return Optional.empty();
+    }
+
+    @Override
+    public void geocoder(Adresse adresse) {
+        final Optional<Localisation> l = trouver(adresse.getCodePostal());
+        adresse.setLatitude(l.map(x -> x.coordonnees().latitude()).orElse(null));
+        adresse.setLongitude(l.map(x -> x.coordonnees().longitude()).orElse(null));
+        adresse.setPrecisionGeo(l.map(Localisation::precision).orElse(null));
+    }
+
+    /**
+     * Complète au démarrage les adresses sans coordonnées et précise celles
+     * placées par un préfixe, dès que la table donne mieux (code postal
+     * ajouté depuis, table remplacée par la base officielle), une requête par
+     * code postal. Avant le chargement de l'index de proximité des articles.
+     */
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void completer() {
+        // Un code peut revenir avec plusieurs précisions enregistrées : une mise à jour par code
+        final Map<String, Object[]> positions = new HashMap<>();
+        jdbcTemplate.query(CODES_A_PRECISER, rs -> {
+            final String code = rs.getString(1);
+            final String enregistree = rs.getString(2);
+            trouver(code)
+                    .filter(l -> !l.precision().name().equals(enregistree))
+                    .ifPresent(l -> positions.put(code, new Object[] {
+                        l.coordonnees().latitude(), l.coordonnees().longitude(), l.precision().name(), code }));
+        });
+        if (positions.isEmpty())
+            return;
+        final int[] lignes = jdbcTemplate.batchUpdate(POSITIONNER, new ArrayList<>(positions.values()));
+        int total = 0;
+        for (int n : lignes)
+            total += Math.max(n, 0);
+        logger.info(total + " adresses géocodées au démarrage");
+    }
+}
@@ -0,0 +1,14 @@
+package org.loamok.trocencheres.manager;
+
+import java.util.Optional;
+import org.loamok.trocencheres.entity.Adresse;
+import org.loamok.trocencheres.projection.Coordonnees;
+
+/**
+ *
+ * @author Huby Franck
+ */
+public interface GeocodageService {
+    Optional<Coordonnees> localiser(String codePostal);
+    void geocoder(Adresse adresse);
+}
@@ -0,0 +1,184 @@
+package org.loamok.trocencheres.manager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.projection.Coordonnees;
+import org.loamok.trocencheres.projection.PositionArticle;
+import org.loamok.trocencheres.repository.ArticlesAVendreRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Index de proximité des articles non clôturés : grille de cellules de
+ * cellule-degres de côté, chaque cellule triée par (fin d'enchère, numéro).
+ * Une recherche « à moins de N km, fin la plus proche d'abord » fusionne les
+ * cellules couvrant le cercle, dans l'ordre des échéances, et s'arrête dès la
+ * page remplie : le coût dépend du rayon et de la taille de page, pas du
+ * nombre d'articles en vente. Le rayon est plafonné à rayon-max-km.
+ * <p>
+ * Chargé au démarrage, tenu à jour à la création/modification d'un article
+ * (REST et import) et à la clôture. Les écritures sont sérialisées, les
+ * lectures se font sans verrou.
+ *
+ * @author Huby Franck
+ */
+@Component
+public class IndexProximite {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private static final double KM_PAR_DEGRE = 111.195;
+    private static final List<Integer> STATUTS_INDEXES = List.of(ArticlesAVendre.STATUT_NON_COMMENCEE, ArticlesAVendre.STATUT_EN_COURS);
+
+    private record Point(Integer id, LocalDateTime fin, double latitude, double longitude) {}
+
+    private static final Comparator<Point> ECHEANCE = Comparator.comparing(Point::fin).thenComparing(Point::id);
+
+    // Tête de la lecture d'une cellule pendant la fusion
+    private static final class Tete {
+        Point point;
+        final Iterator<Point> suite;
+
+        Tete(Point point, Iterator<Point> suite) {
+            this.point = point;
+            this.suite = suite;
+        }
+    }
+
+    @Autowired
+    private ArticlesAVendreRepository aR;
+
+    @Value("${app.articles.proximite.cellule-degres:0.25}")
+    private double pas = 0.25;
+    @Value("${app.articles.proximite.rayon-max-km:200}")
+    private double rayonMax = 200;
+
+    private final Map<Long, NavigableSet<Point>> cellules = new ConcurrentHashMap<>();
+    private final Map<Integer, Point> points = new ConcurrentHashMap<>();
+    private final ReentrantLock verrou = new ReentrantLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    void charger() {
+        verrou.lock();
+        try {
+            cellules.clear();
+            points.clear();
+            aR.findPositions(STATUTS_INDEXES).forEach(this::placer);
+        } finally {
+            verrou.unlock();
+        }
+        logger.info(points.size() + " articles dans l'index de proximité");
+    }
+
+    /**
+     * Relit la position et l'échéance des articles créés ou modifiés ; un
+     * article clôturé, annulé ou sans adresse géocodée sort de l'index.
+     */
+    public void actualiser(Collection<Integer> ids) {
+        if (ids.isEmpty())
+            return;
+        final List<PositionArticle> positions = aR.findPositionsByIds(ids);
+        verrou.lock();
+        try {
+            ids.forEach(this::enlever);
+            positions.forEach(this::placer);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    public void retirer(Collection<Integer> ids) {
+        verrou.lock();
+        try {
+            ids.forEach(this::enlever);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Numéros des articles à moins de rayonKm du centre, par fin d'enchère
+     * puis numéro croissants, après la clé (apresFin, apresId) si fournie.
+     */
+    public List<Integer> rechercher(Coordonnees centre, double rayonKm, LocalDateTime apresFin, Integer apresId, int limite) {
+        final double rayon = Math.min(rayonKm, rayonMax);
+        final double dLat = rayon / KM_PAR_DEGRE;
+        final double dLon = rayon / (KM_PAR_DEGRE * Math.max(Math.cos(Math.toRadians(centre.latitude())), 0.01));
+        final Point apres = apresFin == null || apresId == null ? null : new Point(apresId, apresFin, 0, 0);
+
+        final PriorityQueue<Tete> fusion = new PriorityQueue<>(Comparator.comparing((Tete t) -> t.point, ECHEANCE));
+        for (int la = indice(centre.latitude() - dLat); la <= indice(centre.latitude() + dLat); la++)
+            for (int lo = indice(centre.longitude() - dLon); lo <= indice(centre.longitude() + dLon); lo++) {
+                final NavigableSet<Point> cellule = cellules.get(cle(la, lo));
+                if (cellule == null)
+                    continue;
+                final Iterator<Point> suite = (apres == null ? cellule : cellule.tailSet(apres, false)).iterator();
+                if (suite.hasNext())
+                    fusion.add(new Tete(suite.next(), suite));
+            }
+
+        final List<Integer> ids = new ArrayList<>(limite);
+        while (ids.size() < limite && !fusion.isEmpty()) {
+            final Tete t = fusion.poll();
+            // Les coins des cellules débordent du cercle
+            if (centre.distanceKm(t.point.latitude(), t.point.longitude()) <= rayon)
+                ids.add(t.point.id());
+            if (t.suite.hasNext()) {
+                t.point = t.suite.next();
+                fusion.add(t);
+            }
+        }
+        return ids;
+    }
+
+    public int getTaille() {
+        return points.size();
+    }
+
+    void placer(PositionArticle p) {
+        if (p.latitude() == null || p.longitude() == null || p.dateFinEncheres() == null
+                || !STATUTS_INDEXES.contains(p.statutEnchere()))
+            return;
+        final Point point = new Point(p.id(), p.dateFinEncheres(), p.latitude(), p.longitude());
+        points.put(point.id(), point);
+        cellules.computeIfAbsent(cle(point), k -> new ConcurrentSkipListSet<>(ECHEANCE)).add(point);
+    }
+
+    private void enlever(Integer id) {
+        final Point point = points.remove(id);
+        if (point == null)
+            return;
+        final Long cle = cle(point);
+        final NavigableSet<Point> cellule = cellules.get(cle);
+        if (cellule != null && cellule.remove(point) && cellule.isEmpty())
+            cellules.remove(cle);
+    }
+
+    private Long cle(Point p) {
+        return cle(indice(p.latitude()), indice(p.longitude()));
+    }
+
+    private int indice(double degres) {
+        return (int) Math.floor(degres / pas);
+    }
+
+    private static Long cle(int lat, int lon) {
+        return ((long) lat << 32) | (lon & 0xffffffffL);
+    }
+}
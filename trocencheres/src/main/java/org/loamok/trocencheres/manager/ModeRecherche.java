@@ -0,0 +1,13 @@
+package org.loamok.trocencheres.manager;
+
+/**
+ * Correspondance attendue entre le terme cherché et le champ : début du
+ * champ, sous-chaîne, ou sous-chaîne à une ou deux fautes près.
+ *
+ * @author Huby Franck
+ */
+public enum ModeRecherche {
+    PREFIXE,
+    CONTIENT,
+    APPROCHE
+}
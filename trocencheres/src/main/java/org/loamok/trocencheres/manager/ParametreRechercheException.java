@@ -0,0 +1,14 @@
+package org.loamok.trocencheres.manager;
+
+/**
+ * Paramètre de recherche d'articles invalide (curseur, rayon, position) :
+ * renvoyé à l'appelant en 400 avec son message.
+ *
+ * @author Huby Franck
+ */
+public class ParametreRechercheException extends IllegalArgumentException {
+
+    public ParametreRechercheException(String message) {
+        super(message);
+    }
+}
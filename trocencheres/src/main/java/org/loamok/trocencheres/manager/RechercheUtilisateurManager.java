@@ -0,0 +1,485 @@
+package org.loamok.trocencheres.manager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.loamok.trocencheres.projection.PageUtilisateurs;
+import org.loamok.trocencheres.projection.UtilisateurTrouve;
+import org.loamok.trocencheres.repository.UtilisateurRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Recherche d'utilisateurs sur un index en mémoire, au lieu des LIKE '%x%' de
+ * findByNomContaining/findByEmailContaining qui parcourent toute la table à
+ * chaque frappe.
+ * <p>
+ * Chaque champ (pseudo, nom, prénom, email), sans accents ni casse, a son
+ * propre index : les valeurs triées (suivies du pseudo) pour les préfixes, et
+ * pour les sous-chaînes des trigrammes bordés d'espaces qui pointent vers les
+ * valeurs distinctes du champ, chacune avec les comptes qui la portent triés
+ * par pseudo. Une recherche ne vérifie donc qu'une fois une valeur partagée
+ * par des milliers de comptes (noms, prénoms), puis fusionne les listes de
+ * comptes dans l'ordre de la page et s'arrête au plafond du total. L'index
+ * est chargé au démarrage puis tenu à jour après chaque commit par
+ * UtilisateurIndexListener et l'inscription en lot. Les écritures sont
+ * sérialisées, les lectures se font sans verrou.
+ *
+ * @author Huby Franck
+ */
+@Service
+public class RechercheUtilisateurManager implements RechercheUtilisateurService {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private static final Pattern DIACRITIQUES = Pattern.compile("\\p{M}+");
+    private static final ChampRecherche[] CHAMPS = { ChampRecherche.PSEUDO, ChampRecherche.NOM, ChampRecherche.PRENOM, ChampRecherche.EMAIL };
+    private static final int TAILLE_MAX = 100;
+    // Le total n'est compté que jusqu'ici (ou jusqu'à la fin de la page demandée)
+    private static final int TOTAL_MAX = 1000;
+    private static final char SEPARATEUR = '\0';
+
+    // valeurs : champs normalisés, dans l'ordre de CHAMPS
+    private record Entree(UtilisateurTrouve utilisateur, String[] valeurs) {}
+
+    private record Trouve(Entree entree, int distance) {}
+
+    private static final Comparator<Entree> PAR_PSEUDO = Comparator.comparing(e -> e.utilisateur().pseudo());
+    private static final Comparator<Trouve> ORDRE = Comparator.comparingInt(Trouve::distance)
+            .thenComparing(tr -> tr.entree().utilisateur().pseudo());
+
+    private static final class Champ {
+        // Valeur, SEPARATEUR, pseudo : un préfixe est un intervalle de clés
+        final NavigableMap<String, Entree> tri = new ConcurrentSkipListMap<>();
+        // Valeur distincte → comptes qui la portent, triés par pseudo ; tableau
+        // remplacé à chaque écriture, jamais modifié en place
+        final Map<String, Entree[]> comptes = new ConcurrentHashMap<>();
+        // Trigramme → valeurs distinctes qui le contiennent
+        final Map<String, Set<String>> trigrammes = new ConcurrentHashMap<>();
+    }
+
+    private static final class Index {
+        final Map<String, Entree> entrees = new ConcurrentHashMap<>();
+        final Champ[] champs = { new Champ(), new Champ(), new Champ(), new Champ() };
+    }
+
+    // Tête d'une liste triée pendant la fusion : distance puis clé croissantes.
+    // Comptes d'une valeur : clé = pseudo ; intervalle de l'index trié
+    // (préfixe) : clé = valeur, SEPARATEUR, pseudo
+    private static final class Tete implements Comparable<Tete> {
+        final int distance;
+        final Entree[] groupe;
+        final Iterator<Map.Entry<String, Entree>> suite;
+        int i;
+        String cle;
+        Entree entree;
+
+        Tete(int distance, Entree[] groupe) {
+            this.distance = distance;
+            this.groupe = groupe;
+            this.suite = null;
+            lire(groupe[0]);
+        }
+
+        Tete(Iterator<Map.Entry<String, Entree>> suite) {
+            this.distance = 0;
+            this.groupe = null;
+            this.suite = suite;
+            final Map.Entry<String, Entree> e = suite.next();
+            cle = e.getKey();
+            entree = e.getValue();
+        }
+
+        private void lire(Entree e) {
+            entree = e;
+            cle = e.utilisateur().pseudo();
+        }
+
+        boolean avancer() {
+            if (groupe != null) {
+                if (++i >= groupe.length)
+                    return false;
+                lire(groupe[i]);
+                return true;
+            }
+            if (!suite.hasNext())
+                return false;
+            final Map.Entry<String, Entree> e = suite.next();
+            cle = e.getKey();
+            entree = e.getValue();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Tete o) {
+            final int c = Integer.compare(distance, o.distance);
+            return c != 0 ? c : cle.compareTo(o.cle);
+        }
+    }
+
+    @Autowired
+    private UtilisateurRepository uR;
+
+    private volatile Index index = new Index();
+    private final ReentrantLock verrou = new ReentrantLock();
+
+    /**
+     * Préfixe : tri par valeur du champ puis pseudo. Sous-chaîne et approché :
+     * tri par nombre de fautes puis pseudo. Le total est exact jusqu'à
+     * TOTAL_MAX comptes (ou jusqu'à la fin de la page demandée), plancher
+     * au-delà.
+     */
+    @Override
+    public PageUtilisateurs rechercher(String terme, ChampRecherche champ, ModeRecherche mode, int page, int taille) {
+        final int p = Math.max(page, 0);
+        final int t = Math.min(Math.max(taille, 1), TAILLE_MAX);
+        final String q = normaliser(terme).strip();
+        if (q.isEmpty())
+            return new PageUtilisateurs(List.of(), p, t, 0);
+
+        final Index idx = index;
+        final List<Tete> tetes = new ArrayList<>();
+        for (ChampRecherche c : CHAMPS)
+            if (champ == ChampRecherche.TOUT || champ == c)
+                chercher(idx.champs[c.ordinal()], q, mode, tetes);
+
+        // Un seul champ : chaque compte trouvé au plus une fois, pas de dédoublonnage
+        return fusionner(tetes, champ == ChampRecherche.TOUT, p, t);
+    }
+
+    // Fusion des listes jusqu'à la fin de la page et au plafond du total ; en
+    // dédoublonnant, la première occurrence d'un compte est celle de moindre distance
+    private static PageUtilisateurs fusionner(List<Tete> tetes, boolean dedoublonner, int p, int t) {
+        final long debut = (long) p * t;
+        final long fin = debut + t;
+        final long limite = Math.max(TOTAL_MAX, fin);
+        // Peu de comptes en tout : total exact et tri partiel, moins cher que la fusion
+        long comptes = 0;
+        for (Tete tete : tetes)
+            comptes += tete.groupe == null ? limite + 1 : tete.groupe.length;
+        if (comptes <= limite)
+            return trier(tetes, dedoublonner, p, t);
+
+        final PriorityQueue<Tete> fusion = new PriorityQueue<>(tetes);
+        final Set<String> vus = dedoublonner ? new HashSet<>() : null;
+        final List<UtilisateurTrouve> utilisateurs = new ArrayList<>(t);
+        int total = 0;
+        while (total < limite && !fusion.isEmpty()) {
+            final Tete tete = fusion.poll();
+            final UtilisateurTrouve u = tete.entree.utilisateur();
+            if (vus == null || vus.add(u.pseudo())) {
+                if (total >= debut && total < fin)
+                    utilisateurs.add(u);
+                total++;
+            }
+            if (tete.avancer())
+                fusion.add(tete);
+        }
+        return new PageUtilisateurs(utilisateurs, p, t, total);
+    }
+
+    private static PageUtilisateurs trier(List<Tete> tetes, boolean dedoublonner, int p, int t) {
+        final Collection<Trouve> trouves;
+        if (dedoublonner) {
+            final Map<String, Trouve> parPseudo = new HashMap<>();
+            for (Tete tete : tetes)
+                for (Entree e : tete.groupe)
+                    parPseudo.merge(e.utilisateur().pseudo(), new Trouve(e, tete.distance), (a, b) -> a.distance() <= b.distance() ? a : b);
+            trouves = parPseudo.values();
+        } else {
+            final List<Trouve> liste = new ArrayList<>();
+            for (Tete tete : tetes)
+                for (Entree e : tete.groupe)
+                    liste.add(new Trouve(e, tete.distance));
+            trouves = liste;
+        }
+        return new PageUtilisateurs(page(trouves, p, t), p, t, trouves.size());
+    }
+
+    // Tri partiel : seuls les (p + 1) * t premiers comptes sont gardés dans un tas
+    private static List<UtilisateurTrouve> page(Collection<Trouve> trouves, int p, int t) {
+        final long garder = Math.min((long) (p + 1) * t, trouves.size());
+        if (garder <= (long) p * t)
+            return List.of();
+        final PriorityQueue<Trouve> tas = new PriorityQueue<>((int) garder, ORDRE.reversed());
+        for (Trouve tr : trouves) {
+            if (tas.size() < garder)
+                tas.add(tr);
+            else if (ORDRE.compare(tr, tas.peek()) < 0) {
+                tas.poll();
+                tas.add(tr);
+            }
+        }
+        final List<Trouve> premiers = new ArrayList<>(tas);
+        premiers.sort(ORDRE);
+        return premiers.subList(p * t, premiers.size()).stream().map(tr -> tr.entree().utilisateur()).toList();
+    }
+
+    private static void chercher(Champ champ, String q, ModeRecherche mode, List<Tete> tetes) {
+        if (mode == ModeRecherche.PREFIXE) {
+            final Iterator<Map.Entry<String, Entree>> suite = champ.tri.subMap(q, true, q + Character.MAX_VALUE, false).entrySet().iterator();
+            if (suite.hasNext())
+                tetes.add(new Tete(suite));
+        } else if (q.length() < 3) {
+            // Pas de trigramme interne : parcours des valeurs distinctes, toujours sans SQL
+            champ.comptes.forEach((valeur, groupe) -> {
+                if (valeur.contains(q))
+                    tetes.add(new Tete(0, groupe));
+            });
+        } else if (mode == ModeRecherche.CONTIENT) {
+            for (String valeur : candidats(champ, trigrammes(q)))
+                if (valeur.contains(q))
+                    ajouter(champ, valeur, 0, tetes);
+        } else {
+            final int fautes = q.length() <= 5 ? 1 : 2;
+            // Trigramme de début de champ en plus : un mot court dont deux lettres
+            // sont inversées ("alcie") ne partage aucun trigramme interne avec "alice"
+            final Set<String> grammes = trigrammes(q);
+            // Chaque faute détruit au plus trois trigrammes internes ; au moins un doit rester commun
+            final int seuil = Math.max(1, grammes.size() - 3 * fautes);
+            grammes.add(" " + q.substring(0, 2));
+            // Filtre de longueur : une valeur plus courte que q moins les fautes ne peut pas le contenir
+            final int longueurMin = q.length() - fautes;
+            for (String valeur : candidatsApproches(champ, grammes, seuil))
+                if (valeur.length() >= longueurMin) {
+                    final int distance = distanceSousChaine(q, valeur);
+                    if (distance <= fautes)
+                        ajouter(champ, valeur, distance, tetes);
+                }
+        }
+    }
+
+    private static void ajouter(Champ champ, String valeur, int distance, List<Tete> tetes) {
+        final Entree[] groupe = champ.comptes.get(valeur);
+        if (groupe != null)
+            tetes.add(new Tete(distance, groupe));
+    }
+
+    // Liste la plus courte parmi celles des trigrammes : toute valeur qui
+    // contient le terme y figure, la vérification par contains() suffit ensuite
+    private static Set<String> candidats(Champ champ, Set<String> grammes) {
+        Set<String> plusCourte = null;
+        for (String g : grammes) {
+            final Set<String> valeurs = champ.trigrammes.get(g);
+            if (valeurs == null)
+                return Set.of();
+            if (plusCourte == null || valeurs.size() < plusCourte.size())
+                plusCourte = valeurs;
+        }
+        return plusCourte;
+    }
+
+    // Valeurs partageant au moins seuil trigrammes avec le terme
+    private static List<String> candidatsApproches(Champ champ, Set<String> grammes, int seuil) {
+        final Map<String, Integer> communs = new HashMap<>();
+        for (String g : grammes) {
+            final Set<String> valeurs = champ.trigrammes.get(g);
+            if (valeurs != null)
+                for (String valeur : valeurs)
+                    communs.merge(valeur, 1, Integer::sum);
+        }
+        final List<String> valeurs = new ArrayList<>();
+        communs.forEach((valeur, n) -> {
+            if (n >= seuil)
+                valeurs.add(valeur);
+        });
+        return valeurs;
+    }
+
+    /**
+     * Nombre minimal de modifications (insertion, suppression, substitution,
+     * inversion de deux lettres voisines) pour retrouver q dans une
+     * sous-chaîne quelconque de texte.
+     */
+    static int distanceSousChaine(String q, String texte) {
+        final int m = q.length();
+        int[] avant = new int[m + 1];
+        int[] prec = new int[m + 1];
+        int[] cour = new int[m + 1];
+        for (int i = 0; i <= m; i++)
+            prec[i] = i;
+        int meilleure = m;
+        for (int j = 0; j < texte.length(); j++) {
+            final char c = texte.charAt(j);
+            cour[0] = 0;
+            for (int i = 1; i <= m; i++) {
+                int d = Math.min(prec[i - 1] + (q.charAt(i - 1) == c ? 0 : 1), Math.min(prec[i], cour[i - 1]) + 1);
+                if (i > 1 && j > 0 && q.charAt(i - 1) == texte.charAt(j - 1) && q.charAt(i - 2) == c)
+                    d = Math.min(d, avant[i - 2] + 1);
+                cour[i] = d;
+            }
+            meilleure = Math.min(meilleure, cour[m]);
+            final int[] tmp = avant;
+            avant = prec;
+            prec = cour;
+            cour = tmp;
+        }
+        return meilleure;
+    }
+
+    @Override
+    public void indexer(Collection<UtilisateurTrouve> utilisateurs) {
+        verrou.lock();
+        try {
+            final Index idx = index;
+            for (UtilisateurTrouve u : utilisateurs) {
+                retirer(idx, u.pseudo());
+                ajouter(idx, u);
+            }
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    @Override
+    public void retirer(String pseudo) {
+        verrou.lock();
+        try {
+            retirer(index, pseudo);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void recharger() {
+        verrou.lock();
+        try {
+            charger(uR.findIndexables());
+        } finally {
+            verrou.unlock();
+        }
+        logger.info(getTaille() + " utilisateurs dans l'index de recherche");
+    }
+
+    // Nouvel index construit à part puis publié d'un bloc ; les comptes de
+    // chaque valeur sont triés une fois à la fin
+    void charger(Collection<UtilisateurTrouve> utilisateurs) {
+        final Index idx = new Index();
+        final List<Map<String, List<Entree>>> groupes = new ArrayList<>(CHAMPS.length);
+        for (int rang = 0; rang < CHAMPS.length; rang++)
+            groupes.add(new HashMap<>());
+        for (UtilisateurTrouve u : utilisateurs) {
+            final Entree entree = entree(u);
+            for (int rang = 0; rang < CHAMPS.length; rang++) {
+                final String valeur = entree.valeurs()[rang];
+                idx.champs[rang].tri.put(valeur + SEPARATEUR + u.pseudo(), entree);
+                groupes.get(rang).computeIfAbsent(valeur, k -> new ArrayList<>()).add(entree);
+            }
+            idx.entrees.put(u.pseudo(), entree);
+        }
+        for (int rang = 0; rang < CHAMPS.length; rang++) {
+            final Champ champ = idx.champs[rang];
+            groupes.get(rang).forEach((valeur, liste) -> {
+                liste.sort(PAR_PSEUDO);
+                champ.comptes.put(valeur, liste.toArray(Entree[]::new));
+                indexer(champ, valeur);
+            });
+        }
+        index = idx;
+    }
+
+    @Override
+    public int getTaille() {
+        return index.entrees.size();
+    }
+
+    private static Entree entree(UtilisateurTrouve u) {
+        return new Entree(u, new String[] {
+            normaliser(u.pseudo()), normaliser(u.nom()), normaliser(u.prenom()), normaliser(u.email())
+        });
+    }
+
+    // Trigrammes indexés une seule fois par valeur distincte
+    private static void indexer(Champ champ, String valeur) {
+        for (String g : trigrammes(" " + valeur + " "))
+            champ.trigrammes.computeIfAbsent(g, k -> ConcurrentHashMap.newKeySet()).add(valeur);
+    }
+
+    private static void ajouter(Index idx, UtilisateurTrouve u) {
+        final Entree entree = entree(u);
+        for (int rang = 0; rang < CHAMPS.length; rang++) {
+            final Champ champ = idx.champs[rang];
+            final String valeur = entree.valeurs()[rang];
+            final Entree[] groupe = champ.comptes.get(valeur);
+            final int position = groupe == null ? -1 : Arrays.binarySearch(groupe, entree, PAR_PSEUDO);
+            final Entree[] nouveau;
+            if (groupe == null) {
+                nouveau = new Entree[] { entree };
+            } else if (position >= 0) {
+                nouveau = groupe.clone();
+                nouveau[position] = entree;
+            } else {
+                final int i = -position - 1;
+                nouveau = new Entree[groupe.length + 1];
+                System.arraycopy(groupe, 0, nouveau, 0, i);
+                nouveau[i] = entree;
+                System.arraycopy(groupe, i, nouveau, i + 1, groupe.length - i);
+            }
+            champ.comptes.put(valeur, nouveau);
+            if (groupe == null)
+                indexer(champ, valeur);
+            champ.tri.put(valeur + SEPARATEUR + u.pseudo(), entree);
+        }
+        idx.entrees.put(u.pseudo(), entree);
+    }
+
+    private static void retirer(Index idx, String pseudo) {
+        final Entree e = idx.entrees.remove(pseudo);
+        if (e == null)
+            return;
+        for (int rang = 0; rang < CHAMPS.length; rang++) {
+            final Champ champ = idx.champs[rang];
+            final String valeur = e.valeurs()[rang];
+            champ.tri.remove(valeur + SEPARATEUR + pseudo);
+            final Entree[] groupe = champ.comptes.get(valeur);
+            final int i = groupe == null ? -1 : Arrays.binarySearch(groupe, e, PAR_PSEUDO);
+            if (i < 0)
+                continue;
+            if (groupe.length > 1) {
+                final Entree[] nouveau = new Entree[groupe.length - 1];
+                System.arraycopy(groupe, 0, nouveau, 0, i);
+                System.arraycopy(groupe, i + 1, nouveau, i, groupe.length - i - 1);
+                champ.comptes.put(valeur, nouveau);
+                continue;
+            }
+            champ.comptes.remove(valeur);
+            for (String g : trigrammes(" " + valeur + " ")) {
+                final Set<String> valeurs = champ.trigrammes.get(g);
+                if (valeurs != null && valeurs.remove(valeur) && valeurs.isEmpty())
+                    champ.trigrammes.remove(g);
+            }
+        }
+    }
+
+    private static Set<String> trigrammes(String s) {
+        final Set<String> grammes = new HashSet<>();
+        for (int i = 0; i + 3 <= s.length(); i++)
+            grammes.add(s.substring(i, i + 3));
+        return grammes;
+    }
+
+    static String normaliser(String s) {
+        return s == null ? "" : DIACRITIQUES.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
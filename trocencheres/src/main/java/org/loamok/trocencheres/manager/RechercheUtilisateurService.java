@@ -0,0 +1,17 @@
+package org.loamok.trocencheres.manager;
+
+import java.util.Collection;
+import org.loamok.trocencheres.projection.PageUtilisateurs;
+import org.loamok.trocencheres.projection.UtilisateurTrouve;
+
+/**
+ *
+ * @author Huby Franck
+ */
+public interface RechercheUtilisateurService {
+    PageUtilisateurs rechercher(String terme, ChampRecherche champ, ModeRecherche mode, int page, int taille);
+    void indexer(Collection<UtilisateurTrouve> utilisateurs);
+    void retirer(String pseudo);
+    void recharger();
+    int getTaille();
+}
@@ -0,0 +1,113 @@
+package org.loamok.trocencheres.manager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.loamok.trocencheres.entity.Categorie;
+import org.loamok.trocencheres.entity.Role;
+import org.loamok.trocencheres.repository.CategorieRepository;
+import org.loamok.trocencheres.repository.RoleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Référentiel en mémoire des catégories et des rôles. Ces tables ne changent
+ * presque jamais : elles sont chargées au démarrage dans un instantané
+ * immuable, remplacé d'un bloc à chaque écriture via /categories ou /roles.
+ * Les instances servies sont détachées et partagées entre tous les threads,
+ * elles ne doivent pas être modifiées.
+ *
+ * @author Huby Franck
+ */
+@Service
+public class ReferentielManager implements ReferentielService {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private record Referentiel(Map<Integer, Categorie> categories, Map<Integer, Role> roles, Map<String, Role> rolesParNom) {}
+
+    @Autowired
+    private CategorieRepository cR;
+    @Autowired
+    private RoleRepository rR;
+
+    private volatile Referentiel referentiel;
+    // Verrou plutôt que synchronized : le rechargement lit la base, un thread
+    // virtuel ne reste pas épinglé à son porteur pendant l'attente
+    private final ReentrantLock verrou = new ReentrantLock();
+
+    @Override
+    public Categorie getCategorie(Integer id) {
+        return id == null ? null : referentiel().categories().get(id);
+    }
+
+    @Override
+    public Collection<Categorie> getCategories() {
+        return referentiel().categories().values();
+    }
+
+    @Override
+    public Role getRole(Integer id) {
+        return id == null ? null : referentiel().roles().get(id);
+    }
+
+    @Override
+    public Role getRole(String role) {
+        return role == null ? null : referentiel().rolesParNom().get(role);
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void recharger() {
+        verrou.lock();
+        try {
+            charger();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private void charger() {
+        final Map<Integer, Categorie> categories = new LinkedHashMap<>();
+        cR.findAll().stream()
+                .sorted(Comparator.comparing(Categorie::getId))
+                .forEach(c -> categories.put(c.getId(), Categorie.builder().id(c.getId()).libelle(c.getLibelle()).build()));
+
+        final Map<Integer, Role> roles = new LinkedHashMap<>();
+        final Map<String, Role> rolesParNom = new HashMap<>();
+        rR.findAll().stream()
+                .sorted(Comparator.comparing(Role::getId))
+                .forEach(r -> {
+                    final Role copie = Role.builder().id(r.getId()).role(r.getRole()).isAdmin(r.getIsAdmin()).build();
+                    roles.put(copie.getId(), copie);
+                    rolesParNom.putIfAbsent(copie.getRole(), copie);
+                });
+
+        referentiel = new Referentiel(Collections.unmodifiableMap(categories), Map.copyOf(roles), Map.copyOf(rolesParNom));
+        logger.info(categories.size() + " catégories et " + roles.size() + " rôles en mémoire");
+    }
+
+    private Referentiel referentiel() {
+        Referentiel r = referentiel;
+        if (r == null) {
+            // Accès avant ApplicationReadyEvent
+            verrou.lock();
+            try {
+                if (referentiel == null)
+                    charger();
+                r = referentiel;
+            } finally {
+                verrou.unlock();
+            }
+        }
+        return r;
+    }
+}
@@ -0,0 +1,17 @@
+package org.loamok.trocencheres.manager;
+
+import java.util.Collection;
+import org.loamok.trocencheres.entity.Categorie;
+import org.loamok.trocencheres.entity.Role;
+
+/**
+ *
+ * @author Huby Franck
+ */
+public interface ReferentielService {
+    Categorie getCategorie(Integer id);
+    Collection<Categorie> getCategories();
+    Role getRole(Integer id);
+    Role getRole(String role);
+    void recharger();
+}
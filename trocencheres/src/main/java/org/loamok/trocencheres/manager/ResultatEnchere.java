@@ -0,0 +1,32 @@
+package org.loamok.trocencheres.manager;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Résultat d'une tentative d'enchère.
+ *
+ * @author Huby Franck
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResultatEnchere {
+    private Boolean acceptee;
+    private String motif;
+    private Integer noArticle;
+    private Integer meilleurMontant;
+    private String meilleurEncherisseur;
+
+    static ResultatEnchere acceptee(EtatEnchere etat) {
+        return new ResultatEnchere(true, null, etat.getNoArticle(), etat.getMeilleurMontant(), etat.getMeilleurEncherisseur());
+    }
+
+    static ResultatEnchere refusee(String motif, Integer noArticle, EtatEnchere etat) {
+        if (etat == null)
+            return new ResultatEnchere(false, motif, noArticle, null, null);
+
+        return new ResultatEnchere(false, motif, noArticle, etat.getMeilleurMontant(), etat.getMeilleurEncherisseur());
+    }
+}
@@ -0,0 +1,21 @@
+package org.loamok.trocencheres.manager;
+
+import org.loamok.trocencheres.projection.ReponseLegere;
+
+/**
+ * Résultat de l'inscription d'une ligne d'un lot : rang dans le lot (à
+ * partir de 0), pseudo demandé, et motif du refus le cas échéant.
+ *
+ * @author Huby Franck
+ */
+@ReponseLegere
+public record ResultatInscription(int rang, String pseudo, boolean inscrit, String motif) {
+
+    static ResultatInscription inscrit(int rang, String pseudo) {
+        return new ResultatInscription(rang, pseudo, true, null);
+    }
+
+    static ResultatInscription refuse(int rang, String pseudo, String motif) {
+        return new ResultatInscription(rang, pseudo, false, motif);
+    }
+}
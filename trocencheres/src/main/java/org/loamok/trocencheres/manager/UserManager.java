@@ -1,17 +1,38 @@
 package org.loamok.trocencheres.manager;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Pattern;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.loamok.trocencheres.entity.Adresse;
 import org.loamok.trocencheres.entity.Role;
 import org.loamok.trocencheres.entity.Utilisateur;
-import org.loamok.trocencheres.repository.RoleRepository;
+import org.loamok.trocencheres.projection.ProfilUtilisateur;
+import org.loamok.trocencheres.projection.UtilisateurTrouve;
 import org.loamok.trocencheres.repository.UtilisateurRepository;
+import org.loamok.trocencheres.security.password.HachageSatureException;
+import org.loamok.trocencheres.security.password.PasswordHashService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  *
@@ -20,18 +41,45 @@ import org.springframework.stereotype.Service;
 @Service
 public class UserManager implements userService {
 
+    protected final Log logger = LogFactory.getLog(getClass());
+
     // Regex pour valider le mot de passe
     private static final String PASSWORD_PATTERN
             = "^(?=.*[A-Z])(?=.*\\d)(?=.*[!@#$%^&*()_+\\-=\\[\\]{};':\"\\\\|,.<>/?]).{8,20}$";
     private static final Pattern pattern = Pattern.compile(PASSWORD_PATTERN);
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+
+    private static final String INSERT_UTILISATEUR = "INSERT INTO UTILISATEURS (pseudo, nom, prenom, email, telephone, "
+            + "credit, no_adresse, id_role, mot_de_passe) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Crédit d'un nouvel utilisateur (valeur par défaut de l'entité)
+    private static final Integer CREDIT_INITIAL = Utilisateur.builder().build().getCredit();
 
     @Autowired
     private UtilisateurRepository uR;
     @Autowired
-    private RoleRepository rR;
+    private ReferentielService referentielManager;
     @Autowired
     private AdresseService aS;
+    @Autowired
+    private PasswordHashService passwordHashService;
+    @Autowired
+    private CreditService creditManager;
+    @Autowired
+    private RechercheUtilisateurService rechercheUtilisateurManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Lignes d'un lot d'inscriptions traitées ensemble (requêtes d'unicité, transaction)
+    @Value("${app.utilisateurs.inscription.taille-lot:200}")
+    private int tailleLot;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     @Override
     public Utilisateur registerUser(Utilisateur u) {
@@ -44,11 +92,11 @@ public class UserManager implements userService {
         Role roleUser = null;
         
         if(!isAdmin) {
-            roleUser = rR.findByRole("ROLE_USER");
+            roleUser = referentielManager.getRole("ROLE_USER");
         } else {
             if(u.getRole() == null || u.getRole().getRole() == null | u.getRole().getRole().isBlank())
                 throw new RuntimeException("user must have a Role but user.role is null.");
-            roleUser = rR.findByRole(u.getRole().getRole());
+            roleUser = referentielManager.getRole(u.getRole().getRole());
         }
         
         Adresse a = null;
@@ -76,7 +124,7 @@ public class UserManager implements userService {
         if(!doCheckUserRegistering(user)) 
             throw new RuntimeException("user is not unique or wrong password. : " + user.toString());
         
-        user.setPassword("{bcrypt}" + passwordEncoder.encode(u.getPassword()));
+        user.setPassword(passwordHashService.hacher(u.getPassword()));
         
         try {
             uR.saveAndFlush(user);
@@ -87,6 +135,155 @@ public class UserManager implements userService {
         }
     }
 
+    /**
+     * Inscription d'un lot d'utilisateurs (rôle utilisateur), un résultat par
+     * ligne dans l'ordre reçu. Par tranche de taille-lot lignes : contrôles en
+     * mémoire, unicité des pseudos et emails en deux requêtes, hachage en
+     * parallèle sur le pool BCrypt, puis adresses et utilisateurs insérés en
+     * deux lots JDBC dans une seule transaction. Une tranche refusée par la
+     * base l'est en entier, les autres sont conservées.
+     */
+    @Override
+    public List<ResultatInscription> registerUsers(List<Utilisateur> users) {
+        final ResultatInscription[] resultats = new ResultatInscription[users.size()];
+        for (int debut = 0; debut < users.size(); debut += tailleLot)
+            inscrireTranche(users, debut, Math.min(debut + tailleLot, users.size()), resultats);
+        return Arrays.asList(resultats);
+    }
+
+    private void inscrireTranche(List<Utilisateur> users, int debut, int fin, ResultatInscription[] resultats) {
+        // Contrôles en mémoire et doublons dans la tranche (sans tenir compte de la casse, comme la base)
+        final List<Integer> candidats = new ArrayList<>();
+        final Set<String> pseudos = new HashSet<>();
+        final Set<String> emails = new HashSet<>();
+        for (int i = debut; i < fin; i++) {
+            final Utilisateur u = users.get(i);
+            final String motif = controlerInscription(u);
+            if (motif != null)
+                resultats[i] = ResultatInscription.refuse(i, u == null ? null : u.getPseudo(), motif);
+            else if (pseudos.contains(cle(u.getPseudo())))
+                resultats[i] = ResultatInscription.refuse(i, u.getPseudo(), "pseudo en double dans le lot");
+            else if (emails.contains(cle(u.getEmail())))
+                resultats[i] = ResultatInscription.refuse(i, u.getPseudo(), "email en double dans le lot");
+            else {
+                pseudos.add(cle(u.getPseudo()));
+                emails.add(cle(u.getEmail()));
+                candidats.add(i);
+            }
+        }
+        if (candidats.isEmpty())
+            return;
+
+        // Unicité en base : deux requêtes pour toute la tranche
+        final Set<String> pseudosPris = cles(uR.findPseudosExistants(candidats.stream().map(i -> users.get(i).getPseudo()).toList()));
+        final Set<String> emailsPris = cles(uR.findEmailsExistants(candidats.stream().map(i -> users.get(i).getEmail()).toList()));
+        final List<Utilisateur> aInscrire = new ArrayList<>(candidats.size());
+        final List<Integer> rangs = new ArrayList<>(candidats.size());
+        for (Integer i : candidats) {
+            final Utilisateur u = users.get(i);
+            if (pseudosPris.contains(cle(u.getPseudo())))
+                resultats[i] = ResultatInscription.refuse(i, u.getPseudo(), "pseudo déjà utilisé");
+            else if (emailsPris.contains(cle(u.getEmail())))
+                resultats[i] = ResultatInscription.refuse(i, u.getPseudo(), "email déjà utilisé");
+            else {
+                aInscrire.add(u);
+                rangs.add(i);
+            }
+        }
+        if (aInscrire.isEmpty())
+            return;
+
+        String refus = null;
+        try {
+            final List<String> haches = passwordHashService.hacherTous(aInscrire.stream().map(Utilisateur::getPassword).toList());
+            try {
+                transactionTemplate.executeWithoutResult(status -> inserer(aInscrire, haches, true));
+            } catch (ConcurrencyFailureException e) {
+                // Adresses insérées en parallèle : tranche reprise adresse par adresse
+                transactionTemplate.executeWithoutResult(status -> inserer(aInscrire, haches, false));
+            }
+        } catch (HachageSatureException e) {
+            refus = e.getMessage();
+        } catch (RuntimeException e) {
+            logger.warn("Tranche de " + aInscrire.size() + " inscriptions refusée par la base", e);
+            refus = "tranche refusée par la base : " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        }
+
+        // Insertions JDBC : pas d'événement JPA pour l'index de recherche
+        if (refus == null)
+            rechercheUtilisateurManager.indexer(aInscrire.stream()
+                    .map(u -> new UtilisateurTrouve(u.getPseudo(), u.getNom(), u.getPrenom(), u.getEmail())).toList());
+
+        for (int k = 0; k < rangs.size(); k++) {
+            final int i = rangs.get(k);
+            resultats[i] = refus == null
+                    ? ResultatInscription.inscrit(i, aInscrire.get(k).getPseudo())
+                    : ResultatInscription.refuse(i, aInscrire.get(k).getPseudo(), refus);
+        }
+    }
+
+    private void inserer(List<Utilisateur> users, List<String> haches, boolean adressesEnLot) {
+        final List<Adresse> adresses = users.stream().map(Utilisateur::getAdresse).toList();
+        final List<Adresse> enregistrees = adressesEnLot
+                ? aS.registerAdresses(adresses)
+                : adresses.stream().map(aS::registerAdresse).toList();
+        final Integer role = referentielManager.getRole("ROLE_USER").getId();
+
+        jdbcTemplate.batchUpdate(INSERT_UTILISATEUR, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                final Utilisateur u = users.get(i);
+                ps.setString(1, u.getPseudo());
+                ps.setString(2, u.getNom());
+                ps.setString(3, u.getPrenom());
+                ps.setString(4, u.getEmail());
+                ps.setString(5, u.getTelephone());
+                ps.setInt(6, CREDIT_INITIAL);
+                ps.setInt(7, enregistrees.get(i).getId());
+                ps.setInt(8, role);
+                ps.setString(9, haches.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return users.size();
+            }
+        });
+    }
+
+    // Motif du refus d'une ligne, null si elle peut être inscrite
+    private String controlerInscription(Utilisateur u) {
+        if (u == null)
+            return "ligne vide";
+        if (u.getPseudo() == null || u.getPseudo().isBlank() || u.getPseudo().length() > 30)
+            return "pseudo manquant ou trop long (30 caractères)";
+        if (u.getEmail() == null || u.getEmail().isBlank() || u.getEmail().length() > 100)
+            return "email manquant ou trop long (100 caractères)";
+        if (u.getNom() == null || u.getNom().isBlank() || u.getNom().length() > 40
+                || u.getPrenom() == null || u.getPrenom().isBlank() || u.getPrenom().length() > 50)
+            return "nom ou prénom manquant ou trop long (40 et 50 caractères)";
+        if (u.getTelephone() != null && u.getTelephone().length() > 15)
+            return "téléphone trop long (15 caractères)";
+        if (!checkPasswordCorrect(u.getPassword()))
+            return "mot de passe refusé (8 à 20 caractères dont une majuscule, un chiffre et un caractère spécial)";
+        final Adresse a = u.getAdresse();
+        if (a == null || !aS.doCheckAdresseRegistering(a))
+            return "adresse incomplète";
+        if (a.getRue().length() > 100 || a.getCodePostal().length() > 10 || a.getVille().length() > 50)
+            return "adresse trop longue";
+        return null;
+    }
+
+    private static String cle(String valeur) {
+        return valeur.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> cles(List<String> valeurs) {
+        final Set<String> cles = new HashSet<>(valeurs.size());
+        valeurs.forEach(v -> cles.add(cle(v)));
+        return cles;
+    }
+
     @Override
     public Boolean doCheckUserRegistering(Utilisateur u) {
         Boolean isPseudoUnique = checkPseudoUnique(u.getPseudo());
@@ -147,4 +344,14 @@ public class UserManager implements userService {
         return pattern.matcher(password).matches();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ProfilUtilisateur> profil(String pseudo) {
+        // Le crédit en base ne reflète pas les réservations en cours
+        return uR.findProfilByPseudo(pseudo).map(p -> {
+            final Integer solde = creditManager.getSolde(pseudo);
+            return solde == null ? p : p.avecCredit(solde);
+        });
+    }
+
 }
@@ -1,6 +1,9 @@
 package org.loamok.trocencheres.manager;
 
+import java.util.List;
+import java.util.Optional;
 import org.loamok.trocencheres.entity.Utilisateur;
+import org.loamok.trocencheres.projection.ProfilUtilisateur;
 
 /**
  *
@@ -9,8 +12,10 @@ import org.loamok.trocencheres.entity.Utilisateur;
 public interface userService {
     Utilisateur registerUser(Utilisateur u);
     Utilisateur registerUser(Utilisateur u, Boolean isAdmin);
+    List<ResultatInscription> registerUsers(List<Utilisateur> users);
     Boolean doCheckUserRegistering(Utilisateur u);
     Boolean checkPseudoUnique(String pseudo);
     Boolean checkEmailUnique(String email);
     Boolean checkPasswordCorrect(String password);
+    Optional<ProfilUtilisateur> profil(String pseudo);
 }
@@ -0,0 +1,18 @@
+package org.loamok.trocencheres.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vue détail d'un article : vendeur, catégorie, adresse de retrait et état
+ * des enchères (colonnes dénormalisées de l'article) chargés en une seule
+ * requête, sans lire la table des enchères.
+ *
+ * @author Huby Franck
+ */
+@ReponseLegere
+public record ArticleDetail(Integer id, String nom, String description, Integer photo,
+        LocalDateTime dateDebutEncheres, LocalDateTime dateFinEncheres, Integer statutEnchere,
+        Integer prixInitial, Integer prixVente, Integer noCategorie, String categorie, String vendeur,
+        String rueRetrait, String codePostalRetrait, String villeRetrait,
+        Integer meilleureOffre, Integer nombreEncheres, String meilleurEncherisseur, LocalDateTime dateDerniereEnchere) {
+}
@@ -0,0 +1,16 @@
+package org.loamok.trocencheres.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vue liste d'un article : champs scalaires, catégorie et vendeur résolus
+ * dans la même requête ; prix courant et nombre d'enchères lus sur l'article.
+ *
+ * @author Huby Franck
+ */
+@ReponseLegere
+public record ArticleResume(Integer id, String nom, String description, Integer photo,
+        LocalDateTime dateDebutEncheres, LocalDateTime dateFinEncheres, Integer statutEnchere,
+        Integer prixInitial, Integer prixVente, Integer noCategorie, String categorie, String vendeur,
+        Integer prixCourant, Integer nombreEncheres, String meilleurEncherisseur) {
+}
@@ -0,0 +1,11 @@
+package org.loamok.trocencheres.projection;
+
+/**
+ * Catégorie d'un article, pour les notifications de clôture.
+ *
+ * @author Huby Franck
+ */
+public interface CategorieArticle {
+    Integer getId();
+    Integer getNoCategorie();
+}
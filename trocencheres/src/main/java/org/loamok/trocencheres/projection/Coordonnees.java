@@ -0,0 +1,22 @@
+package org.loamok.trocencheres.projection;
+
+/**
+ * Position WGS84 en degrés décimaux.
+ *
+ * @author Huby Franck
+ */
+public record Coordonnees(double latitude, double longitude) {
+
+    private static final double RAYON_TERRE_KM = 6371.0;
+
+    /**
+     * Distance à vol d'oiseau (haversine), en kilomètres.
+     */
+    public double distanceKm(double latitude, double longitude) {
+        final double dLat = Math.toRadians(latitude - this.latitude);
+        final double dLon = Math.toRadians(longitude - this.longitude);
+        final double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(this.latitude)) * Math.cos(Math.toRadians(latitude)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RAYON_TERRE_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,33 @@
+package org.loamok.trocencheres.projection;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.LocalDateTime;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+/**
+ *
+ * @author Huby Franck
+ */
+@Schema(description = "Critères de recherche des articles (tous optionnels)")
+@Data
+public class CritereRechercheArticle {
+    
+    @Schema(description = "Numéro de catégorie", example = "1")
+    private Integer categorie;
+    @Schema(description = "Début du nom de l'article", example = "vélo")
+    private String texte;
+    @Schema(description = "Prix courant minimal (meilleure offre, sinon prix initial)", example = "10")
+    private Integer prixMin;
+    @Schema(description = "Prix courant maximal (meilleure offre, sinon prix initial)", example = "200")
+    private Integer prixMax;
+    @Schema(description = "Statut de l'enchère (0, 1, 2, 3, 100)", example = "1")
+    private Integer statut;
+    @Schema(description = "Fin d'enchère au plus tôt", example = "2025-01-01T00:00:00")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime finApres;
+    @Schema(description = "Fin d'enchère au plus tard", example = "2025-12-31T23:59:59")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime finAvant;
+    
+}
@@ -0,0 +1,15 @@
+package org.loamok.trocencheres.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Dates et statut d'un article, pour l'échéancier des enchères.
+ *
+ * @author Huby Franck
+ */
+public interface EcheanceArticle {
+    Integer getId();
+    LocalDateTime getDateDebutEncheres();
+    LocalDateTime getDateFinEncheres();
+    Integer getStatutEnchere();
+}
@@ -0,0 +1,12 @@
+package org.loamok.trocencheres.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ligne de l'historique des enchères d'un article.
+ *
+ * @author Huby Franck
+ */
+@ReponseLegere
+public record EnchereHistorique(Integer id, Integer montant, LocalDateTime date, String pseudo) {
+}
@@ -0,0 +1,11 @@
+package org.loamok.trocencheres.projection;
+
+/**
+ * Nombre d'articles d'un statut donné dans une catégorie.
+ *
+ * @author Huby Franck
+ */
+public interface EncheresParCategorie {
+    Integer getNoCategorie();
+    Long getNombre();
+}
@@ -0,0 +1,17 @@
+package org.loamok.trocencheres.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ligne d'import/export des articles (NDJSON ou CSV). À l'import seuls nom,
+ * description, dates, prixInitial, vendeur et catégorie (noCategorie ou
+ * libellé) sont requis ; photo vaut 0 par défaut, l'adresse de retrait celle
+ * du vendeur ; id, statut et état des enchères sont ignorés.
+ *
+ * @author Huby Franck
+ */
+public record LigneArticle(Integer id, String nom, String description, Integer photo,
+        LocalDateTime dateDebutEncheres, LocalDateTime dateFinEncheres, Integer statutEnchere,
+        Integer prixInitial, Integer prixVente, Integer prixCourant, Integer nombreEncheres, String meneur,
+        String vendeur, Integer noCategorie, String categorie, String rue, String codePostal, String ville) {
+}
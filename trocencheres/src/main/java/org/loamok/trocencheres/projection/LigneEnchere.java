@@ -0,0 +1,12 @@
+package org.loamok.trocencheres.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ligne d'export des enchères (NDJSON ou CSV).
+ *
+ * @author Huby Franck
+ */
+public record LigneEnchere(Integer id, Integer noArticle, String article, String pseudo, Integer montant,
+        LocalDateTime date) {
+}
@@ -0,0 +1,13 @@
+package org.loamok.trocencheres.projection;
+
+/**
+ * Meilleure offre d'un article, avec son vendeur.
+ *
+ * @author Huby Franck
+ */
+public interface MeilleureOffre {
+    Integer getNoArticle();
+    String getPseudo();
+    Integer getMontant();
+    String getVendeur();
+}
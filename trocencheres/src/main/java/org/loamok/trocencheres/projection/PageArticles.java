@@ -0,0 +1,13 @@
+package org.loamok.trocencheres.projection;
+
+import java.util.List;
+
+/**
+ * Page de résultats en pagination par clé : suivant est le curseur à
+ * renvoyer pour la page suivante, null sur la dernière page.
+ *
+ * @author Huby Franck
+ */
+@ReponseLegere
+public record PageArticles(List<ArticleResume> articles, String suivant) {
+}
@@ -0,0 +1,13 @@
+package org.loamok.trocencheres.projection;
+
+import java.util.List;
+
+/**
+ * Page de résultats de la recherche d'utilisateurs : page demandée (à partir
+ * de 0), taille de page et nombre total de comptes trouvés.
+ *
+ * @author Huby Franck
+ */
+@ReponseLegere
+public record PageUtilisateurs(List<UtilisateurTrouve> utilisateurs, int page, int taille, int total) {
+}
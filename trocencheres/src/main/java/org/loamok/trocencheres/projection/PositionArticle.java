@@ -0,0 +1,12 @@
+package org.loamok.trocencheres.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lieu de retrait (ou à défaut adresse du vendeur) et échéance d'un article,
+ * pour l'index de proximité.
+ *
+ * @author Huby Franck
+ */
+public record PositionArticle(Integer id, LocalDateTime dateFinEncheres, Integer statutEnchere, Double latitude, Double longitude) {
+}
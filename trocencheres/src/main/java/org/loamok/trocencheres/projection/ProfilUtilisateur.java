@@ -0,0 +1,17 @@
+package org.loamok.trocencheres.projection;
+
+/**
+ * Profil de l'utilisateur connecté : identité, adresse résolue dans la même
+ * requête et crédit disponible (solde en mémoire, réservations des enchères
+ * en cours déduites).
+ *
+ * @author Huby Franck
+ */
+@ReponseLegere
+public record ProfilUtilisateur(String pseudo, String nom, String prenom, String email, String telephone,
+        Integer credit, String rue, String codePostal, String ville) {
+
+    public ProfilUtilisateur avecCredit(Integer solde) {
+        return new ProfilUtilisateur(pseudo, nom, prenom, email, telephone, solde, rue, codePostal, ville);
+    }
+}
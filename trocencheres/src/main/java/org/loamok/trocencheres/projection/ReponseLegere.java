@@ -0,0 +1,20 @@
+package org.loamok.trocencheres.projection;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Vue renvoyée telle quelle par les contrôleurs (seule ou en liste) et
+ * sérialisée par le chemin JSON léger (JsonLegerConverter) : pas de module
+ * Hibernate ni de liens HAL, sérialiseurs résolus une fois par type.
+ *
+ * @author Huby Franck
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ReponseLegere {
+}
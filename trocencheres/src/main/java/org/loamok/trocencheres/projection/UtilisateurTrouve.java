@@ -0,0 +1,10 @@
+package org.loamok.trocencheres.projection;
+
+/**
+ * Compte tel que servi par la recherche d'utilisateurs en mémoire.
+ *
+ * @author Huby Franck
+ */
+@ReponseLegere
+public record UtilisateurTrouve(String pseudo, String nom, String prenom, String email) {
+}
@@ -0,0 +1,16 @@
+package org.loamok.trocencheres.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.loamok.trocencheres.projection.ArticleResume;
+import org.loamok.trocencheres.projection.CritereRechercheArticle;
+
+/**
+ *
+ * @author Huby Franck
+ */
+public interface ArticlesAVendreRechercheRepository {
+    List<ArticleResume> rechercher(CritereRechercheArticle critere, LocalDateTime apresFin, Integer apresId, int limite);
+    List<ArticleResume> resumes(Collection<Integer> ids);
+}
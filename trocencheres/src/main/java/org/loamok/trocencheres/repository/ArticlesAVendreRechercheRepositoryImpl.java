@@ -0,0 +1,101 @@
+package org.loamok.trocencheres.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CompoundSelection;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.entity.Categorie;
+import org.loamok.trocencheres.projection.ArticleResume;
+import org.loamok.trocencheres.projection.CritereRechercheArticle;
+
+/**
+ * Recherche d'articles en pagination par clé sur (date_fin_encheres,
+ * no_article) : chaque page reprend après la dernière clé lue au lieu de
+ * sauter N lignes, une page profonde coûte donc autant que la première.
+ *
+ * @author Huby Franck
+ */
+class ArticlesAVendreRechercheRepositoryImpl implements ArticlesAVendreRechercheRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<ArticleResume> rechercher(CritereRechercheArticle critere, LocalDateTime apresFin, Integer apresId, int limite) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<ArticleResume> q = cb.createQuery(ArticleResume.class);
+        final Root<ArticlesAVendre> a = q.from(ArticlesAVendre.class);
+        final Join<ArticlesAVendre, Categorie> c = a.join("categorie", JoinType.LEFT);
+
+        final List<Predicate> filtres = new ArrayList<>();
+        if (critere.getCategorie() != null)
+            // Sur la clé étrangère de l'article : couvert par IX_ARTICLES_CATEGORIE_FIN
+            filtres.add(cb.equal(a.get("categorie").get("id"), critere.getCategorie()));
+        if (critere.getStatut() != null)
+            filtres.add(cb.equal(a.get("statutEnchere"), critere.getStatut()));
+        // Prix courant : meilleure offre, ou prix initial sans offre
+        final Expression<Integer> prix = cb.coalesce(a.get("prixCourant"), a.get("prixInitial"));
+        if (critere.getPrixMin() != null)
+            filtres.add(cb.ge(prix, critere.getPrixMin()));
+        if (critere.getPrixMax() != null)
+            filtres.add(cb.le(prix, critere.getPrixMax()));
+        if (critere.getFinApres() != null)
+            filtres.add(cb.greaterThanOrEqualTo(a.get("dateFinEncheres"), critere.getFinApres()));
+        if (critere.getFinAvant() != null)
+            filtres.add(cb.lessThanOrEqualTo(a.get("dateFinEncheres"), critere.getFinAvant()));
+        if (critere.getTexte() != null && !critere.getTexte().isBlank()) {
+            // Début du nom seulement : LIKE 'x%' parcourt IX_ARTICLES_NOM, un
+            // '%x%' ou la description imposeraient de lire toute la table
+            final String motif = echapper(critere.getTexte().trim()) + "%";
+            filtres.add(cb.like(a.get("nom"), motif, '\\'));
+        }
+        // Reprise après la dernière clé de la page précédente
+        if (apresFin != null && apresId != null)
+            filtres.add(cb.or(
+                    cb.greaterThan(a.get("dateFinEncheres"), apresFin),
+                    cb.and(cb.equal(a.get("dateFinEncheres"), apresFin), cb.greaterThan(a.get("id"), apresId))));
+
+        q.select(resume(cb, a, c))
+                .where(filtres.toArray(Predicate[]::new))
+                .orderBy(cb.asc(a.get("dateFinEncheres")), cb.asc(a.get("id")));
+
+        return em.createQuery(q).setMaxResults(limite).getResultList();
+    }
+
+    // Articles désignés par la recherche de proximité, dans un ordre quelconque
+    @Override
+    public List<ArticleResume> resumes(Collection<Integer> ids) {
+        if (ids.isEmpty())
+            return List.of();
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<ArticleResume> q = cb.createQuery(ArticleResume.class);
+        final Root<ArticlesAVendre> a = q.from(ArticlesAVendre.class);
+        final Join<ArticlesAVendre, Categorie> c = a.join("categorie", JoinType.LEFT);
+        q.select(resume(cb, a, c)).where(a.get("id").in(ids));
+
+        return em.createQuery(q).getResultList();
+    }
+
+    private static CompoundSelection<ArticleResume> resume(CriteriaBuilder cb, Root<ArticlesAVendre> a, Join<ArticlesAVendre, Categorie> c) {
+        return cb.construct(ArticleResume.class,
+                a.get("id"), a.get("nom"), a.get("description"), a.get("photo"),
+                a.get("dateDebutEncheres"), a.get("dateFinEncheres"), a.get("statutEnchere"),
+                a.get("prixInitial"), a.get("prixVente"), c.get("id"), c.get("libelle"),
+                a.get("utilisateur").get("pseudo"), a.get("prixCourant"), a.get("nombreEncheres"), a.get("meneur"));
+    }
+
+    private static String echapper(String texte) {
+        return texte.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
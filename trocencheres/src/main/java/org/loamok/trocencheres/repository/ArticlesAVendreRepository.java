@@ -1,12 +1,98 @@
 package org.loamok.trocencheres.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.projection.ArticleDetail;
+import org.loamok.trocencheres.projection.CategorieArticle;
+import org.loamok.trocencheres.projection.EcheanceArticle;
+import org.loamok.trocencheres.projection.EncheresParCategorie;
+import org.loamok.trocencheres.projection.PositionArticle;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RestResource;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  *
  * @author Huby Franck
  */
-public interface ArticlesAVendreRepository extends JpaRepository<ArticlesAVendre, Integer> {
-    
+public interface ArticlesAVendreRepository extends JpaRepository<ArticlesAVendre, Integer>, ArticlesAVendreRechercheRepository {
+    @RestResource(exported = false)
+    @Query("SELECT new org.loamok.trocencheres.projection.ArticleDetail(a.id, a.nom, a.description, a.photo, "
+            + "a.dateDebutEncheres, a.dateFinEncheres, a.statutEnchere, a.prixInitial, a.prixVente, "
+            + "c.id, c.libelle, u.pseudo, ad.rue, ad.codePostal, ad.ville, "
+            + "a.prixCourant, a.nombreEncheres, a.meneur, a.dateDerniereEnchere) "
+            + "FROM ArticlesAVendre a LEFT JOIN a.categorie c LEFT JOIN a.utilisateur u LEFT JOIN a.adresseRetrait ad "
+            + "WHERE a.id = :id")
+    Optional<ArticleDetail> findDetailById(@Param("id") Integer id);
+    @RestResource(exported = false)
+    List<EcheanceArticle> findByStatutEnchereIn(Collection<Integer> statuts);
+    @RestResource(exported = false)
+    @Query("SELECT a.id AS id, c.id AS noCategorie FROM ArticlesAVendre a LEFT JOIN a.categorie c WHERE a.id IN :ids")
+    List<CategorieArticle> findCategories(@Param("ids") Collection<Integer> ids);
+    // Lieu de retrait, sinon adresse du vendeur : latitude et longitude sont toujours renseignées ensemble
+    @RestResource(exported = false)
+    @Query("SELECT new org.loamok.trocencheres.projection.PositionArticle(a.id, a.dateFinEncheres, a.statutEnchere, "
+            + "COALESCE(r.latitude, va.latitude), COALESCE(r.longitude, va.longitude)) "
+            + "FROM ArticlesAVendre a LEFT JOIN a.adresseRetrait r LEFT JOIN a.utilisateur u LEFT JOIN u.adresse va "
+            + "WHERE a.statutEnchere IN :statuts")
+    List<PositionArticle> findPositions(@Param("statuts") Collection<Integer> statuts);
+    @RestResource(exported = false)
+    @Query("SELECT new org.loamok.trocencheres.projection.PositionArticle(a.id, a.dateFinEncheres, a.statutEnchere, "
+            + "COALESCE(r.latitude, va.latitude), COALESCE(r.longitude, va.longitude)) "
+            + "FROM ArticlesAVendre a LEFT JOIN a.adresseRetrait r LEFT JOIN a.utilisateur u LEFT JOIN u.adresse va "
+            + "WHERE a.id IN :ids")
+    List<PositionArticle> findPositionsByIds(@Param("ids") Collection<Integer> ids);
+    @RestResource(exported = false)
+    @Modifying
+    @Query("UPDATE ArticlesAVendre a SET a.statutEnchere = :nouveau WHERE a.id IN :ids AND a.statutEnchere = :ancien")
+    int changerStatut(@Param("ids") Collection<Integer> ids, @Param("ancien") Integer ancien, @Param("nouveau") Integer nouveau);
+    @RestResource(exported = false)
+    @Modifying
+    // Seuls les articles encore ouverts : un article annulé ou livré n'est ni
+    // clôturé ni vendu une seconde fois
+    @Query("UPDATE ArticlesAVendre a SET a.statutEnchere = :statut, a.prixVente = :prixVente WHERE a.id = :id "
+            + "AND a.statutEnchere IN (" + ArticlesAVendre.STATUT_NON_COMMENCEE + ", " + ArticlesAVendre.STATUT_EN_COURS + ")")
+    int cloturer(@Param("id") Integer id, @Param("statut") Integer statut, @Param("prixVente") Integer prixVente);
+    // Report des enchères d'un lot sur l'article, dans la transaction du lot
+    @RestResource(exported = false)
+    @Modifying
+    @Query("UPDATE ArticlesAVendre a SET a.prixCourant = :montant, a.meneur = :pseudo, a.dateDerniereEnchere = :date, "
+            + "a.nombreEncheres = a.nombreEncheres + :nombre WHERE a.id = :id")
+    int enregistrerEncheres(@Param("id") Integer id, @Param("montant") Integer montant, @Param("pseudo") String pseudo,
+            @Param("date") LocalDateTime date, @Param("nombre") Integer nombre);
+    // Recalcul depuis ENCHERES des articles d'une tranche d'identifiants dont
+    // le prix courant, le nombre d'enchères, le meneur ou la date de la
+    // dernière enchère ne correspond pas. Une seule offre par montant
+    // maximal : MAX() ne sert qu'à garantir un scalaire
+    @RestResource(exported = false)
+    @Modifying
+    @Transactional
+    @Query("UPDATE ArticlesAVendre a SET "
+            + "a.prixCourant = (SELECT MAX(e.montantEnchere) FROM Enchere e WHERE e.article = a), "
+            + "a.nombreEncheres = (SELECT CAST(COUNT(e) AS Integer) FROM Enchere e WHERE e.article = a), "
+            + "a.dateDerniereEnchere = (SELECT MAX(e.dateEnchere) FROM Enchere e WHERE e.article = a), "
+            + "a.meneur = (SELECT MAX(e.utilisateur.pseudo) FROM Enchere e WHERE e.article = a "
+            + "AND e.montantEnchere = (SELECT MAX(e2.montantEnchere) FROM Enchere e2 WHERE e2.article = a)) "
+            + "WHERE a.id BETWEEN :debut AND :fin "
+            + "AND (a.nombreEncheres <> (SELECT CAST(COUNT(e) AS Integer) FROM Enchere e WHERE e.article = a) "
+            + "OR COALESCE(a.prixCourant, -1) <> COALESCE((SELECT MAX(e.montantEnchere) FROM Enchere e WHERE e.article = a), -1) "
+            + "OR COALESCE(a.meneur, '') <> COALESCE((SELECT MAX(e.utilisateur.pseudo) FROM Enchere e WHERE e.article = a "
+            + "AND e.montantEnchere = (SELECT MAX(e2.montantEnchere) FROM Enchere e2 WHERE e2.article = a)), '') "
+            + "OR (a.dateDerniereEnchere IS NULL AND EXISTS (SELECT e FROM Enchere e WHERE e.article = a)) "
+            + "OR (a.dateDerniereEnchere IS NOT NULL AND NOT EXISTS (SELECT e FROM Enchere e WHERE e.article = a)) "
+            + "OR a.dateDerniereEnchere <> (SELECT MAX(e.dateEnchere) FROM Enchere e WHERE e.article = a))")
+    int recalculerEncheres(@Param("debut") Integer debut, @Param("fin") Integer fin);
+    @RestResource(exported = false)
+    @Query("SELECT MAX(a.id) FROM ArticlesAVendre a")
+    Integer findMaxId();
+    @RestResource(exported = false)
+    @Query("SELECT a.categorie.id AS noCategorie, COUNT(a) AS nombre FROM ArticlesAVendre a "
+            + "WHERE a.statutEnchere = :statut GROUP BY a.categorie.id")
+    List<EncheresParCategorie> compterParCategorie(@Param("statut") Integer statut);
 }
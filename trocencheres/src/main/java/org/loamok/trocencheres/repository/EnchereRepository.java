@@ -1,12 +1,46 @@
 package org.loamok.trocencheres.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import org.loamok.trocencheres.entity.Enchere;
+import org.loamok.trocencheres.projection.EnchereHistorique;
+import org.loamok.trocencheres.projection.MeilleureOffre;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RestResource;
 
 /**
  *
  * @author Huby Franck
  */
 public interface EnchereRepository extends JpaRepository<Enchere, Integer> {
-    
+    // Écritures non exportées : une enchère ne se crée que par /encheres/placer
+    // (montant, crédit, état en mémoire, journal et colonnes dénormalisées)
+    @Override
+    @RestResource(exported = false)
+    <S extends Enchere> S save(S enchere);
+    @Override
+    @RestResource(exported = false)
+    <S extends Enchere> List<S> saveAll(Iterable<S> encheres);
+    @Override
+    @RestResource(exported = false)
+    void delete(Enchere enchere);
+    @Override
+    @RestResource(exported = false)
+    void deleteById(Integer id);
+    @RestResource(exported = false)
+    Optional<Enchere> findFirstByArticle_IdOrderByMontantEnchereDesc(Integer noArticle);
+    @RestResource(exported = false)
+    @Query("SELECT e.article.id AS noArticle, e.utilisateur.pseudo AS pseudo, e.montantEnchere AS montant, e.article.utilisateur.pseudo AS vendeur "
+            + "FROM Enchere e WHERE e.article.id IN :ids "
+            + "AND e.montantEnchere = (SELECT MAX(e2.montantEnchere) FROM Enchere e2 WHERE e2.article = e.article)")
+    List<MeilleureOffre> findMeilleuresOffres(@Param("ids") Collection<Integer> ids);
+    @RestResource(exported = false)
+    @Query("SELECT new org.loamok.trocencheres.projection.EnchereHistorique(e.id, e.montantEnchere, e.dateEnchere, e.utilisateur.pseudo) "
+            + "FROM Enchere e WHERE e.article.id = :noArticle ORDER BY e.montantEnchere DESC")
+    List<EnchereHistorique> findHistorique(@Param("noArticle") Integer noArticle);
+    @RestResource(exported = false)
+    boolean existsByArticle_IdAndUtilisateur_PseudoAndMontantEnchere(Integer noArticle, String pseudo, Integer montant);
 }
@@ -0,0 +1,24 @@
+package org.loamok.trocencheres.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.loamok.trocencheres.entity.JetonRevoque;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ *
+ * @author Huby Franck
+ */
+@RepositoryRestResource(exported = false)
+public interface JetonRevoqueRepository extends JpaRepository<JetonRevoque, String> {
+    List<JetonRevoque> findByExpirationAfter(LocalDateTime date);
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM JetonRevoque j WHERE j.expiration <= :date")
+    int supprimerExpires(@Param("date") LocalDateTime date);
+}
@@ -0,0 +1,14 @@
+package org.loamok.trocencheres.repository;
+
+import org.loamok.trocencheres.entity.MouvementCredit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+/**
+ *
+ * @author Huby Franck
+ */
+@RepositoryRestResource(exported = false)
+public interface MouvementCreditRepository extends JpaRepository<MouvementCredit, Long> {
+    
+}
@@ -1,12 +1,18 @@
 package org.loamok.trocencheres.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import org.loamok.trocencheres.entity.Utilisateur;
+import org.loamok.trocencheres.projection.ProfilUtilisateur;
+import org.loamok.trocencheres.projection.UtilisateurTrouve;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.data.rest.core.annotation.RestResource;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  *
@@ -19,10 +25,41 @@ public interface UtilisateurRepository extends JpaRepository<Utilisateur, String
     @Query("SELECT u FROM Utilisateur u WHERE u.pseudo = :pseudo")
     Utilisateur findByPseudo(@Param("pseudo") String pseudo);
     Utilisateur findByPseudoAndPassword(@Param("pseudo") String pseudo, @Param("password") String password);
+    // LIKE '%x%' : parcours de table, la recherche interactive passe par /admin/utilisateurs/recherche
     @RestResource(path = "findByEmailContaining", rel = "findByEmailContaining")
     List<Utilisateur> findByEmailContaining(@Param("email") String email);
     @RestResource(path = "findByNomContaining", rel = "findByNomContaining") 
     List<Utilisateur> findByNomContaining(@Param("nom") String nom);
     @RestResource(path = "findByRole", rel = "findByRole")
     List<Utilisateur> findByRole_Role(@Param("role") String role);
+    // Unicité vérifiée pour tout un lot d'inscriptions en une requête
+    @RestResource(exported = false)
+    @Query("SELECT u.pseudo FROM Utilisateur u WHERE u.pseudo IN :pseudos")
+    List<String> findPseudosExistants(@Param("pseudos") Collection<String> pseudos);
+    @RestResource(exported = false)
+    @Query("SELECT u.email FROM Utilisateur u WHERE u.email IN :emails")
+    List<String> findEmailsExistants(@Param("emails") Collection<String> emails);
+    @RestResource(exported = false)
+    @Query("SELECT new org.loamok.trocencheres.projection.ProfilUtilisateur(u.pseudo, u.nom, u.prenom, u.email, "
+            + "u.telephone, u.credit, a.rue, a.codePostal, a.ville) "
+            + "FROM Utilisateur u LEFT JOIN u.adresse a WHERE u.pseudo = :pseudo")
+    Optional<ProfilUtilisateur> findProfilByPseudo(@Param("pseudo") String pseudo);
+    // Chargement de l'index de recherche en mémoire
+    @RestResource(exported = false)
+    @Query("SELECT new org.loamok.trocencheres.projection.UtilisateurTrouve(u.pseudo, u.nom, u.prenom, u.email) FROM Utilisateur u")
+    List<UtilisateurTrouve> findIndexables();
+    @RestResource(exported = false)
+    @Query("SELECT u.credit FROM Utilisateur u WHERE u.pseudo = :pseudo")
+    Integer findCreditByPseudo(@Param("pseudo") String pseudo);
+    // Mise à jour relative et conditionnelle : jamais de solde négatif
+    @RestResource(exported = false)
+    @Modifying
+    @Query("UPDATE Utilisateur u SET u.credit = u.credit + :delta WHERE u.pseudo = :pseudo AND u.credit + :delta >= 0")
+    int ajouterCredit(@Param("pseudo") String pseudo, @Param("delta") Integer delta);
+    // Rehachage à la connexion : sans effet si le mot de passe a changé entre-temps
+    @RestResource(exported = false)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Utilisateur u SET u.password = :nouveau WHERE u.pseudo = :pseudo AND u.password = :ancien")
+    int remplacerMotDePasse(@Param("pseudo") String pseudo, @Param("ancien") String ancien, @Param("nouveau") String nouveau);
 }
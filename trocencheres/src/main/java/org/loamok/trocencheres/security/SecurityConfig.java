@@ -1,11 +1,14 @@
 package org.loamok.trocencheres.security;
 
+import jakarta.servlet.DispatcherType;
 import java.util.List;
 import java.util.function.Supplier;
 import org.apache.commons.logging.*;
 import org.loamok.trocencheres.security.jwt.JwtAuthenticationFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.*;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.*;
 import org.springframework.security.authorization.AuthorizationDecision;
@@ -33,14 +36,36 @@ public class SecurityConfig {
     @Autowired
     private AuthenticationProvider authenticationProvider;
 
+    /**
+     * Points de supervision (port de gestion) : chaîne dédiée, évaluée avant
+     * celle de l'API, sans filtre JWT. Seuls health et prometheus sont
+     * ouverts ; le port de gestion est à réserver au réseau interne.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher(EndpointRequest.toAnyEndpoint())
+                .authorizeHttpRequests(auth -> auth
+                .requestMatchers(EndpointRequest.to("health", "prometheus")).permitAll()
+                .anyRequest().denyAll()
+            )
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .csrf(csrf -> csrf.disable());
+        return http.build();
+    }
+
     @Bean
     public SecurityFilterChain oauth2ApiFilterChain(HttpSecurity http) throws Exception {
         http
                 .securityMatcher("/**")
                 .authorizeHttpRequests(auth -> auth
+                // Fin des réponses asynchrones (flux SSE) : déjà autorisées à l'ouverture
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 // APIs ouvertes au public sans authentification
                 .requestMatchers(HttpMethod.POST, "/profil/register").permitAll()
                 .requestMatchers(HttpMethod.POST, "/authorize/token").permitAll()
+                .requestMatchers(HttpMethod.POST, "/authorize/revoke").permitAll()
                 // SpringDoc OpenAPI / Swagger UI endpoints - Documentation API accessible publiquement
                 .requestMatchers("/v3/api-docs/**").permitAll() // Spécification OpenAPI 3.0 en JSON/YAML
                 .requestMatchers("/swagger-ui/**").permitAll() // Interface utilisateur Swagger (HTML, CSS, JS)
@@ -66,9 +91,14 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.DELETE, "/categories/**").hasRole("ADMIN")
                 // Enchères - Gestion des enchères sur les articles
                 .requestMatchers(HttpMethod.GET, "/encheres", "/encheres/**").hasAnyRole("USER", "ADMIN")
-                .requestMatchers(HttpMethod.POST, "/encheres").hasAnyRole("USER", "ADMIN")
-                .requestMatchers(HttpMethod.PUT, "/encheres/**").hasAnyRole("USER", "ADMIN")
-                .requestMatchers(HttpMethod.DELETE, "/encheres/**").hasRole("ADMIN")
+                .requestMatchers(HttpMethod.POST, "/encheres/placer").hasAnyRole("USER", "ADMIN")
+                // Jeton de flux SSE, à passer en paramètre à l'ouverture du flux
+                .requestMatchers(HttpMethod.POST, "/encheres/flux/jeton").hasAnyRole("USER", "ADMIN")
+                // Aucune écriture directe (dépôt non exporté), associations comprises
+                .requestMatchers(HttpMethod.POST, "/encheres", "/encheres/**").denyAll()
+                .requestMatchers(HttpMethod.PUT, "/encheres/**").denyAll()
+                .requestMatchers(HttpMethod.PATCH, "/encheres/**").denyAll()
+                .requestMatchers(HttpMethod.DELETE, "/encheres/**").denyAll()
                 // Rôles - Administration des rôles (Admin uniquement)
                 .requestMatchers(HttpMethod.GET, "/roles", "/roles/**").hasRole("ADMIN")
                 .requestMatchers(HttpMethod.POST, "/roles").hasRole("ADMIN")
@@ -76,11 +106,15 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.DELETE, "/roles/**").hasRole("ADMIN")
                 // Profils - Consultation des profils (Admin seulement pour la gestion globale)
                 .requestMatchers(HttpMethod.GET, "/profile").hasRole("ADMIN")
+                .requestMatchers(HttpMethod.GET, "/profil").hasAnyRole("USER", "ADMIN")
                 // Utilisateurs - Gestion des comptes utilisateurs
                 .requestMatchers(HttpMethod.GET, "/utilisateurs", "/utilisateurs/**").hasAnyRole("USER", "ADMIN")
                 .requestMatchers(HttpMethod.POST, "/utilisateurs").hasAnyRole("USER", "ADMIN")
                 .requestMatchers(HttpMethod.PUT, "/utilisateurs/**").hasAnyRole("USER", "ADMIN")
                 .requestMatchers(HttpMethod.DELETE, "/utilisateurs/**").hasRole("ADMIN")
+                // Administration technique (statistiques des caches, révocations)
+                .requestMatchers(HttpMethod.GET, "/admin/**").hasRole("ADMIN")
+                .requestMatchers(HttpMethod.POST, "/admin/**").hasRole("ADMIN")
                 // Tout le reste nécessite authentification + scope
                 .anyRequest().access(this::hasAccessScopeAndAuthenticated)
             )
@@ -0,0 +1,36 @@
+package org.loamok.trocencheres.security.jwt;
+
+import java.util.Collection;
+import java.util.List;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Vue immuable d'un utilisateur pour l'authentification : ce que les
+ * jetons et la vérification du mot de passe utilisent, sans l'entité.
+ *
+ * @author Huby Franck
+ */
+public record CompteAuthentifie(String pseudo, String password, String authority, Boolean isAdmin,
+        List<GrantedAuthority> authorities) implements UserDetails {
+
+    public CompteAuthentifie(String pseudo, String password, String authority, Boolean isAdmin) {
+        this(pseudo, password, authority, isAdmin, List.of(new SimpleGrantedAuthority(authority)));
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return pseudo;
+    }
+}
@@ -0,0 +1,77 @@
+package org.loamok.trocencheres.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import org.loamok.trocencheres.entity.Utilisateur;
+import org.loamok.trocencheres.repository.UtilisateurRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Comptes utilisateurs par pseudo, pour l'émission des jetons et le
+ * UserDetailsService : une lecture en base par utilisateur et par durée de vie
+ * du cache. Les entrées sont évincées à chaque modification d'un utilisateur
+ * (événements Spring Data REST, rehachage du mot de passe) ; la durée de vie
+ * borne l'effet d'une écriture faite hors de l'application. Un pseudo inconnu
+ * n'est pas mis en cache.
+ *
+ * @author Huby Franck
+ */
+@Service
+public class CompteCache {
+
+    @Value("${app.jwt.comptes.taille:10000}")
+    private long taille;
+    @Value("${app.jwt.comptes.ttl:PT10M}")
+    private Duration ttl;
+
+    @Autowired
+    private UtilisateurRepository uR;
+
+    private Cache<String, CompteAuthentifie> comptes;
+
+    @PostConstruct
+    void init() {
+        comptes = Caffeine.newBuilder()
+                .maximumSize(taille)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Compte du pseudo, ou null s'il n'existe pas.
+     */
+    public CompteAuthentifie get(String pseudo) {
+        return pseudo == null ? null : comptes.get(pseudo, this::charger);
+    }
+
+    public void evincer(String pseudo) {
+        if (pseudo != null)
+            comptes.invalidate(pseudo);
+    }
+
+    public void evincerTout() {
+        comptes.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return comptes.stats();
+    }
+
+    public long getTaille() {
+        return comptes.estimatedSize();
+    }
+
+    private CompteAuthentifie charger(String pseudo) {
+        final Utilisateur u = uR.findByPseudo(pseudo);
+        if (u == null)
+            return null;
+
+        return new CompteAuthentifie(u.getPseudo(), u.getPassword(), u.getAuthority(), u.getRole().getIsAdmin());
+    }
+}
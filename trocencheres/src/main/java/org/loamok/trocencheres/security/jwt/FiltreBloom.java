@@ -0,0 +1,67 @@
+package org.loamok.trocencheres.security.jwt;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtre de Bloom sur des chaînes : « absent » est certain, « peut-être
+ * présent » doit être confirmé ailleurs. Lectures sans verrou ; pas de
+ * suppression, le filtre est reconstruit quand les entrées expirent.
+ *
+ * @author Huby Franck
+ */
+final class FiltreBloom {
+
+    private final AtomicLongArray bits;
+    private final int nbBits;
+    private final int nbHachages;
+
+    FiltreBloom(int capacite, double tauxFauxPositifs) {
+        final double ln2 = Math.log(2);
+        final long m = (long) Math.ceil(-Math.max(capacite, 1) * Math.log(tauxFauxPositifs) / (ln2 * ln2));
+        nbBits = (int) Math.max(64, Math.min(m, Integer.MAX_VALUE - 64));
+        nbHachages = (int) Math.max(1, Math.round((double) nbBits / Math.max(capacite, 1) * ln2));
+        bits = new AtomicLongArray((nbBits + 63) / 64);
+    }
+
+    void ajouter(String cle) {
+        final long h = hachage(cle);
+        final int h1 = (int) h;
+        final int h2 = (int) (h >>> 32);
+        for (int i = 0; i < nbHachages; i++) {
+            final int bit = position(h1 + i * h2);
+            final long masque = 1L << bit;
+            bits.getAndUpdate(bit >>> 6, mot -> mot | masque);
+        }
+    }
+
+    boolean peutContenir(String cle) {
+        final long h = hachage(cle);
+        final int h1 = (int) h;
+        final int h2 = (int) (h >>> 32);
+        for (int i = 0; i < nbHachages; i++) {
+            final int bit = position(h1 + i * h2);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    private int position(int combine) {
+        return (combine & Integer.MAX_VALUE) % nbBits;
+    }
+
+    // FNV-1a 64 bits puis mélange final de MurmurHash3
+    private static long hachage(String cle) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < cle.length(); i++) {
+            h ^= cle.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
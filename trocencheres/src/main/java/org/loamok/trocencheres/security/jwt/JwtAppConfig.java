@@ -1,29 +1,33 @@
 package org.loamok.trocencheres.security.jwt;
 
-import org.loamok.trocencheres.repository.UtilisateurRepository;
+import org.loamok.trocencheres.security.password.PasswordHashService;
 import org.springframework.context.annotation.*;
 import org.springframework.security.authentication.*;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.security.core.*;
-import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.*;
 
 @Configuration
 public class JwtAppConfig {
 
-    private final UtilisateurRepository uRepository;
+    private final CompteCache compteCache;
 
-    public JwtAppConfig(UtilisateurRepository uRepository) {
-        this.uRepository = uRepository;
+    public JwtAppConfig(CompteCache compteCache) {
+        this.compteCache = compteCache;
     }
 
     /**
-     * Fournit le service qui charge les utilisateurs depuis la base de données
+     * Fournit le service qui charge les utilisateurs (cache des comptes,
+     * base de données en cas d'absence)
      */
     @Bean
     UserDetailsService userDetailsService() {
-        return username -> uRepository.findById(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        return username -> {
+            final CompteAuthentifie compte = compteCache.get(username);
+            if (compte == null)
+                throw new UsernameNotFoundException("User not found");
+            return compte;
+        };
     }
 
     /**
@@ -60,10 +64,10 @@ public class JwtAppConfig {
     }
 
     /**
-     * Encodeur de mot de passe
+     * Encodeur de mot de passe (BCrypt au coût calibré au démarrage)
      */
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return PasswordEncoderFactories.createDelegatingPasswordEncoder();
+    PasswordEncoder passwordEncoder(PasswordHashService passwordHashService) {
+        return passwordHashService.getEncoder();
     }
 }
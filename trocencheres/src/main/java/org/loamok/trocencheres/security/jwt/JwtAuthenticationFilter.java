@@ -1,23 +1,21 @@
 package org.loamok.trocencheres.security.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
-import lombok.AllArgsConstructor;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -27,11 +25,39 @@ import org.springframework.web.filter.OncePerRequestFilter;
  * @author Huby Franck
  */
 @Component
-@AllArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private JwtService jwtService;
-    private UserDetailsService userDetailsService;
+    // Flux SSE : EventSource n'envoie pas d'en-tête, jeton de flux dans l'URL
+    public static final String CHEMIN_FLUX = "/encheres/flux/";
+    public static final String PARAM_JETON_FLUX = "jeton";
+
+    private final JwtService jwtService;
+    private final RevocationService revocationService;
+    // Requêtes sans jeton : compteur seul, aucune lecture d'horloge
+    private final Counter anonymes;
+    // Temps passé dans le filtre (hors reste de la chaîne) par les requêtes
+    // porteuses d'un jeton, par issue
+    private final Timer invalide;
+    private final Timer authentifie;
+    private final Timer refuse;
+
+    public JwtAuthenticationFilter(JwtService jwtService, RevocationService revocationService, MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
+        this.revocationService = revocationService;
+        anonymes = Counter.builder("trocencheres.jwt.anonymes")
+                .description("Requêtes reçues sans jeton JWT")
+                .register(meterRegistry);
+        invalide = minuteur(meterRegistry, "invalide");
+        authentifie = minuteur(meterRegistry, "authentifie");
+        refuse = minuteur(meterRegistry, "refuse");
+    }
+
+    private static Timer minuteur(MeterRegistry meterRegistry, String resultat) {
+        return Timer.builder("trocencheres.jwt.filtre")
+                .description("Authentification d'une requête par le filtre JWT")
+                .tag("resultat", resultat)
+                .register(meterRegistry);
+    }
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
@@ -40,51 +66,62 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
+        final boolean flux;
+        
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            jwt = authHeader.substring(7);
+            flux = false;
+        } else {
+            jwt = jetonFlux(request);
+            flux = true;
+        }
+        
+        if (jwt == null) {
+            anonymes.increment();
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        final Timer.Sample mesure = Timer.start();
         
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        // Une seule vérification de signature par requête (et aucune si le jeton est en cache)
+        final Claims claims;
+        try {
+            claims = jwtService.extractAllClaims(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.debug("Jeton JWT invalide", e);
+            mesure.stop(invalide);
             filterChain.doFilter(request, response);
             return;
         }
         
-        jwt = authHeader.substring(7);
-        handleClientCredentialsToken(jwt, request);
-        setAuthentication(jwt);
+        if (SecurityContextHolder.getContext().getAuthentication() == null
+                && (flux ? jwtService.isStreamTokenValid(claims) : jwtService.isClientCredentialsTokenValid(claims))
+                && !revocationService.estRevoque(claims)) {
+            setAuthentication(claims, request);
+            mesure.stop(authentifie);
+        } else {
+            mesure.stop(refuse);
+        }
         
         filterChain.doFilter(request, response);
     }
-    
-    private void handleClientCredentialsToken(String jwt, HttpServletRequest request) {
-        try {
-            final String clientId = jwtService.extractUserName(jwt); // subject = clientId
-            String scopes = jwtService.extractScopes(jwt);
 
-            if (clientId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                if (jwtService.isClientCredentialsTokenValid(jwt, clientId)) {
-                    // Convertir les scopes OAuth2 en authorities Spring Security
-                    Collection<GrantedAuthority> authorities = Arrays.stream(scopes.split(" "))
-                        .map(scope -> new SimpleGrantedAuthority("SCOPE_" + scope))
-                        .collect(Collectors.toList());
-
-                    // Créer l'authentication avec le clientId comme principal
-                    UsernamePasswordAuthenticationToken authToken = 
-                        new UsernamePasswordAuthenticationToken(clientId, null, authorities);
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                } 
-            }
-        } catch (Exception e) {
-            // Log l'erreur mais continue le filtrage
-            logger.error("Erreur lors de l'authentification JWT", e);
-        }
+    // Jeton de flux en paramètre, lu seulement à l'ouverture d'un flux des enchères
+    private static String jetonFlux(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())
+                || !request.getRequestURI().startsWith(request.getContextPath() + CHEMIN_FLUX))
+            return null;
+        final String jeton = request.getParameter(PARAM_JETON_FLUX);
+        return jeton == null || jeton.isEmpty() ? null : jeton;
     }
 
-    private void setAuthentication(String token) {
-        Claims claims = jwtService.extractAllClaims(token);
+    private void setAuthentication(Claims claims, HttpServletRequest request) {
         String clientId = claims.get("client_id", String.class);
         String scope = claims.get("scope", String.class);
         String authority = claims.get("authority", String.class); // Le rôle
         
-        List<SimpleGrantedAuthority> authorities = new ArrayList<>();
+        List<SimpleGrantedAuthority> authorities = new ArrayList<>(2);
         
         // Ajouter le scope "access" si présent
         if ("access".equals(scope))
@@ -97,6 +134,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
             clientId, null, authorities
         );
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
         
         SecurityContextHolder.getContext().setAuthentication(authToken);
     }
@@ -1,36 +1,157 @@
 package org.loamok.trocencheres.security.jwt;
 
-import java.security.Key;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import java.util.Base64;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
-import org.springframework.security.core.userdetails.UserDetails;
 
 @Service
 public class JwtService {
 
+    // Instant d'émission à la milliseconde (iat est en secondes) : un jeton émis
+    // juste après la révocation de son utilisateur, dans la même seconde, reste valide
+    public static final String EMISSION_MS = "iat_ms";
+
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+    // Tampon d'écriture des claims, réutilisé par thread
+    private static final ThreadLocal<StringBuilder> TAMPON = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Value("${app.jwt.secret}")
     private String SECRET_KEY;
+    @Value("${app.jwt.cache.taille:10000}")
+    private long tailleCache;
+    @Value("${app.jwt.cache.ttl-max:PT5M}")
+    private Duration ttlMaxCache;
+    // Jetons d'accès courts, renouvelés par jeton de rafraîchissement
+    @Value("${app.jwt.acces-ttl:PT15M}")
+    private Duration dureeAcces;
+    @Value("${app.jwt.refresh-ttl:P7D}")
+    private Duration dureeRefresh;
+    // Jetons de flux SSE, passés dans l'URL : durée de vie de quelques secondes
+    @Value("${app.jwt.flux-ttl:PT1M}")
+    private Duration dureeFlux;
+
+    // Clé et parseur construits une seule fois : le parseur est immuable et thread-safe
+    private SecretKey signInKey;
+    private JwtParser parser;
+    // Claims déjà vérifiés, indexés par l'empreinte SHA-256 du jeton complet
+    // (signature comprise) : un jeton identique n'est pas revérifié
+    private Cache<String, Claims> claimsCache;
+    // Émission rapide : en-tête sérialisé une fois, Mac initialisé une fois par thread
+    private String enteteB64;
+    private ThreadLocal<Mac> macs;
+    // Durée de lecture des claims : jeton en cache ou signature vérifiée
+    private Timer lectureCache;
+    private Timer lectureSignature;
+
+    @PostConstruct
+    void init() {
+        signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY));
+        parser = Jwts.parser().verifyWith(signInKey).build();
+        // En-tête identique à celui de jjwt pour cette clé (même algorithme HS*)
+        final String modele = Jwts.builder().subject("modele").signWith(signInKey).compact();
+        enteteB64 = modele.substring(0, modele.indexOf('.'));
+        macs = ThreadLocal.withInitial(() -> {
+            try {
+                final Mac mac = Mac.getInstance(signInKey.getAlgorithm());
+                mac.init(signInKey);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Mac " + signInKey.getAlgorithm() + " indisponible", e);
+            }
+        });
+        claimsCache = Caffeine.newBuilder()
+                .maximumSize(tailleCache)
+                .expireAfter(new Expiry<String, Claims>() {
+                    // Jamais au-delà de l'expiration du jeton lui-même
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        long ttl = ttlMaxCache.toNanos();
+                        if (claims.getExpiration() != null) {
+                            long restant = Duration.ofMillis(claims.getExpiration().getTime() - System.currentTimeMillis()).toNanos();
+                            ttl = Math.min(ttl, Math.max(restant, 0));
+                        }
+                        return ttl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, claimsCache, "jwt.claims");
+        lectureCache = Timer.builder("trocencheres.jwt.verification")
+                .description("Lecture des claims d'un jeton")
+                .tag("cache", "succes")
+                .register(meterRegistry);
+        lectureSignature = Timer.builder("trocencheres.jwt.verification")
+                .description("Lecture des claims d'un jeton")
+                .tag("cache", "echec")
+                .register(meterRegistry);
+    }
 
     // Signature transmise pour la création du jeton.
     // Et chiffrer/déchiffrer les données du jeton
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private SecretKey getSignInKey() {
+        return signInKey;
     }
 
-    // Extraire « claims » du jeton
+    // Extraire « claims » du jeton : signature vérifiée une seule fois par jeton
     public Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith((SecretKey) getSignInKey()).build()
-                .parseSignedClaims(token).getPayload();
+        final long debut = System.nanoTime();
+        final String empreinte = empreinte(token);
+        Claims claims = claimsCache.getIfPresent(empreinte);
+        if (claims == null) {
+            claims = parser.parseSignedClaims(token).getPayload();
+            claimsCache.put(empreinte, claims);
+            lectureSignature.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        } else {
+            lectureCache.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+        }
+        return claims;
+    }
+
+    // Statistiques succès/échecs du cache des jetons vérifiés
+    public CacheStats getClaimsCacheStats() {
+        return claimsCache.stats();
+    }
+
+    public long getClaimsCacheSize() {
+        return claimsCache.estimatedSize();
     }
 
     // Extraire 1 « claims » du jeton
@@ -44,20 +165,19 @@ public class JwtService {
         return extractClaim(token, Claims::getSubject);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
     public String generateClientCredentialsToken(Map<String, Object> claims, String clientId) {
         JwtBuilder builder = Jwts.builder();
 
+        final long maintenant = System.currentTimeMillis();
         builder.subject(clientId)
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60)); // 1 heure
+                .id(UUID.randomUUID().toString())
+                .issuedAt(new Date(maintenant))
+                .expiration(new Date(maintenant + dureeAcces.toMillis()))
+                .claim(EMISSION_MS, maintenant);
 
         if (claims != null && !claims.isEmpty()) {
             builder.claims(claims);
@@ -66,26 +186,156 @@ public class JwtService {
         return builder.signWith(getSignInKey()).compact();
     }
 
+    /**
+     * Émission d'un jeton client credentials sans passer par le builder jjwt :
+     * claims écrits directement dans un tampon réutilisé, en-tête pré-sérialisé,
+     * signature HMAC avec la clé en cache. Le jeton produit est lu par le même
+     * parseur que les autres.
+     */
+    public String generateClientCredentialsToken(String clientId, String scope, String authority, Boolean isAdmin) {
+        final long emission = System.currentTimeMillis();
+        final long iat = emission / 1000;
+        final StringBuilder json = TAMPON.get();
+        json.setLength(0);
+        json.append("{\"sub\":");
+        ecrireChaine(json, clientId);
+        json.append(",\"jti\":\"").append(UUID.randomUUID()).append('"')
+                .append(",\"iat\":").append(iat)
+                .append(",\"exp\":").append(iat + dureeAcces.toSeconds())
+                .append(",\"" + EMISSION_MS + "\":").append(emission)
+                .append(",\"client_id\":");
+        ecrireChaine(json, clientId);
+        json.append(",\"scope\":");
+        ecrireChaine(json, scope);
+        json.append(",\"token_type\":\"client_credentials\",\"authority\":");
+        ecrireChaine(json, authority);
+        json.append(",\"isAdmin\":").append(isAdmin).append('}');
+        return signer(json);
+    }
+
+    /**
+     * Jeton de rafraîchissement : n'authentifie aucune requête, permet
+     * seulement d'obtenir un nouveau jeton d'accès sans le mot de passe.
+     */
+    public String generateRefreshToken(String clientId) {
+        final long emission = System.currentTimeMillis();
+        final long iat = emission / 1000;
+        final StringBuilder json = TAMPON.get();
+        json.setLength(0);
+        json.append("{\"sub\":");
+        ecrireChaine(json, clientId);
+        json.append(",\"jti\":\"").append(UUID.randomUUID()).append('"')
+                .append(",\"iat\":").append(iat)
+                .append(",\"exp\":").append(iat + dureeRefresh.toSeconds())
+                .append(",\"" + EMISSION_MS + "\":").append(emission)
+                .append(",\"token_type\":\"refresh\"}");
+        return signer(json);
+    }
+
+    /**
+     * Jeton d'ouverture d'un flux SSE : EventSource ne peut pas envoyer
+     * d'en-tête Authorization, le jeton passe donc dans l'URL. Durée de vie
+     * courte (il apparaît dans les journaux d'accès) et accepté seulement sur
+     * les flux des enchères.
+     */
+    public String generateStreamToken(String clientId, String authority) {
+        final long emission = System.currentTimeMillis();
+        final long iat = emission / 1000;
+        final StringBuilder json = TAMPON.get();
+        json.setLength(0);
+        json.append("{\"sub\":");
+        ecrireChaine(json, clientId);
+        json.append(",\"jti\":\"").append(UUID.randomUUID()).append('"')
+                .append(",\"iat\":").append(iat)
+                .append(",\"exp\":").append(iat + dureeFlux.toSeconds())
+                .append(",\"" + EMISSION_MS + "\":").append(emission)
+                .append(",\"client_id\":");
+        ecrireChaine(json, clientId);
+        json.append(",\"token_type\":\"flux\",\"authority\":");
+        ecrireChaine(json, authority);
+        json.append('}');
+        return signer(json);
+    }
+
+    public boolean isStreamTokenValid(Claims claims) {
+        return claims.getSubject() != null && claims.getId() != null && !isTokenExpired(claims)
+                && "flux".equals(claims.get("token_type"));
+    }
+
+    public int getDureeFluxS() {
+        return (int) dureeFlux.toSeconds();
+    }
+
+    public boolean isRefreshTokenValid(Claims claims) {
+        return claims.getSubject() != null && claims.getId() != null && !isTokenExpired(claims)
+                && "refresh".equals(claims.get("token_type"));
+    }
+
+    public int getDureeAccesS() {
+        return (int) dureeAcces.toSeconds();
+    }
+
+    // Claims JSON du tampon -> jeton signé (le tampon est réutilisé)
+    private String signer(StringBuilder json) {
+        final String payloadB64 = BASE64_URL.encodeToString(json.toString().getBytes(StandardCharsets.UTF_8));
+
+        json.setLength(0);
+        json.append(enteteB64).append('.').append(payloadB64);
+        final byte[] signature = macs.get().doFinal(json.toString().getBytes(StandardCharsets.US_ASCII));
+        return json.append('.').append(BASE64_URL.encodeToString(signature)).toString();
+    }
+
+    // Chaîne JSON échappée (ou null)
+    private static void ecrireChaine(StringBuilder json, String valeur) {
+        if (valeur == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < valeur.length(); i++) {
+            final char c = valeur.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                default -> {
+                    if (c < 0x20)
+                        json.append(String.format("\\u%04x", (int) c));
+                    else
+                        json.append(c);
+                }
+            }
+        }
+        json.append('"');
+    }
+
     // Vérifier si c'est un token OAuth2 Client Credentials
     public boolean isClientCredentialsToken(String token) {
         try {
-            Claims claims = extractAllClaims(token);
-            return "client_credentials".equals(claims.get("token_type"));
+            return isClientCredentialsToken(extractAllClaims(token));
         } catch (Exception e) {
             return false;
         }
     }
 
+    public boolean isClientCredentialsToken(Claims claims) {
+        return "client_credentials".equals(claims.get("token_type"));
+    }
+
     // Valider un token client credentials
     public boolean isClientCredentialsTokenValid(String token, String clientId) {
         try {
-            final String tokenClientId = extractUserName(token);
-            return (tokenClientId.equals(clientId) && !isTokenExpired(token) && isClientCredentialsToken(token));
+            final Claims claims = extractAllClaims(token);
+            return claims.getSubject().equals(clientId) && isClientCredentialsTokenValid(claims);
         } catch (Exception e) {
             return false;
         }
     }
 
+    // Valider des claims déjà vérifiés (signature contrôlée par extractAllClaims)
+    public boolean isClientCredentialsTokenValid(Claims claims) {
+        return claims.getSubject() != null && !isTokenExpired(claims) && isClientCredentialsToken(claims);
+    }
+
     // Extraire les scopes OAuth2
     public String extractScopes(String token) {
         try {
@@ -106,4 +356,13 @@ public class JwtService {
         }
     }
 
+    private static String empreinte(String token) {
+        try {
+            final MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
 }
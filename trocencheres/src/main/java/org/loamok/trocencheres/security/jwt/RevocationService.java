@@ -0,0 +1,193 @@
+package org.loamok.trocencheres.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.loamok.trocencheres.entity.JetonRevoque;
+import org.loamok.trocencheres.entity.JetonRevoque.TypeRevocation;
+import org.loamok.trocencheres.repository.JetonRevoqueRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Liste de révocation des jetons JWT, consultée à chaque requête. Les jti
+ * révoqués sont tenus dans un ensemble à expiration précédé d'un filtre de
+ * Bloom : un jeton non révoqué (cas courant) est écarté par le filtre sans
+ * toucher à l'ensemble. Les révocations sont persistées et rechargées au
+ * démarrage ; les entrées expirées sont purgées périodiquement.
+ *
+ * @author Huby Franck
+ */
+@Service
+public class RevocationService {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    @Value("${app.jwt.revocation.capacite:100000}")
+    private int capacite;
+    @Value("${app.jwt.revocation.purge:PT10M}")
+    private Duration periodePurge;
+    @Value("${app.jwt.refresh-ttl:P7D}")
+    private Duration dureeRefresh;
+
+    @Autowired
+    private JetonRevoqueRepository jrR;
+
+    // jti -> expiration (epoch s)
+    private final ConcurrentMap<String, Long> jetons = new ConcurrentHashMap<>();
+    // pseudo -> date de révocation (epoch ms) : jetons émis jusqu'à cet instant refusés
+    private final ConcurrentMap<String, Long> utilisateurs = new ConcurrentHashMap<>();
+    private volatile FiltreBloom filtre;
+    // Sérialise les écritures (révocations et purge) ; verrou plutôt que
+    // synchronized, les sections écrivent en base
+    private final ReentrantLock verrou = new ReentrantLock();
+    private ScheduledExecutorService purge;
+
+    @PostConstruct
+    void init() {
+        filtre = new FiltreBloom(capacite, 0.01);
+        for (JetonRevoque j : jrR.findByExpirationAfter(LocalDateTime.now()))
+            if (j.getType() == TypeRevocation.JETON)
+                ajouterJeton(j.getCle(), epoch(j.getExpiration()));
+            else
+                utilisateurs.put(j.getCle(), epochMs(j.getDateRevocation()));
+
+        purge = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "revocation-purge");
+            t.setDaemon(true);
+            return t;
+        });
+        purge.scheduleWithFixedDelay(this::purger, periodePurge.toSeconds(), periodePurge.toSeconds(), TimeUnit.SECONDS);
+        logger.info(jetons.size() + " jetons et " + utilisateurs.size() + " utilisateurs révoqués");
+    }
+
+    @PreDestroy
+    void arreter() {
+        purge.shutdownNow();
+    }
+
+    /**
+     * Jeton révoqué (par son jti ou par révocation de son utilisateur).
+     */
+    public boolean estRevoque(Claims claims) {
+        final String jti = claims.getId();
+        if (jti != null && filtre.peutContenir(jti) && jetons.containsKey(jti))
+            return true;
+
+        if (!utilisateurs.isEmpty() && claims.getSubject() != null) {
+            final Long revocation = utilisateurs.get(claims.getSubject());
+            if (revocation == null)
+                return false;
+            final Long emission = emissionMs(claims);
+            return emission != null && emission <= revocation;
+        }
+        return false;
+    }
+
+    // Instant d'émission à la milliseconde ; un jeton sans iat_ms est daté du
+    // début de sa seconde (refusé s'il a été émis dans la seconde de la révocation)
+    private static Long emissionMs(Claims claims) {
+        if (claims.get(JwtService.EMISSION_MS) instanceof Number emission)
+            return emission.longValue();
+        return claims.getIssuedAt() == null ? null : claims.getIssuedAt().getTime() / 1000 * 1000;
+    }
+
+    /**
+     * Révoque un jeton jusqu'à son expiration.
+     *
+     * @return false si le jeton était déjà révoqué
+     */
+    public boolean revoquer(String jti, Instant expiration) {
+        if (jti == null || expiration == null || !expiration.isAfter(Instant.now()))
+            return false;
+
+        verrou.lock();
+        try {
+            if (jetons.containsKey(jti))
+                return false;
+
+            ajouterJeton(jti, expiration.getEpochSecond());
+            jrR.save(JetonRevoque.builder()
+                    .cle(jti)
+                    .type(TypeRevocation.JETON)
+                    .dateRevocation(LocalDateTime.now())
+                    .expiration(LocalDateTime.ofInstant(expiration, ZoneId.systemDefault()))
+                    .build());
+            return true;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Révoque tous les jetons déjà émis pour un utilisateur.
+     */
+    public void revoquerUtilisateur(String pseudo) {
+        verrou.lock();
+        try {
+            final LocalDateTime maintenant = LocalDateTime.now();
+            utilisateurs.put(pseudo, epochMs(maintenant));
+            // Au-delà, tout jeton émis avant la révocation a expiré de lui-même
+            jrR.save(JetonRevoque.builder()
+                    .cle(pseudo)
+                    .type(TypeRevocation.UTILISATEUR)
+                    .dateRevocation(maintenant)
+                    .expiration(maintenant.plus(dureeRefresh))
+                    .build());
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    public int getNombreRevocations() {
+        return jetons.size() + utilisateurs.size();
+    }
+
+    private void ajouterJeton(String jti, long expiration) {
+        jetons.put(jti, expiration);
+        filtre.ajouter(jti);
+    }
+
+    void purger() {
+        verrou.lock();
+        try {
+            final long maintenant = Instant.now().getEpochSecond();
+            final long limiteUtilisateurs = (maintenant - dureeRefresh.toSeconds()) * 1000;
+            final boolean jetonsExpires = jetons.values().removeIf(expiration -> expiration <= maintenant);
+            utilisateurs.values().removeIf(revocation -> revocation <= limiteUtilisateurs);
+
+            // Pas de suppression dans un filtre de Bloom : reconstruction
+            if (jetonsExpires) {
+                final FiltreBloom nouveau = new FiltreBloom(capacite, 0.01);
+                jetons.keySet().forEach(nouveau::ajouter);
+                filtre = nouveau;
+            }
+            jrR.supprimerExpires(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            logger.error("Purge des révocations impossible", e);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private static long epoch(LocalDateTime date) {
+        return date.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static long epochMs(LocalDateTime date) {
+        return date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
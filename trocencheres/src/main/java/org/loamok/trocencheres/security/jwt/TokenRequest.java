@@ -12,15 +12,16 @@ import lombok.Data;
 @Data
 public class TokenRequest {
     
-    @Schema(description = "Type de grant", example = "client_credentials", requiredMode = Schema.RequiredMode.REQUIRED)
+    @Schema(description = "Type de grant : client_credentials ou refresh_token", example = "client_credentials", requiredMode = Schema.RequiredMode.REQUIRED)
     @NotBlank
     private String grant_type;
     @Schema(description = "Identifiant du client", example = "my-client-id", requiredMode = Schema.RequiredMode.REQUIRED)
     @NotBlank
     private String client_id;
-    @Schema(description = "Secret du client", example = "my-client-secret", requiredMode = Schema.RequiredMode.REQUIRED)
-    @NotBlank
+    @Schema(description = "Secret du client (grant client_credentials)", example = "my-client-secret")
     private String client_secret;
+    @Schema(description = "Jeton de rafraîchissement (grant refresh_token)")
+    private String refresh_token;
     @Schema(description = "Portée demandée", example = "access")
     private String scope;
     
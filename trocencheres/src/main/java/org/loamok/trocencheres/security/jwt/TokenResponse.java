@@ -19,5 +19,7 @@ public class TokenResponse {
     private Long expires_in;
     @Schema(description = "Portée du token", example = "read write")
     private String scope;
+    @Schema(description = "Jeton de rafraîchissement, à usage unique")
+    private String refresh_token;
     
 }
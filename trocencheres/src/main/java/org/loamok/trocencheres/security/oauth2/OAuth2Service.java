@@ -1,13 +1,17 @@
 package org.loamok.trocencheres.security.oauth2;
 
-import java.util.HashMap;
-import java.util.Map;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.util.Optional;
 import lombok.AllArgsConstructor;
-import org.loamok.trocencheres.entity.Utilisateur;
 import org.loamok.trocencheres.repository.UtilisateurRepository;
+import org.loamok.trocencheres.security.jwt.CompteAuthentifie;
+import org.loamok.trocencheres.security.jwt.CompteCache;
 import org.loamok.trocencheres.security.jwt.JwtService;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.loamok.trocencheres.security.jwt.RevocationService;
+import org.loamok.trocencheres.security.password.PasswordHashService;
 import org.springframework.stereotype.Service;
 
 /**
@@ -18,33 +22,108 @@ import org.springframework.stereotype.Service;
 @AllArgsConstructor
 public class OAuth2Service {
     private UtilisateurRepository uR;
-    private PasswordEncoder pE;
+    private CompteCache compteCache;
+    private PasswordHashService passwordHashService;
     private JwtService jwtService;
+    private RevocationService revocationService;
+    private MeterRegistry meterRegistry;
     
     public Optional<OAuth2TokenResponse> generateClientCredentialsToken(String clientId, String clientSecret, String requestedScopes) {
+        final Timer.Sample chrono = Timer.start(meterRegistry);
+        Optional<OAuth2TokenResponse> reponse = Optional.empty();
+        try {
+            reponse = verifierEtEmettre(clientId, clientSecret);
+            return reponse;
+        } finally {
+            // Hachage saturé compris dans les échecs
+            chrono.stop(minuteur("client_credentials", reponse));
+        }
+    }
+    
+    private Optional<OAuth2TokenResponse> verifierEtEmettre(String clientId, String clientSecret) {
         // Utiliser les utilisateurs existants comme "clients" OAuth2
-        Utilisateur user = uR.findByPseudo(clientId);
+        CompteAuthentifie user = compteCache.get(clientId);
         if (user == null)
             return Optional.empty();
         
-        // Vérifier le password
-        if (!pE.matches(clientSecret, user.getPassword()))
+        // Vérifier le password (pool de hachage borné, HachageSatureException si plein)
+        final String hache = user.password();
+        if (!passwordHashService.verifier(clientSecret, hache))
+            return Optional.empty();
+        
+        // Hachage d'un coût dépassé : remplacé en tâche de fond
+        if (passwordHashService.doitRehacher(hache))
+            passwordHashService.rehacherPlusTard(clientSecret, nouveau -> {
+                uR.remplacerMotDePasse(clientId, hache, nouveau);
+                compteCache.evincer(clientId);
+            });
+        
+        return Optional.of(emettre(user));
+    }
+    
+    /**
+     * Grant refresh_token : nouveau jeton d'accès sans vérification du mot de
+     * passe. Le jeton de rafraîchissement est à usage unique (révoqué et
+     * remplacé), et l'utilisateur est relu pour prendre en compte son rôle courant.
+     */
+    public Optional<OAuth2TokenResponse> refreshToken(String clientId, String refreshToken) {
+        final Timer.Sample chrono = Timer.start(meterRegistry);
+        final Optional<OAuth2TokenResponse> reponse = renouveler(clientId, refreshToken);
+        chrono.stop(minuteur("refresh_token", reponse));
+        return reponse;
+    }
+    
+    private Optional<OAuth2TokenResponse> renouveler(String clientId, String refreshToken) {
+        final Claims claims;
+        try {
+            claims = jwtService.extractAllClaims(refreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        
+        if (!jwtService.isRefreshTokenValid(claims) || !claims.getSubject().equals(clientId) || revocationService.estRevoque(claims))
             return Optional.empty();
         
+        CompteAuthentifie user = compteCache.get(clientId);
+        if (user == null)
+            return Optional.empty();
+        
+        // Un seul des appels concurrents avec le même jeton l'emporte
+        if (!revocationService.revoquer(claims.getId(), claims.getExpiration().toInstant()))
+            return Optional.empty();
+        
+        return Optional.of(emettre(user));
+    }
+    
+    /**
+     * Révocation d'un jeton (accès ou rafraîchissement) jusqu'à son expiration.
+     */
+    public void revoquer(String token) {
+        try {
+            final Claims claims = jwtService.extractAllClaims(token);
+            revocationService.revoquer(claims.getId(), claims.getExpiration().toInstant());
+        } catch (JwtException | IllegalArgumentException e) {
+            // Jeton invalide ou expiré : rien à révoquer
+        }
+    }
+    
+    // Durée d'émission d'un jeton, par grant et issue
+    private Timer minuteur(String grant, Optional<OAuth2TokenResponse> reponse) {
+        return Timer.builder("trocencheres.jetons.emission")
+                .description("Demande de jeton OAuth2")
+                .tag("grant", grant)
+                .tag("resultat", reponse.isPresent() ? "succes" : "echec")
+                .register(meterRegistry);
+    }
+    
+    private OAuth2TokenResponse emettre(CompteAuthentifie user) {
         // Scope unique "access" pour tous les utilisateurs authentifiés
         String scope = "access";
         
-        // Créer les claims pour le token OAuth2
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("client_id", clientId);
-        claims.put("scope", scope);
-        claims.put("token_type", "client_credentials");
-        claims.put("authority", user.getAuthority()); // Le rôle de l'utilisateur
-        claims.put("isAdmin", user.getRole().getIsAdmin()); // Optionnel pour des vérifications rapides
-        
-        // Générer le token
-        String token = jwtService.generateClientCredentialsToken(claims, clientId);
+        // Générer le token : claims client_id, scope, token_type, authority
+        // (rôle de l'utilisateur) et isAdmin écrits directement par le JwtService
+        String token = jwtService.generateClientCredentialsToken(user.pseudo(), scope, user.authority(), user.isAdmin());
         
-        return Optional.of(new OAuth2TokenResponse(token, "Bearer", 3600, scope));
+        return new OAuth2TokenResponse(token, "Bearer", jwtService.getDureeAccesS(), scope, jwtService.generateRefreshToken(user.pseudo()));
     }
 }
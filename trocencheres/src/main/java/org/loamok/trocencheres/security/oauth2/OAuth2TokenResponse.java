@@ -1,26 +1,18 @@
 package org.loamok.trocencheres.security.oauth2;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
 
 /**
+ * Réponse OAuth2 standard, sérialisée telle quelle par le contrôleur.
  *
  * @author Huby Franck
  */
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
-public class OAuth2TokenResponse {
-    @JsonProperty("access_token")
-    private String accessToken;
-    
-    @JsonProperty("token_type")
-    private String tokenType;
-    
-    @JsonProperty("expires_in")
-    private Integer expiresIn;
-    
-    private String scope;
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OAuth2TokenResponse(
+        @JsonProperty("access_token") String accessToken,
+        @JsonProperty("token_type") String tokenType,
+        @JsonProperty("expires_in") Integer expiresIn,
+        String scope,
+        @JsonProperty("refresh_token") String refreshToken) {
 }
@@ -0,0 +1,18 @@
+package org.loamok.trocencheres.security.password;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Le pool de hachage des mots de passe est saturé : la requête est refusée
+ * immédiatement plutôt que d'attendre derrière les autres.
+ *
+ * @author Huby Franck
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class HachageSatureException extends RuntimeException {
+
+    public HachageSatureException(String message) {
+        super(message);
+    }
+}
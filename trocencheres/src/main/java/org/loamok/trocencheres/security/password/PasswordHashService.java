@@ -0,0 +1,222 @@
+package org.loamok.trocencheres.security.password;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+/**
+ * Hachage et vérification des mots de passe hors des threads de requête.
+ * BCrypt tourne dans un pool borné (threads et file d'attente) : au-delà,
+ * la demande est refusée immédiatement ({@link HachageSatureException}) au
+ * lieu d'immobiliser le pool Tomcat. Le coût BCrypt est calibré au démarrage
+ * pour qu'un hachage tienne dans la latence cible.
+ *
+ * @author Huby Franck
+ */
+@Service
+public class PasswordHashService {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private static final String ID_BCRYPT = "bcrypt";
+
+    @Value("${app.password.threads:0}")
+    private int threads;
+    @Value("${app.password.file:100}")
+    private int capaciteFile;
+    @Value("${app.password.attente-max:PT2S}")
+    private Duration attenteMax;
+    // Coût imposé : 0 pour calibrer au démarrage
+    @Value("${app.password.bcrypt.cout:0}")
+    private int coutImpose;
+    @Value("${app.password.bcrypt.cout-min:10}")
+    private int coutMin;
+    @Value("${app.password.bcrypt.cout-max:16}")
+    private int coutMax;
+    @Value("${app.password.bcrypt.cible:PT0.2S}")
+    private Duration cible;
+
+    private ThreadPoolExecutor pool;
+    private PasswordEncoder encoder;
+    private int cout;
+
+    @PostConstruct
+    void init() {
+        final int nbThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        final AtomicInteger compteur = new AtomicInteger();
+        pool = new ThreadPoolExecutor(nbThreads, nbThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capaciteFile), r -> {
+                    final Thread t = new Thread(r, "hachage-mdp-" + compteur.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        cout = coutImpose > 0 ? coutImpose : calibrer();
+
+        // Mêmes identifiants que PasswordEncoderFactories, bcrypt au coût calibré
+        final DelegatingPasswordEncoder defaut = (DelegatingPasswordEncoder) PasswordEncoderFactories.createDelegatingPasswordEncoder();
+        final Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(ID_BCRYPT, new BCryptPasswordEncoder(cout));
+        final DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(ID_BCRYPT, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(defaut);
+        encoder = delegating;
+
+        logger.info("Hachage des mots de passe : BCrypt coût " + cout + ", " + nbThreads + " threads, file de " + capaciteFile);
+    }
+
+    @PreDestroy
+    void arreter() {
+        pool.shutdownNow();
+    }
+
+    // Plus grand coût dont le hachage reste sous la cible ; chaque +1 double la durée
+    private int calibrer() {
+        final BCryptPasswordEncoder essai = new BCryptPasswordEncoder(coutMin);
+        long meilleur = Long.MAX_VALUE;
+        // Deux mesures : la première inclut le préchauffage
+        for (int i = 0; i < 2; i++) {
+            final long debut = System.nanoTime();
+            essai.encode("calibrage");
+            meilleur = Math.min(meilleur, System.nanoTime() - debut);
+        }
+
+        int calibre = coutMin;
+        long duree = meilleur;
+        while (calibre < coutMax && duree * 2 <= cible.toNanos()) {
+            calibre++;
+            duree *= 2;
+        }
+        logger.info("BCrypt coût " + coutMin + " : " + TimeUnit.NANOSECONDS.toMillis(meilleur) + " ms, coût retenu " + calibre);
+        return calibre;
+    }
+
+    public PasswordEncoder getEncoder() {
+        return encoder;
+    }
+
+    public int getCout() {
+        return cout;
+    }
+
+    /**
+     * Hache un mot de passe en clair, préfixe {bcrypt} compris.
+     */
+    public String hacher(String motDePasse) {
+        return executer(() -> encoder.encode(motDePasse));
+    }
+
+    /**
+     * Hache une série de mots de passe en parallèle sur le pool, dans l'ordre
+     * reçu. Au plus une demande par thread du pool à la fois : la file reste
+     * disponible pour les connexions pendant une inscription en masse.
+     */
+    public List<String> hacherTous(List<String> motsDePasse) {
+        final Semaphore enCours = new Semaphore(pool.getMaximumPoolSize());
+        final List<Future<String>> futures = new ArrayList<>(motsDePasse.size());
+        try {
+            for (String motDePasse : motsDePasse) {
+                enCours.acquire();
+                try {
+                    futures.add(pool.submit(() -> {
+                        try {
+                            return encoder.encode(motDePasse);
+                        } finally {
+                            enCours.release();
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    enCours.release();
+                    throw new HachageSatureException("Trop de demandes d'authentification, réessayez plus tard");
+                }
+            }
+
+            final List<String> haches = new ArrayList<>(futures.size());
+            for (Future<String> future : futures)
+                haches.add(future.get());
+            return haches;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HachageSatureException("Hachage interrompu");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re)
+                throw re;
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // Sans effet sur les hachages terminés
+            futures.forEach(f -> f.cancel(true));
+        }
+    }
+
+    public boolean verifier(String motDePasse, String hache) {
+        return executer(() -> encoder.matches(motDePasse, hache));
+    }
+
+    // Hachage stocké avec un coût inférieur au coût courant
+    public boolean doitRehacher(String hache) {
+        return hache != null && encoder.upgradeEncoding(hache);
+    }
+
+    /**
+     * Rehache en tâche de fond, sans attendre ; abandonné si le pool est plein.
+     */
+    public void rehacherPlusTard(String motDePasse, Consumer<String> enregistrer) {
+        try {
+            pool.execute(() -> {
+                try {
+                    enregistrer.accept(encoder.encode(motDePasse));
+                } catch (RuntimeException e) {
+                    logger.warn("Rehachage du mot de passe impossible", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Sera refait à la prochaine connexion
+        }
+    }
+
+    private <T> T executer(Callable<T> tache) {
+        final Future<T> future;
+        try {
+            future = pool.submit(tache);
+        } catch (RejectedExecutionException e) {
+            throw new HachageSatureException("Trop de demandes d'authentification, réessayez plus tard");
+        }
+
+        try {
+            return future.get(attenteMax.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new HachageSatureException("Délai de hachage dépassé, réessayez plus tard");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HachageSatureException("Hachage interrompu");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re)
+                throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.loamok.trocencheres.stream;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Abonné au flux : une connexion SSE et sa file d'envoi bornée. Un seul
+ * envoi à la fois par abonné ; si la file déborde, le client est trop lent
+ * et il est évincé plutôt que de retenir la mémoire du serveur.
+ *
+ * @author Huby Franck
+ */
+class Abonne {
+
+    private final String sujet;
+    private final SseEmitter emitter;
+    private final BlockingQueue<String> file;
+    private final AtomicBoolean envoiEnCours = new AtomicBoolean();
+    private final AtomicBoolean retire = new AtomicBoolean();
+    private volatile boolean ferme;
+
+    Abonne(String sujet, SseEmitter emitter, int capacite) {
+        this.sujet = sujet;
+        this.emitter = emitter;
+        this.file = new ArrayBlockingQueue<>(capacite);
+    }
+
+    String getSujet() {
+        return sujet;
+    }
+
+    // true au premier retrait seulement : fin, expiration et éviction se recouvrent
+    boolean marquerRetire() {
+        return retire.compareAndSet(false, true);
+    }
+
+    boolean isFerme() {
+        return ferme;
+    }
+
+    // false si la file est pleine : l'abonné doit être évincé
+    boolean empiler(String message) {
+        return !ferme && file.offer(message);
+    }
+
+    // true si l'appelant a obtenu le droit de vider la file
+    boolean reserverEnvoi() {
+        return !file.isEmpty() && envoiEnCours.compareAndSet(false, true);
+    }
+
+    void libererEnvoi() {
+        envoiEnCours.set(false);
+    }
+
+    boolean aDesMessages() {
+        return !file.isEmpty();
+    }
+
+    void vider() throws IOException {
+        String message;
+        while ((message = file.poll()) != null)
+            emitter.send(SseEmitter.event().name("enchere").data(message, MediaType.APPLICATION_JSON));
+    }
+
+    void battement() throws IOException {
+        emitter.send(SseEmitter.event().comment("ping"));
+    }
+
+    void fermer() {
+        if (ferme)
+            return;
+
+        ferme = true;
+        file.clear();
+        emitter.complete();
+    }
+}
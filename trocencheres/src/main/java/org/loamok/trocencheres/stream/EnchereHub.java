@@ -0,0 +1,192 @@
+package org.loamok.trocencheres.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Concentrateur de diffusion des enchères. Le chemin d'enchère publie une
+ * notification, sérialisée une seule fois, qui est empilée dans la file
+ * bornée de chaque abonné de l'article et de sa catégorie ; un petit pool de
+ * threads vide les files vers les connexions SSE. Un abonné dont la file
+ * déborde est évincé : un client lent ne ralentit ni les enchères ni les
+ * autres clients. Le nombre total d'abonnés est borné, au-delà la connexion
+ * est refusée ({@link FluxSatureException}).
+ *
+ * @author Huby Franck
+ */
+@Component
+public class EnchereHub {
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.encheres.flux.timeout-ms:1800000}")
+    private long timeoutMs;
+    @Value("${app.encheres.flux.capacite:64}")
+    private int capacite;
+    @Value("${app.encheres.flux.threads:4}")
+    private int threads;
+    @Value("${app.encheres.flux.battement-s:15}")
+    private long battementS;
+    // Connexions SSE ouvertes, tous sujets confondus
+    @Value("${app.encheres.flux.abonnes-max:10000}")
+    private int abonnesMax;
+
+    private final ConcurrentMap<String, Set<Abonne>> abonnes = new ConcurrentHashMap<>();
+    private final AtomicInteger nbAbonnes = new AtomicInteger();
+    private ExecutorService envois;
+    private ScheduledExecutorService battements;
+
+    @PostConstruct
+    void demarrer() {
+        envois = Executors.newFixedThreadPool(threads, fabrique("enchere-flux-"));
+        battements = Executors.newSingleThreadScheduledExecutor(fabrique("enchere-flux-battement-"));
+        // Détecte les connexions mortes qui ne reçoivent rien
+        battements.scheduleAtFixedRate(this::battre, battementS, battementS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void arreter() {
+        battements.shutdownNow();
+        envois.shutdownNow();
+        abonnes.values().forEach(s -> s.forEach(Abonne::fermer));
+        abonnes.clear();
+    }
+
+    public static String sujetArticle(Integer noArticle) {
+        return "article:" + noArticle;
+    }
+
+    public static String sujetCategorie(Integer noCategorie) {
+        return "categorie:" + noCategorie;
+    }
+
+    public int getNbAbonnes() {
+        return nbAbonnes.get();
+    }
+
+    public SseEmitter abonner(String sujet) {
+        if (nbAbonnes.incrementAndGet() > abonnesMax) {
+            nbAbonnes.decrementAndGet();
+            throw new FluxSatureException("Trop d'abonnés au flux des enchères, réessayez plus tard");
+        }
+
+        final SseEmitter emitter = new SseEmitter(timeoutMs);
+        final Abonne abonne = new Abonne(sujet, emitter, capacite);
+
+        emitter.onCompletion(() -> retirer(abonne));
+        emitter.onTimeout(() -> evincer(abonne));
+        emitter.onError(e -> evincer(abonne));
+        abonnes.computeIfAbsent(sujet, k -> ConcurrentHashMap.newKeySet()).add(abonne);
+
+        return emitter;
+    }
+
+    public void publier(EnchereNotification notification) {
+        final String message;
+        try {
+            message = objectMapper.writeValueAsString(notification);
+        } catch (JsonProcessingException e) {
+            logger.error("Notification d'enchère non sérialisable : " + notification, e);
+            return;
+        }
+
+        diffuser(sujetArticle(notification.noArticle()), message);
+        if (notification.noCategorie() != null)
+            diffuser(sujetCategorie(notification.noCategorie()), message);
+    }
+
+    private void diffuser(String sujet, String message) {
+        final Set<Abonne> cibles = abonnes.get(sujet);
+        if (cibles == null)
+            return;
+
+        for (Abonne a : cibles) {
+            if (a.empiler(message))
+                planifier(a);
+            else
+                evincer(a);
+        }
+    }
+
+    private void planifier(Abonne a) {
+        if (!a.reserverEnvoi())
+            return;
+
+        try {
+            envois.execute(() -> envoyer(a));
+        } catch (RejectedExecutionException e) {
+            a.libererEnvoi();
+        }
+    }
+
+    private void envoyer(Abonne a) {
+        try {
+            a.vider();
+        } catch (IOException | IllegalStateException e) {
+            evincer(a);
+        } finally {
+            a.libererEnvoi();
+        }
+        // Messages arrivés pendant l'envoi
+        if (a.aDesMessages() && !a.isFerme())
+            planifier(a);
+    }
+
+    private void battre() {
+        for (Set<Abonne> s : abonnes.values())
+            for (Abonne a : s) {
+                try {
+                    a.battement();
+                } catch (IOException | IllegalStateException e) {
+                    evincer(a);
+                }
+            }
+    }
+
+    private void evincer(Abonne a) {
+        retirer(a);
+        a.fermer();
+    }
+
+    private void retirer(Abonne a) {
+        if (!a.marquerRetire())
+            return;
+
+        nbAbonnes.decrementAndGet();
+        abonnes.computeIfPresent(a.getSujet(), (k, s) -> {
+            s.remove(a);
+            return s.isEmpty() ? null : s;
+        });
+    }
+
+    private static ThreadFactory fabrique(String prefixe) {
+        final AtomicInteger compteur = new AtomicInteger();
+        return r -> {
+            final Thread t = new Thread(r, prefixe + compteur.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
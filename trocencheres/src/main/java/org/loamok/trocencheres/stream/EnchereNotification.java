@@ -0,0 +1,15 @@
+package org.loamok.trocencheres.stream;
+
+import java.time.LocalDateTime;
+
+/**
+ * Message poussé aux abonnés du flux des enchères.
+ *
+ * @author Huby Franck
+ */
+public record EnchereNotification(String type, Integer noArticle, Integer noCategorie,
+        Integer montant, String pseudo, LocalDateTime date) {
+    
+    public static final String OFFRE = "offre";
+    public static final String CLOTURE = "cloture";
+}
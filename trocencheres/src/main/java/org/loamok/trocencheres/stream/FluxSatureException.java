@@ -0,0 +1,18 @@
+package org.loamok.trocencheres.stream;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Le nombre maximal d'abonnés au flux des enchères est atteint : la
+ * connexion est refusée plutôt que d'épuiser les threads et la mémoire.
+ *
+ * @author Huby Franck
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class FluxSatureException extends RuntimeException {
+
+    public FluxSatureException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package org.loamok.trocencheres.web;
+
+import io.swagger.v3.oas.annotations.Operation;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import org.loamok.trocencheres.manager.ArticleService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ *
+ * @author Huby Franck
+ */
+@RestController
+@RequestMapping("/admin/articles")
+@AllArgsConstructor
+public class ArticleAdminController {
+    
+    private ArticleService articleManager;
+    
+    @Operation(summary = "Vérifier et recalculer le prix courant, le nombre d'enchères et le meneur de chaque article")
+    @PostMapping("/encheres/recalcul")
+    public ResponseEntity<Map<String, Object>> recalculerEncheres() {
+        return ResponseEntity.ok(Map.of("corriges", articleManager.recalculerEncheres()));
+    }
+}
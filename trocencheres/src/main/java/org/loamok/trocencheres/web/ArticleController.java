@@ -0,0 +1,72 @@
+package org.loamok.trocencheres.web;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import org.loamok.trocencheres.manager.ArticleService;
+import org.loamok.trocencheres.manager.ParametreRechercheException;
+import org.loamok.trocencheres.projection.ArticleDetail;
+import org.loamok.trocencheres.projection.CritereRechercheArticle;
+import org.loamok.trocencheres.projection.EnchereHistorique;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ *
+ * @author Huby Franck
+ */
+@RestController
+@RequestMapping("/articlesAVendres")
+@AllArgsConstructor
+public class ArticleController {
+    
+    private ArticleService articleManager;
+    
+    @Operation(summary = "Recherche d'articles, triés par fin d'enchère la plus proche (pagination par curseur)")
+    @GetMapping("/recherche")
+    public ResponseEntity<?> rechercher(@ModelAttribute CritereRechercheArticle critere,
+            @Parameter(description = "Curseur renvoyé par la page précédente") @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de page (max 100)") @RequestParam(required = false) Integer taille) {
+        try {
+            return ResponseEntity.ok(articleManager.rechercher(critere, curseur, taille));
+        } catch (ParametreRechercheException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+    
+    @Operation(summary = "Articles à proximité d'un code postal ou d'une position, triés par fin d'enchère la plus proche (pagination par curseur)")
+    @GetMapping("/proximite")
+    public ResponseEntity<?> proximite(
+            @Parameter(description = "Code postal du point de recherche", example = "44000") @RequestParam(required = false) String codePostal,
+            @Parameter(description = "Latitude du point de recherche (avec longitude, prioritaire sur le code postal)") @RequestParam(required = false) Double latitude,
+            @Parameter(description = "Longitude du point de recherche") @RequestParam(required = false) Double longitude,
+            @Parameter(description = "Rayon en kilomètres (max 200)") @RequestParam(defaultValue = "20") double rayon,
+            @Parameter(description = "Curseur renvoyé par la page précédente") @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de page (max 100)") @RequestParam(required = false) Integer taille) {
+        try {
+            return ResponseEntity.ok(articleManager.rechercherProches(codePostal, latitude, longitude, rayon, curseur, taille));
+        } catch (ParametreRechercheException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+    
+    @Operation(summary = "Détail d'un article (vendeur, retrait, meilleure offre)")
+    @GetMapping("/{noArticle}/detail")
+    public ResponseEntity<ArticleDetail> detail(@PathVariable Integer noArticle) {
+        return ResponseEntity.of(articleManager.detail(noArticle));
+    }
+    
+    @Operation(summary = "Historique des enchères d'un article, de la plus haute à la plus basse")
+    @GetMapping("/{noArticle}/historique")
+    public ResponseEntity<List<EnchereHistorique>> historique(@PathVariable Integer noArticle) {
+        return ResponseEntity.ok(articleManager.historique(noArticle));
+    }
+    
+}
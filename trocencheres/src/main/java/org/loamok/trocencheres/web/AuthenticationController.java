@@ -8,13 +8,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
 import org.loamok.trocencheres.security.oauth2.OAuth2TokenResponse;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import lombok.AllArgsConstructor;
 import org.loamok.trocencheres.security.jwt.TokenRequest;
 import org.loamok.trocencheres.security.jwt.TokenResponse;
 import org.loamok.trocencheres.security.oauth2.OAuth2Service;
+import org.loamok.trocencheres.security.password.HachageSatureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -22,6 +23,7 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -63,12 +65,16 @@ public class AuthenticationController {
         @ApiResponse(
                 responseCode = "401",
                 description = "Client ID ou secret invalide"
+        ),
+        @ApiResponse(
+                responseCode = "503",
+                description = "Trop de demandes d'authentification simultanées"
         )
     })
     @PostMapping(value = "/token",
             consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Map<String, Object>> oauth2Token(
+    public ResponseEntity<?> oauth2Token(
             @Parameter(description = "Données d'authentification OAuth2", required = true)
             @Valid TokenRequest tokenRequest) {
         String grantType = tokenRequest.getGrant_type();
@@ -76,11 +82,15 @@ public class AuthenticationController {
         String clientSecret = tokenRequest.getClient_secret();
         String scope = tokenRequest.getScope();
 
+        // Renouvellement sans mot de passe
+        if ("refresh_token".equals(grantType))
+            return refresh(clientId, tokenRequest.getRefresh_token());
+
         // Validation du grant type
         if (!"client_credentials".equals(grantType)) {
             return ResponseEntity.badRequest().body(Map.of(
                     "error", "unsupported_grant_type",
-                    "error_description", "Grant type must be client_credentials"
+                    "error_description", "Grant type must be client_credentials or refresh_token"
             ));
         }
 
@@ -93,7 +103,15 @@ public class AuthenticationController {
         }
 
         // Générer le token
-        Optional<OAuth2TokenResponse> tokenOpt = oauth2Service.generateClientCredentialsToken(clientId, clientSecret, scope);
+        Optional<OAuth2TokenResponse> tokenOpt;
+        try {
+            tokenOpt = oauth2Service.generateClientCredentialsToken(clientId, clientSecret, scope);
+        } catch (HachageSatureException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(Map.of(
+                    "error", "temporarily_unavailable",
+                    "error_description", e.getMessage()
+            ));
+        }
 
         if (tokenOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of(
@@ -103,15 +121,35 @@ public class AuthenticationController {
         }
 
         // Réponse OAuth2 standard
-        OAuth2TokenResponse tokenResponse = tokenOpt.get();
-        Map<String, Object> response = new HashMap<>();
-        response.put("access_token", tokenResponse.getAccessToken());
-        response.put("token_type", tokenResponse.getTokenType());
-        response.put("expires_in", tokenResponse.getExpiresIn());
-        if (tokenResponse.getScope() != null) {
-            response.put("scope", tokenResponse.getScope());
+        return ResponseEntity.ok(tokenOpt.get());
+    }
+
+    private ResponseEntity<?> refresh(String clientId, String refreshToken) {
+        if (clientId == null || refreshToken == null) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "invalid_request",
+                    "error_description", "client_id and refresh_token are required"
+            ));
         }
 
-        return ResponseEntity.ok(response);
+        Optional<OAuth2TokenResponse> tokenOpt = oauth2Service.refreshToken(clientId, refreshToken);
+        if (tokenOpt.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "invalid_grant",
+                    "error_description", "Refresh token is invalid, expired or already used"
+            ));
+        }
+
+        return ResponseEntity.ok(tokenOpt.get());
+    }
+
+    @Operation(
+            summary = "Révoquer un jeton (déconnexion)",
+            description = "Révoque un jeton d'accès ou de rafraîchissement jusqu'à son expiration ; répond 200 même si le jeton est invalide"
+    )
+    @PostMapping(value = "/revoke", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public ResponseEntity<Void> revoke(@RequestParam("token") String token) {
+        oauth2Service.revoquer(token);
+        return ResponseEntity.ok().build();
     }
 }
@@ -0,0 +1,46 @@
+package org.loamok.trocencheres.web;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.swagger.v3.oas.annotations.Operation;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import org.loamok.trocencheres.security.jwt.CompteCache;
+import org.loamok.trocencheres.security.jwt.JwtService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ *
+ * @author Huby Franck
+ */
+@RestController
+@RequestMapping("/admin/caches")
+@AllArgsConstructor
+public class CacheAdminController {
+    
+    private JwtService jwtService;
+    private CompteCache compteCache;
+    
+    @Operation(summary = "Statistiques des caches mémoire")
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> caches() {
+        final Map<String, Object> caches = new LinkedHashMap<>();
+        caches.put("jwtClaims", stats(jwtService.getClaimsCacheStats(), jwtService.getClaimsCacheSize()));
+        caches.put("comptes", stats(compteCache.getStats(), compteCache.getTaille()));
+        
+        return ResponseEntity.ok(caches);
+    }
+    
+    private static Map<String, Object> stats(CacheStats stats, long taille) {
+        return Map.of(
+                "taille", taille,
+                "succes", stats.hitCount(),
+                "echecs", stats.missCount(),
+                "tauxSucces", stats.hitRate(),
+                "evictions", stats.evictionCount());
+    }
+    
+}
@@ -0,0 +1,67 @@
+package org.loamok.trocencheres.web;
+
+import io.swagger.v3.oas.annotations.Operation;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import org.loamok.trocencheres.manager.BilanImport;
+import org.loamok.trocencheres.manager.EchangeService;
+import org.loamok.trocencheres.manager.FormatEchange;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Import/export en masse : corps et réponses lus et écrits au fil de l'eau,
+ * une ligne par enregistrement (NDJSON, ou CSV avec en-tête).
+ *
+ * @author Huby Franck
+ */
+@RestController
+@RequestMapping("/admin/echanges")
+@AllArgsConstructor
+public class EchangeAdminController {
+
+    private EchangeService echangeManager;
+
+    @Operation(summary = "Importer des articles (application/x-ndjson ou text/csv)")
+    @PostMapping(value = "/articles", consumes = { MediaType.APPLICATION_NDJSON_VALUE, "text/csv" })
+    public ResponseEntity<BilanImport> importerArticles(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(echangeManager.importerArticles(request.getInputStream(), FormatEchange.depuis(request.getContentType())));
+    }
+
+    @Operation(summary = "Exporter les articles")
+    @GetMapping("/articles")
+    public void exporterArticles(@RequestParam(defaultValue = "NDJSON") FormatEchange format, HttpServletResponse response) throws IOException {
+        preparer(response, format, "articles");
+        echangeManager.exporterArticles(response.getOutputStream(), format);
+    }
+
+    @Operation(summary = "Exporter les enchères, éventuellement sur une période [depuis, jusqua[")
+    @GetMapping("/encheres")
+    public void exporterEncheres(@RequestParam(defaultValue = "NDJSON") FormatEchange format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime depuis,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime jusqua,
+            HttpServletResponse response) throws IOException {
+        preparer(response, format, "encheres");
+        echangeManager.exporterEncheres(response.getOutputStream(), format, depuis, jusqua);
+    }
+
+    private static void preparer(HttpServletResponse response, FormatEchange format, String nom) {
+        response.setContentType(format.getType().toString());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(nom + (format == FormatEchange.CSV ? ".csv" : ".ndjson"))
+                .build().toString());
+    }
+}
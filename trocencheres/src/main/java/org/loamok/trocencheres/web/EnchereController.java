@@ -0,0 +1,39 @@
+package org.loamok.trocencheres.web;
+
+import io.swagger.v3.oas.annotations.Operation;
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+import org.loamok.trocencheres.manager.EnchereService;
+import org.loamok.trocencheres.manager.ResultatEnchere;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ *
+ * @author Huby Franck
+ */
+@RestController
+@RequestMapping("/encheres")
+@AllArgsConstructor
+public class EnchereController {
+    
+    private EnchereService enchereManager;
+    
+    @Operation(summary = "Placer une enchère sur un article")
+    @PostMapping("/placer")
+    public ResponseEntity<ResultatEnchere> placer(@Valid @RequestBody EnchereRequest enchere, Authentication authentication) {
+        final ResultatEnchere resultat = enchereManager.placerEnchere(
+                authentication.getName(), enchere.getNoArticle(), enchere.getMontant());
+        
+        if (!resultat.getAcceptee())
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(resultat);
+        
+        return ResponseEntity.ok(resultat);
+    }
+    
+}
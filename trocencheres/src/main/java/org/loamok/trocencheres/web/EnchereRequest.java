@@ -0,0 +1,24 @@
+package org.loamok.trocencheres.web;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+/**
+ *
+ * @author Huby Franck
+ */
+@Schema(description = "Offre sur un article aux enchères")
+@Data
+public class EnchereRequest {
+    
+    @Schema(description = "Numéro de l'article", example = "42", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotNull
+    private Integer noArticle;
+    @Schema(description = "Montant proposé en crédits", example = "150", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotNull
+    @Positive
+    private Integer montant;
+    
+}
@@ -0,0 +1,68 @@
+package org.loamok.trocencheres.web;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.AllArgsConstructor;
+import org.loamok.trocencheres.security.jwt.JwtService;
+import org.loamok.trocencheres.security.jwt.TokenResponse;
+import org.loamok.trocencheres.stream.EnchereHub;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Flux SSE des enchères. EventSource ne pouvant pas envoyer d'en-tête
+ * Authorization, le client obtient d'abord un jeton de flux de courte durée
+ * puis ouvre le flux avec {@code ?jeton=...}.
+ *
+ * @author Huby Franck
+ */
+@RestController
+@RequestMapping("/encheres/flux")
+@AllArgsConstructor
+public class EnchereStreamController {
+    
+    private EnchereHub enchereHub;
+    private JwtService jwtService;
+    
+    @Operation(summary = "Jeton de courte durée pour ouvrir un flux SSE (paramètre jeton)")
+    @PostMapping(value = "/jeton", produces = MediaType.APPLICATION_JSON_VALUE)
+    public TokenResponse jeton(Authentication authentication) {
+        final String authority = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .filter(a -> a.startsWith("ROLE_"))
+                .findFirst().orElse(null);
+        
+        final TokenResponse reponse = new TokenResponse();
+        reponse.setAccess_token(jwtService.generateStreamToken(authentication.getName(), authority));
+        reponse.setToken_type("flux");
+        reponse.setExpires_in((long) jwtService.getDureeFluxS());
+        return reponse;
+    }
+    
+    @Operation(summary = "Flux temps réel (SSE) des enchères d'un article")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "503", description = "Nombre maximal d'abonnés atteint")
+    })
+    @GetMapping(value = "/articles/{noArticle}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter article(@PathVariable Integer noArticle) {
+        return enchereHub.abonner(EnchereHub.sujetArticle(noArticle));
+    }
+    
+    @Operation(summary = "Flux temps réel (SSE) des enchères d'une catégorie")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "503", description = "Nombre maximal d'abonnés atteint")
+    })
+    @GetMapping(value = "/categories/{noCategorie}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter categorie(@PathVariable Integer noCategorie) {
+        return enchereHub.abonner(EnchereHub.sujetCategorie(noCategorie));
+    }
+    
+}
@@ -0,0 +1,54 @@
+package org.loamok.trocencheres.web;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.swagger.v3.oas.annotations.Operation;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+import lombok.AllArgsConstructor;
+import org.loamok.trocencheres.configuration.DiagnosticEpinglage;
+import org.loamok.trocencheres.configuration.FabriqueThreads;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ *
+ * @author Huby Franck
+ */
+@RestController
+@RequestMapping("/admin/execution")
+@AllArgsConstructor
+public class ExecutionAdminController {
+    
+    private FabriqueThreads fabriqueThreads;
+    private DiagnosticEpinglage diagnosticEpinglage;
+    private DataSource dataSource;
+    
+    @Operation(summary = "Mode d'exécution (threads virtuels ou plateforme), pool de connexions et épinglages")
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> execution() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final Map<String, Object> execution = new LinkedHashMap<>();
+        execution.put("threadsVirtuels", fabriqueThreads.isVirtuels());
+        // Threads plateforme seulement : les threads virtuels n'y figurent pas
+        execution.put("threadsPlateforme", threads.getThreadCount());
+        execution.put("threadsPlateformeMax", threads.getPeakThreadCount());
+        execution.put("epinglages", diagnosticEpinglage.isActif() ? diagnosticEpinglage.getEpinglages() : null);
+        
+        if (dataSource instanceof HikariDataSource hikari && hikari.getHikariPoolMXBean() != null) {
+            final HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            execution.put("pool", Map.of(
+                    "taille", hikari.getMaximumPoolSize(),
+                    "actives", pool.getActiveConnections(),
+                    "inactives", pool.getIdleConnections(),
+                    "enAttente", pool.getThreadsAwaitingConnection()));
+        }
+        
+        return ResponseEntity.ok(execution);
+    }
+}
@@ -0,0 +1,37 @@
+package org.loamok.trocencheres.web;
+
+import io.swagger.v3.oas.annotations.Operation;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import org.loamok.trocencheres.security.jwt.RevocationService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ *
+ * @author Huby Franck
+ */
+@RestController
+@RequestMapping("/admin/revocations")
+@AllArgsConstructor
+public class RevocationAdminController {
+    
+    private RevocationService revocationService;
+    
+    @Operation(summary = "Nombre de révocations actives")
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> revocations() {
+        return ResponseEntity.ok(Map.of("actives", revocationService.getNombreRevocations()));
+    }
+    
+    @Operation(summary = "Révoquer tous les jetons déjà émis pour un utilisateur")
+    @PostMapping("/utilisateurs/{pseudo}")
+    public ResponseEntity<Void> revoquerUtilisateur(@PathVariable String pseudo) {
+        revocationService.revoquerUtilisateur(pseudo);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,12 +1,19 @@
 package org.loamok.trocencheres.web;
 
 import io.swagger.v3.oas.annotations.Operation;
+import java.util.List;
 import lombok.AllArgsConstructor;
 import org.loamok.trocencheres.entity.Utilisateur;
+import org.loamok.trocencheres.manager.ResultatInscription;
 import org.loamok.trocencheres.manager.userService;
+import org.loamok.trocencheres.projection.ProfilUtilisateur;
+import org.loamok.trocencheres.security.password.HachageSatureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -23,17 +30,32 @@ public class UserProfileController {
     
     private userService userManager;
     
+    @Operation(summary = "Profil de l'utilisateur connecté")
+    @GetMapping
+    public ResponseEntity<ProfilUtilisateur> profil(Authentication authentication) {
+        return ResponseEntity.of(userManager.profil(authentication.getName()));
+    }
+    
     @Operation(summary = "Inscription d'un utilisateur")
     @PostMapping("/register")
     public ResponseEntity<?> register(@RequestBody Utilisateur u) {
         try {
             final Utilisateur user = userManager.registerUser(u);
             return ResponseEntity.ok(user);
+        } catch (HachageSatureException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).body(e.getMessage());
         }
     }
     
+    @Operation(summary = "Inscription d'un lot d'utilisateurs, un résultat par ligne")
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/admin/lot")
+    public ResponseEntity<List<ResultatInscription>> registerLot(@RequestBody List<Utilisateur> users) {
+        return ResponseEntity.ok(userManager.registerUsers(users));
+    }
+    
     // @TODO remove me
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("/admin/create")
@@ -0,0 +1,44 @@
+package org.loamok.trocencheres.web;
+
+import io.swagger.v3.oas.annotations.Operation;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import org.loamok.trocencheres.manager.ChampRecherche;
+import org.loamok.trocencheres.manager.ModeRecherche;
+import org.loamok.trocencheres.manager.RechercheUtilisateurService;
+import org.loamok.trocencheres.projection.PageUtilisateurs;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ *
+ * @author Huby Franck
+ */
+@RestController
+@RequestMapping("/admin/utilisateurs")
+@AllArgsConstructor
+public class UtilisateurAdminController {
+
+    private RechercheUtilisateurService rechercheUtilisateurManager;
+
+    @Operation(summary = "Rechercher des utilisateurs (index en mémoire, sans accents ni casse)")
+    @GetMapping("/recherche")
+    public ResponseEntity<PageUtilisateurs> rechercher(@RequestParam String q,
+            @RequestParam(defaultValue = "TOUT") ChampRecherche champ,
+            @RequestParam(defaultValue = "CONTIENT") ModeRecherche mode,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int taille) {
+        return ResponseEntity.ok(rechercheUtilisateurManager.rechercher(q, champ, mode, page, taille));
+    }
+
+    @Operation(summary = "Reconstruire l'index de recherche depuis la base")
+    @PostMapping("/recherche/index")
+    public ResponseEntity<Map<String, Integer>> recharger() {
+        rechercheUtilisateurManager.recharger();
+        return ResponseEntity.ok(Map.of("utilisateurs", rechercheUtilisateurManager.getTaille()));
+    }
+}
@@ -0,0 +1,65 @@
+package org.loamok.trocencheres.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Le sérialiseur écrit exactement le texte de
+ * DateTimeFormatter.ISO_LOCAL_DATE_TIME.
+ *
+ * @author Huby Franck
+ */
+class DateHeureSerializerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new SimpleModule().addSerializer(LocalDateTime.class, new DateHeureSerializer()));
+
+    @Test
+    void casLimites() throws JsonProcessingException {
+        for (LocalDateTime date : List.of(
+                LocalDateTime.of(2026, 10, 18, 0, 0),
+                LocalDateTime.of(2026, 1, 2, 3, 4, 5),
+                LocalDateTime.of(2026, 12, 31, 23, 59, 59, 999_999_999),
+                LocalDateTime.of(2026, 6, 15, 12, 30, 0, 1),
+                LocalDateTime.of(2026, 6, 15, 12, 30, 0, 100_000_000),
+                LocalDateTime.of(2026, 6, 15, 12, 30, 0, 120_000),
+                LocalDateTime.of(0, 1, 1, 0, 0),
+                LocalDateTime.of(9999, 12, 31, 23, 59, 59),
+                LocalDateTime.of(999, 3, 4, 5, 6, 7),
+                // Formateur au-delà de quatre chiffres
+                LocalDateTime.of(10000, 1, 1, 0, 0),
+                LocalDateTime.of(-1, 1, 1, 0, 0, 0, 5),
+                LocalDateTime.MIN,
+                LocalDateTime.MAX))
+            assertThat(mapper.writeValueAsString(date)).isEqualTo(attendu(date));
+    }
+
+    @Test
+    void datesAleatoires() throws JsonProcessingException {
+        final Random aleatoire = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            // Fraction nulle, à la milliseconde, à la microseconde ou quelconque
+            final int nano = switch (i % 4) {
+                case 0 -> 0;
+                case 1 -> aleatoire.nextInt(1000) * 1_000_000;
+                case 2 -> aleatoire.nextInt(1_000_000) * 1000;
+                default -> aleatoire.nextInt(1_000_000_000);
+            };
+            final LocalDateTime date = LocalDateTime.of(aleatoire.nextInt(10_000), 1 + aleatoire.nextInt(12),
+                    1 + aleatoire.nextInt(28), aleatoire.nextInt(24), aleatoire.nextInt(60), aleatoire.nextInt(60), nano);
+            assertThat(mapper.writeValueAsString(date)).isEqualTo(attendu(date));
+        }
+    }
+
+    private static String attendu(LocalDateTime date) {
+        return '"' + DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(date) + '"';
+    }
+}
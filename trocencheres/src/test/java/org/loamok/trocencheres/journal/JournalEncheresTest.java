@@ -0,0 +1,232 @@
+package org.loamok.trocencheres.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.loamok.trocencheres.journal.JournalEncheres.Meilleure;
+import org.loamok.trocencheres.journal.JournalEncheres.Offre;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Journal des enchères sur disque : format des enregistrements, relecture
+ * après arrêt, enregistrements interrompus ou corrompus, compactage,
+ * répertoire vérifié au démarrage.
+ *
+ * @author Huby Franck
+ */
+class JournalEncheresTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2026, 10, 18, 14, 30, 15, 123_456_789);
+
+    @TempDir
+    Path repertoire;
+
+    private final List<JournalEncheres> ouverts = new ArrayList<>();
+
+    @AfterEach
+    void fermer() {
+        ouverts.forEach(JournalEncheres::fermer);
+    }
+
+    @Test
+    void repriseApresArret() throws IOException {
+        final JournalEncheres journal = ouvrir();
+        assertThat(journal.offre(1, "alice", 100, DATE, null, null)).isEqualTo(1);
+        assertThat(journal.offre(1, "bob", 120, DATE, "alice", 100)).isEqualTo(2);
+        journal.confirmer(1, true);
+        journal.offre(2, "carole", 50, DATE, null, null);
+        // Perdue à l'écriture : l'article sera rechargé depuis la base
+        journal.confirmer(3, false);
+        journal.offre(3, "alice", 10, DATE, null, null);
+        journal.clore(3);
+        journal.fermer();
+        ouverts.remove(journal);
+
+        final JournalEncheres repris = ouvrir();
+        assertThat(repris.getMeilleures()).containsOnlyKeys(1).containsEntry(1, new Meilleure(120, "bob"));
+        assertThat(repris.getEnAttente()).containsExactly(
+                new Offre(2, 1, "bob", 120, DATE, "alice", 100),
+                new Offre(4, 3, "alice", 10, DATE, null, null));
+        // La séquence reprend après la plus grande relue
+        assertThat(repris.offre(1, "carole", 130, DATE, "bob", 120)).isEqualTo(5);
+    }
+
+    @Test
+    void formatDesEnregistrements() throws IOException {
+        final JournalEncheres journal = ouvrir();
+        journal.offre(42, "alice", 100, DATE, null, null);
+
+        final ByteBuffer segment = ByteBuffer.wrap(Files.readAllBytes(segments().get(0)));
+        final int longueur = segment.getInt();
+        final int crc = segment.getInt();
+        final CRC32C attendu = new CRC32C();
+        attendu.update(segment.array(), 2 * Integer.BYTES, longueur);
+        assertThat(crc).isEqualTo((int) attendu.getValue());
+
+        assertThat(segment.get()).isEqualTo(JournalEncheres.OFFRE);
+        assertThat(segment.getLong()).isEqualTo(1);
+        assertThat(segment.getInt()).isEqualTo(42);
+        assertThat(segment.getInt()).isEqualTo(100);
+        // Fin des données : longueur nulle après le dernier enregistrement
+        assertThat(segment.getInt(2 * Integer.BYTES + longueur)).isZero();
+    }
+
+    @Test
+    void enregistrementCorrompuIgnore() throws IOException {
+        final JournalEncheres journal = ouvrir();
+        journal.offre(1, "alice", 100, DATE, null, null);
+        final int fin = finDesDonnees(segments().get(0));
+        journal.offre(1, "bob", 120, DATE, "alice", 100);
+        journal.fermer();
+        ouverts.remove(journal);
+
+        // Un octet du second enregistrement altéré : CRC faux
+        final Path segment = segments().get(0);
+        final byte[] contenu = Files.readAllBytes(segment);
+        contenu[fin + 2 * Integer.BYTES + 3] ^= 0x5A;
+        Files.write(segment, contenu);
+
+        final JournalEncheres repris = ouvrir();
+        assertThat(repris.getMeilleures()).containsEntry(1, new Meilleure(100, "alice"));
+        assertThat(repris.getEnAttente()).extracting(Offre::sequence).containsExactly(1L);
+    }
+
+    @Test
+    void enregistrementInterrompuIgnore() throws IOException {
+        final JournalEncheres journal = ouvrir();
+        journal.offre(1, "alice", 100, DATE, null, null);
+        journal.fermer();
+        ouverts.remove(journal);
+
+        // Longueur écrite mais données absentes (arrêt pendant l'écriture)
+        final Path segment = segments().get(0);
+        final byte[] contenu = Files.readAllBytes(segment);
+        final int fin = finDesDonnees(segment);
+        ByteBuffer.wrap(contenu).putInt(fin, 60);
+        Files.write(segment, contenu);
+
+        final JournalEncheres repris = ouvrir();
+        assertThat(repris.getMeilleures()).containsOnlyKeys(1);
+        assertThat(repris.getEnAttente()).hasSize(1);
+        // Les écritures reprennent dans un segment neuf
+        repris.offre(2, "bob", 20, DATE, null, null);
+        assertThat(segments()).hasSize(2);
+    }
+
+    @Test
+    void compactageEtReprise() throws IOException {
+        final JournalEncheres journal = ouvrir();
+        // Plusieurs segments de 4 ko
+        for (int i = 1; i <= 300; i++) {
+            journal.offre(i % 10, "encherisseur" + i, i, DATE, null, null);
+            if (i % 3 != 0)
+                journal.confirmer(i, true);
+        }
+        journal.clore(0);
+        assertThat(segments().size()).isGreaterThan(2);
+        final Map<Integer, Meilleure> meilleures = journal.getMeilleures();
+        final List<Offre> enAttente = journal.getEnAttente();
+
+        journal.compacter();
+        assertThat(repertoire.resolve("instantane.bin")).exists();
+        // Seul le segment ouvert par le compactage reste
+        assertThat(segments()).hasSize(1);
+
+        journal.offre(1, "dernier", 1000, DATE, null, null);
+        journal.fermer();
+        ouverts.remove(journal);
+
+        final JournalEncheres repris = ouvrir();
+        meilleures.put(1, new Meilleure(1000, "dernier"));
+        assertThat(repris.getMeilleures()).isEqualTo(meilleures);
+        assertThat(repris.getEnAttente()).startsWith(enAttente.toArray(Offre[]::new)).hasSize(enAttente.size() + 1);
+    }
+
+    @Test
+    void repertoireAbsoluExistantEtInscriptible() throws IOException {
+        assertThat(JournalEncheres.verifierRepertoire(repertoire.toString())).isEqualTo(repertoire);
+
+        assertThatThrownBy(() -> JournalEncheres.verifierRepertoire(null))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("non renseigné");
+        assertThatThrownBy(() -> JournalEncheres.verifierRepertoire(" "))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("non renseigné");
+        assertThatThrownBy(() -> JournalEncheres.verifierRepertoire("journal"))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("absolu");
+        assertThatThrownBy(() -> JournalEncheres.verifierRepertoire(repertoire.resolve("absent").toString()))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("inexistant");
+        // Un fichier n'est pas un répertoire
+        final Path fichier = Files.createFile(repertoire.resolve("fichier"));
+        assertThatThrownBy(() -> JournalEncheres.verifierRepertoire(fichier.toString()))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("inexistant");
+
+        // Au démarrage : refus, rien n'est créé
+        final JournalEncheres journal = new JournalEncheres();
+        ReflectionTestUtils.setField(journal, "actif", true);
+        ReflectionTestUtils.setField(journal, "nomRepertoire", repertoire.resolve("absent").toString());
+        assertThatThrownBy(journal::ouvrir).isInstanceOf(IllegalStateException.class);
+        assertThat(repertoire.resolve("absent")).doesNotExist();
+
+        // Journal désactivé : aucune vérification
+        final JournalEncheres inactif = new JournalEncheres();
+        ReflectionTestUtils.setField(inactif, "actif", false);
+        inactif.ouvrir();
+    }
+
+    @Test
+    void repertoireEnLectureSeule() throws IOException {
+        final Path lectureSeule = Files.createDirectory(repertoire.resolve("lecture-seule"));
+        Files.setPosixFilePermissions(lectureSeule, PosixFilePermissions.fromString("r-xr-xr-x"));
+        try {
+            // Sans effet pour root
+            assumeFalse(Files.isWritable(lectureSeule));
+            assertThatThrownBy(() -> JournalEncheres.verifierRepertoire(lectureSeule.toString()))
+                    .isInstanceOf(IllegalStateException.class).hasMessageContaining("écriture");
+        } finally {
+            Files.setPosixFilePermissions(lectureSeule, PosixFilePermissions.fromString("rwxr-xr-x"));
+        }
+    }
+
+    private JournalEncheres ouvrir() throws IOException {
+        final JournalEncheres journal = new JournalEncheres();
+        ReflectionTestUtils.setField(journal, "actif", true);
+        ReflectionTestUtils.setField(journal, "nomRepertoire", repertoire.toString());
+        ReflectionTestUtils.setField(journal, "tailleSegment", DataSize.ofKilobytes(4));
+        ReflectionTestUtils.setField(journal, "periodeCompaction", Duration.ofHours(1));
+        journal.ouvrir();
+        ouverts.add(journal);
+        return journal;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> fichiers = Files.list(repertoire)) {
+            return fichiers.filter(p -> p.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    // Position de la longueur nulle qui suit le dernier enregistrement
+    private static int finDesDonnees(Path segment) throws IOException {
+        final ByteBuffer contenu = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int position = 0;
+        int longueur;
+        while ((longueur = contenu.getInt(position)) != 0)
+            position += 2 * Integer.BYTES + longueur;
+        return position;
+    }
+}
@@ -0,0 +1,155 @@
+package org.loamok.trocencheres.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.journal.JournalEncheres.Meilleure;
+import org.loamok.trocencheres.manager.EnchereBatchWriter;
+import org.loamok.trocencheres.manager.EnchereBatchWriter.EnchereAcceptee;
+import org.loamok.trocencheres.manager.EnchereService;
+import org.loamok.trocencheres.manager.EtatEnchere;
+import org.loamok.trocencheres.repository.ArticlesAVendreRepository;
+import org.loamok.trocencheres.repository.EnchereRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Reprise au démarrage depuis un journal réel : offres non confirmées
+ * réécrites ou reconnues en base, états restaurés pour les seuls articles
+ * encore ouverts.
+ *
+ * @author Huby Franck
+ */
+class RepriseJournalTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2026, 10, 18, 14, 30);
+
+    @TempDir
+    Path repertoire;
+
+    private JournalEncheres journal;
+    private EnchereBatchWriter writer;
+    private EnchereService enchereManager;
+    private ArticlesAVendreRepository aR;
+    private EnchereRepository eR;
+    private RepriseJournal reprise;
+
+    @BeforeEach
+    void preparer() throws IOException {
+        journal = journal();
+        writer = mock(EnchereBatchWriter.class);
+        enchereManager = mock(EnchereService.class);
+        aR = mock(ArticlesAVendreRepository.class);
+        eR = mock(EnchereRepository.class);
+        reprise = new RepriseJournal();
+        ReflectionTestUtils.setField(reprise, "journal", journal);
+        ReflectionTestUtils.setField(reprise, "writer", writer);
+        ReflectionTestUtils.setField(reprise, "enchereManager", enchereManager);
+        ReflectionTestUtils.setField(reprise, "aR", aR);
+        ReflectionTestUtils.setField(reprise, "eR", eR);
+    }
+
+    @AfterEach
+    void fermer() {
+        journal.fermer();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void offresNonConfirmeesReecrites() throws IOException {
+        // Écrite en base avant l'arrêt, mais pas confirmée au journal
+        journal.offre(1, "alice", 100, DATE, null, null);
+        // Absentes de la base : réécrites, la seconde refusée
+        journal.offre(1, "bob", 120, DATE, "alice", 100);
+        journal.offre(2, "carole", 999, DATE, null, null);
+        when(eR.existsByArticle_IdAndUtilisateur_PseudoAndMontantEnchere(1, "alice", 100)).thenReturn(true);
+        doAnswer(i -> {
+            final List<EnchereAcceptee> encheres = i.getArgument(0);
+            encheres.forEach(e -> {
+                if (e.montant() == 999)
+                    e.confirmation().completeExceptionally(new IllegalStateException("refusée"));
+                else
+                    e.confirmation().complete(null);
+            });
+            return null;
+        }).when(writer).ecrire(anyList());
+        when(aR.findAllById(any())).thenReturn(List.of(article(1, ArticlesAVendre.STATUT_EN_COURS)));
+
+        reprise.reprendre();
+
+        final ArgumentCaptor<List<EnchereAcceptee>> reecrites = ArgumentCaptor.forClass(List.class);
+        verify(writer).ecrire(reecrites.capture());
+        assertThat(reecrites.getValue()).extracting(EnchereAcceptee::pseudo).containsExactly("bob", "carole");
+        assertThat(reecrites.getValue().get(0).precedentEncherisseur()).isEqualTo("alice");
+        assertThat(reecrites.getValue().get(0).precedentMontant()).isEqualTo(100);
+        // Plus rien à confirmer, l'offre refusée ne désigne plus de meilleure offre
+        assertThat(journal.getEnAttente()).isEmpty();
+        assertThat(journal.getMeilleures()).containsOnlyKeys(1);
+
+        // Le même état est relu au redémarrage suivant
+        journal.fermer();
+        journal = journal();
+        assertThat(journal.getEnAttente()).isEmpty();
+        assertThat(journal.getMeilleures()).containsOnlyKeys(1).containsEntry(1, new Meilleure(120, "bob"));
+    }
+
+    @Test
+    void etatsRestauresPourLesArticlesOuverts() throws IOException {
+        journal.offre(1, "alice", 100, DATE, null, null);
+        journal.offre(2, "bob", 50, DATE, null, null);
+        journal.offre(3, "carole", 70, DATE, null, null);
+        for (long sequence = 1; sequence <= 3; sequence++)
+            journal.confirmer(sequence, true);
+        // Article 2 clôturé entre-temps, article 3 supprimé
+        when(aR.findAllById(any())).thenReturn(List.of(
+                article(1, ArticlesAVendre.STATUT_EN_COURS),
+                article(2, ArticlesAVendre.STATUT_CLOTUREE)));
+
+        reprise.reprendre();
+
+        verify(writer, never()).ecrire(anyList());
+        final ArgumentCaptor<EtatEnchere> etat = ArgumentCaptor.forClass(EtatEnchere.class);
+        verify(enchereManager).restaurer(etat.capture());
+        assertThat(etat.getValue().getNoArticle()).isEqualTo(1);
+        assertThat(etat.getValue().getMeilleurMontant()).isEqualTo(100);
+        assertThat(etat.getValue().getMeilleurEncherisseur()).isEqualTo("alice");
+        assertThat(journal.getMeilleures()).containsOnlyKeys(1);
+    }
+
+    private JournalEncheres journal() throws IOException {
+        final JournalEncheres j = new JournalEncheres();
+        ReflectionTestUtils.setField(j, "actif", true);
+        ReflectionTestUtils.setField(j, "nomRepertoire", repertoire.toString());
+        ReflectionTestUtils.setField(j, "tailleSegment", DataSize.ofKilobytes(4));
+        ReflectionTestUtils.setField(j, "periodeCompaction", Duration.ofHours(1));
+        j.ouvrir();
+        return j;
+    }
+
+    private static ArticlesAVendre article(Integer id, int statut) {
+        return ArticlesAVendre.builder()
+                .id(id)
+                .statutEnchere(statut)
+                .prixInitial(10)
+                .dateDebutEncheres(DATE.minusDays(1))
+                .dateFinEncheres(DATE.plusDays(1))
+                .build();
+    }
+}
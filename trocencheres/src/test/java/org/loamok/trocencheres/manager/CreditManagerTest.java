@@ -0,0 +1,166 @@
+package org.loamok.trocencheres.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.loamok.trocencheres.entity.MouvementCredit;
+import org.loamok.trocencheres.entity.MouvementCredit.TypeMouvement;
+import org.loamok.trocencheres.entity.Utilisateur;
+import org.loamok.trocencheres.repository.MouvementCreditRepository;
+import org.loamok.trocencheres.repository.UtilisateurRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Soldes en mémoire du grand livre sous accès concurrents, et report en base
+ * par UPDATE relatifs.
+ *
+ * @author Huby Franck
+ */
+class CreditManagerTest {
+
+    private UtilisateurRepository uR;
+    private MouvementCreditRepository mR;
+    private CreditManager creditManager;
+    private ExecutorService pool;
+
+    @BeforeEach
+    void preparer() {
+        uR = mock(UtilisateurRepository.class);
+        mR = mock(MouvementCreditRepository.class);
+        when(uR.findCreditByPseudo("alice")).thenReturn(1000);
+        when(uR.findCreditByPseudo("bob")).thenReturn(500);
+        creditManager = new CreditManager();
+        ReflectionTestUtils.setField(creditManager, "uR", uR);
+        ReflectionTestUtils.setField(creditManager, "mR", mR);
+    }
+
+    @AfterEach
+    void arreter() {
+        if (pool != null)
+            pool.shutdownNow();
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void reservationsConcurrentesJamaisAuDelaDuSolde() throws Exception {
+        final int threads = 16;
+        final CountDownLatch depart = new CountDownLatch(1);
+        pool = Executors.newFixedThreadPool(threads);
+        final List<Future<Integer>> taches = new ArrayList<>();
+        for (int i = 0; i < threads; i++)
+            taches.add(pool.submit((Callable<Integer>) () -> {
+                depart.await();
+                int reservees = 0;
+                for (int t = 0; t < 100; t++)
+                    if (creditManager.reserver("alice", 7))
+                        reservees++;
+                return reservees;
+            }));
+        depart.countDown();
+        int reservees = 0;
+        for (Future<Integer> f : taches)
+            reservees += f.get(30, TimeUnit.SECONDS);
+
+        // 1600 tentatives pour 142 possibles : le solde est épuisé sans jamais être dépassé
+        assertThat(reservees).isEqualTo(1000 / 7);
+        assertThat(creditManager.getSolde("alice")).isEqualTo(1000 % 7);
+
+        // Libérations concurrentes : aucune perdue
+        final List<Future<Integer>> liberations = new ArrayList<>();
+        for (int i = 0; i < threads; i++)
+            liberations.add(pool.submit((Callable<Integer>) () -> {
+                for (int t = 0; t < 100; t++)
+                    creditManager.liberer("alice", 1);
+                return 100;
+            }));
+        for (Future<Integer> f : liberations)
+            f.get(30, TimeUnit.SECONDS);
+        assertThat(creditManager.getSolde("alice")).isEqualTo(1000 % 7 + threads * 100);
+    }
+
+    @Test
+    void utilisateurInconnuSansSolde() {
+        when(uR.findCreditByPseudo("inconnu")).thenReturn(null);
+
+        assertThat(creditManager.getSolde("inconnu")).isNull();
+        assertThat(creditManager.reserver("inconnu", 1)).isFalse();
+        assertThat(creditManager.reserver(null, 1)).isFalse();
+    }
+
+    @Test
+    void persisterUnUpdateRelatifParUtilisateur() {
+        when(uR.ajouterCredit(anyString(), anyInt())).thenReturn(1);
+
+        creditManager.persister(List.of(
+                mouvement("alice", -100, TypeMouvement.RESERVATION),
+                mouvement("bob", 60, TypeMouvement.LIBERATION),
+                mouvement("alice", -20, TypeMouvement.RESERVATION),
+                mouvement("bob", -60, TypeMouvement.RESERVATION)));
+
+        verify(mR).saveAll(anyList());
+        verify(uR).ajouterCredit("alice", -120);
+        // Mouvements de bob compensés : pas d'UPDATE
+        verify(uR, never()).ajouterCredit(eq("bob"), anyInt());
+    }
+
+    @Test
+    void persisterRefuseParLaBase() {
+        when(uR.ajouterCredit("alice", -100)).thenReturn(0);
+
+        assertThatThrownBy(() -> creditManager.persister(List.of(mouvement("alice", -100, TypeMouvement.RESERVATION))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("alice");
+    }
+
+    @Test
+    void crediterAuCommitSeulement() {
+        assertThat(creditManager.getSolde("alice")).isEqualTo(1000);
+
+        TransactionSynchronizationManager.initSynchronization();
+        creditManager.crediter("alice", 150);
+        assertThat(creditManager.getSolde("alice")).isEqualTo(1000);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+        assertThat(creditManager.getSolde("alice")).isEqualTo(1150);
+
+        // Transaction annulée : rien n'est crédité
+        TransactionSynchronizationManager.initSynchronization();
+        creditManager.crediter("alice", 150);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+        assertThat(creditManager.getSolde("alice")).isEqualTo(1150);
+    }
+
+    private static MouvementCredit mouvement(String pseudo, int montant, TypeMouvement type) {
+        return MouvementCredit.builder()
+                .montant(montant)
+                .type(type)
+                .dateMouvement(LocalDateTime.now())
+                .utilisateur(Utilisateur.builder().pseudo(pseudo).build())
+                .build();
+    }
+}
@@ -0,0 +1,165 @@
+package org.loamok.trocencheres.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.manager.BilanImport.Rejet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Import NDJSON et CSV des articles sur la base H2 du profil de test, par
+ * lots de deux lignes : rejets ligne à ligne, identifiants attribués à chaque
+ * ligne du lot, statut selon la date de début, adresse de retrait. Les
+ * imports ont leurs propres transactions : les lignes créées sont supprimées
+ * après chaque test.
+ *
+ * @author Huby Franck
+ */
+@SpringBootTest(properties = "app.echanges.import.taille-lot=2")
+@ActiveProfiles("test")
+class EchangeManagerTest {
+
+    private static final String VENDEUR = "vendeur-echange";
+    private static final String CATEGORIE = "Echange";
+    private static final String ROLE = "ROLE_ECHANGE";
+
+    @Autowired
+    private EchangeService echangeManager;
+    @Autowired
+    private ReferentielService referentielManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime maintenant = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+    @BeforeEach
+    void preparer() {
+        jdbcTemplate.update("INSERT INTO ROLES (role, is_admin) VALUES (?, false)", ROLE);
+        jdbcTemplate.update("INSERT INTO ADDRESSES (rue, code_postal, city, adresse_eni) VALUES ('3 rue du Vendeur', '75003', 'Paris', false)");
+        jdbcTemplate.update("INSERT INTO CATEGORIES (libelle) VALUES (?)", CATEGORIE);
+        jdbcTemplate.update("INSERT INTO UTILISATEURS (pseudo, nom, prenom, email, credit, no_adresse, id_role, mot_de_passe) "
+                + "VALUES (?, 'V', 'V', 'vendeur-echange@x.fr', 0, "
+                + "(SELECT MAX(no_adresse) FROM ADDRESSES), (SELECT id_role FROM ROLES WHERE role = ?), 'x')", VENDEUR, ROLE);
+        referentielManager.recharger();
+    }
+
+    @AfterEach
+    void nettoyer() {
+        final List<Integer> adresses = jdbcTemplate.queryForList(
+                "SELECT no_adresse_retrait FROM ARTICLES_A_VENDRE WHERE id_utilisateur = ? "
+                + "UNION SELECT no_adresse FROM UTILISATEURS WHERE pseudo = ?", Integer.class, VENDEUR, VENDEUR);
+        jdbcTemplate.update("DELETE FROM ARTICLES_A_VENDRE WHERE id_utilisateur = ?", VENDEUR);
+        jdbcTemplate.update("DELETE FROM UTILISATEURS WHERE pseudo = ?", VENDEUR);
+        for (Integer adresse : adresses)
+            jdbcTemplate.update("DELETE FROM ADDRESSES WHERE no_adresse = ?", adresse);
+        jdbcTemplate.update("DELETE FROM CATEGORIES WHERE libelle = ?", CATEGORIE);
+        jdbcTemplate.update("DELETE FROM ROLES WHERE role = ?", ROLE);
+        referentielManager.recharger();
+    }
+
+    @Test
+    void importNdjson() throws IOException {
+        final String corps = String.join("\n",
+                ligne("Ndjson-1", maintenant.minusHours(1), maintenant.plusDays(1), 10, VENDEUR, null),
+                "",
+                ligne("Ndjson-2", maintenant.plusDays(1), maintenant.minusDays(1), 10, VENDEUR, null),
+                "{\"nom\": ",
+                ligne("Ndjson-3", maintenant.plusHours(1), maintenant.plusDays(2), 20, "inconnu", null),
+                ligne("Ndjson-4", maintenant.plusHours(1), maintenant.plusDays(2), 30, VENDEUR,
+                        ", \"rue\":\"5 allée du Retrait\", \"codePostal\":\"67000\", \"ville\":\"Strasbourg\""),
+                ligne("Ndjson-5", maintenant.minusHours(1), maintenant.plusDays(3), -1, VENDEUR, null));
+
+        final BilanImport bilan = echangeManager.importerArticles(entree(corps), FormatEchange.NDJSON);
+
+        assertThat(bilan.lues()).isEqualTo(6);
+        assertThat(bilan.importees()).isEqualTo(2);
+        assertThat(bilan.rejets()).extracting(Rejet::ligne).containsExactly(3L, 4L, 5L, 7L);
+        assertThat(bilan.rejets().get(0).motif()).isEqualTo("fin des enchères avant leur début");
+        assertThat(bilan.rejets().get(1).motif()).startsWith("ligne illisible");
+        assertThat(bilan.rejets().get(2).motif()).isEqualTo("vendeur inconnu : inconnu");
+
+        final Map<String, Object> commencee = article("Ndjson-1");
+        assertThat(commencee.get("statut_enchere")).isEqualTo(ArticlesAVendre.STATUT_EN_COURS);
+        assertThat(commencee.get("city")).isEqualTo("Paris");
+        final Map<String, Object> aVenir = article("Ndjson-4");
+        assertThat(aVenir.get("statut_enchere")).isEqualTo(ArticlesAVendre.STATUT_NON_COMMENCEE);
+        assertThat(aVenir.get("rue")).isEqualTo("5 allée du Retrait");
+        assertThat(aVenir.get("prix_initial")).isEqualTo(30);
+    }
+
+    @Test
+    void importCsv() throws IOException {
+        final String corps = "nom,description,dateDebutEncheres,dateFinEncheres,prixInitial,vendeur,categorie\n"
+                + "Csv-1,Premier,\"" + maintenant.minusHours(1) + "\",\"" + maintenant.plusDays(1) + "\",5," + VENDEUR + "," + CATEGORIE + "\n"
+                + "Csv-2,Second,pas une date,\"" + maintenant.plusDays(1) + "\",5," + VENDEUR + "," + CATEGORIE + "\n"
+                + "Csv-3,Troisième,\"" + maintenant.plusHours(1) + "\",\"" + maintenant.plusDays(1) + "\",7," + VENDEUR + ",Inconnue\n"
+                + "Csv-4,Quatrième,\"" + maintenant.plusHours(1) + "\",\"" + maintenant.plusDays(1) + "\",8," + VENDEUR + "," + CATEGORIE + "\n";
+
+        final BilanImport bilan = echangeManager.importerArticles(entree(corps), FormatEchange.CSV);
+
+        // En-tête en ligne 1
+        assertThat(bilan.lues()).isEqualTo(4);
+        assertThat(bilan.importees()).isEqualTo(2);
+        assertThat(bilan.rejets()).extracting(Rejet::ligne).containsExactly(3L, 4L);
+        assertThat(bilan.rejets().get(0).motif()).startsWith("ligne illisible");
+        assertThat(bilan.rejets().get(1).motif()).isEqualTo("catégorie inconnue");
+        assertThat(article("Csv-1").get("prix_initial")).isEqualTo(5);
+        assertThat(article("Csv-4").get("prix_initial")).isEqualTo(8);
+    }
+
+    @Test
+    void identifiantsAttribuesParLigne() throws IOException {
+        final StringBuilder corps = new StringBuilder();
+        for (int i = 1; i <= 7; i++)
+            corps.append(ligne("Lot-" + i, maintenant.plusHours(i), maintenant.plusDays(i), 100 + i, VENDEUR, null)).append('\n');
+
+        final BilanImport bilan = echangeManager.importerArticles(entree(corps.toString()), FormatEchange.NDJSON);
+
+        assertThat(bilan.importees()).isEqualTo(7);
+        assertThat(bilan.rejets()).isEmpty();
+        // Chaque ligne avec ses propres valeurs, dans l'ordre du corps
+        final List<Map<String, Object>> articles = jdbcTemplate.queryForList(
+                "SELECT nom_article, prix_initial, date_fin_encheres FROM ARTICLES_A_VENDRE "
+                + "WHERE nom_article LIKE 'Lot-%' ORDER BY no_article");
+        assertThat(articles).hasSize(7);
+        for (int i = 0; i < 7; i++) {
+            assertThat(articles.get(i).get("nom_article")).isEqualTo("Lot-" + (i + 1));
+            assertThat(articles.get(i).get("prix_initial")).isEqualTo(101 + i);
+        }
+
+        // Relus par l'export
+        final ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        echangeManager.exporterArticles(sortie, FormatEchange.NDJSON);
+        final String export = sortie.toString(StandardCharsets.UTF_8);
+        assertThat(export).contains("\"nom\":\"Lot-7\"").endsWith("\n");
+    }
+
+    private Map<String, Object> article(String nom) {
+        return jdbcTemplate.queryForMap("SELECT a.statut_enchere, a.prix_initial, ad.rue, ad.city FROM ARTICLES_A_VENDRE a "
+                + "JOIN ADDRESSES ad ON ad.no_adresse = a.no_adresse_retrait WHERE a.nom_article = ?", nom);
+    }
+
+    private static String ligne(String nom, LocalDateTime debut, LocalDateTime fin, int prix, String vendeur, String suite) {
+        return "{\"nom\":\"" + nom + "\", \"description\":\"Import " + nom + "\", \"dateDebutEncheres\":\"" + debut
+                + "\", \"dateFinEncheres\":\"" + fin + "\", \"prixInitial\":" + prix + ", \"vendeur\":\"" + vendeur
+                + "\", \"categorie\":\"" + CATEGORIE + "\"" + (suite == null ? "" : suite) + "}";
+    }
+
+    private static ByteArrayInputStream entree(String corps) {
+        return new ByteArrayInputStream(corps.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,181 @@
+package org.loamok.trocencheres.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.loamok.trocencheres.entity.Enchere;
+import org.loamok.trocencheres.entity.MouvementCredit;
+import org.loamok.trocencheres.entity.MouvementCredit.TypeMouvement;
+import org.loamok.trocencheres.manager.EnchereBatchWriter.EnchereAcceptee;
+import org.loamok.trocencheres.repository.ArticlesAVendreRepository;
+import org.loamok.trocencheres.repository.EnchereRepository;
+import org.loamok.trocencheres.repository.UtilisateurRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Écriture des lots d'enchères : un lot refusé est rejoué enchère par enchère
+ * et seule l'enchère fautive est perdue.
+ *
+ * @author Huby Franck
+ */
+class EnchereBatchWriterTest {
+
+    // Montant refusé par la base simulée
+    private static final int REFUSE = 666;
+
+    private EnchereRepository eR;
+    private ArticlesAVendreRepository aR;
+    private CreditService creditManager;
+    private EnchereBatchWriter writer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void preparer() {
+        eR = mock(EnchereRepository.class);
+        aR = mock(ArticlesAVendreRepository.class);
+        creditManager = mock(CreditService.class);
+        when(eR.saveAll(anyList())).thenAnswer(i -> {
+            final List<Enchere> encheres = i.getArgument(0);
+            if (encheres.stream().anyMatch(e -> e.getMontantEnchere() == REFUSE))
+                throw new DataIntegrityViolationException("refusée");
+            return encheres;
+        });
+
+        writer = new EnchereBatchWriter();
+        ReflectionTestUtils.setField(writer, "eR", eR);
+        ReflectionTestUtils.setField(writer, "aR", aR);
+        ReflectionTestUtils.setField(writer, "uR", mock(UtilisateurRepository.class));
+        ReflectionTestUtils.setField(writer, "creditManager", creditManager);
+        ReflectionTestUtils.setField(writer, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(writer, "tailleLot", 100);
+    }
+
+    @Test
+    void lotRefuseRejoueUneParUne() {
+        final List<EnchereAcceptee> encheres = List.of(
+                enchere(1, "alice", 100, null, null),
+                enchere(2, "bob", REFUSE, null, null),
+                enchere(3, "carole", 300, null, null));
+
+        writer.ecrire(encheres);
+
+        assertThat(encheres.get(0).confirmation()).isCompleted();
+        assertThat(encheres.get(1).confirmation()).isCompletedExceptionally();
+        assertThat(encheres.get(2).confirmation()).isCompleted();
+        // Le lot entier, puis chaque enchère seule
+        verify(eR, times(4)).saveAll(anyList());
+        verify(aR).enregistrerEncheres(1, 100, "alice", encheres.get(0).date(), 1);
+        verify(aR).enregistrerEncheres(3, 300, "carole", encheres.get(2).date(), 1);
+        verify(aR, never()).enregistrerEncheres(2, REFUSE, "bob", encheres.get(1).date(), 1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void etatDeLArticleEtMouvementsDuLot() {
+        final List<EnchereAcceptee> encheres = List.of(
+                enchere(1, "alice", 100, null, null),
+                enchere(1, "bob", 120, "alice", 100),
+                enchere(2, "alice", 50, null, null));
+
+        writer.ecrire(encheres);
+
+        // Dernière offre de chaque article et nombre d'offres du lot
+        verify(aR).enregistrerEncheres(1, 120, "bob", encheres.get(1).date(), 2);
+        verify(aR).enregistrerEncheres(2, 50, "alice", encheres.get(2).date(), 1);
+
+        final ArgumentCaptor<List<MouvementCredit>> mouvements = ArgumentCaptor.forClass(List.class);
+        verify(creditManager).persister(mouvements.capture());
+        assertThat(mouvements.getValue())
+                .extracting(MouvementCredit::getType, MouvementCredit::getMontant)
+                .containsExactly(
+                        tuple(TypeMouvement.RESERVATION, -100),
+                        tuple(TypeMouvement.RESERVATION, -120),
+                        tuple(TypeMouvement.LIBERATION, 100),
+                        tuple(TypeMouvement.RESERVATION, -50));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void precedentePerdueSansLiberationDansLeLot() {
+        final List<EnchereAcceptee> encheres = List.of(
+                enchere(1, "alice", REFUSE, null, null),
+                enchere(1, "bob", 700, "alice", REFUSE),
+                enchere(1, "carole", 800, "bob", 700));
+
+        writer.ecrire(encheres);
+
+        assertThat(encheres.get(0).confirmation()).isCompletedExceptionally();
+        assertThat(encheres.get(1).confirmation()).isCompleted();
+        assertThat(encheres.get(2).confirmation()).isCompleted();
+        // La réservation d'alice n'est pas en base : bob ne la libère pas
+        final ArgumentCaptor<List<MouvementCredit>> mouvements = ArgumentCaptor.forClass(List.class);
+        verify(creditManager, times(2)).persister(mouvements.capture());
+        assertThat(mouvements.getAllValues().get(0))
+                .extracting(MouvementCredit::getType, MouvementCredit::getMontant)
+                .containsExactly(tuple(TypeMouvement.RESERVATION, -700));
+        assertThat(mouvements.getAllValues().get(1))
+                .extracting(MouvementCredit::getType, MouvementCredit::getMontant)
+                .containsExactly(tuple(TypeMouvement.RESERVATION, -800), tuple(TypeMouvement.LIBERATION, 700));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void precedentePerdueSansLiberationDansUnLotSuivant() {
+        final EnchereAcceptee alice = enchere(1, "alice", REFUSE, null, null);
+        writer.ecrire(List.of(alice, enchere(2, "alice", 50, null, null)));
+        assertThat(alice.confirmation()).isCompletedExceptionally();
+
+        writer.ecrire(List.of(
+                enchere(2, "bob", 60, "alice", 50),
+                enchere(1, "bob", 700, "alice", REFUSE)));
+
+        // Lot écrit d'un bloc : seule la libération de l'offre écrite sur l'article 2
+        final ArgumentCaptor<List<MouvementCredit>> mouvements = ArgumentCaptor.forClass(List.class);
+        verify(creditManager, times(2)).persister(mouvements.capture());
+        assertThat(mouvements.getAllValues().get(1))
+                .extracting(MouvementCredit::getType, MouvementCredit::getMontant)
+                .containsExactly(
+                        tuple(TypeMouvement.RESERVATION, -60),
+                        tuple(TypeMouvement.LIBERATION, 50),
+                        tuple(TypeMouvement.RESERVATION, -700));
+        verify(aR).enregistrerEncheres(eq(1), eq(700), eq("bob"), any(), eq(1));
+    }
+
+    @Test
+    void attendreLesEcrituresDesArticles() throws InterruptedException {
+        ReflectionTestUtils.setField(writer, "file", new ArrayBlockingQueue<EnchereAcceptee>(10));
+        final EnchereAcceptee enchere = enchere(1, "alice", 100, null, null);
+        assertThat(writer.soumettre(enchere)).isTrue();
+
+        assertThat(writer.attendre(List.of(1), 50)).isFalse();
+        assertThat(writer.attendre(List.of(2), 50)).isTrue();
+
+        // Perdue à l'écriture : terminée quand même
+        enchere.confirmation().completeExceptionally(new IllegalStateException());
+        assertThat(writer.attendre(List.of(1), 50)).isTrue();
+    }
+
+    private static EnchereAcceptee enchere(Integer noArticle, String pseudo, Integer montant,
+            String precedent, Integer precedentMontant) {
+        return new EnchereAcceptee(noArticle, pseudo, montant, LocalDateTime.now(), precedent, precedentMontant,
+                new CompletableFuture<>());
+    }
+}
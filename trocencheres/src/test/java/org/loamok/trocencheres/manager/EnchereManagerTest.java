@@ -0,0 +1,236 @@
+package org.loamok.trocencheres.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.entity.Categorie;
+import org.loamok.trocencheres.entity.Enchere;
+import org.loamok.trocencheres.entity.Utilisateur;
+import org.loamok.trocencheres.journal.JournalEncheres;
+import org.loamok.trocencheres.manager.EnchereBatchWriter.EnchereAcceptee;
+import org.loamok.trocencheres.repository.ArticlesAVendreRepository;
+import org.loamok.trocencheres.repository.EnchereRepository;
+import org.loamok.trocencheres.repository.UtilisateurRepository;
+import org.loamok.trocencheres.stream.EnchereHub;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Moteur d'enchères sur un article, avec le grand livre des crédits réel et
+ * l'écriture en base simulée : les offres acceptées sont relevées dans
+ * l'ordre de leur soumission, qui se fait sous le verrou de l'article.
+ *
+ * @author Huby Franck
+ */
+class EnchereManagerTest {
+
+    private static final int CREDIT = 100_000;
+    private static final Integer ARTICLE = 1;
+
+    private final Queue<EnchereAcceptee> soumises = new ConcurrentLinkedQueue<>();
+    private ArticlesAVendreRepository aR;
+    private EnchereRepository eR;
+    private EnchereBatchWriter writer;
+    private CreditManager creditManager;
+    private EnchereManager enchereManager;
+    private ExecutorService pool;
+
+    @BeforeEach
+    void preparer() {
+        aR = mock(ArticlesAVendreRepository.class);
+        when(aR.findById(ARTICLE)).thenReturn(Optional.of(ArticlesAVendre.builder()
+                .id(ARTICLE)
+                .utilisateur(Utilisateur.builder().pseudo("vendeur").build())
+                .categorie(Categorie.builder().id(3).build())
+                .prixInitial(10)
+                .dateDebutEncheres(LocalDateTime.now().minusHours(1))
+                .dateFinEncheres(LocalDateTime.now().plusHours(1))
+                .statutEnchere(ArticlesAVendre.STATUT_EN_COURS)
+                .build()));
+        eR = mock(EnchereRepository.class);
+        when(eR.findFirstByArticle_IdOrderByMontantEnchereDesc(ARTICLE)).thenReturn(Optional.empty());
+
+        writer = mock(EnchereBatchWriter.class);
+        when(writer.soumettre(any())).thenAnswer(i -> soumises.add(i.getArgument(0)));
+
+        final UtilisateurRepository uR = mock(UtilisateurRepository.class);
+        when(uR.findCreditByPseudo(anyString())).thenReturn(CREDIT);
+        creditManager = new CreditManager();
+        ReflectionTestUtils.setField(creditManager, "uR", uR);
+
+        enchereManager = new EnchereManager();
+        ReflectionTestUtils.setField(enchereManager, "aR", aR);
+        ReflectionTestUtils.setField(enchereManager, "eR", eR);
+        ReflectionTestUtils.setField(enchereManager, "writer", writer);
+        ReflectionTestUtils.setField(enchereManager, "creditManager", creditManager);
+        ReflectionTestUtils.setField(enchereManager, "enchereHub", mock(EnchereHub.class));
+        ReflectionTestUtils.setField(enchereManager, "journal", mock(JournalEncheres.class));
+        ReflectionTestUtils.setField(enchereManager, "meterRegistry", new SimpleMeterRegistry());
+        enchereManager.init();
+    }
+
+    @AfterEach
+    void arreter() {
+        if (pool != null)
+            pool.shutdownNow();
+    }
+
+    @Test
+    void offresConcurrentesSerialiseesSurLArticle() throws Exception {
+        final int encherisseurs = 8;
+        final int tentatives = 300;
+        final CountDownLatch depart = new CountDownLatch(1);
+        pool = Executors.newFixedThreadPool(encherisseurs);
+        final List<Future<Integer>> taches = new ArrayList<>();
+        for (int i = 0; i < encherisseurs; i++) {
+            final String pseudo = "encherisseur" + i;
+            taches.add(pool.submit((Callable<Integer>) () -> {
+                depart.await();
+                int acceptees = 0;
+                for (int t = 0; t < tentatives; t++) {
+                    final Integer meilleur = enchereManager.getEtat(ARTICLE).getMeilleurMontant();
+                    final int montant = (meilleur == null ? 10 : meilleur) + 1 + t % 3;
+                    if (enchereManager.placerEnchere(pseudo, ARTICLE, montant).getAcceptee())
+                        acceptees++;
+                }
+                return acceptees;
+            }));
+        }
+        depart.countDown();
+        int acceptees = 0;
+        for (Future<Integer> f : taches)
+            acceptees += f.get(30, TimeUnit.SECONDS);
+
+        // Chaque offre acceptée dépasse la précédente et libère exactement son crédit
+        final List<EnchereAcceptee> offres = new ArrayList<>(soumises);
+        assertThat(offres).hasSize(acceptees).isNotEmpty();
+        for (int i = 1; i < offres.size(); i++) {
+            final EnchereAcceptee precedente = offres.get(i - 1);
+            final EnchereAcceptee offre = offres.get(i);
+            assertThat(offre.montant()).isGreaterThan(precedente.montant());
+            assertThat(offre.pseudo()).isNotEqualTo(precedente.pseudo());
+            assertThat(offre.precedentEncherisseur()).isEqualTo(precedente.pseudo());
+            assertThat(offre.precedentMontant()).isEqualTo(precedente.montant());
+        }
+
+        // Seul le meilleur enchérisseur a du crédit réservé
+        final EnchereAcceptee derniere = offres.get(offres.size() - 1);
+        final EtatEnchere etat = enchereManager.getEtat(ARTICLE);
+        assertThat(etat.getMeilleurMontant()).isEqualTo(derniere.montant());
+        assertThat(etat.getMeilleurEncherisseur()).isEqualTo(derniere.pseudo());
+        for (int i = 0; i < encherisseurs; i++) {
+            final String pseudo = "encherisseur" + i;
+            assertThat(creditManager.getSolde(pseudo))
+                    .isEqualTo(pseudo.equals(derniere.pseudo()) ? CREDIT - derniere.montant() : CREDIT);
+        }
+        // Chargé au plus une fois par thread en course, puis servi depuis la mémoire
+        verify(aR, atMost(encherisseurs)).findById(ARTICLE);
+    }
+
+    @Test
+    void offreRefuseeSansEcritureNiReservation() {
+        assertThat(enchereManager.placerEnchere("alice", ARTICLE, 9).getMotif()).isEqualTo("montant insuffisant");
+        assertThat(enchereManager.placerEnchere("vendeur", ARTICLE, 50).getMotif()).isEqualTo("le vendeur ne peut pas enchérir");
+        assertThat(enchereManager.placerEnchere("alice", ARTICLE, CREDIT + 1).getMotif()).isEqualTo("crédit insuffisant");
+
+        assertThat(enchereManager.placerEnchere("alice", ARTICLE, 20).getAcceptee()).isTrue();
+        assertThat(enchereManager.placerEnchere("alice", ARTICLE, 30).getMotif()).isEqualTo("déjà meilleur enchérisseur");
+        assertThat(enchereManager.placerEnchere("bob", ARTICLE, 20).getMotif()).isEqualTo("montant insuffisant");
+
+        assertThat(soumises).hasSize(1);
+        assertThat(creditManager.getSolde("alice")).isEqualTo(CREDIT - 20);
+        assertThat(creditManager.getSolde("bob")).isEqualTo(CREDIT);
+    }
+
+    @Test
+    void meilleureOffrePerdueRendLaMainALaPrecedente() {
+        assertThat(enchereManager.placerEnchere("alice", ARTICLE, 100).getAcceptee()).isTrue();
+        assertThat(enchereManager.placerEnchere("bob", ARTICLE, 150).getAcceptee()).isTrue();
+        assertThat(creditManager.getSolde("alice")).isEqualTo(CREDIT);
+        assertThat(creditManager.getSolde("bob")).isEqualTo(CREDIT - 150);
+
+        // Offre d'alice écrite, celle de bob perdue : alice redevient engagée, bob remboursé
+        final List<EnchereAcceptee> offres = new ArrayList<>(soumises);
+        offres.get(0).confirmation().complete(null);
+        when(eR.findFirstByArticle_IdOrderByMontantEnchereDesc(ARTICLE)).thenReturn(Optional.of(enchere("alice", 100)));
+        offres.get(1).confirmation().completeExceptionally(new IllegalStateException("refusée"));
+        assertThat(creditManager.getSolde("alice")).isEqualTo(CREDIT - 100);
+        assertThat(creditManager.getSolde("bob")).isEqualTo(CREDIT);
+
+        // État corrigé en place, sans rechargement
+        final EtatEnchere etat = enchereManager.getEtat(ARTICLE);
+        assertThat(etat.getMeilleurMontant()).isEqualTo(100);
+        assertThat(etat.getMeilleurEncherisseur()).isEqualTo("alice");
+        verify(aR, times(1)).findById(ARTICLE);
+    }
+
+    @Test
+    void offreDepasseePerdueSansDoubleRemboursement() {
+        assertThat(enchereManager.placerEnchere("alice", ARTICLE, 100).getAcceptee()).isTrue();
+        assertThat(enchereManager.placerEnchere("bob", ARTICLE, 150).getAcceptee()).isTrue();
+
+        // Offre d'alice perdue, celle de bob écrite : alice déjà remboursée une fois
+        final List<EnchereAcceptee> offres = new ArrayList<>(soumises);
+        offres.get(0).confirmation().completeExceptionally(new IllegalStateException("refusée"));
+        offres.get(1).confirmation().complete(null);
+        assertThat(creditManager.getSolde("alice")).isEqualTo(CREDIT);
+        assertThat(creditManager.getSolde("bob")).isEqualTo(CREDIT - 150);
+        assertThat(enchereManager.getEtat(ARTICLE).getMeilleurEncherisseur()).isEqualTo("bob");
+
+        // Offre de carole perdue alors qu'elle mène : bob, écrit en base, redevient engagé
+        assertThat(enchereManager.placerEnchere("carole", ARTICLE, 200).getAcceptee()).isTrue();
+        assertThat(enchereManager.placerEnchere("alice", ARTICLE, 120).getMotif()).isEqualTo("montant insuffisant");
+        when(eR.findFirstByArticle_IdOrderByMontantEnchereDesc(ARTICLE)).thenReturn(Optional.of(enchere("bob", 150)));
+        new ArrayList<>(soumises).get(2).confirmation().completeExceptionally(new IllegalStateException("refusée"));
+        assertThat(creditManager.getSolde("bob")).isEqualTo(CREDIT - 150);
+        assertThat(creditManager.getSolde("carole")).isEqualTo(CREDIT);
+        assertThat(enchereManager.getEtat(ARTICLE).getMeilleurMontant()).isEqualTo(150);
+        verify(aR, times(1)).findById(ARTICLE);
+    }
+
+    @Test
+    void chaineEntierementPerdue() {
+        assertThat(enchereManager.placerEnchere("alice", ARTICLE, 100).getAcceptee()).isTrue();
+        assertThat(enchereManager.placerEnchere("bob", ARTICLE, 150).getAcceptee()).isTrue();
+
+        // Les deux perdues : alice, elle-même perdue, n'est pas reprise
+        final List<EnchereAcceptee> offres = new ArrayList<>(soumises);
+        offres.get(0).confirmation().completeExceptionally(new IllegalStateException("refusée"));
+        offres.get(1).confirmation().completeExceptionally(new IllegalStateException("refusée"));
+        assertThat(creditManager.getSolde("alice")).isEqualTo(CREDIT);
+        assertThat(creditManager.getSolde("bob")).isEqualTo(CREDIT);
+        final EtatEnchere etat = enchereManager.getEtat(ARTICLE);
+        assertThat(etat.getMeilleurMontant()).isNull();
+        assertThat(etat.getMeilleurEncherisseur()).isNull();
+        assertThat(enchereManager.placerEnchere("carole", ARTICLE, 10).getAcceptee()).isTrue();
+    }
+
+    private static Enchere enchere(String pseudo, Integer montant) {
+        return Enchere.builder()
+                .montantEnchere(montant)
+                .utilisateur(Utilisateur.builder().pseudo(pseudo).build())
+                .build();
+    }
+}
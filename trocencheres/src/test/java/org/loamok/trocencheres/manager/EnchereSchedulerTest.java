@@ -0,0 +1,227 @@
+package org.loamok.trocencheres.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.loamok.trocencheres.configuration.FabriqueThreads;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.entity.MouvementCredit;
+import org.loamok.trocencheres.entity.MouvementCredit.TypeMouvement;
+import org.loamok.trocencheres.journal.JournalEncheres;
+import org.loamok.trocencheres.projection.CategorieArticle;
+import org.loamok.trocencheres.projection.MeilleureOffre;
+import org.loamok.trocencheres.repository.ArticlesAVendreRepository;
+import org.loamok.trocencheres.repository.EnchereRepository;
+import org.loamok.trocencheres.repository.UtilisateurRepository;
+import org.loamok.trocencheres.stream.EnchereHub;
+import org.loamok.trocencheres.stream.EnchereNotification;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Clôture par l'échéancier : fermeture en mémoire, attente des écritures,
+ * transaction de clôture, puis mémoire, journal et notifications après le
+ * commit seulement ; un lot en échec est remis en file.
+ *
+ * @author Huby Franck
+ */
+class EnchereSchedulerTest {
+
+    private static final Integer ARTICLE = 7;
+
+    private ArticlesAVendreRepository aR;
+    private EnchereRepository eR;
+    private EnchereService enchereManager;
+    private CreditService creditManager;
+    private EnchereBatchWriter writer;
+    private EnchereHub enchereHub;
+    private JournalEncheres journal;
+    private IndexProximite indexProximite;
+    private EnchereScheduler scheduler;
+
+    @BeforeEach
+    void preparer() throws InterruptedException {
+        aR = mock(ArticlesAVendreRepository.class);
+        eR = mock(EnchereRepository.class);
+        enchereManager = mock(EnchereService.class);
+        creditManager = mock(CreditService.class);
+        writer = mock(EnchereBatchWriter.class);
+        enchereHub = mock(EnchereHub.class);
+        journal = mock(JournalEncheres.class);
+        indexProximite = mock(IndexProximite.class);
+        when(writer.attendre(anyCollection(), anyLong())).thenReturn(true);
+        when(aR.cloturer(anyInt(), anyInt(), anyInt())).thenReturn(1);
+        final CategorieArticle categorie = mock(CategorieArticle.class);
+        when(categorie.getId()).thenReturn(ARTICLE);
+        when(categorie.getNoCategorie()).thenReturn(4);
+        when(aR.findCategories(anyCollection())).thenReturn(List.of(categorie));
+
+        scheduler = new EnchereScheduler();
+        ReflectionTestUtils.setField(scheduler, "aR", aR);
+        ReflectionTestUtils.setField(scheduler, "eR", eR);
+        ReflectionTestUtils.setField(scheduler, "uR", mock(UtilisateurRepository.class));
+        ReflectionTestUtils.setField(scheduler, "enchereManager", enchereManager);
+        ReflectionTestUtils.setField(scheduler, "creditManager", creditManager);
+        ReflectionTestUtils.setField(scheduler, "writer", writer);
+        ReflectionTestUtils.setField(scheduler, "enchereHub", enchereHub);
+        ReflectionTestUtils.setField(scheduler, "journal", journal);
+        ReflectionTestUtils.setField(scheduler, "indexProximite", indexProximite);
+        ReflectionTestUtils.setField(scheduler, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(scheduler, "fabriqueThreads", new FabriqueThreads());
+        ReflectionTestUtils.setField(scheduler, "tailleLot", 500);
+        ReflectionTestUtils.setField(scheduler, "attenteEcritureMs", 100L);
+        ReflectionTestUtils.setField(scheduler, "reessaiMs", 100L);
+    }
+
+    @AfterEach
+    void arreter() {
+        scheduler.arreter();
+    }
+
+    @Test
+    void clotureAvecGagnant() throws InterruptedException {
+        final MeilleureOffre offre = offre("alice", 150, "vendeur");
+        when(eR.findMeilleuresOffres(anyCollection())).thenReturn(List.of(offre));
+
+        scheduler.demarrer();
+        scheduler.planifier(article(LocalDateTime.now().plusNanos(50_000_000)));
+
+        final ArgumentCaptor<EnchereNotification> notification = ArgumentCaptor.forClass(EnchereNotification.class);
+        verify(enchereHub, timeout(3000)).publier(notification.capture());
+        assertThat(notification.getValue().type()).isEqualTo(EnchereNotification.CLOTURE);
+        assertThat(notification.getValue().noArticle()).isEqualTo(ARTICLE);
+        assertThat(notification.getValue().noCategorie()).isEqualTo(4);
+        assertThat(notification.getValue().montant()).isEqualTo(150);
+        assertThat(notification.getValue().pseudo()).isEqualTo("alice");
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<MouvementCredit>> ventes = ArgumentCaptor.forClass(List.class);
+        final InOrder ordre = inOrder(enchereManager, writer, aR, creditManager, journal, indexProximite, enchereHub);
+        ordre.verify(enchereManager).cloturer(ARTICLE);
+        ordre.verify(writer).attendre(eq(List.of(ARTICLE)), anyLong());
+        ordre.verify(aR).cloturer(ARTICLE, ArticlesAVendre.STATUT_CLOTUREE, 150);
+        ordre.verify(creditManager).crediter("vendeur", 150);
+        ordre.verify(creditManager).persister(ventes.capture());
+        ordre.verify(enchereManager).retirer(ARTICLE);
+        ordre.verify(journal).clore(ARTICLE);
+        ordre.verify(indexProximite).retirer(List.of(ARTICLE));
+        ordre.verify(enchereHub).publier(any());
+        assertThat(ventes.getValue()).singleElement().satisfies(m -> {
+            assertThat(m.getType()).isEqualTo(TypeMouvement.VENTE);
+            assertThat(m.getMontant()).isEqualTo(150);
+        });
+    }
+
+    @Test
+    void clotureSansOffre() {
+        scheduler.demarrer();
+        scheduler.planifier(article(LocalDateTime.now().plusNanos(50_000_000)));
+
+        final ArgumentCaptor<EnchereNotification> notification = ArgumentCaptor.forClass(EnchereNotification.class);
+        verify(enchereHub, timeout(3000)).publier(notification.capture());
+        assertThat(notification.getValue().montant()).isNull();
+        assertThat(notification.getValue().pseudo()).isNull();
+        verify(aR).changerStatut(List.of(ARTICLE), ArticlesAVendre.STATUT_EN_COURS, ArticlesAVendre.STATUT_CLOTUREE);
+        verify(aR, never()).cloturer(anyInt(), anyInt(), anyInt());
+        verify(creditManager, never()).crediter(anyString(), anyInt());
+    }
+
+    @Test
+    void lotEnEchecRemisEnFile() throws InterruptedException {
+        final MeilleureOffre offre = offre("alice", 150, "vendeur");
+        when(eR.findMeilleuresOffres(anyCollection())).thenReturn(List.of(offre));
+        // Offres pas encore écrites au premier passage
+        when(writer.attendre(anyCollection(), anyLong())).thenReturn(false, true);
+
+        scheduler.demarrer();
+        scheduler.planifier(article(LocalDateTime.now().plusNanos(50_000_000)));
+
+        verify(enchereHub, timeout(3000)).publier(any());
+        verify(enchereManager, times(2)).cloturer(ARTICLE);
+        verify(writer, times(2)).attendre(anyCollection(), anyLong());
+        // Rien n'a été appliqué au premier passage
+        verify(aR, times(1)).cloturer(ARTICLE, ArticlesAVendre.STATUT_CLOTUREE, 150);
+        verify(creditManager, times(1)).crediter("vendeur", 150);
+        verify(enchereManager, times(1)).retirer(ARTICLE);
+        verify(journal, times(1)).clore(ARTICLE);
+    }
+
+    @Test
+    void articleDejaClotureSansSecondCredit() {
+        final MeilleureOffre offre = offre("alice", 150, "vendeur");
+        when(eR.findMeilleuresOffres(anyCollection())).thenReturn(List.of(offre));
+        when(aR.cloturer(anyInt(), anyInt(), anyInt())).thenReturn(0);
+
+        scheduler.demarrer();
+        scheduler.planifier(article(LocalDateTime.now().plusNanos(50_000_000)));
+
+        verify(enchereHub, timeout(3000)).publier(any());
+        verify(creditManager, never()).crediter(anyString(), anyInt());
+        verify(creditManager).persister(List.of());
+        verify(enchereManager).retirer(ARTICLE);
+    }
+
+    @Test
+    void articleAnnuleAvantEcheanceSansCredit() {
+        final MeilleureOffre offre = offre("alice", 150, "vendeur");
+        when(eR.findMeilleuresOffres(anyCollection())).thenReturn(List.of(offre));
+        // Annulé par son vendeur : la clôture ne le modifie pas
+        when(aR.cloturer(ARTICLE, ArticlesAVendre.STATUT_CLOTUREE, 150)).thenReturn(0);
+
+        scheduler.demarrer();
+        scheduler.planifier(article(LocalDateTime.now().plusNanos(50_000_000)));
+
+        verify(creditManager, timeout(3000)).persister(List.of());
+        verify(creditManager, never()).crediter(anyString(), anyInt());
+    }
+
+    @Test
+    void echeanceRemplaceeIgnoree() {
+        scheduler.demarrer();
+        scheduler.planifier(article(LocalDateTime.now().plusNanos(50_000_000)));
+        // Fin repoussée avant l'échéance : la première est ignorée
+        scheduler.planifier(article(LocalDateTime.now().plusHours(1)));
+
+        verify(enchereManager, after(500).never()).cloturer(anyInt());
+        verify(aR, never()).changerStatut(anyList(), anyInt(), anyInt());
+    }
+
+    private static ArticlesAVendre article(LocalDateTime fin) {
+        return ArticlesAVendre.builder()
+                .id(ARTICLE)
+                .statutEnchere(ArticlesAVendre.STATUT_EN_COURS)
+                .dateDebutEncheres(LocalDateTime.now().minusHours(1))
+                .dateFinEncheres(fin)
+                .build();
+    }
+
+    private static MeilleureOffre offre(String pseudo, Integer montant, String vendeur) {
+        final MeilleureOffre offre = mock(MeilleureOffre.class);
+        when(offre.getNoArticle()).thenReturn(ARTICLE);
+        when(offre.getPseudo()).thenReturn(pseudo);
+        when(offre.getMontant()).thenReturn(montant);
+        when(offre.getVendeur()).thenReturn(vendeur);
+        return offre;
+    }
+}
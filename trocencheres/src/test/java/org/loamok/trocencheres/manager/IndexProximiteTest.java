@@ -0,0 +1,107 @@
+package org.loamok.trocencheres.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.projection.Coordonnees;
+import org.loamok.trocencheres.projection.PositionArticle;
+import org.loamok.trocencheres.repository.ArticlesAVendreRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Index de proximité : filtre sur le rayon, ordre des échéances, reprise
+ * après une clé, mise à jour et plafond du rayon.
+ *
+ * @author Huby Franck
+ */
+class IndexProximiteTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2026, 10, 18, 14, 30);
+    private static final Coordonnees PARIS = new Coordonnees(48.8566, 2.3522);
+
+    private ArticlesAVendreRepository aR;
+    private IndexProximite index;
+
+    @BeforeEach
+    void preparer() {
+        aR = mock(ArticlesAVendreRepository.class);
+        index = new IndexProximite();
+        ReflectionTestUtils.setField(index, "aR", aR);
+        ReflectionTestUtils.setField(index, "pas", 0.25);
+        ReflectionTestUtils.setField(index, "rayonMax", 200.0);
+        when(aR.findPositions(any())).thenReturn(List.of(
+                position(1, 3, 48.86, 2.35),
+                // Versailles, environ 17 km
+                position(2, 1, 48.80, 2.13),
+                // Orléans, environ 110 km
+                position(3, 2, 47.90, 1.90),
+                // Lyon, environ 390 km
+                position(4, 1, 45.76, 4.84),
+                position(5, 3, 48.85, 2.36),
+                // Dans une cellule couverte par un rayon de 50 km, mais à plus de 60 km
+                position(8, 1, 48.42, 2.90),
+                new PositionArticle(6, DATE.plusDays(1), ArticlesAVendre.STATUT_CLOTUREE, 48.86, 2.35),
+                new PositionArticle(7, DATE.plusDays(1), ArticlesAVendre.STATUT_EN_COURS, null, null)));
+        index.charger();
+    }
+
+    @Test
+    void rayonEtOrdreDesEcheances() {
+        assertThat(index.getTaille()).isEqualTo(6);
+        assertThat(index.rechercher(PARIS, 50, null, null, 10)).containsExactly(2, 1, 5);
+        assertThat(index.rechercher(PARIS, 150, null, null, 10)).containsExactly(2, 8, 3, 1, 5);
+        assertThat(index.rechercher(PARIS, 150, null, null, 2)).containsExactly(2, 8);
+        assertThat(index.rechercher(new Coordonnees(0, 0), 50, null, null, 10)).isEmpty();
+    }
+
+    @Test
+    void repriseApresLaCle() {
+        assertThat(index.rechercher(PARIS, 150, DATE.plusDays(1), 2, 10)).containsExactly(8, 3, 1, 5);
+        assertThat(index.rechercher(PARIS, 150, DATE.plusDays(1), 8, 2)).containsExactly(3, 1);
+        assertThat(index.rechercher(PARIS, 150, DATE.plusDays(3), 1, 10)).containsExactly(5);
+        assertThat(index.rechercher(PARIS, 150, DATE.plusDays(3), 5, 10)).isEmpty();
+        // Clé incomplète : depuis le début
+        assertThat(index.rechercher(PARIS, 50, DATE.plusDays(3), null, 10)).containsExactly(2, 1, 5);
+    }
+
+    @Test
+    void rayonPlafonne() {
+        // Lyon hors de portée même pour un rayon de 1000 km
+        assertThat(index.rechercher(PARIS, 1000, null, null, 10)).containsExactly(2, 8, 3, 1, 5);
+        ReflectionTestUtils.setField(index, "rayonMax", 500.0);
+        assertThat(index.rechercher(PARIS, 1000, null, null, 10)).containsExactly(2, 4, 8, 3, 1, 5);
+    }
+
+    @Test
+    void actualiserEtRetirer() {
+        // 2 reporté et déplacé dans Paris, 4 clôturé, 9 nouveau, 10 sans position
+        when(aR.findPositionsByIds(List.of(2, 4, 9, 10))).thenReturn(List.of(
+                position(2, 4, 48.86, 2.34),
+                new PositionArticle(4, DATE.plusDays(1), ArticlesAVendre.STATUT_CLOTUREE, 45.76, 4.84),
+                position(9, 2, 48.87, 2.33),
+                new PositionArticle(10, DATE.plusDays(1), ArticlesAVendre.STATUT_EN_COURS, null, 2.35)));
+
+        index.actualiser(List.of(2, 4, 9, 10));
+
+        assertThat(index.getTaille()).isEqualTo(6);
+        assertThat(index.rechercher(PARIS, 50, null, null, 10)).containsExactly(9, 1, 5, 2);
+        assertThat(index.rechercher(PARIS, 1000, null, null, 10)).doesNotContain(4);
+
+        index.retirer(List.of(1, 9, 42));
+        assertThat(index.getTaille()).isEqualTo(4);
+        assertThat(index.rechercher(PARIS, 50, null, null, 10)).containsExactly(5, 2);
+        index.actualiser(List.of());
+        assertThat(index.getTaille()).isEqualTo(4);
+    }
+
+    private static PositionArticle position(Integer id, int jours, double latitude, double longitude) {
+        return new PositionArticle(id, DATE.plusDays(jours), ArticlesAVendre.STATUT_EN_COURS, latitude, longitude);
+    }
+}
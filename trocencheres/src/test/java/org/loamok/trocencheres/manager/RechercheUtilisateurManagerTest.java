@@ -0,0 +1,163 @@
+package org.loamok.trocencheres.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.loamok.trocencheres.projection.PageUtilisateurs;
+import org.loamok.trocencheres.projection.UtilisateurTrouve;
+
+/**
+ * Index de recherche d'utilisateurs : distance d'édition sur sous-chaîne,
+ * modes de recherche, dédoublonnage, mise à jour de l'index et plafond du
+ * total.
+ *
+ * @author Huby Franck
+ */
+class RechercheUtilisateurManagerTest {
+
+    private RechercheUtilisateurManager recherche;
+
+    @BeforeEach
+    void preparer() {
+        recherche = new RechercheUtilisateurManager();
+        recherche.charger(List.of(
+                new UtilisateurTrouve("alice", "Dupont", "Alice", "alice@exemple.fr"),
+                new UtilisateurTrouve("bob", "Durand", "Éloïse", "bob@exemple.fr"),
+                new UtilisateurTrouve("carole", "Martin", "Carole", "carole@exemple.fr"),
+                new UtilisateurTrouve("alicia", "Dupontel", "Alicia", "a.dupontel@exemple.fr")));
+    }
+
+    @Test
+    void distanceSousChaine() {
+        assertThat(RechercheUtilisateurManager.distanceSousChaine("alice", "alice")).isZero();
+        assertThat(RechercheUtilisateurManager.distanceSousChaine("lic", "alice")).isZero();
+        // Inversion de deux lettres voisines : une seule faute
+        assertThat(RechercheUtilisateurManager.distanceSousChaine("alcie", "alice")).isEqualTo(1);
+        assertThat(RechercheUtilisateurManager.distanceSousChaine("alxce", "m. alice b")).isEqualTo(1);
+        assertThat(RechercheUtilisateurManager.distanceSousChaine("alce", "alice")).isEqualTo(1);
+        assertThat(RechercheUtilisateurManager.distanceSousChaine("aliice", "alice")).isEqualTo(1);
+        assertThat(RechercheUtilisateurManager.distanceSousChaine("abc", "")).isEqualTo(3);
+        assertThat(RechercheUtilisateurManager.distanceSousChaine("abc", "xyz")).isEqualTo(3);
+    }
+
+    @Test
+    void distanceSousChaineAleatoire() {
+        final Random aleatoire = new Random(42);
+        for (int n = 0; n < 5000; n++) {
+            final String q = mot(aleatoire, 1 + aleatoire.nextInt(6));
+            final String texte = mot(aleatoire, aleatoire.nextInt(10));
+            assertThat(RechercheUtilisateurManager.distanceSousChaine(q, texte))
+                    .as("%s dans %s", q, texte)
+                    .isEqualTo(reference(q, texte));
+        }
+    }
+
+    @Test
+    void modesDeRecherche() {
+        // Préfixe : ordre de la valeur du champ puis du pseudo
+        assertThat(pseudos(recherche.rechercher("dup", ChampRecherche.NOM, ModeRecherche.PREFIXE, 0, 10)))
+                .containsExactly("alice", "alicia");
+        assertThat(pseudos(recherche.rechercher("ont", ChampRecherche.NOM, ModeRecherche.PREFIXE, 0, 10))).isEmpty();
+        // Sous-chaîne, sans accents ni casse
+        assertThat(pseudos(recherche.rechercher("ONT", ChampRecherche.NOM, ModeRecherche.CONTIENT, 0, 10)))
+                .containsExactly("alice", "alicia");
+        assertThat(pseudos(recherche.rechercher("loi", ChampRecherche.PRENOM, ModeRecherche.CONTIENT, 0, 10)))
+                .containsExactly("bob");
+        assertThat(pseudos(recherche.rechercher("éloïse", ChampRecherche.PRENOM, ModeRecherche.CONTIENT, 0, 10)))
+                .containsExactly("bob");
+        // Approché : exact d'abord, puis une faute
+        assertThat(pseudos(recherche.rechercher("alici", ChampRecherche.PSEUDO, ModeRecherche.APPROCHE, 0, 10)))
+                .containsExactly("alicia", "alice");
+        assertThat(pseudos(recherche.rechercher("alcie", ChampRecherche.PSEUDO, ModeRecherche.APPROCHE, 0, 10)))
+                .containsExactly("alice");
+        assertThat(pseudos(recherche.rechercher("martn", ChampRecherche.NOM, ModeRecherche.APPROCHE, 0, 10)))
+                .containsExactly("carole");
+        assertThat(pseudos(recherche.rechercher("   ", ChampRecherche.TOUT, ModeRecherche.CONTIENT, 0, 10))).isEmpty();
+    }
+
+    @Test
+    void tousLesChampsDedoublonnes() {
+        // alice correspond par le pseudo, le prénom et l'email
+        final PageUtilisateurs page = recherche.rechercher("alic", ChampRecherche.TOUT, ModeRecherche.CONTIENT, 0, 10);
+        assertThat(pseudos(page)).containsExactly("alice", "alicia");
+        assertThat(page.total()).isEqualTo(2);
+    }
+
+    @Test
+    void indexTenuAJour() {
+        recherche.indexer(List.of(
+                new UtilisateurTrouve("bob", "Martinez", "Bob", "bob@exemple.fr"),
+                new UtilisateurTrouve("david", "Martin", "David", "david@exemple.fr")));
+        assertThat(recherche.getTaille()).isEqualTo(5);
+        assertThat(pseudos(recherche.rechercher("martin", ChampRecherche.NOM, ModeRecherche.CONTIENT, 0, 10)))
+                .containsExactly("bob", "carole", "david");
+        // Ancien nom de bob retiré de l'index
+        assertThat(pseudos(recherche.rechercher("durand", ChampRecherche.NOM, ModeRecherche.CONTIENT, 0, 10))).isEmpty();
+
+        recherche.retirer("carole");
+        recherche.retirer("inconnu");
+        assertThat(recherche.getTaille()).isEqualTo(4);
+        assertThat(pseudos(recherche.rechercher("martin", ChampRecherche.NOM, ModeRecherche.PREFIXE, 0, 10)))
+                .containsExactly("david", "bob");
+        assertThat(pseudos(recherche.rechercher("carole", ChampRecherche.TOUT, ModeRecherche.CONTIENT, 0, 10))).isEmpty();
+    }
+
+    @Test
+    void paginationEtPlafondDuTotal() {
+        final List<UtilisateurTrouve> utilisateurs = new ArrayList<>();
+        for (int i = 0; i < 1500; i++)
+            utilisateurs.add(new UtilisateurTrouve(String.format("u%04d", i), "Martin", "Prenom" + i, "u" + i + "@exemple.fr"));
+        recherche.charger(utilisateurs);
+
+        // Fusion des listes : total plafonné, page dans l'ordre des pseudos
+        final PageUtilisateurs page = recherche.rechercher("mart", ChampRecherche.NOM, ModeRecherche.CONTIENT, 2, 100);
+        assertThat(page.total()).isEqualTo(1000);
+        assertThat(pseudos(page)).hasSize(100).startsWith("u0200").endsWith("u0299");
+        // Page au-delà du plafond : total compté jusqu'à sa fin
+        final PageUtilisateurs loin = recherche.rechercher("mart", ChampRecherche.TOUT, ModeRecherche.CONTIENT, 12, 100);
+        assertThat(loin.total()).isEqualTo(1300);
+        assertThat(pseudos(loin)).startsWith("u1200");
+        // Peu de comptes : total exact par le tri partiel
+        assertThat(recherche.rechercher("prenom149", ChampRecherche.PRENOM, ModeRecherche.CONTIENT, 0, 5).total()).isEqualTo(11);
+    }
+
+    private static List<String> pseudos(PageUtilisateurs page) {
+        return page.utilisateurs().stream().map(UtilisateurTrouve::pseudo).toList();
+    }
+
+    private static String mot(Random aleatoire, int longueur) {
+        final StringBuilder sb = new StringBuilder(longueur);
+        for (int i = 0; i < longueur; i++)
+            sb.append((char) ('a' + aleatoire.nextInt(3)));
+        return sb.toString();
+    }
+
+    // Distance d'édition avec inversions (sans chevauchement) sur chaque sous-chaîne
+    private static int reference(String q, String texte) {
+        int meilleure = q.length();
+        for (int debut = 0; debut < texte.length(); debut++)
+            for (int fin = debut + 1; fin <= texte.length(); fin++)
+                meilleure = Math.min(meilleure, distance(q, texte.substring(debut, fin)));
+        return meilleure;
+    }
+
+    private static int distance(String a, String b) {
+        final int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++)
+            d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++)
+            d[0][j] = j;
+        for (int i = 1; i <= a.length(); i++)
+            for (int j = 1; j <= b.length(); j++) {
+                d[i][j] = Math.min(d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+                        Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1))
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+            }
+        return d[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,101 @@
+package org.loamok.trocencheres.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.loamok.trocencheres.entity.ArticlesAVendre;
+import org.loamok.trocencheres.projection.ArticleResume;
+import org.loamok.trocencheres.projection.CritereRechercheArticle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Clôture d'un article en base : seuls les articles encore ouverts sont
+ * clôturés, une seule fois. Recherche textuelle sur le début du nom.
+ *
+ * @author Huby Franck
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class ArticlesAVendreRepositoryTest {
+
+    @Autowired
+    private ArticlesAVendreRepository aR;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void cloturerLesSeulsArticlesOuverts() {
+        final Integer nonCommence = article(ArticlesAVendre.STATUT_NON_COMMENCEE);
+        final Integer enCours = article(ArticlesAVendre.STATUT_EN_COURS);
+        final Integer annule = article(ArticlesAVendre.STATUT_ANNULEE);
+        final Integer livre = article(ArticlesAVendre.STATUT_LIVREE);
+
+        assertThat(aR.cloturer(nonCommence, ArticlesAVendre.STATUT_CLOTUREE, 20)).isEqualTo(1);
+        assertThat(aR.cloturer(enCours, ArticlesAVendre.STATUT_CLOTUREE, 30)).isEqualTo(1);
+        // Deuxième essai sans effet
+        assertThat(aR.cloturer(enCours, ArticlesAVendre.STATUT_CLOTUREE, 40)).isZero();
+        assertThat(aR.cloturer(annule, ArticlesAVendre.STATUT_CLOTUREE, 50)).isZero();
+        assertThat(aR.cloturer(livre, ArticlesAVendre.STATUT_CLOTUREE, 60)).isZero();
+
+        assertThat(etat(enCours)).containsExactly(ArticlesAVendre.STATUT_CLOTUREE, 30);
+        assertThat(etat(annule)).containsExactly(ArticlesAVendre.STATUT_ANNULEE, null);
+        assertThat(etat(livre)).containsExactly(ArticlesAVendre.STATUT_LIVREE, null);
+    }
+
+    @Test
+    void rechercherParDebutDuNom() {
+        jdbcTemplate.update("INSERT INTO ROLES (ROLE, IS_ADMIN) VALUES ('ROLE_RECHERCHE', false)");
+        final Integer role = jdbcTemplate.queryForObject("SELECT id_role FROM ROLES WHERE ROLE = 'ROLE_RECHERCHE'", Integer.class);
+        jdbcTemplate.update("INSERT INTO UTILISATEURS (pseudo, nom, prenom, email, credit, id_role, mot_de_passe) "
+                + "VALUES ('vendeur', 'Nom', 'Prénom', 'vendeur@test', 10, ?, 'x')", role);
+        final Integer velo = article("Vélo de course", "Cadre acier", "vendeur");
+        final Integer veloEnfant = article("Vélo enfant", "Petites roues", "vendeur");
+        article("Casque", "Pour le vélo", "vendeur");
+        article("Grand vélo", "Cadre alu", "vendeur");
+        final Integer pourcent = article("100% coton", "Chemise", "vendeur");
+        article("100 cotons", "Chemises", "vendeur");
+
+        assertThat(rechercher("Vélo")).containsExactly(velo, veloEnfant);
+        assertThat(rechercher("  Vélo de ")).containsExactly(velo);
+        // Ni milieu du nom, ni description
+        assertThat(rechercher("course")).isEmpty();
+        assertThat(rechercher("Cadre")).isEmpty();
+        // Jokers du texte pris littéralement
+        assertThat(rechercher("100%")).containsExactly(pourcent);
+        assertThat(rechercher("_00")).isEmpty();
+    }
+
+    private List<Integer> rechercher(String texte) {
+        final CritereRechercheArticle critere = new CritereRechercheArticle();
+        critere.setTexte(texte);
+        return aR.rechercher(critere, null, null, 10).stream().map(ArticleResume::id).toList();
+    }
+
+    private Integer article(int statut) {
+        final LocalDateTime maintenant = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO ARTICLES_A_VENDRE (nom_article, description, photo, date_debut_encheres, "
+                + "date_fin_encheres, statut_enchere, prix_initial) VALUES ('Article', 'Clôture', 0, ?, ?, ?, 10)",
+                maintenant.minusDays(1), maintenant.plusDays(1), statut);
+        return jdbcTemplate.queryForObject("SELECT MAX(no_article) FROM ARTICLES_A_VENDRE", Integer.class);
+    }
+
+    private Integer article(String nom, String description, String vendeur) {
+        final LocalDateTime maintenant = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO ARTICLES_A_VENDRE (nom_article, description, photo, date_debut_encheres, "
+                + "date_fin_encheres, statut_enchere, prix_initial, id_utilisateur) VALUES (?, ?, 0, ?, ?, ?, 10, ?)",
+                nom, description, maintenant.minusDays(1), maintenant.plusDays(1), ArticlesAVendre.STATUT_EN_COURS, vendeur);
+        return jdbcTemplate.queryForObject("SELECT MAX(no_article) FROM ARTICLES_A_VENDRE", Integer.class);
+    }
+
+    private Object[] etat(Integer id) {
+        return jdbcTemplate.queryForObject("SELECT statut_enchere, prix_vente FROM ARTICLES_A_VENDRE WHERE no_article = ?",
+                (rs, i) -> new Object[] { rs.getInt(1), rs.getObject(2) }, id);
+    }
+}
@@ -0,0 +1,125 @@
+package org.loamok.trocencheres.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.loamok.trocencheres.entity.Role;
+import org.loamok.trocencheres.entity.Utilisateur;
+import org.loamok.trocencheres.event.ReferentielEventHandler;
+import org.loamok.trocencheres.event.UtilisateurEventHandler;
+import org.loamok.trocencheres.manager.ReferentielService;
+import org.loamok.trocencheres.repository.UtilisateurRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Cache des comptes : une lecture en base par utilisateur, éviction au
+ * changement de mot de passe ou de rôle, durée de vie bornée.
+ *
+ * @author Huby Franck
+ */
+class CompteCacheTest {
+
+    private static final Role UTILISATEUR = Role.builder().id(1).role("ROLE_USER").isAdmin(false).build();
+
+    private UtilisateurRepository uR;
+    private CompteCache compteCache;
+    private UtilisateurEventHandler utilisateurHandler;
+    private ReferentielEventHandler referentielHandler;
+
+    @BeforeEach
+    void preparer() {
+        uR = mock(UtilisateurRepository.class);
+        when(uR.findByPseudo("alice")).thenReturn(utilisateur("{bcrypt}ancien", UTILISATEUR));
+        compteCache = compteCache(Duration.ofMinutes(10));
+
+        utilisateurHandler = new UtilisateurEventHandler();
+        ReflectionTestUtils.setField(utilisateurHandler, "compteCache", compteCache);
+        referentielHandler = new ReferentielEventHandler();
+        ReflectionTestUtils.setField(referentielHandler, "compteCache", compteCache);
+        ReflectionTestUtils.setField(referentielHandler, "referentielManager", mock(ReferentielService.class));
+    }
+
+    @Test
+    void uneLectureParUtilisateur() {
+        final CompteAuthentifie compte = compteCache.get("alice");
+        assertThat(compte.password()).isEqualTo("{bcrypt}ancien");
+        assertThat(compte.authority()).isEqualTo("ROLE_USER");
+        assertThat(compteCache.get("alice")).isSameAs(compte);
+        verify(uR, times(1)).findByPseudo("alice");
+
+        // Pseudo inconnu : pas mis en cache
+        assertThat(compteCache.get("inconnu")).isNull();
+        assertThat(compteCache.get("inconnu")).isNull();
+        verify(uR, times(2)).findByPseudo("inconnu");
+        assertThat(compteCache.get(null)).isNull();
+    }
+
+    @Test
+    void evinceAuChangementDeMotDePasse() {
+        compteCache.get("alice");
+        final Utilisateur modifie = utilisateur("{bcrypt}nouveau", UTILISATEUR);
+        when(uR.findByPseudo("alice")).thenReturn(modifie);
+
+        utilisateurHandler.handleUtilisateurSave(modifie);
+
+        assertThat(compteCache.get("alice").password()).isEqualTo("{bcrypt}nouveau");
+        verify(uR, times(2)).findByPseudo("alice");
+    }
+
+    @Test
+    void evinceAuChangementDeRole() {
+        assertThat(compteCache.get("alice").isAdmin()).isFalse();
+        final Role admin = Role.builder().id(2).role("ROLE_ADMIN").isAdmin(true).build();
+        final Utilisateur promu = utilisateur("{bcrypt}ancien", admin);
+        when(uR.findByPseudo("alice")).thenReturn(promu);
+
+        // Rôle changé par son lien /utilisateurs/alice/role
+        utilisateurHandler.handleUtilisateurLinkSave(promu, admin);
+        assertThat(compteCache.get("alice").authority()).isEqualTo("ROLE_ADMIN");
+        assertThat(compteCache.get("alice").isAdmin()).isTrue();
+
+        // Libellé d'un rôle modifié : tous les comptes évincés
+        admin.setRole("ROLE_SUPER");
+        referentielHandler.handleRoleSave(admin);
+        assertThat(compteCache.get("alice").authority()).isEqualTo("ROLE_SUPER");
+        verify(uR, times(3)).findByPseudo("alice");
+    }
+
+    @Test
+    void evinceALaSuppression() {
+        compteCache.get("alice");
+        utilisateurHandler.handleUtilisateurDelete(utilisateur("{bcrypt}ancien", UTILISATEUR));
+        when(uR.findByPseudo("alice")).thenReturn(null);
+        assertThat(compteCache.get("alice")).isNull();
+    }
+
+    @Test
+    void dureeDeVieBornee() throws InterruptedException {
+        final CompteCache court = compteCache(Duration.ofMillis(100));
+        court.get("alice");
+        court.get("alice");
+        verify(uR, times(1)).findByPseudo("alice");
+        Thread.sleep(200);
+        court.get("alice");
+        verify(uR, times(2)).findByPseudo("alice");
+    }
+
+    private CompteCache compteCache(Duration ttl) {
+        final CompteCache c = new CompteCache();
+        ReflectionTestUtils.setField(c, "uR", uR);
+        ReflectionTestUtils.setField(c, "taille", 100L);
+        ReflectionTestUtils.setField(c, "ttl", ttl);
+        c.init();
+        return c;
+    }
+
+    private static Utilisateur utilisateur(String motDePasse, Role role) {
+        return Utilisateur.builder().pseudo("alice").password(motDePasse).role(role).build();
+    }
+}
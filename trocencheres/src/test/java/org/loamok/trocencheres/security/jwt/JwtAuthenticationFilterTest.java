@@ -0,0 +1,108 @@
+package org.loamok.trocencheres.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Jeton de flux SSE passé dans l'URL : accepté à l'ouverture d'un flux des
+ * enchères seulement, jamais ailleurs ni en en-tête, et refusé une fois
+ * révoqué.
+ *
+ * @author Huby Franck
+ */
+class JwtAuthenticationFilterTest {
+
+    private static final String FLUX = "/encheres/flux/articles/7";
+
+    private final JwtService jwtService = RevocationServiceTest.jwtService();
+    private final RevocationService revocation = mock(RevocationService.class);
+    private final JwtAuthenticationFilter filtre = new JwtAuthenticationFilter(jwtService, revocation, new SimpleMeterRegistry());
+
+    @AfterEach
+    void nettoyer() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void jetonDeFluxDansLUrl() throws ServletException, IOException {
+        final String jeton = jwtService.generateStreamToken("alice", "ROLE_USER");
+        final Claims claims = jwtService.extractAllClaims(jeton);
+        assertThat(jwtService.isStreamTokenValid(claims)).isTrue();
+        assertThat(claims.getExpiration().getTime() - claims.getIssuedAt().getTime()).isEqualTo(60_000L);
+
+        final Authentication authentification = parametre("GET", FLUX, jeton);
+        assertThat(authentification.getName()).isEqualTo("alice");
+        assertThat(authentification.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_USER");
+        assertThat(parametre("GET", "/encheres/flux/categories/3", jeton)).isNotNull();
+    }
+
+    @Test
+    void jetonDeFluxLimiteAuxFlux() throws ServletException, IOException {
+        final String jeton = jwtService.generateStreamToken("alice", "ROLE_USER");
+
+        // Autres chemins ou méthodes : le paramètre est ignoré
+        assertThat(parametre("GET", "/encheres", jeton)).isNull();
+        assertThat(parametre("GET", "/articlesAVendres", jeton)).isNull();
+        assertThat(parametre("POST", "/encheres/flux/jeton", jeton)).isNull();
+        // En en-tête, il ne vaut pas un jeton d'accès
+        assertThat(entete(jeton)).isNull();
+        // Et un jeton d'accès ou de rafraîchissement ne passe pas par l'URL
+        assertThat(parametre("GET", FLUX, jwtService.generateClientCredentialsToken("alice", "access", "ROLE_USER", false))).isNull();
+        assertThat(parametre("GET", FLUX, jwtService.generateRefreshToken("alice"))).isNull();
+        assertThat(parametre("GET", FLUX, "")).isNull();
+        assertThat(parametre("GET", FLUX, "pas.un.jeton")).isNull();
+    }
+
+    @Test
+    void jetonDeFluxRevoque() throws ServletException, IOException {
+        final String jeton = jwtService.generateStreamToken("alice", "ROLE_USER");
+        when(revocation.estRevoque(any())).thenReturn(true);
+
+        assertThat(parametre("GET", FLUX, jeton)).isNull();
+    }
+
+    @Test
+    void jetonDAccesEnEnteteSurLeFlux() throws ServletException, IOException {
+        final String acces = jwtService.generateClientCredentialsToken("alice", "access", "ROLE_USER", false);
+        final MockHttpServletRequest requete = new MockHttpServletRequest("GET", FLUX);
+        requete.addHeader("Authorization", "Bearer " + acces);
+        // L'en-tête prime sur le paramètre
+        requete.setParameter(JwtAuthenticationFilter.PARAM_JETON_FLUX, "pas.un.jeton");
+
+        assertThat(filtrer(requete)).isNotNull();
+    }
+
+    private Authentication parametre(String methode, String chemin, String jeton) throws ServletException, IOException {
+        final MockHttpServletRequest requete = new MockHttpServletRequest(methode, chemin);
+        requete.setParameter(JwtAuthenticationFilter.PARAM_JETON_FLUX, jeton);
+        return filtrer(requete);
+    }
+
+    private Authentication entete(String jeton) throws ServletException, IOException {
+        final MockHttpServletRequest requete = new MockHttpServletRequest("GET", "/encheres");
+        requete.addHeader("Authorization", "Bearer " + jeton);
+        return filtrer(requete);
+    }
+
+    private Authentication filtrer(MockHttpServletRequest requete) throws ServletException, IOException {
+        SecurityContextHolder.clearContext();
+        filtre.doFilter(requete, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,177 @@
+package org.loamok.trocencheres.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Jetons émis sans le builder jjwt : lus par un parseur jjwt indépendant,
+ * mêmes en-tête et claims que ceux du builder, y compris sous émission
+ * concurrente. Cache des claims vérifiés : un jeton n'est vérifié qu'une
+ * fois, jamais servi au-delà de son expiration ni pour une autre signature.
+ *
+ * @author Huby Franck
+ */
+class JwtServiceTest {
+
+    private static final String SECRET = "dGVzdC10ZXN0LXRlc3QtdGVzdC10ZXN0LXRlc3QtdGVzdC10ZXN0LXRlc3QtdGVzdA==";
+    private static final SecretKey CLE = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+
+    private final JwtService jwtService = jwtService(Duration.ofMinutes(15));
+
+    @Test
+    void jetonEcritALaMainLuParJjwt() {
+        final String jeton = jwtService.generateClientCredentialsToken("alice", "access", "ROLE_USER", true);
+        final String modele = jwtService.generateClientCredentialsToken(Map.of(
+                "client_id", "alice",
+                "scope", "access",
+                "token_type", "client_credentials",
+                "authority", "ROLE_USER",
+                "isAdmin", true), "alice");
+
+        // Même en-tête que le builder jjwt
+        assertThat(jeton.substring(0, jeton.indexOf('.'))).isEqualTo(modele.substring(0, modele.indexOf('.')));
+
+        final Claims claims = lire(jeton);
+        final Claims attendus = lire(modele);
+        for (String nom : List.of("sub", "client_id", "scope", "token_type", "authority", "isAdmin"))
+            assertThat(claims.get(nom)).as(nom).isEqualTo(attendus.get(nom));
+        assertThat(claims.keySet()).containsExactlyInAnyOrderElementsOf(attendus.keySet());
+        assertThat(claims.getId()).isNotBlank().isNotEqualTo(attendus.getId());
+        assertThat(claims.getExpiration().getTime() - claims.getIssuedAt().getTime()).isEqualTo(Duration.ofMinutes(15).toMillis());
+        assertThat(((Number) claims.get(JwtService.EMISSION_MS)).longValue() / 1000).isEqualTo(claims.getIssuedAt().getTime() / 1000);
+        assertThat(jwtService.isClientCredentialsTokenValid(claims)).isTrue();
+    }
+
+    @Test
+    void jetonDeRafraichissement() {
+        final Claims claims = lire(jwtService.generateRefreshToken("alice"));
+        assertThat(claims.getSubject()).isEqualTo("alice");
+        assertThat(claims.get("token_type")).isEqualTo("refresh");
+        assertThat(claims.getExpiration().getTime() - claims.getIssuedAt().getTime()).isEqualTo(Duration.ofDays(7).toMillis());
+        assertThat(jwtService.isRefreshTokenValid(claims)).isTrue();
+        assertThat(jwtService.isClientCredentialsTokenValid(claims)).isFalse();
+    }
+
+    @Test
+    void chainesEchappees() {
+        for (String valeur : List.of("a\"b", "a\\b", "ligne\nsuivante", "tab\t\u0001", "été € 𝄞", "</script>"))
+            assertThat(lire(jwtService.generateClientCredentialsToken(valeur, "access", valeur, false)))
+                    .containsEntry("sub", valeur)
+                    .containsEntry("client_id", valeur)
+                    .containsEntry("authority", valeur);
+        assertThat(lire(jwtService.generateClientCredentialsToken("alice", null, null, null)))
+                .containsEntry("sub", "alice")
+                .doesNotContainKeys("scope", "authority", "isAdmin");
+    }
+
+    @Test
+    void emissionConcurrente() throws Exception {
+        final ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<List<String>>> taches = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final String pseudo = "encherisseur" + t;
+                taches.add(pool.submit((Callable<List<String>>) () -> {
+                    final List<String> jetons = new ArrayList<>();
+                    for (int i = 0; i < 200; i++) {
+                        jetons.add(jwtService.generateClientCredentialsToken(pseudo, "access", "ROLE_USER", false));
+                        jetons.add(jwtService.generateRefreshToken(pseudo));
+                    }
+                    return jetons;
+                }));
+            }
+            // Tampon et Mac par thread : aucun jeton mélangé entre threads
+            final Set<String> jtis = new HashSet<>();
+            for (int t = 0; t < 8; t++)
+                for (String jeton : taches.get(t).get(30, TimeUnit.SECONDS)) {
+                    final Claims claims = lire(jeton);
+                    assertThat(claims.getSubject()).isEqualTo("encherisseur" + t);
+                    jtis.add(claims.getId());
+                }
+            assertThat(jtis).hasSize(8 * 400);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void claimsVerifiesUneSeuleFois() {
+        final String jeton = jwtService.generateClientCredentialsToken("alice", "access", "ROLE_USER", false);
+
+        final Claims premiers = jwtService.extractAllClaims(jeton);
+        assertThat(jwtService.extractAllClaims(jeton)).isSameAs(premiers);
+        assertThat(jwtService.extractUserName(jeton)).isEqualTo("alice");
+        assertThat(jwtService.getClaimsCacheStats().missCount()).isEqualTo(1);
+        assertThat(jwtService.getClaimsCacheStats().hitCount()).isEqualTo(2);
+        assertThat(jwtService.getClaimsCacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    void signatureAltereeJamaisServieParLeCache() {
+        final String jeton = jwtService.generateClientCredentialsToken("alice", "access", "ROLE_USER", false);
+        jwtService.extractAllClaims(jeton);
+
+        // Mêmes claims, signature d'une autre clé : autre empreinte, vérifiée et refusée
+        final SecretKey autre = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET.replace('d', 'e')));
+        final String falsifie = jeton.substring(0, jeton.lastIndexOf('.') + 1)
+                + Jwts.builder().subject("x").signWith(autre).compact().split("\\.")[2];
+        assertThatThrownBy(() -> jwtService.extractAllClaims(falsifie)).isInstanceOf(SignatureException.class);
+        assertThat(jwtService.isClientCredentialsTokenValid(falsifie, "alice")).isFalse();
+    }
+
+    @Test
+    void entreeExpireAvecLeJeton() throws InterruptedException {
+        final JwtService court = jwtService(Duration.ofSeconds(1));
+        final String jeton = court.generateClientCredentialsToken("alice", "access", "ROLE_USER", false);
+        final Claims claims = court.extractAllClaims(jeton);
+        assertThat(court.extractAllClaims(jeton)).isSameAs(claims);
+
+        // Au-delà de exp : l'entrée a expiré, le parseur relit et refuse le jeton
+        final long exp = claims.getExpiration().getTime();
+        while (System.currentTimeMillis() <= exp + 20)
+            Thread.sleep(50);
+        assertThatThrownBy(() -> court.extractAllClaims(jeton)).isInstanceOf(ExpiredJwtException.class);
+        assertThat(court.getClaimsCacheStats().hitCount()).isEqualTo(1);
+        assertThat(court.isClientCredentialsTokenValid(jeton, "alice")).isFalse();
+    }
+
+    // Parseur indépendant de celui du service
+    private static Claims lire(String jeton) {
+        return Jwts.parser().verifyWith(CLE).build().parseSignedClaims(jeton).getPayload();
+    }
+
+    private static JwtService jwtService(Duration acces) {
+        final JwtService j = new JwtService();
+        ReflectionTestUtils.setField(j, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(j, "SECRET_KEY", SECRET);
+        ReflectionTestUtils.setField(j, "tailleCache", 1000L);
+        ReflectionTestUtils.setField(j, "ttlMaxCache", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(j, "dureeAcces", acces);
+        ReflectionTestUtils.setField(j, "dureeRefresh", Duration.ofDays(7));
+        ReflectionTestUtils.setField(j, "dureeFlux", Duration.ofMinutes(1));
+        j.init();
+        return j;
+    }
+}
@@ -0,0 +1,201 @@
+package org.loamok.trocencheres.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.loamok.trocencheres.entity.JetonRevoque;
+import org.loamok.trocencheres.entity.JetonRevoque.TypeRevocation;
+import org.loamok.trocencheres.repository.JetonRevoqueRepository;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Révocation des jetons : par jti, par utilisateur à la milliseconde près,
+ * faux positifs du filtre de Bloom, rechargement au démarrage et refus par
+ * le filtre JWT.
+ *
+ * @author Huby Franck
+ */
+class RevocationServiceTest {
+
+    static final String SECRET = "dGVzdC10ZXN0LXRlc3QtdGVzdC10ZXN0LXRlc3QtdGVzdC10ZXN0LXRlc3QtdGVzdA==";
+
+    private JetonRevoqueRepository jrR;
+    private RevocationService revocation;
+    private JwtService jwtService;
+
+    @BeforeEach
+    void preparer() {
+        jrR = mock(JetonRevoqueRepository.class);
+        when(jrR.findByExpirationAfter(any())).thenReturn(List.of());
+        revocation = revocation(jrR);
+        jwtService = jwtService();
+    }
+
+    @AfterEach
+    void arreter() {
+        revocation.arreter();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void jetonRevoqueRefuse() {
+        final Claims claims = jwtService.extractAllClaims(jwtService.generateClientCredentialsToken("alice", "access", "ROLE_USER", false));
+        assertThat(revocation.estRevoque(claims)).isFalse();
+
+        assertThat(revocation.revoquer(claims.getId(), claims.getExpiration().toInstant())).isTrue();
+        assertThat(revocation.estRevoque(claims)).isTrue();
+        // Une seule révocation par jti
+        assertThat(revocation.revoquer(claims.getId(), claims.getExpiration().toInstant())).isFalse();
+        verify(jrR, times(1)).save(any());
+        // Déjà expiré : rien à révoquer
+        assertThat(revocation.revoquer("expire", Instant.now().minusSeconds(1))).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void revocationUtilisateurALaMilliseconde() throws InterruptedException {
+        final Claims avant = claims(jwtService.generateClientCredentialsToken("alice", "access", "ROLE_USER", false));
+        Thread.sleep(2);
+        revocation.revoquerUtilisateur("alice");
+        Thread.sleep(2);
+        // Émis après la révocation, le plus souvent dans la même seconde
+        final Claims apres = claims(jwtService.generateClientCredentialsToken("alice", "access", "ROLE_USER", false));
+        final Claims refresh = claims(jwtService.generateRefreshToken("alice"));
+        final Claims autre = claims(jwtService.generateClientCredentialsToken("bob", "access", "ROLE_USER", false));
+
+        assertThat(revocation.estRevoque(avant)).isTrue();
+        assertThat(revocation.estRevoque(apres)).isFalse();
+        assertThat(revocation.estRevoque(refresh)).isFalse();
+        assertThat(revocation.estRevoque(autre)).isFalse();
+
+        // Sans iat_ms, daté du début de sa seconde : refusé dans la seconde de la révocation
+        final Map<String, Long> utilisateurs = (Map<String, Long>) ReflectionTestUtils.getField(revocation, "utilisateurs");
+        final Date iat = new Date(utilisateurs.get("alice"));
+        assertThat(revocation.estRevoque(Jwts.claims().subject("alice").issuedAt(iat).build())).isTrue();
+        assertThat(revocation.estRevoque(Jwts.claims().subject("alice").issuedAt(new Date(iat.getTime() + 1000)).build())).isFalse();
+        assertThat(revocation.estRevoque(Jwts.claims().subject("alice").build())).isFalse();
+    }
+
+    @Test
+    void fauxPositifDuFiltreVerifieDansLEnsemble() {
+        // Filtre minuscule saturé : il répond « peut-être » pour tout jti
+        final FiltreBloom sature = new FiltreBloom(1, 0.5);
+        for (int i = 0; i < 1000; i++)
+            sature.ajouter("jti-" + i);
+        assertThat(sature.peutContenir("jamais-revoque")).isTrue();
+        ReflectionTestUtils.setField(revocation, "filtre", sature);
+
+        assertThat(revocation.estRevoque(Jwts.claims().id("jamais-revoque").subject("alice").build())).isFalse();
+        revocation.revoquer("revoque", Instant.now().plusSeconds(60));
+        assertThat(revocation.estRevoque(Jwts.claims().id("revoque").subject("alice").build())).isTrue();
+    }
+
+    @Test
+    void filtreDeBloomSansFauxNegatif() {
+        final FiltreBloom filtre = new FiltreBloom(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++)
+            filtre.ajouter("present-" + i);
+        int fauxPositifs = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filtre.peutContenir("present-" + i)).isTrue();
+            if (filtre.peutContenir(UUID.randomUUID().toString()))
+                fauxPositifs++;
+        }
+        // Taux visé 1 % : large marge
+        assertThat(fauxPositifs).isLessThan(300);
+    }
+
+    @Test
+    void revocationsRechargeesAuDemarrage() {
+        final Instant expiration = Instant.now().plusSeconds(600);
+        revocation.revoquer("jti-persiste", expiration);
+        revocation.revoquerUtilisateur("alice");
+        final ArgumentCaptor<JetonRevoque> lignes = ArgumentCaptor.forClass(JetonRevoque.class);
+        verify(jrR, times(2)).save(lignes.capture());
+        assertThat(lignes.getAllValues()).extracting(JetonRevoque::getType)
+                .containsExactly(TypeRevocation.JETON, TypeRevocation.UTILISATEUR);
+
+        final JetonRevoqueRepository relu = mock(JetonRevoqueRepository.class);
+        when(relu.findByExpirationAfter(any())).thenReturn(lignes.getAllValues());
+        final RevocationService reprise = revocation(relu);
+        try {
+            assertThat(reprise.getNombreRevocations()).isEqualTo(2);
+            assertThat(reprise.estRevoque(Jwts.claims().id("jti-persiste").build())).isTrue();
+            assertThat(reprise.estRevoque(claims(jwtService.generateClientCredentialsToken("alice", "access", "ROLE_USER", false))))
+                    .isFalse();
+        } finally {
+            reprise.arreter();
+        }
+    }
+
+    @Test
+    void filtreJwtRefuseLeJetonRevoque() throws ServletException, IOException {
+        final JwtAuthenticationFilter filtre = new JwtAuthenticationFilter(jwtService, revocation, new SimpleMeterRegistry());
+        final String jeton = jwtService.generateClientCredentialsToken("alice", "access", "ROLE_USER", false);
+
+        assertThat(authentifie(filtre, jeton)).isTrue();
+        final Claims claims = jwtService.extractAllClaims(jeton);
+        revocation.revoquer(claims.getId(), claims.getExpiration().toInstant());
+        assertThat(authentifie(filtre, jeton)).isFalse();
+        // Jeton de rafraîchissement : n'authentifie aucune requête
+        assertThat(authentifie(filtre, jwtService.generateRefreshToken("alice"))).isFalse();
+    }
+
+    private boolean authentifie(JwtAuthenticationFilter filtre, String jeton) throws ServletException, IOException {
+        SecurityContextHolder.clearContext();
+        final MockHttpServletRequest requete = new MockHttpServletRequest("GET", "/articles");
+        requete.addHeader("Authorization", "Bearer " + jeton);
+        filtre.doFilter(requete, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication() != null;
+    }
+
+    private Claims claims(String jeton) {
+        return jwtService.extractAllClaims(jeton);
+    }
+
+    private static RevocationService revocation(JetonRevoqueRepository jrR) {
+        final RevocationService r = new RevocationService();
+        ReflectionTestUtils.setField(r, "jrR", jrR);
+        ReflectionTestUtils.setField(r, "capacite", 1000);
+        ReflectionTestUtils.setField(r, "periodePurge", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(r, "dureeRefresh", Duration.ofDays(7));
+        r.init();
+        return r;
+    }
+
+    static JwtService jwtService() {
+        final JwtService j = new JwtService();
+        ReflectionTestUtils.setField(j, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(j, "SECRET_KEY", SECRET);
+        ReflectionTestUtils.setField(j, "tailleCache", 1000L);
+        ReflectionTestUtils.setField(j, "ttlMaxCache", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(j, "dureeAcces", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(j, "dureeRefresh", Duration.ofDays(7));
+        ReflectionTestUtils.setField(j, "dureeFlux", Duration.ofMinutes(1));
+        j.init();
+        return j;
+    }
+}
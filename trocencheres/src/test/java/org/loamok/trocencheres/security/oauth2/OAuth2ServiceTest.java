@@ -0,0 +1,118 @@
+package org.loamok.trocencheres.security.oauth2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.loamok.trocencheres.repository.JetonRevoqueRepository;
+import org.loamok.trocencheres.repository.UtilisateurRepository;
+import org.loamok.trocencheres.security.jwt.CompteAuthentifie;
+import org.loamok.trocencheres.security.jwt.CompteCache;
+import org.loamok.trocencheres.security.jwt.JwtService;
+import org.loamok.trocencheres.security.jwt.RevocationService;
+import org.loamok.trocencheres.security.password.PasswordHashService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Grant refresh_token : le jeton de rafraîchissement ne sert qu'une fois,
+ * y compris quand il est présenté par plusieurs appels concurrents.
+ *
+ * @author Huby Franck
+ */
+class OAuth2ServiceTest {
+
+    private RevocationService revocation;
+    private JwtService jwtService;
+    private OAuth2Service oauth2Service;
+    private ExecutorService pool;
+
+    @BeforeEach
+    void preparer() {
+        final JetonRevoqueRepository jrR = mock(JetonRevoqueRepository.class);
+        when(jrR.findByExpirationAfter(any())).thenReturn(List.of());
+        revocation = new RevocationService();
+        ReflectionTestUtils.setField(revocation, "jrR", jrR);
+        ReflectionTestUtils.setField(revocation, "capacite", 1000);
+        ReflectionTestUtils.setField(revocation, "periodePurge", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(revocation, "dureeRefresh", Duration.ofDays(7));
+        ReflectionTestUtils.invokeMethod(revocation, "init");
+
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "SECRET_KEY", "dGVzdC10ZXN0LXRlc3QtdGVzdC10ZXN0LXRlc3QtdGVzdC10ZXN0LXRlc3QtdGVzdA==");
+        ReflectionTestUtils.setField(jwtService, "tailleCache", 1000L);
+        ReflectionTestUtils.setField(jwtService, "ttlMaxCache", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(jwtService, "dureeAcces", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(jwtService, "dureeRefresh", Duration.ofDays(7));
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+
+        final CompteCache compteCache = mock(CompteCache.class);
+        when(compteCache.get("alice")).thenReturn(new CompteAuthentifie("alice", "x", "ROLE_USER", false));
+        oauth2Service = new OAuth2Service(mock(UtilisateurRepository.class), compteCache, mock(PasswordHashService.class),
+                jwtService, revocation, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void arreter() {
+        ReflectionTestUtils.invokeMethod(revocation, "arreter");
+        if (pool != null)
+            pool.shutdownNow();
+    }
+
+    @Test
+    void rafraichissementAUsageUnique() {
+        final String refresh = jwtService.generateRefreshToken("alice");
+
+        final OAuth2TokenResponse reponse = oauth2Service.refreshToken("alice", refresh).orElseThrow();
+        assertThat(jwtService.isClientCredentialsTokenValid(jwtService.extractAllClaims(reponse.accessToken()))).isTrue();
+        assertThat(oauth2Service.refreshToken("alice", refresh)).isEmpty();
+        // Le nouveau jeton de rafraîchissement sert à son tour, une fois
+        assertThat(oauth2Service.refreshToken("alice", reponse.refreshToken())).isPresent();
+        assertThat(oauth2Service.refreshToken("alice", reponse.refreshToken())).isEmpty();
+    }
+
+    @Test
+    void rafraichissementRefuse() {
+        final String refresh = jwtService.generateRefreshToken("alice");
+        // Autre client, jeton d'accès, jeton illisible
+        assertThat(oauth2Service.refreshToken("bob", refresh)).isEmpty();
+        assertThat(oauth2Service.refreshToken("alice", jwtService.generateClientCredentialsToken("alice", "access", "ROLE_USER", false))).isEmpty();
+        assertThat(oauth2Service.refreshToken("alice", "pas.un.jeton")).isEmpty();
+        // Toujours utilisable après ces refus
+        assertThat(oauth2Service.refreshToken("alice", refresh)).isPresent();
+    }
+
+    @Test
+    void rafraichissementsConcurrentsUnSeulGagnant() throws Exception {
+        final String refresh = jwtService.generateRefreshToken("alice");
+        final int appels = 8;
+        final CountDownLatch depart = new CountDownLatch(1);
+        pool = Executors.newFixedThreadPool(appels);
+        final List<Future<Boolean>> taches = new ArrayList<>();
+        for (int i = 0; i < appels; i++)
+            taches.add(pool.submit((Callable<Boolean>) () -> {
+                depart.await();
+                return oauth2Service.refreshToken("alice", refresh).isPresent();
+            }));
+        depart.countDown();
+        int reussis = 0;
+        for (Future<Boolean> f : taches)
+            if (f.get(10, TimeUnit.SECONDS))
+                reussis++;
+        assertThat(reussis).isEqualTo(1);
+    }
+}
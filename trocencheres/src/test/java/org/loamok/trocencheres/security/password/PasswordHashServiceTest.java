@@ -0,0 +1,147 @@
+package org.loamok.trocencheres.security.password;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Hachage des mots de passe : compatibilité avec les PasswordEncoder de
+ * Spring Security, rehachage au coût courant et refus quand le pool est plein.
+ *
+ * @author Huby Franck
+ */
+class PasswordHashServiceTest {
+
+    private PasswordHashService service;
+    private final CountDownLatch liberer = new CountDownLatch(1);
+
+    @AfterEach
+    void arreter() {
+        liberer.countDown();
+        if (service != null)
+            service.arreter();
+    }
+
+    @Test
+    void hachesVerifiesParLesEncodeursSpring() {
+        service = service(10, 1, 10, Duration.ofSeconds(5));
+
+        final String hache = service.hacher("secret");
+        assertThat(hache).startsWith("{bcrypt}$2a$10$");
+        assertThat(service.verifier("secret", hache)).isTrue();
+        assertThat(service.verifier("autre", hache)).isFalse();
+
+        // Un encodeur Spring standard reconnaît les hachages produits
+        final PasswordEncoder standard = PasswordEncoderFactories.createDelegatingPasswordEncoder();
+        assertThat(standard.matches("secret", hache)).isTrue();
+        assertThat(standard.matches("autre", hache)).isFalse();
+        assertThat(new BCryptPasswordEncoder().matches("secret", hache.substring("{bcrypt}".length()))).isTrue();
+        assertThat(service.getEncoder().matches("secret", hache)).isTrue();
+
+        // Et inversement pour les hachages existants
+        assertThat(service.verifier("secret", standard.encode("secret"))).isTrue();
+        assertThat(service.hacherTous(List.of("a", "b")))
+                .satisfiesExactly(
+                        a -> assertThat(standard.matches("a", a)).isTrue(),
+                        b -> assertThat(standard.matches("b", b)).isTrue());
+    }
+
+    @Test
+    void rehacheLesCoutsInferieurs() throws InterruptedException {
+        service = service(11, 1, 10, Duration.ofSeconds(5));
+
+        final String ancien = "{bcrypt}" + new BCryptPasswordEncoder(10).encode("secret");
+        assertThat(service.verifier("secret", ancien)).isTrue();
+        assertThat(service.doitRehacher(ancien)).isTrue();
+        assertThat(service.doitRehacher(null)).isFalse();
+
+        final AtomicReference<String> enregistre = new AtomicReference<>();
+        final CountDownLatch fait = new CountDownLatch(1);
+        service.rehacherPlusTard("secret", h -> {
+            enregistre.set(h);
+            fait.countDown();
+        });
+        assertThat(fait.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(enregistre.get()).startsWith("{bcrypt}$2a$11$");
+        assertThat(service.doitRehacher(enregistre.get())).isFalse();
+        assertThat(service.verifier("secret", enregistre.get())).isTrue();
+    }
+
+    @Test
+    void poolPleinRefuseImmediatement() throws InterruptedException {
+        service = service(4, 1, 1, Duration.ofSeconds(5));
+        final CountDownLatch occupe = occuper();
+        // La file d'une place est prise par un second rehachage
+        service.rehacherPlusTard("file", h -> {});
+
+        final long debut = System.nanoTime();
+        assertThatThrownBy(() -> service.hacher("secret")).isInstanceOf(HachageSatureException.class);
+        assertThatThrownBy(() -> service.verifier("secret", "{bcrypt}x")).isInstanceOf(HachageSatureException.class);
+        assertThatThrownBy(() -> service.hacherTous(List.of("a"))).isInstanceOf(HachageSatureException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - debut)).isLessThan(Duration.ofSeconds(1));
+
+        // Rehachage abandonné sans erreur, refait à la prochaine connexion
+        final CountDownLatch abandonne = new CountDownLatch(1);
+        service.rehacherPlusTard("secret", h -> abandonne.countDown());
+
+        liberer.countDown();
+        assertThat(abandonne.await(500, TimeUnit.MILLISECONDS)).isFalse();
+        // Le pool se vide et accepte de nouveau
+        assertThat(service.verifier("secret", service.hacher("secret"))).isTrue();
+        assertThat(occupe.getCount()).isZero();
+    }
+
+    @Test
+    void attenteBorneeDansLaFile() throws InterruptedException {
+        service = service(4, 1, 10, Duration.ofMillis(200));
+        occuper();
+
+        final long debut = System.nanoTime();
+        assertThatThrownBy(() -> service.hacher("secret"))
+                .isInstanceOf(HachageSatureException.class)
+                .hasMessageContaining("Délai");
+        assertThat(Duration.ofNanos(System.nanoTime() - debut)).isLessThan(Duration.ofSeconds(2));
+
+        liberer.countDown();
+        assertThat(service.verifier("secret", service.hacher("secret"))).isTrue();
+    }
+
+    // Bloque l'unique thread du pool jusqu'à la libération
+    private CountDownLatch occuper() throws InterruptedException {
+        final CountDownLatch occupe = new CountDownLatch(1);
+        service.rehacherPlusTard("occupe", h -> {
+            occupe.countDown();
+            try {
+                liberer.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(occupe.await(5, TimeUnit.SECONDS)).isTrue();
+        return occupe;
+    }
+
+    private static PasswordHashService service(int cout, int threads, int file, Duration attenteMax) {
+        final PasswordHashService service = new PasswordHashService();
+        ReflectionTestUtils.setField(service, "threads", threads);
+        ReflectionTestUtils.setField(service, "capaciteFile", file);
+        ReflectionTestUtils.setField(service, "attenteMax", attenteMax);
+        ReflectionTestUtils.setField(service, "coutImpose", cout);
+        ReflectionTestUtils.setField(service, "coutMin", 4);
+        ReflectionTestUtils.setField(service, "coutMax", 16);
+        ReflectionTestUtils.setField(service, "cible", Duration.ofMillis(200));
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,81 @@
+package org.loamok.trocencheres.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Nombre total d'abonnés borné : refus au-delà de la limite, place rendue
+ * une seule fois quand un abonné part.
+ *
+ * @author Huby Franck
+ */
+class EnchereHubTest {
+
+    private final EnchereHub hub = hub(3);
+
+    @AfterEach
+    void arreter() {
+        hub.arreter();
+    }
+
+    @Test
+    void refuseAuDelaDeLaLimite() {
+        hub.abonner(EnchereHub.sujetArticle(1));
+        hub.abonner(EnchereHub.sujetArticle(1));
+        hub.abonner(EnchereHub.sujetCategorie(2));
+        assertThat(hub.getNbAbonnes()).isEqualTo(3);
+
+        assertThatThrownBy(() -> hub.abonner(EnchereHub.sujetArticle(4))).isInstanceOf(FluxSatureException.class);
+        assertThatThrownBy(() -> hub.abonner(EnchereHub.sujetArticle(1))).isInstanceOf(FluxSatureException.class);
+        assertThat(hub.getNbAbonnes()).isEqualTo(3);
+        assertThat(abonnes()).doesNotContainKey(EnchereHub.sujetArticle(4));
+        // Réponse 503 côté HTTP
+        assertThat(AnnotatedElementUtils.findMergedAnnotation(FluxSatureException.class, ResponseStatus.class).value())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void placeRendueUneSeuleFois() {
+        hub.abonner(EnchereHub.sujetArticle(1));
+        hub.abonner(EnchereHub.sujetArticle(1));
+        hub.abonner(EnchereHub.sujetArticle(1));
+        final Abonne parti = abonnes().get(EnchereHub.sujetArticle(1)).iterator().next();
+
+        // Éviction suivie de la fin de connexion : un seul retrait compté
+        ReflectionTestUtils.invokeMethod(hub, "evincer", parti);
+        ReflectionTestUtils.invokeMethod(hub, "retirer", parti);
+        ReflectionTestUtils.invokeMethod(hub, "evincer", parti);
+        assertThat(hub.getNbAbonnes()).isEqualTo(2);
+        assertThat(abonnes().get(EnchereHub.sujetArticle(1))).hasSize(2).doesNotContain(parti);
+
+        hub.abonner(EnchereHub.sujetCategorie(2));
+        assertThatThrownBy(() -> hub.abonner(EnchereHub.sujetCategorie(2))).isInstanceOf(FluxSatureException.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConcurrentMap<String, Set<Abonne>> abonnes() {
+        return (ConcurrentMap<String, Set<Abonne>>) ReflectionTestUtils.getField(hub, "abonnes");
+    }
+
+    private static EnchereHub hub(int abonnesMax) {
+        final EnchereHub hub = new EnchereHub();
+        ReflectionTestUtils.setField(hub, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(hub, "timeoutMs", 60_000L);
+        ReflectionTestUtils.setField(hub, "capacite", 8);
+        ReflectionTestUtils.setField(hub, "threads", 1);
+        ReflectionTestUtils.setField(hub, "battementS", 60L);
+        ReflectionTestUtils.setField(hub, "abonnesMax", abonnesMax);
+        hub.demarrer();
+        return hub;
+    }
+}